@@ -0,0 +1,102 @@
+package org.arkadipta.ecb.config;
+
+import org.arkadipta.ecb.cache.CacheTierProperties;
+import org.arkadipta.ecb.cache.CacheValueFormat;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing and reading a cached product listing page through the Redis value serializer,
+ * in each value format: class-annotated JSON, compact binary, and compact binary deflated. The
+ * serialized size of one page is printed on setup. JSON cannot read a PageImpl back, its page
+ * reads only time the failed attempt; compare JSON reads on the slice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    @Param({"json", "compact", "compact-deflated"})
+    private String format;
+
+    // A PageImpl as cached by getAllProducts, or a ProductSliceResponse as cached by the slice listings
+    @Param({"page", "slice"})
+    private String value;
+
+    private RedisSerializer<Object> serializer;
+    private Object page;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() {
+        CacheTierProperties.Spec spec = new CacheTierProperties().getDefaults();
+        spec.setFormat(format.equals("json") ? CacheValueFormat.JSON : CacheValueFormat.COMPACT);
+        spec.setCompressionThreshold(format.equals("compact-deflated") ? DataSize.ofBytes(0)
+                : DataSize.ofBytes(Integer.MAX_VALUE));
+        serializer = RedisConfig.cacheValueSerializer(spec);
+
+        List<ProductResponse> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            ProductResponse product = new ProductResponse();
+            product.setId((long) i);
+            product.setName("Product " + i);
+            product.setDescription("Description of product " + i);
+            product.setCategory("Category " + i % 10);
+            product.setPrice(new BigDecimal("19.99").add(BigDecimal.valueOf(i)));
+            product.setStock(100);
+            product.setRating(new BigDecimal("4.5"));
+            product.setImageUrl("https://cdn.example.com/products/" + i + ".jpg");
+            product.setActive(true);
+            product.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+            product.setUpdatedAt(LocalDateTime.of(2025, 6, 1, 12, 0));
+            content.add(product);
+        }
+        page = value.equals("page")
+                ? new PageImpl<>(content, PageRequest.of(0, pageSize), 10_000)
+                : new ProductSliceResponse(content, 0, pageSize, true, List.of(), null, null);
+        serialized = serializer.serialize(page);
+        System.out.printf("%nSerialized %s of %d products as %s: %d bytes%n", value, pageSize, format, serialized.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(page);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(serialized);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return serializer.deserialize(serializer.serialize(page));
+    }
+}
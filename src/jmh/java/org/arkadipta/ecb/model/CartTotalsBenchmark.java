@@ -0,0 +1,57 @@
+package org.arkadipta.ecb.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartTotalsBenchmark {
+
+    @Param({"5", "50"})
+    private int cartItems;
+
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        List<CartItem> items = new ArrayList<>(cartItems);
+        for (int i = 0; i < cartItems; i++) {
+            Product product = new Product();
+            product.setPrice(new BigDecimal("19.99").add(BigDecimal.valueOf(i)));
+            CartItem item = new CartItem();
+            item.setProduct(product);
+            item.setQuantity(1 + i % 3);
+            items.add(item);
+        }
+        cart.setItems(items);
+    }
+
+    @Benchmark
+    public BigDecimal totalPrice() {
+        return cart.getTotalPrice();
+    }
+
+    @Benchmark
+    public int totalItems() {
+        return cart.getTotalItems();
+    }
+}
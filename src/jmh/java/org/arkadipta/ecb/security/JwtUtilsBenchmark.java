@@ -0,0 +1,73 @@
+package org.arkadipta.ecb.security;
+
+import org.arkadipta.ecb.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and per-request validation cost. {@code validateToken} is served from the
+ * verified claims cache after the first call, {@code parseUncached} is the signature check
+ * a token pays on its first request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "dGVzdFNlY3JldEtleTEyMzQ1Njc4OTAxMjM0NTY3ODkwMTIzNDU2Nzg5MDEyMzQ1Njc4OTA=";
+
+    private JwtUtils jwtUtils;
+    private JwtUtils uncachedJwtUtils;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = jwtUtils(10_000);
+        uncachedJwtUtils = jwtUtils(0);
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("bench@example.com");
+        token = jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtils.validateToken(token, user);
+    }
+
+    @Benchmark
+    public Boolean parseUncached() {
+        return uncachedJwtUtils.validateToken(token, user);
+    }
+
+    private static JwtUtils jwtUtils(long claimsCacheSize) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpirationMs", 7_200_000);
+        ReflectionTestUtils.setField(jwtUtils, "claimsCacheSize", claimsCacheSize);
+        jwtUtils.init();
+        return jwtUtils;
+    }
+}
@@ -0,0 +1,93 @@
+package org.arkadipta.ecb.service;
+
+import org.arkadipta.ecb.dto.cart.CartResponse;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.model.Cart;
+import org.arkadipta.ecb.model.CartItem;
+import org.arkadipta.ecb.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping done on every product and cart read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseConversionBenchmark {
+
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        product = product(1);
+    }
+
+    @Benchmark
+    public ProductResponse productToResponse() {
+        return ProductService.convertToResponse(product);
+    }
+
+    @Benchmark
+    public CartResponse cartToResponse(CartState state) {
+        return CartService.convertToResponse(state.cart);
+    }
+
+    @State(Scope.Benchmark)
+    public static class CartState {
+
+        @Param({"5", "50"})
+        private int cartItems;
+
+        private Cart cart;
+
+        @Setup
+        public void setUp() {
+            cart = new Cart();
+            cart.setId(1L);
+            List<CartItem> items = new ArrayList<>(cartItems);
+            for (int i = 0; i < cartItems; i++) {
+                CartItem item = new CartItem();
+                item.setId((long) i);
+                item.setCart(cart);
+                item.setProduct(product(i));
+                item.setQuantity(1 + i % 3);
+                items.add(item);
+            }
+            cart.setItems(items);
+        }
+    }
+
+    private static Product product(int i) {
+        Product product = new Product();
+        product.setId((long) i);
+        product.setName("Product " + i);
+        product.setDescription("Description of product " + i);
+        product.setCategory("Category " + i % 10);
+        product.setPrice(new BigDecimal("19.99").add(BigDecimal.valueOf(i)));
+        product.setStock(100);
+        product.setRating(new BigDecimal("4.5"));
+        product.setImageUrl("https://cdn.example.com/products/" + i + ".jpg");
+        product.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        product.setUpdatedAt(LocalDateTime.of(2025, 6, 1, 12, 0));
+        return product;
+    }
+}
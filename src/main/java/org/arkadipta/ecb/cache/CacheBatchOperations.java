@@ -0,0 +1,17 @@
+package org.arkadipta.ecb.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes many entries of an L2 cache in one round trip instead of one per key.
+ */
+public interface CacheBatchOperations {
+
+    // Values in key order, null where the cache holds no entry
+    List<Cache.ValueWrapper> getAll(Cache cache, List<String> keys);
+
+    void putAll(Cache cache, Map<String, Object> values);
+}
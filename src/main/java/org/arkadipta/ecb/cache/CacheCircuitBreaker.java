@@ -0,0 +1,94 @@
+package org.arkadipta.ecb.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to the shared L2 once it has failed {@code failureThreshold} times in a row, so a
+ * dead or slow Redis costs one timeout per call only until the breaker opens. After
+ * {@code openDuration} a single probe call is let through: success closes the breaker and runs
+ * the recovery listeners, failure opens it again for another {@code openDuration}.
+ */
+@Slf4j
+public class CacheCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private volatile long openedAt;
+
+    public CacheCircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CacheCircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Whether a call may go to L2 now. Once the open period is over this returns true for the
+     * one caller that becomes the probe, which must then report its outcome.
+     */
+    public boolean allowsCall() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            log.info("Cache L2 is reachable again, closing the circuit");
+            recoveryListeners.forEach(Runnable::run);
+        }
+    }
+
+    public void recordFailure() {
+        if (state.get() == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    /**
+     * Runs the listener each time the breaker closes after having been open.
+     */
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    private void open(State from) {
+        openedAt = nanoClock.getAsLong();
+        if (state.compareAndSet(from, State.OPEN) && from == State.CLOSED) {
+            log.warn("Cache L2 failed {} times in a row, serving from L1 only for {} ms",
+                    consecutiveFailures.get(), Duration.ofNanos(openNanos).toMillis());
+        }
+    }
+}
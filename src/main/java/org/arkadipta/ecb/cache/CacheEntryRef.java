@@ -0,0 +1,4 @@
+package org.arkadipta.ecb.cache;
+
+public record CacheEntryRef(String cacheName, String key) {
+}
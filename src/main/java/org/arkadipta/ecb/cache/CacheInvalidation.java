@@ -0,0 +1,11 @@
+package org.arkadipta.ecb.cache;
+
+/**
+ * An L1 eviction broadcast to the other nodes. A {@code null} key clears the whole cache.
+ */
+public record CacheInvalidation(String origin, String cacheName, String key) {
+
+    public boolean isClear() {
+        return key == null;
+    }
+}
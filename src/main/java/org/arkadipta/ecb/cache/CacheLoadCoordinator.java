@@ -0,0 +1,26 @@
+package org.arkadipta.ecb.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Lets nodes agree on who computes a value missing from the shared tier, so a hot key that
+ * expires is loaded by one node while the others wait for it, see {@link TwoTierCache}.
+ */
+public interface CacheLoadCoordinator {
+
+    // A token for the lease on the key, or null while another node holds it
+    @Nullable
+    String tryAcquire(String cacheName, String key, Duration lease);
+
+    void release(String cacheName, String key, String token);
+
+    // Whether some node still holds the lease on the key, so a waiter can stop once the holder gave up
+    boolean isHeld(String cacheName, String key);
+
+    // Time left before the L2 entry expires, or null when it has none or is gone
+    @Nullable
+    Duration timeToLive(Cache l2, String key);
+}
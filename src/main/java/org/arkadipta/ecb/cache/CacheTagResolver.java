@@ -0,0 +1,10 @@
+package org.arkadipta.ecb.cache;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Set;
+
+public interface CacheTagResolver {
+
+    Set<String> resolveTags(String cacheName, Object key, @Nullable Object value);
+}
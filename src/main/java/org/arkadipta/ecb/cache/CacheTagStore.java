@@ -0,0 +1,20 @@
+package org.arkadipta.ecb.cache;
+
+import java.util.Map;
+import java.util.Set;
+
+public interface CacheTagStore {
+
+    void addTags(String cacheName, String key, Set<String> tags);
+
+    default void addTags(String cacheName, Map<String, Set<String>> tagsByKey) {
+        tagsByKey.forEach((key, tags) -> addTags(cacheName, key, tags));
+    }
+
+    Set<CacheEntryRef> getEntries(String tag);
+
+    /**
+     * Drops the given entries from a tag, leaving any that were tagged after they were read.
+     */
+    void removeEntries(String tag, Set<CacheEntryRef> entries);
+}
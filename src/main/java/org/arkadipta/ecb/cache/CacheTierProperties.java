@@ -0,0 +1,94 @@
+package org.arkadipta.ecb.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "cache")
+public class CacheTierProperties {
+
+    // Redis pub/sub channel used to broadcast L1 evictions between nodes
+    private String invalidationChannel = "ecb:cache:invalidation";
+
+    // Listing and search caches hold product ids only and read the products from the product
+    // cache, see NormalizedProductListCache
+    private boolean normalizedLists = false;
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Spec defaults = Spec.withDefaults();
+
+    // Per cache name overrides, e.g. cache.specs.product.l1-maximum-weight=50000. Settings left
+    // out fall back to cache.defaults
+    private Map<String, Spec> specs = new HashMap<>();
+
+    public Spec resolve(String cacheName) {
+        Spec override = specs.get(cacheName);
+        Spec resolved = new Spec();
+        resolved.setL1Enabled(pick(override == null ? null : override.getL1Enabled(), defaults.getL1Enabled()));
+        resolved.setL1MaximumWeight(pick(override == null ? null : override.getL1MaximumWeight(),
+                defaults.getL1MaximumWeight()));
+        resolved.setL1Ttl(pick(override == null ? null : override.getL1Ttl(), defaults.getL1Ttl()));
+        resolved.setTtl(pick(override == null ? null : override.getTtl(), defaults.getTtl()));
+        resolved.setFormat(pick(override == null ? null : override.getFormat(), defaults.getFormat()));
+        resolved.setCompressionThreshold(pick(override == null ? null : override.getCompressionThreshold(),
+                defaults.getCompressionThreshold()));
+        resolved.setTtlJitter(pick(override == null ? null : override.getTtlJitter(), defaults.getTtlJitter()));
+        resolved.setLoadLease(pick(override == null ? null : override.getLoadLease(), defaults.getLoadLease()));
+        resolved.setEarlyRefreshBeta(pick(override == null ? null : override.getEarlyRefreshBeta(),
+                defaults.getEarlyRefreshBeta()));
+        return resolved;
+    }
+
+    private static <T> T pick(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    // Stops calling Redis after this many failed cache calls in a row and serves from L1 alone,
+    // retrying with one call every open-duration, see CacheCircuitBreaker
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Spec {
+        private Boolean l1Enabled;
+        // Weight is roughly one unit per cached product, see CacheWeigher
+        private Long l1MaximumWeight;
+        private Duration l1Ttl;
+        private Duration ttl;
+        // JSON cannot read PageImpl back, so paged product listings only cache under COMPACT
+        private CacheValueFormat format;
+        // Compact values at least this large are deflated before they go to Redis
+        private DataSize compressionThreshold;
+        // Each Redis entry lives up to this fraction less than ttl, so entries filled together
+        // do not all expire together
+        private Double ttlJitter;
+        // How long one node may spend loading a missing key while the others wait, 0 turns it off
+        private Duration loadLease;
+        // XFetch beta: higher refreshes earlier, 0 turns early refresh off
+        private Double earlyRefreshBeta;
+
+        static Spec withDefaults() {
+            Spec spec = new Spec();
+            spec.setL1Enabled(true);
+            spec.setL1MaximumWeight(10_000L);
+            spec.setL1Ttl(Duration.ofMinutes(1));
+            spec.setTtl(Duration.ofMinutes(10));
+            spec.setFormat(CacheValueFormat.COMPACT);
+            spec.setCompressionThreshold(DataSize.ofKilobytes(2));
+            spec.setTtlJitter(0.1);
+            spec.setLoadLease(Duration.ofSeconds(5));
+            spec.setEarlyRefreshBeta(1.0);
+            return spec;
+        }
+    }
+}
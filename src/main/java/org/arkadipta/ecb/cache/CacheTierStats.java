@@ -0,0 +1,10 @@
+package org.arkadipta.ecb.cache;
+
+public record CacheTierStats(
+        long l1Hits,
+        long l1Misses,
+        long l2Hits,
+        long l2Misses,
+        long l1Size,
+        long l1Weight) {
+}
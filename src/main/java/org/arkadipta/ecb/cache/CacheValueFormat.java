@@ -0,0 +1,12 @@
+package org.arkadipta.ecb.cache;
+
+/**
+ * How values are written to Redis. Reads accept both, so a cache can be switched either way
+ * without flushing the entries already stored.
+ */
+public enum CacheValueFormat {
+    // Class-annotated JSON from GenericJackson2JsonRedisSerializer, readable by any node version
+    JSON,
+    // Versioned binary encoding from CompactCacheSerializer, JSON for value types it does not know
+    COMPACT
+}
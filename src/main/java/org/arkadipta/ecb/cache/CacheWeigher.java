@@ -0,0 +1,28 @@
+package org.arkadipta.ecb.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Weighs L1 entries by the number of elements they hold so a cached page of 100 products
+ * costs a hundred times more heap budget than a single product.
+ */
+public class CacheWeigher implements Weigher<String, Object> {
+
+    @Override
+    public int weigh(String key, Object value) {
+        if (value instanceof Slice<?> slice) {
+            return slice.getNumberOfElements() + 1;
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.size() + 1;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size() + 1;
+        }
+        return 1;
+    }
+}
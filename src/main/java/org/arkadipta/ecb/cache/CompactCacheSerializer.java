@@ -0,0 +1,658 @@
+package org.arkadipta.ecb.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.product.ProductCount;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Writes the cached product values in a fixed binary layout instead of class-annotated JSON:
+ * no field names, no type names, varint numbers. Every value starts with a header (magic byte,
+ * format version, flags) and values at least {@code compressionThreshold} bytes long are
+ * deflated. Types it has no layout for are written as plain JSON by the fallback serializer.
+ * <p>
+ * Reads accept both this format and plain JSON whatever {@link CacheValueFormat} the cache
+ * writes, so a cache can change format while entries in the other one are still live, and a
+ * rollout can first ship nodes that read both while still writing JSON. Values from a newer
+ * format version, and values that cannot be read at all, count as a cache miss, which makes the
+ * node reload and overwrite them. Plain JSON cannot read a {@link PageImpl} back, so product
+ * pages only stay cached in caches written in the compact format. Any change to a layout below, including a field
+ * added to {@link ProductResponse}, needs a new {@link #VERSION}.
+ */
+@Slf4j
+public class CompactCacheSerializer implements RedisSerializer<Object> {
+
+    // Not a byte any JSON document can start with
+    static final byte MAGIC = (byte) 0xEC;
+    static final byte VERSION = 1;
+
+    private static final int HEADER_LENGTH = 3;
+    private static final int FLAG_DEFLATED = 1;
+    private static final int MAX_INFLATED_LENGTH = 64 * 1024 * 1024;
+    private static final long UNREADABLE_JSON_WARN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final byte PRODUCT = 1;
+    private static final byte PRODUCT_PAGE = 2;
+    private static final byte PRODUCT_SLICE = 3;
+    private static final byte PRODUCT_COUNT = 4;
+    private static final byte STRING_LIST = 5;
+    private static final byte PRODUCT_ID_PAGE = 6;
+    private static final byte PRODUCT_ID_SLICE = 7;
+
+    // ProductResponse presence bits, fields not listed are never null or use a null length
+    private static final int HAS_ID = 1;
+    private static final int HAS_PRICE = 1 << 1;
+    private static final int HAS_STOCK = 1 << 2;
+    private static final int HAS_RATING = 1 << 3;
+    private static final int HAS_CREATED_AT = 1 << 4;
+    private static final int HAS_UPDATED_AT = 1 << 5;
+    private static final int ACTIVE = 1 << 6;
+
+    private final RedisSerializer<Object> fallback;
+    private final CacheValueFormat writeFormat;
+    private final int compressionThreshold;
+    private final AtomicLong nextUnreadableJsonWarning = new AtomicLong(System.nanoTime());
+
+    public CompactCacheSerializer(RedisSerializer<Object> fallback, CacheValueFormat writeFormat,
+                                  int compressionThreshold) {
+        this.fallback = fallback;
+        this.writeFormat = writeFormat;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(@Nullable Object value) throws SerializationException {
+        if (value == null || writeFormat == CacheValueFormat.JSON || !isSupported(value)) {
+            return fallback.serialize(value);
+        }
+        Output out = new Output(256);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(0);
+        write(value, out);
+        int bodyLength = out.length() - HEADER_LENGTH;
+        if (bodyLength >= compressionThreshold) {
+            byte[] deflated = deflate(out, bodyLength);
+            if (deflated != null) {
+                return deflated;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    @Nullable
+    public Object deserialize(@Nullable byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            try {
+                return fallback.deserialize(bytes);
+            } catch (SerializationException e) {
+                // JSON cannot read some values back, PageImpl among them, reloading beats failing the
+                // request. Under format=json that is every cached page, so warn once a minute at most
+                logUnreadableJson(e);
+                return null;
+            }
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[1] != VERSION) {
+            log.debug("Ignoring cached value in compact format version {}, expected {}",
+                    bytes.length > 1 ? bytes[1] : "unknown", VERSION);
+            return null;
+        }
+        try {
+            Input in = (bytes[2] & FLAG_DEFLATED) != 0
+                    ? inflate(bytes)
+                    : new Input(bytes, HEADER_LENGTH);
+            return read(in);
+        } catch (RuntimeException | DataFormatException e) {
+            log.warn("Treating unreadable compact cache value as a miss", e);
+            return null;
+        }
+    }
+
+    private void logUnreadableJson(SerializationException e) {
+        long now = System.nanoTime();
+        long next = nextUnreadableJsonWarning.get();
+        if (now - next >= 0
+                && nextUnreadableJsonWarning.compareAndSet(next, now + UNREADABLE_JSON_WARN_INTERVAL_NANOS)) {
+            log.warn("Treating unreadable JSON cache value as a miss, PageImpl listings only cache under the"
+                    + " compact format: {}", e.getMessage());
+        } else {
+            log.debug("Treating unreadable JSON cache value as a miss: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isSupported(Object value) {
+        if (value instanceof ProductResponse || value instanceof ProductCount
+                || value instanceof ProductIdPage) {
+            return true;
+        }
+        if (value instanceof ProductIdSlice slice) {
+            return allStrings(slice.sortedBy());
+        }
+        if (value instanceof ProductSliceResponse slice) {
+            return allProducts(slice.content()) && allStrings(slice.sortedBy());
+        }
+        if (value instanceof PageImpl<?> page) {
+            return allProducts(page.getContent());
+        }
+        if (value instanceof List<?> list) {
+            return allStrings(list);
+        }
+        return false;
+    }
+
+    private static boolean allProducts(List<?> values) {
+        return values.stream().allMatch(ProductResponse.class::isInstance);
+    }
+
+    private static boolean allStrings(List<?> values) {
+        return values.stream().allMatch(String.class::isInstance);
+    }
+
+    private static void write(Object value, Output out) {
+        switch (value) {
+            case ProductResponse product -> {
+                out.writeByte(PRODUCT);
+                writeProduct(product, out);
+            }
+            case ProductSliceResponse slice -> {
+                out.writeByte(PRODUCT_SLICE);
+                writeProducts(slice.content(), out);
+                out.writeVarLong(slice.page());
+                out.writeVarLong(slice.size());
+                out.writeByte(slice.hasNext() ? 1 : 0);
+                writeStrings(slice.sortedBy(), out);
+                out.writeByte(slice.totalElements() != null ? 1 : 0);
+                if (slice.totalElements() != null) {
+                    out.writeSignedVarLong(slice.totalElements());
+                }
+                out.writeByte(slice.totalExact() == null ? 0 : slice.totalExact() ? 2 : 1);
+            }
+            case PageImpl<?> page -> {
+                out.writeByte(PRODUCT_PAGE);
+                writeProducts(page.getContent(), out);
+                writePageable(page.getPageable(), out);
+                out.writeSignedVarLong(page.getTotalElements());
+            }
+            case ProductIdPage page -> {
+                out.writeByte(PRODUCT_ID_PAGE);
+                writeIds(page.ids(), out);
+                writePageable(page.pageable(), out);
+                out.writeSignedVarLong(page.totalElements());
+            }
+            case ProductIdSlice slice -> {
+                out.writeByte(PRODUCT_ID_SLICE);
+                writeIds(slice.ids(), out);
+                out.writeVarLong(slice.page());
+                out.writeVarLong(slice.size());
+                out.writeByte(slice.hasNext() ? 1 : 0);
+                writeStrings(slice.sortedBy(), out);
+            }
+            case ProductCount count -> {
+                out.writeByte(PRODUCT_COUNT);
+                out.writeSignedVarLong(count.total());
+                writeInstant(count.countedAt(), out);
+            }
+            case List<?> strings -> {
+                out.writeByte(STRING_LIST);
+                writeStrings(strings, out);
+            }
+            default -> throw new IllegalStateException("No compact layout for " + value.getClass().getName());
+        }
+    }
+
+    private static Object read(Input in) {
+        byte type = in.readByte();
+        return switch (type) {
+            case PRODUCT -> readProduct(in);
+            case PRODUCT_SLICE -> {
+                List<ProductResponse> content = readProducts(in);
+                int page = (int) in.readVarLong();
+                int size = (int) in.readVarLong();
+                boolean hasNext = in.readByte() != 0;
+                List<String> sortedBy = readStrings(in);
+                Long total = in.readByte() != 0 ? in.readSignedVarLong() : null;
+                byte exact = in.readByte();
+                yield new ProductSliceResponse(content, page, size, hasNext, sortedBy, total,
+                        exact == 0 ? null : exact == 2);
+            }
+            case PRODUCT_PAGE -> {
+                List<ProductResponse> content = readProducts(in);
+                Pageable pageable = readPageable(in);
+                yield new PageImpl<>(content, pageable, in.readSignedVarLong());
+            }
+            case PRODUCT_COUNT -> new ProductCount(in.readSignedVarLong(), readInstant(in));
+            case STRING_LIST -> readStrings(in);
+            case PRODUCT_ID_PAGE -> {
+                List<Long> ids = readIds(in);
+                Pageable pageable = readPageable(in);
+                yield new ProductIdPage(ids, pageable, in.readSignedVarLong());
+            }
+            case PRODUCT_ID_SLICE -> {
+                List<Long> ids = readIds(in);
+                int page = (int) in.readVarLong();
+                int size = (int) in.readVarLong();
+                boolean hasNext = in.readByte() != 0;
+                yield new ProductIdSlice(ids, page, size, hasNext, readStrings(in));
+            }
+            default -> throw new IllegalStateException("Unknown compact value type " + type);
+        };
+    }
+
+    private static void writeProduct(ProductResponse product, Output out) {
+        int flags = (product.getId() != null ? HAS_ID : 0)
+                | (product.getPrice() != null ? HAS_PRICE : 0)
+                | (product.getStock() != null ? HAS_STOCK : 0)
+                | (product.getRating() != null ? HAS_RATING : 0)
+                | (product.getCreatedAt() != null ? HAS_CREATED_AT : 0)
+                | (product.getUpdatedAt() != null ? HAS_UPDATED_AT : 0)
+                | (product.isActive() ? ACTIVE : 0);
+        out.writeByte(flags);
+        if (product.getId() != null) {
+            out.writeSignedVarLong(product.getId());
+        }
+        out.writeString(product.getName());
+        out.writeString(product.getDescription());
+        if (product.getPrice() != null) {
+            writeDecimal(product.getPrice(), out);
+        }
+        if (product.getStock() != null) {
+            out.writeSignedVarLong(product.getStock());
+        }
+        out.writeString(product.getCategory());
+        if (product.getRating() != null) {
+            writeDecimal(product.getRating(), out);
+        }
+        out.writeString(product.getImageUrl());
+        if (product.getCreatedAt() != null) {
+            writeDateTime(product.getCreatedAt(), out);
+        }
+        if (product.getUpdatedAt() != null) {
+            writeDateTime(product.getUpdatedAt(), out);
+        }
+    }
+
+    private static ProductResponse readProduct(Input in) {
+        int flags = in.readByte();
+        ProductResponse product = new ProductResponse();
+        if ((flags & HAS_ID) != 0) {
+            product.setId(in.readSignedVarLong());
+        }
+        product.setName(in.readString());
+        product.setDescription(in.readString());
+        if ((flags & HAS_PRICE) != 0) {
+            product.setPrice(readDecimal(in));
+        }
+        if ((flags & HAS_STOCK) != 0) {
+            product.setStock((int) in.readSignedVarLong());
+        }
+        product.setCategory(in.readString());
+        if ((flags & HAS_RATING) != 0) {
+            product.setRating(readDecimal(in));
+        }
+        product.setImageUrl(in.readString());
+        if ((flags & HAS_CREATED_AT) != 0) {
+            product.setCreatedAt(readDateTime(in));
+        }
+        if ((flags & HAS_UPDATED_AT) != 0) {
+            product.setUpdatedAt(readDateTime(in));
+        }
+        product.setActive((flags & ACTIVE) != 0);
+        return product;
+    }
+
+    private static void writeProducts(List<?> products, Output out) {
+        out.writeVarLong(products.size());
+        for (Object product : products) {
+            writeProduct((ProductResponse) product, out);
+        }
+    }
+
+    private static List<ProductResponse> readProducts(Input in) {
+        int size = in.readLength();
+        // Kept mutable, cached pages are patched in place on stock changes
+        List<ProductResponse> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(readProduct(in));
+        }
+        return products;
+    }
+
+    // Each id as the difference to the one before, small when a page is sorted by id
+    private static void writeIds(List<Long> ids, Output out) {
+        out.writeVarLong(ids.size());
+        long previous = 0;
+        for (Long id : ids) {
+            out.writeSignedVarLong(id - previous);
+            previous = id;
+        }
+    }
+
+    private static List<Long> readIds(Input in) {
+        int size = in.readLength();
+        List<Long> ids = new ArrayList<>(size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += in.readSignedVarLong();
+            ids.add(previous);
+        }
+        return ids;
+    }
+
+    private static void writeStrings(List<?> strings, Output out) {
+        out.writeVarLong(strings.size());
+        for (Object string : strings) {
+            out.writeString((String) string);
+        }
+    }
+
+    private static List<String> readStrings(Input in) {
+        int size = in.readLength();
+        List<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(in.readString());
+        }
+        return strings;
+    }
+
+    private static void writePageable(Pageable pageable, Output out) {
+        out.writeByte(pageable.isPaged() ? 1 : 0);
+        if (pageable.isPaged()) {
+            out.writeVarLong(pageable.getPageNumber());
+            out.writeVarLong(pageable.getPageSize());
+        }
+        List<Sort.Order> orders = pageable.getSort().toList();
+        out.writeVarLong(orders.size());
+        for (Sort.Order order : orders) {
+            out.writeString(order.getProperty());
+            out.writeByte((order.isAscending() ? 0 : 1)
+                    | (order.isIgnoreCase() ? 2 : 0)
+                    | order.getNullHandling().ordinal() << 2);
+        }
+    }
+
+    private static Pageable readPageable(Input in) {
+        boolean paged = in.readByte() != 0;
+        int page = paged ? (int) in.readVarLong() : 0;
+        int size = paged ? (int) in.readVarLong() : 0;
+        int count = in.readLength();
+        List<Sort.Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String property = in.readString();
+            int bits = in.readByte();
+            Sort.Order order = new Sort.Order((bits & 1) == 0 ? Sort.Direction.ASC : Sort.Direction.DESC,
+                    property, Sort.NullHandling.values()[bits >> 2]);
+            orders.add((bits & 2) != 0 ? order.ignoreCase() : order);
+        }
+        Sort sort = Sort.by(orders);
+        return paged ? PageRequest.of(page, size, sort) : Pageable.unpaged(sort);
+    }
+
+    // Scale and whether the unscaled value overflows a long share one varint
+    private static void writeDecimal(BigDecimal value, Output out) {
+        BigInteger unscaled = value.unscaledValue();
+        boolean small = unscaled.bitLength() < 64;
+        out.writeSignedVarLong((long) value.scale() << 1 | (small ? 0 : 1));
+        if (small) {
+            out.writeSignedVarLong(unscaled.longValue());
+        } else {
+            out.writeBytes(unscaled.toByteArray());
+        }
+    }
+
+    private static BigDecimal readDecimal(Input in) {
+        long header = in.readSignedVarLong();
+        int scale = (int) (header >> 1);
+        BigInteger unscaled = (header & 1) == 0
+                ? BigInteger.valueOf(in.readSignedVarLong())
+                : new BigInteger(in.readBytes());
+        return new BigDecimal(unscaled, scale);
+    }
+
+    private static void writeDateTime(LocalDateTime value, Output out) {
+        out.writeSignedVarLong(value.toEpochSecond(ZoneOffset.UTC));
+        out.writeVarLong(value.getNano());
+    }
+
+    private static LocalDateTime readDateTime(Input in) {
+        long seconds = in.readSignedVarLong();
+        return LocalDateTime.ofEpochSecond(seconds, (int) in.readVarLong(), ZoneOffset.UTC);
+    }
+
+    private static void writeInstant(@Nullable Instant value, Output out) {
+        out.writeByte(value != null ? 1 : 0);
+        if (value != null) {
+            out.writeSignedVarLong(value.getEpochSecond());
+            out.writeVarLong(value.getNano());
+        }
+    }
+
+    @Nullable
+    private static Instant readInstant(Input in) {
+        if (in.readByte() == 0) {
+            return null;
+        }
+        long seconds = in.readSignedVarLong();
+        return Instant.ofEpochSecond(seconds, in.readVarLong());
+    }
+
+    // Returns null when deflating does not make the value smaller
+    @Nullable
+    private static byte[] deflate(Output out, int bodyLength) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(out.buffer(), HEADER_LENGTH, bodyLength);
+            deflater.finish();
+            Output deflated = new Output(bodyLength / 2 + 16);
+            deflated.writeByte(MAGIC);
+            deflated.writeByte(VERSION);
+            deflated.writeByte(FLAG_DEFLATED);
+            deflated.writeVarLong(bodyLength);
+            while (!deflater.finished()) {
+                deflated.ensureCapacity(4096);
+                int written = deflater.deflate(deflated.buffer(), deflated.length(),
+                        deflated.buffer().length - deflated.length());
+                deflated.skip(written);
+                if (deflated.length() >= out.length()) {
+                    return null;
+                }
+            }
+            return deflated.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static Input inflate(byte[] bytes) throws DataFormatException {
+        Input header = new Input(bytes, HEADER_LENGTH);
+        long length = header.readVarLong();
+        if (length > MAX_INFLATED_LENGTH) {
+            throw new DataFormatException("Deflated cache value claims " + length + " bytes");
+        }
+        byte[] body = new byte[(int) length];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes, header.position(), bytes.length - header.position());
+            int read = 0;
+            while (read < body.length) {
+                int inflated = inflater.inflate(body, read, body.length - read);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new DataFormatException("Deflated cache value ends early");
+                }
+                read += inflated;
+            }
+            return new Input(body, 0);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Output {
+
+        private byte[] buffer;
+        private int length;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+        }
+
+        // Zigzag, so small negative numbers stay short
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        // Length plus one, zero stands for null
+        void writeString(@Nullable String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+
+        void skip(int bytes) {
+            length += bytes;
+        }
+
+        byte[] buffer() {
+            return buffer;
+        }
+
+        int length() {
+            return length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        byte readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalStateException("Compact cache value ends early");
+            }
+            return bytes[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint in compact cache value");
+        }
+
+        long readSignedVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readLength() {
+            long length = readVarLong();
+            if (length > bytes.length - position) {
+                throw new IllegalStateException("Length " + length + " exceeds the compact cache value");
+            }
+            return (int) length;
+        }
+
+        @Nullable
+        String readString() {
+            long encoded = readVarLong();
+            if (encoded == 0) {
+                return null;
+            }
+            int length = checkedLength(encoded - 1);
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = checkedLength(readVarLong());
+            byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return value;
+        }
+
+        int position() {
+            return position;
+        }
+
+        private int checkedLength(long length) {
+            if (length < 0 || length > bytes.length - position) {
+                throw new IllegalStateException("Length " + length + " exceeds the compact cache value");
+            }
+            return (int) length;
+        }
+    }
+}
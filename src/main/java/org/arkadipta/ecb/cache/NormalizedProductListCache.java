@@ -0,0 +1,186 @@
+package org.arkadipta.ecb.cache;
+
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Stores product listings and search results as ordered product ids plus paging metadata, and
+ * hydrates them from the product cache on read: one batch lookup for the whole page, then one
+ * {@link ProductResponseLoader} query for the products it did not hold, which are cached in turn.
+ * A product is cached once however many pages show it, and a write to its product entry is seen
+ * by every page at once. Values that are not product pages or slices are stored as they are.
+ */
+public class NormalizedProductListCache implements Cache {
+
+    private final Cache lists;
+    private final Supplier<TwoTierCache> products;
+    private final ProductResponseLoader loader;
+
+    public NormalizedProductListCache(Cache lists, Supplier<TwoTierCache> products, ProductResponseLoader loader) {
+        this.lists = lists;
+        this.products = products;
+        this.loader = loader;
+    }
+
+    @Override
+    @NonNull
+    public String getName() {
+        return lists.getName();
+    }
+
+    @Override
+    @NonNull
+    public Object getNativeCache() {
+        return lists.getNativeCache();
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper get(@NonNull Object key) {
+        ValueWrapper stored = lists.get(key);
+        return stored == null ? null : new SimpleValueWrapper(hydrate(stored.get()));
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, @Nullable Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, @NonNull Callable<T> valueLoader) {
+        // A freshly loaded value is returned as loaded, only a stored one needs hydrating
+        Object[] loaded = new Object[1];
+        Object stored = lists.get(key, () -> {
+            T value = valueLoader.call();
+            loaded[0] = value;
+            return normalize(value);
+        });
+        return (T) (loaded[0] != null ? loaded[0] : hydrate(stored));
+    }
+
+    @Override
+    public void put(@NonNull Object key, @Nullable Object value) {
+        lists.put(key, normalize(value));
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper putIfAbsent(@NonNull Object key, @Nullable Object value) {
+        ValueWrapper existing = lists.putIfAbsent(key, normalize(value));
+        return existing == null ? null : new SimpleValueWrapper(hydrate(existing.get()));
+    }
+
+    @Override
+    public void evict(@NonNull Object key) {
+        lists.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(@NonNull Object key) {
+        return lists.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        lists.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return lists.invalidate();
+    }
+
+    // Caches the products of a page or slice and returns the ids-only value to store in their place
+    @Nullable
+    private Object normalize(@Nullable Object value) {
+        if (value instanceof PageImpl<?> page && allProducts(page.getContent())) {
+            return new ProductIdPage(cacheProducts(page.getContent()), page.getPageable(), page.getTotalElements());
+        }
+        // Totals are added per request after the cached slice is read, a slice carrying one is kept whole
+        if (value instanceof ProductSliceResponse slice && slice.totalElements() == null) {
+            return new ProductIdSlice(cacheProducts(slice.content()), slice.page(), slice.size(), slice.hasNext(),
+                    slice.sortedBy());
+        }
+        return value;
+    }
+
+    @Nullable
+    private Object hydrate(@Nullable Object stored) {
+        if (stored instanceof ProductIdPage page) {
+            return new PageImpl<>(load(page.ids()), page.pageable(), page.totalElements());
+        }
+        if (stored instanceof ProductIdSlice slice) {
+            return new ProductSliceResponse(load(slice.ids()), slice.page(), slice.size(), slice.hasNext(),
+                    slice.sortedBy(), null, null);
+        }
+        return stored;
+    }
+
+    private List<Long> cacheProducts(List<?> content) {
+        Map<Long, Object> byId = new LinkedHashMap<>();
+        for (Object element : content) {
+            ProductResponse product = (ProductResponse) element;
+            byId.put(product.getId(), product);
+        }
+        products.get().putAll(byId);
+        return new ArrayList<>(byId.keySet());
+    }
+
+    // Products in id order, leaving out any that no longer exist or were deactivated
+    private List<ProductResponse> load(List<Long> ids) {
+        TwoTierCache productCache = products.get();
+        List<Object> cached = productCache.getAll(ids);
+        Map<Long, ProductResponse> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (cached.get(i) instanceof ProductResponse product) {
+                found.put(ids.get(i), product);
+            } else {
+                missing.add(ids.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, Object> loaded = new LinkedHashMap<>();
+            for (ProductResponse product : loader.loadActive(missing)) {
+                found.put(product.getId(), product);
+                loaded.put(product.getId(), product);
+            }
+            productCache.putAll(loaded);
+        }
+        List<ProductResponse> content = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductResponse product = found.get(id);
+            if (product != null) {
+                content.add(product);
+            }
+        }
+        return content;
+    }
+
+    private static boolean allProducts(List<?> values) {
+        return values.stream().allMatch(ProductResponse.class::isInstance);
+    }
+}
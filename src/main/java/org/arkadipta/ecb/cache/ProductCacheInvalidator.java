@@ -0,0 +1,270 @@
+package org.arkadipta.ecb.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsImportedEvent;
+import org.arkadipta.ecb.event.ProductsUpdatedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.arkadipta.ecb.cache.ProductCacheTags.*;
+
+/**
+ * Evicts only the product cache entries a committed write can affect, using the tags recorded
+ * by {@link ProductCacheTags}. Stock changes that keep a product in or out of stock are
+ * patched into the cached pages in place instead of evicting them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductCacheInvalidator {
+
+    private final CacheManager cacheManager;
+    private final CacheTagStore tagStore;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        try {
+            switch (event.type()) {
+                case CREATED -> onCreated(Set.of(event.after().getCategory()));
+                case IMPORTED -> {
+                    // Handled once for the whole import by onProductsImported
+                }
+                case UPDATED -> onUpdated(event.before(), event.after());
+                case STOCK_UPDATED -> onStockUpdated(event.before(), event.after());
+                case DELETED -> onDeleted(event.after());
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to invalidate product caches for product {}", event.productId(), e);
+            clearAll();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        if (event.imported() == 0) {
+            return;
+        }
+        try {
+            onCreated(event.categories());
+        } catch (RuntimeException e) {
+            log.error("Failed to invalidate product caches after importing {} products", event.imported(), e);
+            clearAll();
+        }
+    }
+
+    /**
+     * Invalidates for every product of a bulk update in one pass: the tags of all changes are
+     * evicted together and each cached page is patched at most once.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsUpdated(ProductsUpdatedEvent event) {
+        try {
+            Set<String> tags = new HashSet<>();
+            Map<Long, ProductResponse> patched = new HashMap<>();
+            boolean categoryChanged = false;
+            for (ProductChangedEvent change : event.changes()) {
+                ProductResponse after = change.after();
+                if (change.type() == ProductChangedEvent.Type.STOCK_UPDATED
+                        && keepsAvailability(change.before(), after)) {
+                    put(PRODUCT, after.getId(), after);
+                    patched.put(after.getId(), after);
+                    tags.add(sortedBy("stock"));
+                    tags.add(sortedBy("updatedAt"));
+                } else {
+                    evict(PRODUCT, after.getId());
+                    categoryChanged |= addUpdateTags(change.before(), after, tags);
+                }
+            }
+            patchStock(patched, evictTagged(tags));
+            if (categoryChanged) {
+                clear(CATEGORIES);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to invalidate product caches after updating {} products", event.changes().size(), e);
+            clearAll();
+        }
+    }
+
+    private void onCreated(Set<String> categories) {
+        // A new product shifts every listing page and its totals
+        Set<String> tags = new HashSet<>();
+        tags.add(LISTING);
+        tags.add(SEARCH_ANY_CATEGORY);
+        categories.forEach(category -> tags.add(searchCategory(category)));
+        evictTagged(tags);
+        clear(CATEGORIES);
+    }
+
+    private void onUpdated(ProductResponse before, ProductResponse after) {
+        Set<String> tags = new HashSet<>();
+        boolean categoryChanged = addUpdateTags(before, after, tags);
+        evict(PRODUCT, after.getId());
+        evictTagged(tags);
+        if (categoryChanged) {
+            clear(CATEGORIES);
+        }
+    }
+
+    // Adds the tags of the entries an update can affect, returns whether the category changed
+    private boolean addUpdateTags(ProductResponse before, ProductResponse after, Set<String> tags) {
+        tags.add(product(after.getId()));
+        tags.add(sortedBy("updatedAt"));
+
+        boolean categoryChanged = !Objects.equals(before.getCategory(), after.getCategory());
+        boolean nameChanged = !Objects.equals(before.getName(), after.getName());
+        boolean priceChanged = before.getPrice() == null || after.getPrice() == null
+                || before.getPrice().compareTo(after.getPrice()) != 0;
+        boolean stockChanged = !Objects.equals(before.getStock(), after.getStock());
+
+        // Filterable fields can move the product into searches it was not part of before
+        if (categoryChanged || nameChanged || priceChanged) {
+            tags.add(SEARCH_ANY_CATEGORY);
+            tags.add(searchCategory(before.getCategory()));
+            tags.add(searchCategory(after.getCategory()));
+        }
+        if (nameChanged) {
+            tags.add(sortedBy("name"));
+        }
+        if (priceChanged) {
+            tags.add(sortedBy("price"));
+        }
+        if (stockChanged) {
+            tags.add(sortedBy("stock"));
+        }
+        if (categoryChanged) {
+            tags.add(sortedBy("category"));
+        }
+        return categoryChanged;
+    }
+
+    private void onStockUpdated(ProductResponse before, ProductResponse after) {
+        if (!keepsAvailability(before, after)) {
+            evict(PRODUCT, after.getId());
+            evictTagged(Set.of(product(after.getId()), sortedBy("stock"), sortedBy("updatedAt")));
+            return;
+        }
+
+        put(PRODUCT, after.getId(), after);
+        patchStock(Map.of(after.getId(), after), Set.of());
+        evictTagged(Set.of(sortedBy("stock"), sortedBy("updatedAt")));
+    }
+
+    // Whether the product stays in or out of stock, so pages filtered on availability still hold
+    private static boolean keepsAvailability(ProductResponse before, ProductResponse after) {
+        boolean wasInStock = before.getStock() != null && before.getStock() > 0;
+        boolean isInStock = after.getStock() != null && after.getStock() > 0;
+        return wasInStock == isInStock && after.isActive();
+    }
+
+    private void onDeleted(ProductResponse deleted) {
+        Set<String> tags = new HashSet<>();
+        tags.add(product(deleted.getId()));
+        tags.add(LISTING);
+        tags.add(SEARCH_ANY_CATEGORY);
+        tags.add(searchCategory(deleted.getCategory()));
+        evict(PRODUCT, deleted.getId());
+        evictTagged(tags);
+        clear(CATEGORIES);
+    }
+
+    // Patches every cached page holding one of the products, except the entries already evicted
+    private void patchStock(Map<Long, ProductResponse> updated, Set<CacheEntryRef> evicted) {
+        Set<CacheEntryRef> entries = new HashSet<>();
+        for (Long productId : updated.keySet()) {
+            entries.addAll(tagStore.getEntries(product(productId)));
+        }
+        entries.removeAll(evicted);
+        for (CacheEntryRef entry : entries) {
+            patchStock(entry, updated);
+        }
+    }
+
+    private void patchStock(CacheEntryRef entry, Map<Long, ProductResponse> updated) {
+        Cache cache = cacheManager.getCache(entry.cacheName());
+        if (cache == null || PRODUCT.equals(entry.cacheName())) {
+            return;
+        }
+        try {
+            Cache.ValueWrapper wrapper = cache.get(entry.key());
+            if (wrapper == null || wrapper.get() == null) {
+                return;
+            }
+            Object value = wrapper.get();
+            for (ProductResponse cached : productsIn(value)) {
+                ProductResponse product = updated.get(cached.getId());
+                if (product != null) {
+                    cached.setStock(product.getStock());
+                    cached.setUpdatedAt(product.getUpdatedAt());
+                }
+            }
+            cache.put(entry.key(), value);
+        } catch (RuntimeException e) {
+            log.debug("Could not patch {}::{} in place, evicting it: {}", entry.cacheName(), entry.key(), e.getMessage());
+            cache.evict(entry.key());
+        }
+    }
+
+    private Set<CacheEntryRef> evictTagged(Set<String> tags) {
+        Map<String, Set<CacheEntryRef>> entriesByTag = new HashMap<>();
+        Set<CacheEntryRef> entries = new HashSet<>();
+        for (String tag : tags) {
+            Set<CacheEntryRef> tagged = tagStore.getEntries(tag);
+            entriesByTag.put(tag, tagged);
+            entries.addAll(tagged);
+        }
+        for (CacheEntryRef entry : entries) {
+            Cache cache = cacheManager.getCache(entry.cacheName());
+            if (cache != null) {
+                cache.evict(entry.key());
+            }
+        }
+        // Only the entries just evicted, one cached while evicting keeps its tag for the next change
+        entriesByTag.forEach(tagStore::removeEntries);
+        log.debug("Evicted {} cache entries for tags {}", entries.size(), tags);
+        return entries;
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void put(String cacheName, Object key, Object value) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.put(key, value);
+        }
+    }
+
+    // Without the tags to go by, every product cache may hold an entry the write made stale
+    private void clearAll() {
+        for (String cacheName : List.of(PRODUCT, PRODUCTS, PRODUCT_SEARCH, CATEGORIES)) {
+            try {
+                clear(cacheName);
+            } catch (RuntimeException e) {
+                log.error("Failed to clear cache {}", cacheName, e);
+            }
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.arkadipta.ecb.cache;
+
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tags product cache entries by the products they contain and by the listing/search scope
+ * they were computed for, so a write only evicts the entries it can actually affect.
+ */
+public class ProductCacheTags implements CacheTagResolver {
+
+    public static final String PRODUCT = "product";
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_SEARCH = "productSearch";
+    public static final String CATEGORIES = "categories";
+
+    public static final String LISTING = "listing";
+    public static final String SEARCH_ANY_CATEGORY = "search:any-category";
+
+    public static String product(Long id) {
+        return "product:" + id;
+    }
+
+    public static String sortedBy(String property) {
+        return "sort:" + property;
+    }
+
+    public static String searchCategory(String category) {
+        return "search:category:" + category;
+    }
+
+    @Override
+    public Set<String> resolveTags(String cacheName, Object key, @Nullable Object value) {
+        Set<String> tags = new HashSet<>();
+        if (PRODUCTS.equals(cacheName)) {
+            tags.add(LISTING);
+            if (value instanceof Slice<?> slice) {
+                addSortTags(tags, slice.getSort());
+            } else if (value instanceof ProductSliceResponse slice) {
+                slice.sortedBy().forEach(property -> tags.add(sortedBy(property)));
+            } else if (value instanceof ProductIdPage page) {
+                addSortTags(tags, page.pageable().getSort());
+            } else if (value instanceof ProductIdSlice slice) {
+                slice.sortedBy().forEach(property -> tags.add(sortedBy(property)));
+            }
+        } else if (PRODUCT_SEARCH.equals(cacheName) && key instanceof ProductSearchKey searchKey) {
+            tags.add(searchKey.category() != null ? searchCategory(searchKey.category()) : SEARCH_ANY_CATEGORY);
+            addSortTags(tags, searchKey.sort());
+        }
+        // Normalized ids-only entries are not tagged by product, the product entry is the only copy
+        for (ProductResponse product : productsIn(value)) {
+            tags.add(product(product.getId()));
+        }
+        return tags;
+    }
+
+    public static List<ProductResponse> productsIn(@Nullable Object value) {
+        List<ProductResponse> products = new ArrayList<>();
+        if (value instanceof ProductResponse product) {
+            products.add(product);
+        } else if (value instanceof ProductSliceResponse slice) {
+            products.addAll(slice.content());
+        } else if (value instanceof Iterable<?> iterable) {
+            for (Object element : iterable) {
+                if (element instanceof ProductResponse product) {
+                    products.add(product);
+                }
+            }
+        }
+        return products;
+    }
+
+    private void addSortTags(Set<String> tags, Sort sort) {
+        sort.forEach(order -> tags.add(sortedBy(order.getProperty())));
+    }
+}
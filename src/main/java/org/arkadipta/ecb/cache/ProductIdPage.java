@@ -0,0 +1,17 @@
+package org.arkadipta.ecb.cache;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a normalized listing cache stores for a {@code Page<ProductResponse>}: the product ids in
+ * page order and the paging metadata, see {@link NormalizedProductListCache}.
+ */
+public record ProductIdPage(List<Long> ids, Pageable pageable, long totalElements) {
+
+    public ProductIdPage {
+        ids = new ArrayList<>(ids);
+    }
+}
@@ -0,0 +1,16 @@
+package org.arkadipta.ecb.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a normalized listing cache stores for a {@code ProductSliceResponse}: the product ids in
+ * slice order and the slice metadata, see {@link NormalizedProductListCache}.
+ */
+public record ProductIdSlice(List<Long> ids, int page, int size, boolean hasNext, List<String> sortedBy) {
+
+    public ProductIdSlice {
+        ids = new ArrayList<>(ids);
+        sortedBy = new ArrayList<>(sortedBy);
+    }
+}
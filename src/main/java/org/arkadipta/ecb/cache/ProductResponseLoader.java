@@ -0,0 +1,16 @@
+package org.arkadipta.ecb.cache;
+
+import org.arkadipta.ecb.dto.product.ProductResponse;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads the products a normalized listing needs but the product cache does not hold, all of
+ * them with one query. Inactive and unknown ids are left out of the result.
+ */
+@FunctionalInterface
+public interface ProductResponseLoader {
+
+    List<ProductResponse> loadActive(Collection<Long> ids);
+}
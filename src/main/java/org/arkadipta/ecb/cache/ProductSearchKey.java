@@ -0,0 +1,23 @@
+package org.arkadipta.ecb.cache;
+
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+public record ProductSearchKey(
+        String category,
+        String name,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        BigDecimal minRating,
+        int page,
+        int size,
+        Sort sort,
+        boolean slice) {
+
+    @Override
+    public String toString() {
+        return "category=" + category + "|name=" + name + "|minPrice=" + minPrice + "|maxPrice=" + maxPrice
+                + "|minRating=" + minRating + "|page=" + page + "|size=" + size + "|sort=" + sort + (slice ? "|slice" : "");
+    }
+}
@@ -0,0 +1,34 @@
+package org.arkadipta.ecb.cache;
+
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+
+/**
+ * Builds a {@link ProductSearchKey} from the arguments of ProductService.searchProducts (or
+ * searchProductSlice) so the tag resolver can tell which category a cached search was scoped to.
+ */
+@Component("productSearchKeyGenerator")
+public class ProductSearchKeyGenerator implements KeyGenerator {
+
+    @Override
+    @NonNull
+    public Object generate(@NonNull Object target, @NonNull Method method, @NonNull Object... params) {
+        Pageable pageable = (Pageable) params[5];
+        return new ProductSearchKey(
+                (String) params[0],
+                (String) params[1],
+                (BigDecimal) params[2],
+                (BigDecimal) params[3],
+                (BigDecimal) params[4],
+                pageable.getPageNumber(),
+                pageable.getPageSize(),
+                pageable.getSort(),
+                ProductSliceResponse.class.equals(method.getReturnType()));
+    }
+}
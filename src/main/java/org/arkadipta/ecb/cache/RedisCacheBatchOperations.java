@@ -0,0 +1,101 @@
+package org.arkadipta.ecb.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.util.ByteUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batches against a {@link RedisCache} with one MGET for reads and one pipeline of SETs for
+ * writes, using the cache's own key prefix, value serializer and TTL so entries are the same as
+ * the ones {@code RedisCache} reads and writes. Other caches are served one key at a time.
+ */
+public class RedisCacheBatchOperations implements CacheBatchOperations {
+
+    // How RedisCache stores a cached null
+    private static final byte[] NULL_VALUE = RedisSerializer.java().serialize(NullValue.INSTANCE);
+
+    private final RedisConnectionFactory connectionFactory;
+
+    public RedisCacheBatchOperations(RedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public List<Cache.ValueWrapper> getAll(Cache cache, List<String> keys) {
+        List<Cache.ValueWrapper> values = new ArrayList<>(keys.size());
+        if (!(cache instanceof RedisCache redisCache)) {
+            keys.forEach(key -> values.add(cache.get(key)));
+            return values;
+        }
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        byte[][] rawKeys = keys.stream().map(key -> rawKey(redisCache, key)).toArray(byte[][]::new);
+        List<byte[]> rawValues;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            rawValues = connection.stringCommands().mGet(rawKeys);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] raw = rawValues == null ? null : rawValues.get(i);
+            values.add(raw == null ? null : read(config, raw));
+        }
+        return values;
+    }
+
+    @Override
+    public void putAll(Cache cache, Map<String, Object> values) {
+        if (!(cache instanceof RedisCache redisCache)) {
+            values.forEach(cache::put);
+            return;
+        }
+        RedisCacheConfiguration config = redisCache.getCacheConfiguration();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            try {
+                values.forEach((key, value) -> {
+                    if (value == null) {
+                        return;
+                    }
+                    byte[] rawValue = ByteUtils.getBytes(config.getValueSerializationPair().write(value));
+                    Duration ttl = config.getTtlFunction().getTimeToLive(key, value);
+                    if (ttl != null && !ttl.isZero() && !ttl.isNegative()) {
+                        connection.stringCommands().set(rawKey(redisCache, key), rawValue,
+                                Expiration.from(ttl), RedisStringCommands.SetOption.upsert());
+                    } else {
+                        connection.stringCommands().set(rawKey(redisCache, key), rawValue);
+                    }
+                });
+            } finally {
+                connection.closePipeline();
+            }
+        }
+    }
+
+    static byte[] rawKey(RedisCache cache, String key) {
+        RedisCacheConfiguration config = cache.getCacheConfiguration();
+        String prefixed = config.usePrefix() ? config.getKeyPrefixFor(cache.getName()) + key : key;
+        return ByteUtils.getBytes(config.getKeySerializationPair().write(prefixed));
+    }
+
+    private static Cache.ValueWrapper read(RedisCacheConfiguration config, byte[] raw) {
+        if (Arrays.equals(raw, NULL_VALUE)) {
+            return new SimpleValueWrapper(null);
+        }
+        Object value = config.getValueSerializationPair().read(ByteBuffer.wrap(raw));
+        // An unreadable value reads as null, which is a miss like in RedisCache
+        return value == null ? null : new SimpleValueWrapper(value);
+    }
+}
@@ -0,0 +1,60 @@
+package org.arkadipta.ecb.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final String EVICT = "E";
+    private static final String CLEAR = "C";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    public RedisCacheInvalidationBus(StringRedisTemplate redisTemplate,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        listenerContainer.addMessageListener(this::onMessage, new ChannelTopic(channel));
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        String type = invalidation.isClear() ? CLEAR : EVICT;
+        String key = invalidation.isClear() ? "" : invalidation.key();
+        String payload = String.join("\n", invalidation.origin(), type, invalidation.cacheName(), key);
+        try {
+            redisTemplate.convertAndSend(channel, payload);
+        } catch (RuntimeException e) {
+            // Peers fall back to their L1 TTL when a broadcast is lost
+            log.warn("Failed to publish cache invalidation for {}: {}", invalidation.cacheName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", 4);
+        if (parts.length < 4) {
+            log.warn("Ignoring malformed cache invalidation message");
+            return;
+        }
+        String key = CLEAR.equals(parts[1]) ? null : parts[3];
+        CacheInvalidation invalidation = new CacheInvalidation(parts[0], parts[2], key);
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+}
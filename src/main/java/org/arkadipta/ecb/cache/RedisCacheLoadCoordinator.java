@@ -0,0 +1,88 @@
+package org.arkadipta.ecb.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Leases are short lived Redis keys set with NX, released only by the holder so a lease that
+ * expired mid load and was taken over is not deleted from under the new holder.
+ */
+@Slf4j
+public class RedisCacheLoadCoordinator implements CacheLoadCoordinator {
+
+    private static final String LEASE_PREFIX = "ecb:cache-lease:";
+
+    private static final RedisScript<Long> RELEASE = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisCacheLoadCoordinator(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    @Nullable
+    public String tryAcquire(String cacheName, String key, Duration lease) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey(cacheName, key), token, lease);
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        } catch (RuntimeException e) {
+            // Without Redis every node loads for itself, as it would with no coordinator
+            log.warn("Failed to take the load lease for {}::{}: {}", cacheName, key, e.getMessage());
+            return token;
+        }
+    }
+
+    @Override
+    public void release(String cacheName, String key, String token) {
+        try {
+            redisTemplate.execute(RELEASE, List.of(leaseKey(cacheName, key)), token);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release the load lease for {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isHeld(String cacheName, String key) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(leaseKey(cacheName, key)));
+        } catch (RuntimeException e) {
+            // Same as when taking the lease fails: the waiter loads for itself
+            log.warn("Failed to check the load lease for {}::{}: {}", cacheName, key, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    @Nullable
+    public Duration timeToLive(Cache l2, String key) {
+        if (!(l2 instanceof RedisCache redisCache)) {
+            return null;
+        }
+        Long millis;
+        try (RedisConnection connection = redisTemplate.getRequiredConnectionFactory().getConnection()) {
+            millis = connection.keyCommands().pTtl(RedisCacheBatchOperations.rawKey(redisCache, key));
+        } catch (RuntimeException e) {
+            log.warn("Failed to read the expiry of {}::{}: {}", l2.getName(), key, e.getMessage());
+            return null;
+        }
+        // -1 for an entry without expiry, -2 for one that is gone
+        return millis == null || millis < 0 ? null : Duration.ofMillis(millis);
+    }
+
+    private static String leaseKey(String cacheName, String key) {
+        return LEASE_PREFIX + cacheName + ":" + key;
+    }
+}
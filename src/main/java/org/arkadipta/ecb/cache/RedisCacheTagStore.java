@@ -0,0 +1,93 @@
+package org.arkadipta.ecb.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps one Redis set per tag listing the cache entries that contain it. Tag sets expire
+ * with the longest cache TTL so they cannot outgrow the entries they describe.
+ */
+@Slf4j
+public class RedisCacheTagStore implements CacheTagStore {
+
+    private static final String TAG_PREFIX = "ecb:cache-tags:";
+    private static final char SEPARATOR = '\u001F';
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration tagTtl;
+
+    public RedisCacheTagStore(StringRedisTemplate redisTemplate, Duration tagTtl) {
+        this.redisTemplate = redisTemplate;
+        this.tagTtl = tagTtl;
+    }
+
+    @Override
+    public void addTags(String cacheName, String key, Set<String> tags) {
+        try {
+            addTagsPipelined(cacheName, Map.of(key, tags));
+        } catch (RuntimeException e) {
+            log.warn("Failed to record cache tags for {}::{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void addTags(String cacheName, Map<String, Set<String>> tagsByKey) {
+        if (tagsByKey.isEmpty()) {
+            return;
+        }
+        try {
+            addTagsPipelined(cacheName, tagsByKey);
+        } catch (RuntimeException e) {
+            log.warn("Failed to record cache tags for {} entries of {}: {}", tagsByKey.size(), cacheName, e.getMessage());
+        }
+    }
+
+    @Override
+    public Set<CacheEntryRef> getEntries(String tag) {
+        Set<String> members = redisTemplate.opsForSet().members(TAG_PREFIX + tag);
+        Set<CacheEntryRef> entries = new HashSet<>();
+        if (members == null) {
+            return entries;
+        }
+        for (String member : members) {
+            int separator = member.indexOf(SEPARATOR);
+            if (separator > 0) {
+                entries.add(new CacheEntryRef(member.substring(0, separator), member.substring(separator + 1)));
+            }
+        }
+        return entries;
+    }
+
+    // SREM of the members that were read, a DEL would also drop entries tagged since then
+    @Override
+    public void removeEntries(String tag, Set<CacheEntryRef> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String[] members = entries.stream()
+                .map(entry -> entry.cacheName() + SEPARATOR + entry.key())
+                .toArray(String[]::new);
+        redisTemplate.opsForSet().remove(TAG_PREFIX + tag, (Object[]) members);
+    }
+
+    private void addTagsPipelined(String cacheName, Map<String, Set<String>> tagsByKey) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            tagsByKey.forEach((key, tags) -> {
+                String member = cacheName + SEPARATOR + key;
+                for (String tag : tags) {
+                    stringConnection.sAdd(TAG_PREFIX + tag, member);
+                    stringConnection.pExpire(TAG_PREFIX + tag, tagTtl.toMillis());
+                }
+            });
+            return null;
+        });
+    }
+}
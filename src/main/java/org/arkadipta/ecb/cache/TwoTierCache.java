@@ -0,0 +1,685 @@
+package org.arkadipta.ecb.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Serves reads from an in-heap L1 and falls through to the shared L2 (Redis) on a miss.
+ * Every local write or eviction is broadcast so peers drop their now stale L1 copy.
+ * Both tiers are keyed by the key's string form, which is what Redis stores anyway.
+ * <p>
+ * Lookups with a value loader ({@code @Cacheable(sync = true)}) load a missing key once: callers
+ * on this node wait for the one load in progress, and with a {@link CacheLoadCoordinator} only
+ * the node holding the key's lease loads while the others wait for its value to reach L2. Entries
+ * whose L2 expiry is known are also refreshed early, with a probability that rises as the expiry
+ * nears (XFetch), so a hot key is usually reloaded by one caller before it expires for all.
+ * <p>
+ * With a {@link CacheCircuitBreaker}, L2 failures are not thrown to the caller: a failed or
+ * skipped read is a miss and a failed or skipped write only reaches L1. While the breaker is
+ * open the cache runs on L1 alone, without broadcasts, so peers' copies live out their L1 TTL.
+ * A cache whose L2 writes were lost is cleared once the breaker closes again, as L2 may still
+ * hold entries those writes would have replaced or evicted.
+ */
+@Slf4j
+public class TwoTierCache implements Cache {
+
+    // Floor for the load time an early refresh allows for, before this node has timed a load
+    private static final long MIN_LOAD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_PEER_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Past this many keys whose L2 write was lost the whole cache is cleared instead
+    private static final int MAX_UNWRITTEN_KEYS = 1_000;
+
+    private final String name;
+    private final Cache l2;
+    @Nullable
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> l1;
+    private final CacheInvalidationBus invalidationBus;
+    private final String nodeId;
+    @Nullable
+    private final CacheTagResolver tagResolver;
+    @Nullable
+    private final CacheTagStore tagStore;
+
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l1Misses = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l2Misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+
+    @Nullable
+    private volatile LookupTimers lookupTimers;
+    @Nullable
+    private volatile CacheBatchOperations batchOperations;
+
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile CacheLoadCoordinator loadCoordinator;
+    @Nullable
+    private volatile Duration loadLease;
+    private volatile double earlyRefreshBeta;
+    // When each L2 entry expires, in System.nanoTime terms, for the entries early refresh knows about
+    @Nullable
+    private volatile com.github.benmanes.caffeine.cache.Cache<String, Long> expiries;
+    private volatile long averageLoadNanos;
+
+    @Nullable
+    private volatile CacheCircuitBreaker circuitBreaker;
+    // Writes L2 missed, evicted (or cleared when l2Stale) before the next call that reaches it
+    private final Set<String> unwrittenKeys = ConcurrentHashMap.newKeySet();
+    private volatile boolean l2Stale;
+
+    public TwoTierCache(String name, Cache l2,
+                        @Nullable com.github.benmanes.caffeine.cache.Cache<String, Object> l1,
+                        CacheInvalidationBus invalidationBus, String nodeId) {
+        this(name, l2, l1, invalidationBus, nodeId, null, null);
+    }
+
+    public TwoTierCache(String name, Cache l2,
+                        @Nullable com.github.benmanes.caffeine.cache.Cache<String, Object> l1,
+                        CacheInvalidationBus invalidationBus, String nodeId,
+                        @Nullable CacheTagResolver tagResolver, @Nullable CacheTagStore tagStore) {
+        this.name = name;
+        this.l2 = l2;
+        this.l1 = l1;
+        this.invalidationBus = invalidationBus;
+        this.nodeId = nodeId;
+        this.tagResolver = tagResolver;
+        this.tagStore = tagStore;
+    }
+
+    @Override
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    @NonNull
+    public Object getNativeCache() {
+        return l2.getNativeCache();
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper get(@NonNull Object key) {
+        long start = System.nanoTime();
+        String localKey = localKey(key);
+        ValueWrapper local = getLocal(localKey);
+        if (local != null) {
+            recordLookup(LookupTimers::l1Hit, System.nanoTime() - start);
+            return local;
+        }
+        ValueWrapper remote = remoteRead(() -> l2.get(localKey));
+        if (remote == null) {
+            l2Misses.increment();
+            recordLookup(LookupTimers::miss, System.nanoTime() - start);
+            return null;
+        }
+        l2Hits.increment();
+        putLocal(localKey, remote.get());
+        recordLookup(LookupTimers::l2Hit, System.nanoTime() - start);
+        return remote;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, @Nullable Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull Object key, @NonNull Callable<T> valueLoader) {
+        long start = System.nanoTime();
+        String localKey = localKey(key);
+        ValueWrapper cached = getLocal(localKey);
+        if (cached != null) {
+            recordLookup(LookupTimers::l1Hit, System.nanoTime() - start);
+        } else {
+            cached = remoteRead(() -> l2.get(localKey));
+            if (cached == null) {
+                l2Misses.increment();
+                recordLookup(LookupTimers::miss, System.nanoTime() - start);
+                return (T) load(key, localKey, valueLoader, null);
+            }
+            l2Hits.increment();
+            putLocal(localKey, cached.get());
+            learnExpiry(localKey);
+            recordLookup(LookupTimers::l2Hit, System.nanoTime() - start);
+        }
+        if (refreshesEarly(localKey)) {
+            try {
+                return (T) load(key, localKey, valueLoader, cached);
+            } catch (RuntimeException e) {
+                // The entry has not expired yet, a failed refresh is retried by a later read
+                return (T) cached.get();
+            }
+        }
+        return (T) cached.get();
+    }
+
+    // Loads once per key on this node, or returns the current value if a refresh is already running
+    @Nullable
+    private Object load(Object key, String localKey, Callable<?> valueLoader, @Nullable ValueWrapper current) {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(localKey, own);
+        if (running != null) {
+            if (current != null) {
+                return current.get();
+            }
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            Object value = loadOnce(key, localKey, valueLoader, current);
+            own.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(localKey, own);
+        }
+    }
+
+    @Nullable
+    private Object loadOnce(Object key, String localKey, Callable<?> valueLoader, @Nullable ValueWrapper current) {
+        CacheLoadCoordinator coordinator = loadCoordinator;
+        Duration lease = loadLease;
+        String token = null;
+        if (coordinator != null && lease != null && l2Available()) {
+            token = coordinator.tryAcquire(name, localKey, lease);
+            if (token == null) {
+                // Another node is loading: keep serving what we have until its value is
+                // broadcast, or wait for that value
+                if (current != null) {
+                    forgetExpiry(localKey);
+                    return current.get();
+                }
+                // When the holder gives up without a value one waiter takes the lease over,
+                // the rest wait on for that one until the original lease would have run out
+                long deadline = System.nanoTime() + lease.toNanos();
+                while (token == null) {
+                    ValueWrapper loaded = awaitPeer(coordinator, localKey, deadline);
+                    if (loaded != null) {
+                        putLocal(localKey, loaded.get());
+                        return loaded.get();
+                    }
+                    if (System.nanoTime() >= deadline || !l2Available() || Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    token = coordinator.tryAcquire(name, localKey, lease);
+                }
+            }
+        }
+        try {
+            long loadStart = System.nanoTime();
+            Object value;
+            try {
+                value = valueLoader.call();
+            } catch (ValueRetrievalException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            } finally {
+                long loadTime = System.nanoTime() - loadStart;
+                averageLoadNanos = averageLoadNanos == 0 ? loadTime : (averageLoadNanos * 7 + loadTime) / 8;
+                recordLookup(LookupTimers::load, loadTime);
+            }
+            // Only ever replaces a missing or equally fresh entry, so a lost write leaves L2 consistent
+            remoteWrite(() -> l2.put(localKey, value));
+            puts.increment();
+            forgetExpiry(localKey);
+            putLocal(localKey, value);
+            recordTags(key, localKey, value);
+            publish(localKey);
+            return value;
+        } finally {
+            if (token != null) {
+                coordinator.release(name, localKey, token);
+            }
+        }
+    }
+
+    // Polls L2 for a peer's value until its lease is released or runs out, null if it never arrives
+    @Nullable
+    private ValueWrapper awaitPeer(CacheLoadCoordinator coordinator, String localKey, long deadline) {
+        long pause = TimeUnit.MILLISECONDS.toNanos(5);
+        while (System.nanoTime() < deadline && l2Available()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            ValueWrapper value = remoteRead(() -> l2.get(localKey));
+            if (value != null) {
+                return value;
+            }
+            if (!coordinator.isHeld(name, localKey)) {
+                // The holder may have written just before releasing
+                return remoteRead(() -> l2.get(localKey));
+            }
+            pause = Math.min(pause * 2, MAX_PEER_POLL_NANOS);
+        }
+        return null;
+    }
+
+    private boolean refreshesEarly(String localKey) {
+        com.github.benmanes.caffeine.cache.Cache<String, Long> known = expiries;
+        Long expiry = known != null ? known.getIfPresent(localKey) : null;
+        if (expiry == null) {
+            return false;
+        }
+        // XFetch: refresh once now + loadTime * beta * -ln(random) passes the expiry
+        double delta = Math.max(averageLoadNanos, MIN_LOAD_NANOS) * earlyRefreshBeta;
+        double gap = delta * -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return System.nanoTime() + gap >= expiry;
+    }
+
+    private void learnExpiry(String localKey) {
+        com.github.benmanes.caffeine.cache.Cache<String, Long> known = expiries;
+        CacheLoadCoordinator coordinator = loadCoordinator;
+        if (known == null || coordinator == null || known.getIfPresent(localKey) != null) {
+            return;
+        }
+        Duration timeToLive = coordinator.timeToLive(l2, localKey);
+        if (timeToLive != null) {
+            known.put(localKey, System.nanoTime() + timeToLive.toNanos());
+        }
+    }
+
+    private void forgetExpiry(String localKey) {
+        com.github.benmanes.caffeine.cache.Cache<String, Long> known = expiries;
+        if (known != null) {
+            known.invalidate(localKey);
+        }
+    }
+
+    /**
+     * Looks up many keys at once: L1 first, then every key it did not hold with one batch read
+     * from L2. Returns the values in key order, null where neither tier holds the key.
+     */
+    public List<Object> getAll(List<?> keys) {
+        List<Object> values = new ArrayList<>(Collections.nCopies(keys.size(), null));
+        List<String> remoteKeys = new ArrayList<>();
+        List<Integer> remotePositions = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String localKey = localKey(keys.get(i));
+            ValueWrapper local = getLocal(localKey);
+            if (local != null) {
+                values.set(i, local.get());
+            } else {
+                remoteKeys.add(localKey);
+                remotePositions.add(i);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return values;
+        }
+        CacheBatchOperations batch = batchOperations;
+        List<ValueWrapper> remote = new ArrayList<>(remoteKeys.size());
+        if (batch != null) {
+            List<ValueWrapper> read = remoteRead(() -> batch.getAll(l2, remoteKeys));
+            remote.addAll(read != null ? read : Collections.nCopies(remoteKeys.size(), null));
+        } else {
+            remoteKeys.forEach(localKey -> remote.add(remoteRead(() -> l2.get(localKey))));
+        }
+        for (int i = 0; i < remoteKeys.size(); i++) {
+            ValueWrapper wrapper = remote.get(i);
+            if (wrapper == null) {
+                l2Misses.increment();
+                continue;
+            }
+            l2Hits.increment();
+            putLocal(remoteKeys.get(i), wrapper.get());
+            values.set(remotePositions.get(i), wrapper.get());
+        }
+        return values;
+    }
+
+    /**
+     * Writes many entries with one batch write to L2. Meant for values just read from the
+     * database, so it is not broadcast: a peer's older copy was already evicted by the write
+     * that changed it.
+     */
+    public void putAll(Map<?, ?> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        Map<String, Object> localValues = new LinkedHashMap<>();
+        values.forEach((key, value) -> localValues.put(localKey(key), value));
+        CacheBatchOperations batch = batchOperations;
+        if (batch != null) {
+            remoteWrite(() -> batch.putAll(l2, localValues));
+        } else {
+            localValues.forEach((localKey, value) -> remoteWrite(() -> l2.put(localKey, value)));
+        }
+        puts.add(localValues.size());
+        localValues.forEach(this::putLocal);
+        if (tagResolver != null && tagStore != null && l2Available()) {
+            Map<String, Set<String>> tagsByKey = new LinkedHashMap<>();
+            values.forEach((key, value) -> {
+                Set<String> tags = tagResolver.resolveTags(name, key, value);
+                if (!tags.isEmpty()) {
+                    tagsByKey.put(localKey(key), tags);
+                }
+            });
+            tagStore.addTags(name, tagsByKey);
+        }
+    }
+
+    @Override
+    public void put(@NonNull Object key, @Nullable Object value) {
+        String localKey = localKey(key);
+        markUnwrittenUnless(remoteWrite(() -> l2.put(localKey, value)), localKey);
+        puts.increment();
+        forgetExpiry(localKey);
+        putLocal(localKey, value);
+        recordTags(key, localKey, value);
+        publish(localKey);
+    }
+
+    @Override
+    @Nullable
+    public ValueWrapper putIfAbsent(@NonNull Object key, @Nullable Object value) {
+        String localKey = localKey(key);
+        ValueWrapper[] stored = new ValueWrapper[1];
+        markUnwrittenUnless(remoteWrite(() -> stored[0] = l2.putIfAbsent(localKey, value)), localKey);
+        ValueWrapper existing = stored[0];
+        if (existing == null) {
+            puts.increment();
+            forgetExpiry(localKey);
+            putLocal(localKey, value);
+            recordTags(key, localKey, value);
+            publish(localKey);
+        } else {
+            putLocal(localKey, existing.get());
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(@NonNull Object key) {
+        String localKey = localKey(key);
+        markUnwrittenUnless(remoteWrite(() -> l2.evict(localKey)), localKey);
+        evictLocal(localKey);
+        publish(localKey);
+    }
+
+    @Override
+    public boolean evictIfPresent(@NonNull Object key) {
+        String localKey = localKey(key);
+        boolean[] evicted = new boolean[1];
+        markUnwrittenUnless(remoteWrite(() -> evicted[0] = l2.evictIfPresent(localKey)), localKey);
+        evictLocal(localKey);
+        publish(localKey);
+        return evicted[0];
+    }
+
+    @Override
+    public void clear() {
+        markUnwrittenUnless(remoteWrite(l2::clear), null);
+        clearLocal();
+        publish(null);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean[] invalidated = new boolean[1];
+        markUnwrittenUnless(remoteWrite(() -> invalidated[0] = l2.invalidate()), null);
+        clearLocal();
+        publish(null);
+        return invalidated[0];
+    }
+
+    // Called once L2 is reachable again after the circuit breaker was open
+    void onL2Recovered() {
+        if (l2Stale || !unwrittenKeys.isEmpty()) {
+            remoteWrite(() -> { });
+        }
+    }
+
+    void onRemoteInvalidation(CacheInvalidation invalidation) {
+        if (invalidation.isClear()) {
+            clearLocal();
+        } else {
+            evictLocal(invalidation.key());
+        }
+    }
+
+    public CacheTierStats getStats() {
+        long size = l1 != null ? l1.estimatedSize() : 0;
+        long weight = l1 != null
+                ? l1.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L)
+                : 0;
+        return new CacheTierStats(l1Hits.sum(), l1Misses.sum(), l2Hits.sum(), l2Misses.sum(), size, weight);
+    }
+
+    long getPuts() {
+        return puts.sum();
+    }
+
+    void setLookupTimers(@Nullable LookupTimers lookupTimers) {
+        this.lookupTimers = lookupTimers;
+    }
+
+    void setBatchOperations(@Nullable CacheBatchOperations batchOperations) {
+        this.batchOperations = batchOperations;
+    }
+
+    void setCircuitBreaker(@Nullable CacheCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Coordinates loads through the given coordinator with a lease of {@code loadLease} (none
+     * when null or zero), and refreshes entries early when {@code earlyRefreshBeta} is above 0.
+     */
+    void configureLoads(@Nullable CacheLoadCoordinator loadCoordinator, @Nullable Duration loadLease,
+                        double earlyRefreshBeta, Duration ttl) {
+        this.loadCoordinator = loadCoordinator;
+        this.loadLease = loadLease == null || loadLease.isZero() || loadLease.isNegative() ? null : loadLease;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.expiries = loadCoordinator != null && earlyRefreshBeta > 0
+                ? Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(ttl).build()
+                : null;
+    }
+
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    @Nullable
+    private ValueWrapper getLocal(String localKey) {
+        if (l1 == null) {
+            return null;
+        }
+        Object stored = l1.getIfPresent(localKey);
+        if (stored == null) {
+            l1Misses.increment();
+            return null;
+        }
+        l1Hits.increment();
+        return new SimpleValueWrapper(stored == NullValue.INSTANCE ? null : stored);
+    }
+
+    private void putLocal(String localKey, @Nullable Object value) {
+        if (l1 != null) {
+            l1.put(localKey, value != null ? value : NullValue.INSTANCE);
+        }
+    }
+
+    private void evictLocal(String localKey) {
+        if (l1 != null) {
+            l1.invalidate(localKey);
+        }
+        forgetExpiry(localKey);
+    }
+
+    private void clearLocal() {
+        if (l1 != null) {
+            l1.invalidateAll();
+        }
+        com.github.benmanes.caffeine.cache.Cache<String, Long> known = expiries;
+        if (known != null) {
+            known.invalidateAll();
+        }
+    }
+
+    private void recordTags(Object key, String localKey, @Nullable Object value) {
+        if (tagResolver == null || tagStore == null || !l2Available()) {
+            return;
+        }
+        Set<String> tags = tagResolver.resolveTags(name, key, value);
+        if (!tags.isEmpty()) {
+            tagStore.addTags(name, localKey, tags);
+        }
+    }
+
+    private void recordLookup(Function<LookupTimers, Timer> outcome, long nanos) {
+        LookupTimers timers = lookupTimers;
+        if (timers != null) {
+            outcome.apply(timers).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // A null key broadcasts a clear
+    private void publish(@Nullable String localKey) {
+        if (l2Available()) {
+            invalidationBus.publish(new CacheInvalidation(nodeId, name, localKey));
+        }
+    }
+
+    // Whether calls to Redis besides the cache itself (leases, tags, broadcasts) are worth making
+    private boolean l2Available() {
+        CacheCircuitBreaker breaker = circuitBreaker;
+        return breaker == null || breaker.isClosed();
+    }
+
+    // An L2 read through the circuit breaker, null (a miss) when it is open or the read fails
+    @Nullable
+    private <R> R remoteRead(Supplier<R> read) {
+        CacheCircuitBreaker breaker = circuitBreaker;
+        if (breaker == null) {
+            return read.get();
+        }
+        if (!breaker.allowsCall()) {
+            return null;
+        }
+        try {
+            replayUnwritten();
+            R result = read.get();
+            breaker.recordSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            breaker.recordFailure();
+            log.warn("Cache {} L2 read failed, treating it as a miss: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    // An L2 write through the circuit breaker, false when it is open or the write fails
+    private boolean remoteWrite(Runnable write) {
+        CacheCircuitBreaker breaker = circuitBreaker;
+        if (breaker == null) {
+            write.run();
+            return true;
+        }
+        if (!breaker.allowsCall()) {
+            return false;
+        }
+        try {
+            replayUnwritten();
+            write.run();
+            breaker.recordSuccess();
+            return true;
+        } catch (RuntimeException e) {
+            breaker.recordFailure();
+            log.warn("Cache {} L2 write failed, keeping it in L1 only: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Remembers a write that did not reach L2, whether the breaker was open or the call failed
+     * with it still closed, so L2 does not keep serving the value it replaced. A null key
+     * stands for a clear.
+     */
+    private void markUnwrittenUnless(boolean written, @Nullable String localKey) {
+        if (written) {
+            return;
+        }
+        if (localKey == null || unwrittenKeys.size() >= MAX_UNWRITTEN_KEYS) {
+            l2Stale = true;
+        } else {
+            unwrittenKeys.add(localKey);
+        }
+    }
+
+    // Evicts from L2 what earlier writes missed, before the call that found it reachable again
+    private void replayUnwritten() {
+        if (l2Stale) {
+            l2Stale = false;
+            log.info("Clearing cache {}, writes to it were lost while L2 was unavailable", name);
+            try {
+                l2.clear();
+            } catch (RuntimeException e) {
+                l2Stale = true;
+                throw e;
+            }
+            unwrittenKeys.clear();
+            return;
+        }
+        for (String localKey : unwrittenKeys) {
+            unwrittenKeys.remove(localKey);
+            try {
+                l2.evict(localKey);
+            } catch (RuntimeException e) {
+                unwrittenKeys.add(localKey);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Latency of a lookup by where it was answered. A miss excludes the time spent in the
+     * value loader, which is recorded separately as a load.
+     */
+    record LookupTimers(Timer l1Hit, Timer l2Hit, Timer miss, Timer load) {
+    }
+}
@@ -0,0 +1,184 @@
+package org.arkadipta.ecb.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Layers a bounded in-process L1 (Caffeine) in front of another cache manager, normally
+ * the {@code RedisCacheManager}. L1 size and TTL are configured per cache name.
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+    private final CacheManager l2CacheManager;
+    private final CacheTierProperties properties;
+    private final CacheInvalidationBus invalidationBus;
+    @Nullable
+    private final CacheTagResolver tagResolver;
+    @Nullable
+    private final CacheTagStore tagStore;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, Function<TwoTierCache, Cache>> decorators = new ConcurrentHashMap<>();
+    private final Map<String, Cache> views = new ConcurrentHashMap<>();
+    private final List<Consumer<TwoTierCache>> cacheListeners = new CopyOnWriteArrayList<>();
+    @Nullable
+    private volatile CacheBatchOperations batchOperations;
+    @Nullable
+    private volatile CacheLoadCoordinator loadCoordinator;
+    @Nullable
+    private volatile CacheCircuitBreaker circuitBreaker;
+
+    public TwoTierCacheManager(CacheManager l2CacheManager, CacheTierProperties properties,
+                               CacheInvalidationBus invalidationBus) {
+        this(l2CacheManager, properties, invalidationBus, null, null);
+    }
+
+    public TwoTierCacheManager(CacheManager l2CacheManager, CacheTierProperties properties,
+                               CacheInvalidationBus invalidationBus,
+                               @Nullable CacheTagResolver tagResolver, @Nullable CacheTagStore tagStore) {
+        this.l2CacheManager = l2CacheManager;
+        this.properties = properties;
+        this.invalidationBus = invalidationBus;
+        this.tagResolver = tagResolver;
+        this.tagStore = tagStore;
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    @Override
+    @Nullable
+    public Cache getCache(@NonNull String name) {
+        TwoTierCache cache = getTierCache(name);
+        if (cache == null) {
+            return null;
+        }
+        Function<TwoTierCache, Cache> decorator = decorators.get(name);
+        return decorator == null ? cache : views.computeIfAbsent(name, cacheName -> decorator.apply(cache));
+    }
+
+    /**
+     * The named cache itself, without the decorator {@link #getCache} may serve it through.
+     */
+    @Nullable
+    public TwoTierCache getTierCache(String name) {
+        TwoTierCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache l2 = l2CacheManager.getCache(name);
+        if (l2 == null) {
+            return null;
+        }
+        boolean[] created = new boolean[1];
+        TwoTierCache twoTierCache = caches.computeIfAbsent(name, cacheName -> {
+            created[0] = true;
+            return createCache(cacheName, l2);
+        });
+        if (created[0]) {
+            cacheListeners.forEach(listener -> listener.accept(twoTierCache));
+        }
+        return twoTierCache;
+    }
+
+    @Override
+    @NonNull
+    public Collection<String> getCacheNames() {
+        return l2CacheManager.getCacheNames();
+    }
+
+    public Map<String, CacheTierStats> getStats() {
+        Map<String, CacheTierStats> stats = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.getStats()));
+        return stats;
+    }
+
+    /**
+     * Calls the listener for every cache created so far and for each one created later, since
+     * caches without a configured spec only come into being on first use.
+     */
+    public void onCacheCreated(Consumer<TwoTierCache> listener) {
+        cacheListeners.add(listener);
+        caches.values().forEach(listener);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Serves the named cache through a decorator from now on, e.g. one that changes what is
+     * stored. Statistics and metrics still come from the cache itself.
+     */
+    public void decorate(String name, Function<TwoTierCache, Cache> decorator) {
+        decorators.put(name, decorator);
+        views.remove(name);
+    }
+
+    public void setBatchOperations(@Nullable CacheBatchOperations batchOperations) {
+        this.batchOperations = batchOperations;
+        caches.values().forEach(cache -> cache.setBatchOperations(batchOperations));
+    }
+
+    public void setLoadCoordinator(@Nullable CacheLoadCoordinator loadCoordinator) {
+        this.loadCoordinator = loadCoordinator;
+        caches.forEach((name, cache) -> configureLoads(cache, properties.resolve(name)));
+    }
+
+    /**
+     * Guards every cache's L2 with the breaker, and clears the caches that lost L2 writes while
+     * it was open each time it closes again.
+     */
+    public void setCircuitBreaker(CacheCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        caches.values().forEach(cache -> cache.setCircuitBreaker(circuitBreaker));
+        circuitBreaker.onRecovery(() -> caches.values().forEach(TwoTierCache::onL2Recovered));
+    }
+
+    @Nullable
+    public CacheCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private TwoTierCache createCache(String name, Cache l2) {
+        CacheTierProperties.Spec spec = properties.resolve(name);
+        com.github.benmanes.caffeine.cache.Cache<String, Object> l1 = null;
+        if (Boolean.TRUE.equals(spec.getL1Enabled())) {
+            l1 = Caffeine.newBuilder()
+                    .maximumWeight(spec.getL1MaximumWeight())
+                    .weigher(new CacheWeigher())
+                    .expireAfterWrite(spec.getL1Ttl())
+                    .build();
+        }
+        TwoTierCache cache = new TwoTierCache(name, l2, l1, invalidationBus, nodeId, tagResolver, tagStore);
+        cache.setBatchOperations(batchOperations);
+        cache.setCircuitBreaker(circuitBreaker);
+        configureLoads(cache, spec);
+        return cache;
+    }
+
+    private void configureLoads(TwoTierCache cache, CacheTierProperties.Spec spec) {
+        cache.configureLoads(loadCoordinator, spec.getLoadLease(), spec.getEarlyRefreshBeta(), spec.getTtl());
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.origin())) {
+            return;
+        }
+        TwoTierCache cache = caches.get(invalidation.cacheName());
+        if (cache != null) {
+            cache.onRemoteInvalidation(invalidation);
+        }
+    }
+}
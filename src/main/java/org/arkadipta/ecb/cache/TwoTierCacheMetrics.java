@@ -0,0 +1,103 @@
+package org.arkadipta.ecb.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.springframework.lang.Nullable;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Standard {@code cache.*} meters for a {@link TwoTierCache}, where a hit is a hit in either
+ * tier and a miss is a miss in both, plus per tier counters, L1 weight and lookup latency.
+ */
+public class TwoTierCacheMetrics extends CacheMeterBinder<TwoTierCache> {
+
+    public TwoTierCacheMetrics(TwoTierCache cache, Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+    }
+
+    @Override
+    @Nullable
+    protected Long size() {
+        TwoTierCache cache = getCache();
+        return cache != null ? cache.getStats().l1Size() : null;
+    }
+
+    @Override
+    protected long hitCount() {
+        CacheTierStats stats = stats();
+        return stats != null ? stats.l1Hits() + stats.l2Hits() : 0;
+    }
+
+    @Override
+    @Nullable
+    protected Long missCount() {
+        CacheTierStats stats = stats();
+        return stats != null ? stats.l2Misses() : null;
+    }
+
+    @Override
+    @Nullable
+    protected Long evictionCount() {
+        // L1 size evictions are not tracked and L2 expiry happens inside Redis
+        return null;
+    }
+
+    @Override
+    protected long putCount() {
+        TwoTierCache cache = getCache();
+        return cache != null ? cache.getPuts() : 0;
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        TwoTierCache cache = getCache();
+        if (cache == null) {
+            return;
+        }
+        tierCounter(registry, "l1", "hit", CacheTierStats::l1Hits);
+        tierCounter(registry, "l1", "miss", CacheTierStats::l1Misses);
+        tierCounter(registry, "l2", "hit", CacheTierStats::l2Hits);
+        tierCounter(registry, "l2", "miss", CacheTierStats::l2Misses);
+        Gauge.builder("cache.l1.weight", cache, c -> c.getStats().l1Weight())
+                .tags(getTagsWithCacheName())
+                .description("Weighted size of the in-process tier")
+                .register(registry);
+
+        cache.setLookupTimers(new TwoTierCache.LookupTimers(
+                lookupTimer(registry, "l1_hit"),
+                lookupTimer(registry, "l2_hit"),
+                lookupTimer(registry, "miss"),
+                Timer.builder("cache.load")
+                        .tags(getTagsWithCacheName())
+                        .description("Time spent computing a value missing from both tiers")
+                        .register(registry)));
+    }
+
+    @Nullable
+    private CacheTierStats stats() {
+        TwoTierCache cache = getCache();
+        return cache != null ? cache.getStats() : null;
+    }
+
+    private void tierCounter(MeterRegistry registry, String tier, String result,
+                             ToDoubleFunction<CacheTierStats> count) {
+        FunctionCounter.builder("cache.tier.gets", getCache(), cache -> count.applyAsDouble(cache.getStats()))
+                .tags(getTagsWithCacheName())
+                .tags("tier", tier, "result", result)
+                .description("Lookups answered or missed by one tier")
+                .register(registry);
+    }
+
+    private Timer lookupTimer(MeterRegistry registry, String result) {
+        return Timer.builder("cache.lookup")
+                .tags(getTagsWithCacheName())
+                .tag("result", result)
+                .description("Time to answer a lookup, excluding any value loader")
+                .register(registry);
+    }
+}
@@ -0,0 +1,76 @@
+package org.arkadipta.ecb.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.arkadipta.ecb.cache.CacheCircuitBreaker;
+import org.arkadipta.ecb.cache.TwoTierCache;
+import org.arkadipta.ecb.cache.TwoTierCacheManager;
+import org.arkadipta.ecb.cache.TwoTierCacheMetrics;
+import org.arkadipta.ecb.metrics.RepositoryRowMetrics;
+import org.arkadipta.ecb.metrics.SqlStatementCounter;
+import org.arkadipta.ecb.metrics.SqlStatementMetricsFilter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMetricsRegistrar;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public CacheMeterBinderProvider<TwoTierCache> twoTierCacheMeterBinderProvider() {
+        return TwoTierCacheMetrics::new;
+    }
+
+    // Boot only binds the caches that exist at startup, most of ours are created on first use
+    @Bean
+    public MeterBinder twoTierCacheMetricsBinder(TwoTierCacheManager cacheManager,
+                                                 CacheMetricsRegistrar cacheMetricsRegistrar) {
+        return registry -> cacheManager.onCacheCreated(cache ->
+                cacheMetricsRegistrar.bindCacheToRegistry(cache, Tag.of("cache.manager", "cacheManager")));
+    }
+
+    @Bean
+    public MeterBinder cacheCircuitBreakerMetrics(TwoTierCacheManager cacheManager) {
+        return registry -> {
+            CacheCircuitBreaker breaker = cacheManager.getCircuitBreaker();
+            if (breaker != null) {
+                Gauge.builder("cache.l2.circuit.open", breaker, b -> b.isClosed() ? 0 : 1)
+                        .description("Whether the caches are serving from L1 only because Redis is failing")
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public static RepositoryRowMetrics repositoryRowMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RepositoryRowMetrics(meterRegistry);
+    }
+
+    @Bean
+    public SqlStatementCounter sqlStatementCounter() {
+        return new SqlStatementCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter sqlStatementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+    }
+
+    // Ahead of the security chain so statements run while authenticating are counted too
+    @Bean
+    public FilterRegistrationBean<SqlStatementMetricsFilter> sqlStatementMetricsFilter(
+            SqlStatementCounter sqlStatementCounter, MeterRegistry meterRegistry) {
+        FilterRegistrationBean<SqlStatementMetricsFilter> registration = new FilterRegistrationBean<>(
+                new SqlStatementMetricsFilter(sqlStatementCounter, meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
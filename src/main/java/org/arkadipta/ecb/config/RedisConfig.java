@@ -1,23 +1,70 @@
 package org.arkadipta.ecb.config;
 
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.lettuce.core.ClientOptions;
+import org.arkadipta.ecb.cache.CacheCircuitBreaker;
+import org.arkadipta.ecb.cache.CacheInvalidationBus;
+import org.arkadipta.ecb.cache.CacheTagStore;
+import org.arkadipta.ecb.cache.CacheTierProperties;
+import org.arkadipta.ecb.cache.CompactCacheSerializer;
+import org.arkadipta.ecb.cache.NormalizedProductListCache;
+import org.arkadipta.ecb.cache.ProductCacheTags;
+import org.arkadipta.ecb.cache.RedisCacheBatchOperations;
+import org.arkadipta.ecb.cache.RedisCacheLoadCoordinator;
+import org.arkadipta.ecb.cache.RedisCacheTagStore;
+import org.arkadipta.ecb.cache.RedisCacheInvalidationBus;
+import org.arkadipta.ecb.cache.TwoTierCacheManager;
+import org.arkadipta.ecb.service.ProductService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientOptionsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.annotation.CachingConfigurer;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.cache.interceptor.LoggingCacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Configuration
 @EnableCaching
-public class RedisConfig {
+@EnableConfigurationProperties(CacheTierProperties.class)
+public class RedisConfig implements CachingConfigurer {
+
+    // A cache that fails is skipped and the method runs as if nothing was cached
+    @Override
+    public CacheErrorHandler errorHandler() {
+        return new LoggingCacheErrorHandler();
+    }
+
+    // While the connection is down commands fail at once instead of queueing until it comes back
+    @Bean
+    public LettuceClientOptionsBuilderCustomizer rejectCommandsWhileDisconnected() {
+        return builder -> builder.disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS);
+    }
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       CacheTierProperties cacheProperties) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
@@ -25,26 +72,120 @@ public class RedisConfig {
         template.setKeySerializer(new StringRedisSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
 
-        // Use JSON serializer for values
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        // Same value format as the caches, see CacheValueFormat
+        RedisSerializer<Object> valueSerializer = cacheValueSerializer(cacheProperties.getDefaults());
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
 
         template.afterPropertiesSet();
         return template;
     }
 
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       Environment environment) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // Otherwise listeners are dispatched on a platform thread per message
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("redis-listener-");
+            executor.setVirtualThreads(true);
+            container.setTaskExecutor(executor);
+        }
+        return container;
+    }
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate stringRedisTemplate,
+                                                     RedisMessageListenerContainer listenerContainer,
+                                                     CacheTierProperties cacheProperties) {
+        return new RedisCacheInvalidationBus(stringRedisTemplate, listenerContainer,
+                cacheProperties.getInvalidationChannel());
+    }
+
+    @Bean
+    public CacheTagStore cacheTagStore(StringRedisTemplate stringRedisTemplate, CacheTierProperties cacheProperties) {
+        // Tags must outlive the longest lived entry they point at
+        Duration tagTtl = cacheProperties.getSpecs().keySet().stream()
+                .map(name -> cacheProperties.resolve(name).getTtl())
+                .reduce(cacheProperties.getDefaults().getTtl(), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+        return new RedisCacheTagStore(stringRedisTemplate, tagTtl);
+    }
+
+    @Bean
+    public TwoTierCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                            CacheTierProperties cacheProperties,
+                                            CacheInvalidationBus cacheInvalidationBus,
+                                            CacheTagStore cacheTagStore,
+                                            StringRedisTemplate stringRedisTemplate,
+                                            ObjectProvider<ProductService> productService) {
+        RedisCacheManager redisCacheManager = redisCacheManager(connectionFactory, cacheProperties);
+        TwoTierCacheManager cacheManager = new TwoTierCacheManager(redisCacheManager, cacheProperties,
+                cacheInvalidationBus, new ProductCacheTags(), cacheTagStore);
+        cacheManager.setBatchOperations(new RedisCacheBatchOperations(connectionFactory));
+        cacheManager.setLoadCoordinator(new RedisCacheLoadCoordinator(stringRedisTemplate));
+        CacheTierProperties.CircuitBreaker breaker = cacheProperties.getCircuitBreaker();
+        if (breaker.isEnabled()) {
+            cacheManager.setCircuitBreaker(
+                    new CacheCircuitBreaker(breaker.getFailureThreshold(), breaker.getOpenDuration()));
+        }
+        if (cacheProperties.isNormalizedLists()) {
+            // ProductService is only looked up on first hydration, it needs this cache manager itself
+            for (String listCache : List.of(ProductCacheTags.PRODUCTS, ProductCacheTags.PRODUCT_SEARCH)) {
+                cacheManager.decorate(listCache, cache -> new NormalizedProductListCache(cache,
+                        () -> cacheManager.getTierCache(ProductCacheTags.PRODUCT),
+                        ids -> productService.getObject().findActiveByIds(ids)));
+            }
+        }
+        return cacheManager;
+    }
+
+    private RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory,
+                                                CacheTierProperties cacheProperties) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(10))
+                .entryTtl(jitteredTtl(cacheProperties.getDefaults()))
                 .serializeKeysWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
                         .fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(
                         org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
-                                .fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                                .fromSerializer(cacheValueSerializer(cacheProperties.getDefaults())));
+
+        Map<String, RedisCacheConfiguration> perCache = new HashMap<>();
+        cacheProperties.getSpecs().keySet().forEach(name -> {
+            CacheTierProperties.Spec spec = cacheProperties.resolve(name);
+            perCache.put(name, config.entryTtl(jitteredTtl(spec))
+                    .serializeValuesWith(org.springframework.data.redis.serializer.RedisSerializationContext
+                            .SerializationPair.fromSerializer(cacheValueSerializer(spec))));
+        });
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(config)
+                .withInitialCacheConfigurations(perCache)
                 .build();
+        redisCacheManager.initializeCaches();
+        return redisCacheManager;
+    }
+
+    static RedisCacheWriter.TtlFunction jitteredTtl(CacheTierProperties.Spec spec) {
+        long ttl = spec.getTtl().toMillis();
+        long jitter = (long) (ttl * spec.getTtlJitter());
+        if (jitter <= 0) {
+            return RedisCacheWriter.TtlFunction.just(spec.getTtl());
+        }
+        return (key, value) -> Duration.ofMillis(ttl - ThreadLocalRandom.current().nextLong(jitter + 1));
+    }
+
+    static RedisSerializer<Object> cacheValueSerializer(CacheTierProperties.Spec spec) {
+        return new CompactCacheSerializer(jsonValueSerializer(), spec.getFormat(),
+                (int) spec.getCompressionThreshold().toBytes());
+    }
+
+    // Cached DTOs carry LocalDateTime fields, which plain Jackson refuses to write
+    static GenericJackson2JsonRedisSerializer jsonValueSerializer() {
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+        serializer.configure(mapper -> mapper
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+        return serializer;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package org.arkadipta.ecb.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.dto.cart.CartFlushStats;
+import org.arkadipta.ecb.service.CartWriteBehindFlusher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/cart")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AdminCartController {
+
+    private final ObjectProvider<CartWriteBehindFlusher> cartFlusher;
+
+    @GetMapping("/flush-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CartFlushStats> getFlushStats() {
+        CartWriteBehindFlusher flusher = cartFlusher.getIfAvailable();
+        if (flusher == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(flusher.getStats());
+    }
+}
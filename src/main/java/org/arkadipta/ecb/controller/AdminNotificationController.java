@@ -0,0 +1,28 @@
+package org.arkadipta.ecb.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.dto.notification.EmailQueueStats;
+import org.arkadipta.ecb.notification.EmailDispatcher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/notifications")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AdminNotificationController {
+
+    private final ObjectProvider<EmailDispatcher> emailDispatcher;
+
+    @GetMapping("/email-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<EmailQueueStats> getEmailStats() {
+        EmailDispatcher dispatcher = emailDispatcher.getIfAvailable();
+        if (dispatcher == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(dispatcher.getStats());
+    }
+}
@@ -0,0 +1,25 @@
+package org.arkadipta.ecb.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.dto.order.OrderResponse;
+import org.arkadipta.ecb.model.enums.OrderStatus;
+import org.arkadipta.ecb.service.OrderService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/orders")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AdminOrderController {
+
+    private final OrderService orderService;
+
+    @PatchMapping("/{id}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<OrderResponse> updateStatus(@PathVariable Long id, @RequestParam OrderStatus status) {
+        OrderResponse order = orderService.updateStatus(id, status);
+        return ResponseEntity.ok(order);
+    }
+}
@@ -0,0 +1,31 @@
+package org.arkadipta.ecb.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.model.enums.Role;
+import org.arkadipta.ecb.service.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/users")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class AdminUserController {
+
+    private final UserService userService;
+
+    @PatchMapping("/{id}/enabled")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> setEnabled(@PathVariable Long id, @RequestParam boolean enabled) {
+        userService.setEnabled(id, enabled);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PatchMapping("/{id}/role")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> updateRole(@PathVariable Long id, @RequestParam Role role) {
+        userService.updateRole(id, role);
+        return ResponseEntity.noContent().build();
+    }
+}
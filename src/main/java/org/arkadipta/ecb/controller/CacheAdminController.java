@@ -0,0 +1,25 @@
+package org.arkadipta.ecb.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.cache.CacheTierStats;
+import org.arkadipta.ecb.cache.TwoTierCacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/cache")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class CacheAdminController {
+
+    private final TwoTierCacheManager cacheManager;
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, CacheTierStats>> getCacheStats() {
+        return ResponseEntity.ok(cacheManager.getStats());
+    }
+}
@@ -0,0 +1,45 @@
+package org.arkadipta.ecb.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.dto.order.CheckoutRequest;
+import org.arkadipta.ecb.dto.order.OrderResponse;
+import org.arkadipta.ecb.service.OrderService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/orders")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class OrderController {
+
+    private final OrderService orderService;
+
+    @PostMapping("/checkout")
+    public ResponseEntity<OrderResponse> checkout(@Valid @RequestBody CheckoutRequest request) {
+        OrderResponse order = orderService.checkout(request);
+        return new ResponseEntity<>(order, HttpStatus.CREATED);
+    }
+
+    @GetMapping
+    public ResponseEntity<Page<OrderResponse>> getOrders(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+        Page<OrderResponse> orders = orderService.getOrders(pageable);
+        return ResponseEntity.ok(orders);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<OrderResponse> getOrder(@PathVariable Long id) {
+        OrderResponse order = orderService.getOrder(id);
+        return ResponseEntity.ok(order);
+    }
+}
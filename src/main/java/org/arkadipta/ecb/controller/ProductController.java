@@ -1,21 +1,43 @@
 package org.arkadipta.ecb.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.dto.product.FacetedSearchResponse;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateRequest;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateResponse;
 import org.arkadipta.ecb.dto.product.ProductRequest;
 import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductCount;
+import org.arkadipta.ecb.dto.product.ProductExportFormat;
+import org.arkadipta.ecb.dto.product.ProductImportResponse;
+import org.arkadipta.ecb.dto.product.ProductScrollResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.arkadipta.ecb.dto.product.TotalCountMode;
+import org.arkadipta.ecb.service.ProductBulkUpdateService;
+import org.arkadipta.ecb.service.ProductCountService;
+import org.arkadipta.ecb.service.ProductExportService;
+import org.arkadipta.ecb.service.ProductImportService;
 import org.arkadipta.ecb.service.ProductService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/products")
@@ -24,6 +46,10 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductCountService productCountService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final ProductBulkUpdateService productBulkUpdateService;
 
     @GetMapping
     public ResponseEntity<Page<ProductResponse>> getAllProducts(
@@ -39,6 +65,35 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/slice")
+    public ResponseEntity<ProductSliceResponse> getProductSlice(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "none") String total) {
+
+        Sort sort = sortDir.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        Pageable pageable = PageRequest.of(page, size, sort);
+
+        ProductSliceResponse products = productService.getProductSlice(pageable);
+        return ResponseEntity.ok(withTotal(products, TotalCountMode.parse(total),
+                productCountService::estimateActive, productCountService::countActive));
+    }
+
+    @GetMapping("/scroll")
+    public ResponseEntity<ProductScrollResponse> scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        Sort sort = sortDir.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+
+        ProductScrollResponse products = productService.scrollProducts(sort, size, cursor);
+        return ResponseEntity.ok(products);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id) {
         ProductResponse product = productService.getProductById(id);
@@ -65,6 +120,68 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/search/faceted")
+    public ResponseEntity<FacetedSearchResponse> searchProductsWithFacets(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) BigDecimal minRating,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        Sort sort = sortDir.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        Pageable pageable = PageRequest.of(page, size, sort);
+
+        FacetedSearchResponse response = productService.searchProductsWithFacets(
+                category, name, minPrice, maxPrice, minRating, pageable);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/search/slice")
+    public ResponseEntity<ProductSliceResponse> searchProductSlice(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) BigDecimal minRating,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = "none") String total) {
+
+        Sort sort = sortDir.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        Pageable pageable = PageRequest.of(page, size, sort);
+
+        ProductSliceResponse products = productService.searchProductSlice(
+                category, name, minPrice, maxPrice, minRating, pageable);
+        return ResponseEntity.ok(withTotal(products, TotalCountMode.parse(total),
+                () -> productCountService.estimateMatching(category, name, minPrice, maxPrice, minRating),
+                () -> productCountService.countMatching(category, name, minPrice, maxPrice, minRating)));
+    }
+
+    @GetMapping("/search/scroll")
+    public ResponseEntity<ProductScrollResponse> scrollSearchProducts(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) BigDecimal minRating,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        Sort sort = sortDir.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+
+        ProductScrollResponse products = productService.scrollSearchProducts(
+                category, name, minPrice, maxPrice, minRating, sort, size, cursor);
+        return ResponseEntity.ok(products);
+    }
+
     @GetMapping("/categories")
     public ResponseEntity<List<String>> getAllCategories() {
         List<String> categories = productService.getAllCategories();
@@ -102,4 +219,66 @@ public class ProductController {
         ProductResponse product = productService.updateStock(id, stock);
         return ResponseEntity.ok(product);
     }
-}
\ No newline at end of file
+
+    // Items that cannot be applied are reported per item, the rest are still committed
+    @PatchMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductBulkUpdateResponse> bulkUpdateProducts(
+            @Valid @RequestBody ProductBulkUpdateRequest request) {
+        return ResponseEntity.ok(productBulkUpdateService.bulkUpdate(request.getItems()));
+    }
+
+    /**
+     * Streams the catalog as NDJSON or CSV, gzipped when the client accepts it.
+     * X-Export-Next-Updated-Since is the updatedSince to pass on the next incremental export. It
+     * overlaps this export, so consumers must dedupe rows by id and updatedAt.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("isAuthenticated()")
+    public void exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+
+        ProductExportFormat exportFormat = ProductExportFormat.parse(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        response.setContentType(exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"products." + exportFormat.extension() + "\"");
+        response.setHeader("X-Export-Next-Updated-Since", productExportService.nextUpdatedSince().toString());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            try (GZIPOutputStream output = new GZIPOutputStream(response.getOutputStream(), 16384)) {
+                productExportService.export(exportFormat, updatedSince, output);
+            }
+        } else {
+            productExportService.export(exportFormat, updatedSince, response.getOutputStream());
+        }
+    }
+
+    // The body is read as it arrives, so uploads of any size are never buffered whole
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductImportResponse> importProductsCsv(InputStream body) {
+        return ResponseEntity.ok(productImportService.importCsv(body));
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductImportResponse> importProductsNdjson(InputStream body) {
+        return ResponseEntity.ok(productImportService.importNdjson(body));
+    }
+
+    private ProductSliceResponse withTotal(ProductSliceResponse slice, TotalCountMode mode,
+                                           Supplier<ProductCount> estimate, Supplier<ProductCount> exact) {
+        return switch (mode) {
+            case NONE -> slice;
+            case ESTIMATE -> slice.withTotal(estimate.get().total(), false);
+            case EXACT -> slice.withTotal(exact.get().total(), true);
+        };
+    }
+}
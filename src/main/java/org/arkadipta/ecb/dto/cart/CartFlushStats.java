@@ -0,0 +1,10 @@
+package org.arkadipta.ecb.dto.cart;
+
+import java.time.LocalDateTime;
+
+public record CartFlushStats(
+        long dirtyCarts,
+        long flushLagMs,
+        LocalDateTime lastFlushAt,
+        int lastFlushedCarts) {
+}
@@ -0,0 +1,12 @@
+package org.arkadipta.ecb.dto.notification;
+
+public record EmailQueueStats(
+        long pendingJobs,
+        int inFlight,
+        int capacity,
+        long sent,
+        long retried,
+        long failed,
+        double averageSendMs,
+        long maxSendMs) {
+}
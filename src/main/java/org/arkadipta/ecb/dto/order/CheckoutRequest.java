@@ -0,0 +1,16 @@
+package org.arkadipta.ecb.dto.order;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class CheckoutRequest {
+
+    @NotBlank(message = "Shipping address is required")
+    @Size(max = 255, message = "Shipping address cannot exceed 255 characters")
+    private String shippingAddress;
+
+    @Size(max = 255, message = "Delivery notes cannot exceed 255 characters")
+    private String deliveryNotes;
+}
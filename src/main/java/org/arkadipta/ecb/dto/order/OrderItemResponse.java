@@ -0,0 +1,15 @@
+package org.arkadipta.ecb.dto.order;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class OrderItemResponse {
+    private Long id;
+    private Long productId;
+    private String productName;
+    private BigDecimal price;
+    private Integer quantity;
+    private BigDecimal subtotal;
+}
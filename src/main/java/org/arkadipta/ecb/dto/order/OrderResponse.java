@@ -0,0 +1,20 @@
+package org.arkadipta.ecb.dto.order;
+
+import lombok.Data;
+import org.arkadipta.ecb.model.enums.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class OrderResponse {
+    private Long id;
+    private OrderStatus status;
+    private List<OrderItemResponse> items;
+    private BigDecimal totalPrice;
+    private int totalItems;
+    private String shippingAddress;
+    private String deliveryNotes;
+    private LocalDateTime createdAt;
+}
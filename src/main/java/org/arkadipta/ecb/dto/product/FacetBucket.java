@@ -0,0 +1,12 @@
+package org.arkadipta.ecb.dto.product;
+
+import java.math.BigDecimal;
+
+/**
+ * A half-open [from, to) range facet, to is null for the open-ended top bucket.
+ */
+public record FacetBucket(
+        BigDecimal from,
+        BigDecimal to,
+        long count) {
+}
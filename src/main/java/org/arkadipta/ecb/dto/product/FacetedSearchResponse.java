@@ -0,0 +1,12 @@
+package org.arkadipta.ecb.dto.product;
+
+import org.springframework.data.domain.Page;
+
+/**
+ * Search results plus facet counts over every match, facets is null when the search index is
+ * not available.
+ */
+public record FacetedSearchResponse(
+        Page<ProductResponse> products,
+        ProductFacets facets) {
+}
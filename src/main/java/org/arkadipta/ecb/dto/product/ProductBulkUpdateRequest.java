@@ -0,0 +1,37 @@
+package org.arkadipta.ecb.dto.product;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class ProductBulkUpdateRequest {
+
+    @NotEmpty(message = "At least one item is required")
+    @Size(max = 5000, message = "At most 5000 products can be updated at once")
+    private List<@Valid @NotNull Item> items;
+
+    @Data
+    public static class Item {
+        @NotNull(message = "Product ID is required")
+        private Long id;
+
+        // Left out to keep the current value
+        private Integer stock;
+
+        private BigDecimal price;
+
+        // DELTA adds stock and price to the current values instead of replacing them
+        private Mode mode = Mode.ABSOLUTE;
+    }
+
+    public enum Mode {
+        ABSOLUTE,
+        DELTA
+    }
+}
@@ -0,0 +1,23 @@
+package org.arkadipta.ecb.dto.product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outcome of a bulk update, one result per requested item in request order. Updated and
+ * unchanged items carry the stock and price the product has now.
+ */
+public record ProductBulkUpdateResponse(int updated, int unchanged, int failed, List<ItemResult> results) {
+
+    public enum Status {
+        UPDATED,
+        // Already had the requested values, nothing was written
+        UNCHANGED,
+        // Missing or deleted
+        NOT_FOUND,
+        REJECTED
+    }
+
+    public record ItemResult(Long id, Status status, Integer stock, BigDecimal price, String message) {
+    }
+}
@@ -0,0 +1,6 @@
+package org.arkadipta.ecb.dto.product;
+
+import java.time.Instant;
+
+public record ProductCount(long total, Instant countedAt) {
+}
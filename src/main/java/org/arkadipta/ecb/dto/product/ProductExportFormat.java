@@ -0,0 +1,38 @@
+package org.arkadipta.ecb.dto.product;
+
+import org.arkadipta.ecb.exception.InvalidExportException;
+
+/**
+ * Wire format of a catalog export, chosen with the {@code format} request parameter.
+ */
+public enum ProductExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ProductExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static ProductExportFormat parse(String value) {
+        if (value == null) {
+            return NDJSON;
+        }
+        return switch (value.toLowerCase()) {
+            case "ndjson" -> NDJSON;
+            case "csv" -> CSV;
+            default -> throw new InvalidExportException("Unsupported export format '" + value + "', use ndjson or csv");
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package org.arkadipta.ecb.dto.product;
+
+import java.util.List;
+import java.util.Map;
+
+public record ProductFacets(
+        Map<String, Long> categories,
+        List<FacetBucket> priceRanges,
+        List<FacetBucket> ratings) {
+}
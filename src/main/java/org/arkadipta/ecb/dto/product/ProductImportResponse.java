@@ -0,0 +1,17 @@
+package org.arkadipta.ecb.dto.product;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. {@code errors} lists rejected rows by input line, capped at
+ * products.import.max-reported-errors, so it can be shorter than {@code failed}. {@code stopped}
+ * is set when the input could not be read to the end: the {@code imported} rows before that
+ * point are committed, and a retry should resume after them rather than resend the whole input.
+ */
+public record ProductImportResponse(long imported, long failed, List<RowError> errors, @Nullable String stopped) {
+
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,14 @@
+package org.arkadipta.ecb.dto.product;
+
+import java.util.List;
+
+/**
+ * One window of a keyset-paginated listing. Pass nextCursor back as the cursor parameter to
+ * continue, it is null on the last window.
+ */
+public record ProductScrollResponse(
+        List<ProductResponse> content,
+        String nextCursor,
+        boolean hasNext,
+        int size) {
+}
@@ -0,0 +1,28 @@
+package org.arkadipta.ecb.dto.product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of products without a total count. totalElements is only filled in when the client
+ * asked for it, totalExact tells whether it came from a fresh COUNT or the cached estimate.
+ */
+public record ProductSliceResponse(
+        List<ProductResponse> content,
+        int page,
+        int size,
+        boolean hasNext,
+        List<String> sortedBy,
+        Long totalElements,
+        Boolean totalExact) {
+
+    public ProductSliceResponse {
+        // Kept mutable so cached slices survive Redis serialization and stock patching
+        content = new ArrayList<>(content);
+        sortedBy = new ArrayList<>(sortedBy);
+    }
+
+    public ProductSliceResponse withTotal(long total, boolean exact) {
+        return new ProductSliceResponse(content, page, size, hasNext, sortedBy, total, exact);
+    }
+}
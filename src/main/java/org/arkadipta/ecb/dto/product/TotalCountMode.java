@@ -0,0 +1,22 @@
+package org.arkadipta.ecb.dto.product;
+
+/**
+ * How a slice listing reports its total: not at all, from the cached per-filter count, or from
+ * a fresh COUNT query.
+ */
+public enum TotalCountMode {
+    NONE,
+    ESTIMATE,
+    EXACT;
+
+    public static TotalCountMode parse(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        return switch (value.toLowerCase()) {
+            case "estimate" -> ESTIMATE;
+            case "exact" -> EXACT;
+            default -> NONE;
+        };
+    }
+}
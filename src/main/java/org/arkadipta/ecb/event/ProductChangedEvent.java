@@ -0,0 +1,24 @@
+package org.arkadipta.ecb.event;
+
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.springframework.lang.Nullable;
+
+/**
+ * Published by ProductService inside the write transaction. {@code before} is null for
+ * creations, {@code after} always holds the state that was saved.
+ */
+public record ProductChangedEvent(Type type, @Nullable ProductResponse before, ProductResponse after) {
+
+    public enum Type {
+        CREATED,
+        // Created by a bulk import, caches are invalidated once for the whole import, see ProductsImportedEvent
+        IMPORTED,
+        UPDATED,
+        STOCK_UPDATED,
+        DELETED
+    }
+
+    public Long productId() {
+        return after.getId();
+    }
+}
@@ -0,0 +1,10 @@
+package org.arkadipta.ecb.event;
+
+import java.util.Set;
+
+/**
+ * Published once after a bulk import, outside any transaction, when every imported batch has
+ * committed. Each product was also announced by an {@code IMPORTED} {@link ProductChangedEvent}.
+ */
+public record ProductsImportedEvent(long imported, Set<String> categories) {
+}
@@ -0,0 +1,11 @@
+package org.arkadipta.ecb.event;
+
+import java.util.List;
+
+/**
+ * Published once by a bulk update inside its transaction, in place of one
+ * {@link ProductChangedEvent} per product, so listeners can handle all changes in one pass.
+ * Each change is {@code STOCK_UPDATED} when only the stock moved and {@code UPDATED} otherwise.
+ */
+public record ProductsUpdatedEvent(List<ProductChangedEvent> changes) {
+}
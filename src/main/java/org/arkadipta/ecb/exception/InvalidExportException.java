@@ -0,0 +1,7 @@
+package org.arkadipta.ecb.exception;
+
+public class InvalidExportException extends RuntimeException {
+    public InvalidExportException(String message) {
+        super(message);
+    }
+}
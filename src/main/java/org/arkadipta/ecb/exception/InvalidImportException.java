@@ -0,0 +1,7 @@
+package org.arkadipta.ecb.exception;
+
+public class InvalidImportException extends RuntimeException {
+    public InvalidImportException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,67 @@
+package org.arkadipta.ecb.inventory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock and reserved units of one product packed into a single long (stock in the high half,
+ * reserved in the low half), so a reservation checks and takes availability in one CAS.
+ */
+final class InventoryCounter {
+
+    private final AtomicLong state;
+
+    InventoryCounter(int stock) {
+        state = new AtomicLong(pack(Math.max(stock, 0), 0));
+    }
+
+    boolean tryReserve(int quantity) {
+        while (true) {
+            long current = state.get();
+            int stock = stock(current);
+            int reserved = reserved(current);
+            if (stock - reserved < quantity) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(stock, reserved + quantity))) {
+                return true;
+            }
+        }
+    }
+
+    void release(int quantity) {
+        state.getAndUpdate(current -> pack(stock(current), Math.max(reserved(current) - quantity, 0)));
+    }
+
+    void adjustStock(int delta) {
+        state.getAndUpdate(current -> pack(Math.max(stock(current) + delta, 0), reserved(current)));
+    }
+
+    void resetStock(int stock) {
+        state.getAndUpdate(current -> pack(Math.max(stock, 0), reserved(current)));
+    }
+
+    int stock() {
+        return stock(state.get());
+    }
+
+    int reserved() {
+        return reserved(state.get());
+    }
+
+    int available() {
+        long current = state.get();
+        return Math.max(stock(current) - reserved(current), 0);
+    }
+
+    private static long pack(int stock, int reserved) {
+        return ((long) stock << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int stock(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int reserved(long state) {
+        return (int) state;
+    }
+}
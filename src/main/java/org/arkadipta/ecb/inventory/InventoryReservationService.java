@@ -0,0 +1,283 @@
+package org.arkadipta.ecb.inventory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsUpdatedEvent;
+import org.arkadipta.ecb.exception.InsufficientStockException;
+import org.arkadipta.ecb.exception.ResourceNotFoundException;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductStockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers cart and checkout stock checks from in-memory counters instead of reading
+ * {@code products.stock} on every request. Each user holds at most one reservation per product,
+ * sized to the quantity in their cart; reservations expire after {@code inventory.reservations.ttl}
+ * unless the cart touches them again, and are put back if the transaction that took them rolls
+ * back. A counter is seeded the first time its product is reserved, from the product when the
+ * caller has loaded it and otherwise with one stock query; after that it follows committed
+ * {@link ProductChangedEvent}s and is periodically reset from the database. The conditional
+ * decrement at checkout stays the authority, so drift between reconciliations can reject a
+ * cart early but never oversell.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.reservations.enabled", havingValue = "true")
+@Slf4j
+public class InventoryReservationService {
+
+    private static final int WHEEL_SLOTS = 512;
+    private static final int RECONCILE_BATCH_SIZE = 1000;
+
+    private final ProductStockRepository productStockRepository;
+    private final Duration ttl;
+    private final Clock clock;
+    private final TimerWheel<Expiry> expiries;
+    // Lookups only go through the map, the counters themselves are lock-free
+    private final Map<Long, InventoryCounter> counters = new ConcurrentHashMap<>();
+    // Products with a counter that have been deactivated since it was seeded
+    private final Set<Long> inactive = ConcurrentHashMap.newKeySet();
+    // Per-user maps are only read and written inside compute, which serializes one user's changes
+    private final Map<Long, Map<Long, Reservation>> reservations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InventoryReservationService(ProductStockRepository productStockRepository,
+                                       @Value("${inventory.reservations.ttl:PT15M}") Duration ttl,
+                                       @Value("${inventory.reservations.tick-ms:1000}") long tickMillis) {
+        this(productStockRepository, ttl, tickMillis, Clock.systemUTC());
+    }
+
+    InventoryReservationService(ProductStockRepository productStockRepository, Duration ttl, long tickMillis,
+                                Clock clock) {
+        this.productStockRepository = productStockRepository;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.expiries = new TimerWheel<>(tickMillis, WHEEL_SLOTS, clock.millis());
+    }
+
+    /**
+     * Sets the user's reservation of the product to {@code quantity} units, taking only the
+     * difference from what they already hold, and restarts its expiry.
+     *
+     * @throws InsufficientStockException if the additional units are not available
+     */
+    public void reserve(Long userId, Product product, int quantity) {
+        if (quantity <= 0) {
+            release(userId, product.getId());
+            return;
+        }
+        InventoryCounter counter = counters.computeIfAbsent(product.getId(), id -> new InventoryCounter(product.getStock()));
+        reserve(userId, product.getId(), counter, quantity, product.getName());
+    }
+
+    /**
+     * Like {@link #reserve(Long, Product, int)} for a product the caller has not loaded. The
+     * product is only read from the database when it has no counter yet.
+     *
+     * @throws ResourceNotFoundException if the product does not exist or is inactive
+     * @throws InsufficientStockException if the additional units are not available
+     */
+    public void reserve(Long userId, Long productId, int quantity) {
+        if (quantity <= 0) {
+            release(userId, productId);
+            return;
+        }
+        InventoryCounter counter = counters.get(productId);
+        if (counter == null) {
+            Integer stock = productStockRepository.findActiveStock(List.of(productId)).get(productId);
+            if (stock == null) {
+                throw new ResourceNotFoundException("Product is not available");
+            }
+            counter = counters.computeIfAbsent(productId, id -> new InventoryCounter(stock));
+        } else if (inactive.contains(productId)) {
+            throw new ResourceNotFoundException("Product is not available");
+        }
+        reserve(userId, productId, counter, quantity, "product " + productId);
+    }
+
+    private void reserve(Long userId, Long productId, InventoryCounter counter, int quantity, String productName) {
+        long expiresAt = clock.millis() + ttl.toMillis();
+        Reservation[] previous = new Reservation[1];
+
+        reservations.compute(userId, (id, held) -> {
+            Map<Long, Reservation> updated = held != null ? held : new HashMap<>();
+            Reservation current = updated.get(productId);
+            int delta = quantity - (current != null ? current.quantity() : 0);
+            if (delta > 0 && !counter.tryReserve(delta)) {
+                throw new InsufficientStockException("Insufficient stock available for: " + productName);
+            }
+            if (delta < 0) {
+                counter.release(-delta);
+            }
+            previous[0] = current;
+            updated.put(productId, new Reservation(quantity, expiresAt));
+            return updated;
+        });
+        expiries.schedule(new Expiry(userId, productId), expiresAt);
+        restoreOnRollback(userId, productId, previous[0]);
+    }
+
+    // The counters are not part of the transaction, so a cart change that rolls back must hand its units back
+    private void restoreOnRollback(Long userId, Long productId, @Nullable Reservation previous) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    restore(userId, productId, previous);
+                }
+            }
+        });
+    }
+
+    // Puts back the quantity held before, unless the reservation is gone or the units to take back are
+    private void restore(Long userId, Long productId, @Nullable Reservation previous) {
+        reservations.computeIfPresent(userId, (id, held) -> {
+            Reservation current = held.get(productId);
+            InventoryCounter counter = counters.get(productId);
+            if (current == null || counter == null) {
+                return held;
+            }
+            int restored = previous != null ? previous.quantity() : 0;
+            int delta = current.quantity() - restored;
+            if (delta < 0 && !counter.tryReserve(-delta)) {
+                return held;
+            }
+            if (delta > 0) {
+                counter.release(delta);
+            }
+            if (restored == 0) {
+                held.remove(productId);
+            } else {
+                held.put(productId, new Reservation(restored, current.expiresAt()));
+            }
+            return held.isEmpty() ? null : held;
+        });
+    }
+
+    public void release(Long userId, Long productId) {
+        reservations.computeIfPresent(userId, (id, held) -> {
+            Reservation removed = held.remove(productId);
+            if (removed != null) {
+                releaseUnits(productId, removed.quantity());
+            }
+            return held.isEmpty() ? null : held;
+        });
+    }
+
+    /**
+     * Drops every reservation of the user, when the cart is cleared or its order is committed.
+     * Stock taken by an order reaches the counters through its {@link ProductChangedEvent}.
+     */
+    public void releaseAll(Long userId) {
+        reservations.computeIfPresent(userId, (id, held) -> {
+            held.forEach((productId, reservation) -> releaseUnits(productId, reservation.quantity()));
+            return null;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservations.tick-ms:1000}")
+    public void expireReservations() {
+        long now = clock.millis();
+        expiries.advance(now, expiry -> reservations.computeIfPresent(expiry.userId(), (id, held) -> {
+            Reservation reservation = held.get(expiry.productId());
+            // A reservation touched again since this entry was scheduled has a later deadline
+            if (reservation != null && reservation.expiresAt() <= now) {
+                held.remove(expiry.productId());
+                releaseUnits(expiry.productId(), reservation.quantity());
+            }
+            return held.isEmpty() ? null : held;
+        }));
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservations.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        List<Long> productIds = new ArrayList<>(counters.keySet());
+        for (int from = 0; from < productIds.size(); from += RECONCILE_BATCH_SIZE) {
+            List<Long> batch = productIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, productIds.size()));
+            Map<Long, Integer> stock = productStockRepository.findActiveStock(batch);
+            for (Long productId : batch) {
+                InventoryCounter counter = counters.get(productId);
+                if (counter != null) {
+                    counter.resetStock(stock.getOrDefault(productId, 0));
+                    markActive(productId, stock.containsKey(productId));
+                }
+            }
+        }
+        log.debug("Reconciled inventory counters for {} products", productIds.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        InventoryCounter counter = counters.get(event.productId());
+        if (counter == null) {
+            return;
+        }
+        ProductResponse before = event.before();
+        ProductResponse after = event.after();
+        markActive(event.productId(), after.isActive());
+        if (!after.isActive()) {
+            counter.resetStock(0);
+        } else if (before == null || !before.isActive()) {
+            counter.resetStock(after.getStock());
+        } else {
+            // Deltas commute, so events from concurrent commits can be applied in any order
+            counter.adjustStock(after.getStock() - before.getStock());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsUpdated(ProductsUpdatedEvent event) {
+        event.changes().forEach(this::onProductChanged);
+    }
+
+    public int getAvailable(Long productId) {
+        InventoryCounter counter = counters.get(productId);
+        return counter != null ? counter.available() : -1;
+    }
+
+    int getReserved(Long productId) {
+        InventoryCounter counter = counters.get(productId);
+        return counter != null ? counter.reserved() : 0;
+    }
+
+    private void markActive(Long productId, boolean active) {
+        if (active) {
+            inactive.remove(productId);
+        } else {
+            inactive.add(productId);
+        }
+    }
+
+    private void releaseUnits(Long productId, int quantity) {
+        InventoryCounter counter = counters.get(productId);
+        if (counter != null) {
+            counter.release(quantity);
+        }
+    }
+
+    private record Reservation(int quantity, long expiresAt) {
+    }
+
+    private record Expiry(Long userId, Long productId) {
+    }
+}
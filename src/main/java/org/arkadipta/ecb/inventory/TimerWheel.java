@@ -0,0 +1,76 @@
+package org.arkadipta.ecb.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: scheduling is an append to the slot of the deadline's tick and each
+ * advance only looks at the slots whose ticks have passed. Deadlines further away than one turn
+ * of the wheel stay in their slot until a later turn reaches them. Expiry can be up to one tick
+ * late, or one turn late for entries scheduled while an advance is running.
+ */
+final class TimerWheel<T> {
+
+    private final long tickMillis;
+    private final Queue<Entry<T>>[] slots;
+    private final int mask;
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickMillis, int slotCount, long startMillis) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two: " + slotCount);
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = slotCount - 1;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    void schedule(T item, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        slots[(int) (tick & mask)].add(new Entry<>(item, deadlineMillis));
+    }
+
+    /**
+     * Hands every entry whose deadline is at or before {@code nowMillis} to {@code expired}.
+     * Must not be called concurrently with itself.
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        long nowTick = nowMillis / tickMillis;
+        long from = currentTick + 1;
+        // After a full turn every slot has been visited, later ticks would only repeat them
+        long to = Math.min(nowTick, currentTick + slots.length);
+        for (long tick = from; tick <= to; tick++) {
+            Queue<Entry<T>> slot = slots[(int) (tick & mask)];
+            List<Entry<T>> notDue = new ArrayList<>();
+            Entry<T> entry;
+            while ((entry = slot.poll()) != null) {
+                if (entry.deadlineMillis() <= nowMillis) {
+                    expired.accept(entry.item());
+                } else {
+                    notDue.add(entry);
+                }
+            }
+            slot.addAll(notDue);
+        }
+        currentTick = Math.max(currentTick, nowTick);
+    }
+
+    int size() {
+        int size = 0;
+        for (Queue<Entry<T>> slot : slots) {
+            size += slot.size();
+        }
+        return size;
+    }
+
+    private record Entry<T>(T item, long deadlineMillis) {
+    }
+}
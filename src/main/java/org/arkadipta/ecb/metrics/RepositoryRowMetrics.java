@@ -0,0 +1,104 @@
+package org.arkadipta.ecb.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how many rows each repository method returned, or changed for a {@link Modifying}
+ * query, as {@code ecb.repository.rows} tagged with the repository and method name. Timings
+ * come from Spring Boot's {@code spring.data.repository.invocations}, which uses the same tags.
+ */
+public class RepositoryRowMetrics implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryRowMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    @NonNull
+    public Object postProcessBeforeInitialization(@NonNull Object bean, @NonNull String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, information) -> proxyFactory.addAdvice(
+                            new RowCountInterceptor(information.getRepositoryInterface()))));
+        }
+        return bean;
+    }
+
+    /**
+     * Row count carried by a repository method's result, or {@code null} if it does not
+     * describe rows, like an aggregate, an existence check or a lazily consumed stream.
+     */
+    @Nullable
+    static Long rows(Method method, @Nullable Object result) {
+        if (method.getReturnType() == void.class) {
+            return null;
+        }
+        if (result == null) {
+            return 0L;
+        }
+        if (result instanceof Slice<?> slice) {
+            return (long) slice.getNumberOfElements();
+        }
+        if (result instanceof Collection<?> collection) {
+            return (long) collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1L : 0L;
+        }
+        if (result instanceof Number number) {
+            return method.isAnnotationPresent(Modifying.class) ? number.longValue() : null;
+        }
+        if (result instanceof Boolean || result instanceof Iterable<?> || result instanceof AutoCloseable) {
+            return null;
+        }
+        return 1L;
+    }
+
+    private class RowCountInterceptor implements MethodInterceptor {
+
+        private final String repository;
+        private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+        RowCountInterceptor(Class<?> repositoryInterface) {
+            this.repository = repositoryInterface.getSimpleName();
+        }
+
+        @Override
+        @Nullable
+        public Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            Method method = invocation.getMethod();
+            Long rows = rows(method, result);
+            if (rows != null) {
+                summaries.computeIfAbsent(method, this::summary).record(rows);
+            }
+            return result;
+        }
+
+        private DistributionSummary summary(Method method) {
+            return DistributionSummary.builder("ecb.repository.rows")
+                    .tag("repository", repository)
+                    .tag("method", method.getName())
+                    .description("Rows returned, or changed by a modifying query, per repository call")
+                    .register(meterRegistry.getObject());
+        }
+    }
+}
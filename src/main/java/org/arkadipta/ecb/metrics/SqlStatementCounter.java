@@ -0,0 +1,31 @@
+package org.arkadipta.ecb.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()}
+ * and {@link #stop()}. Statements on threads that never started counting are ignored.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> statements = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = statements.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    public void start() {
+        statements.set(new int[1]);
+    }
+
+    public int stop() {
+        int[] count = statements.get();
+        statements.remove();
+        return count != null ? count[0] : 0;
+    }
+}
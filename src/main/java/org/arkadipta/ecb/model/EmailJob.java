@@ -0,0 +1,54 @@
+package org.arkadipta.ecb.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.arkadipta.ecb.model.enums.EmailJobStatus;
+import org.arkadipta.ecb.model.enums.EmailType;
+
+import java.time.LocalDateTime;
+
+/**
+ * A queued notification email. The row is written in the transaction that triggers the email
+ * and is picked up by EmailDispatcher, {@code model} holds the template values as JSON.
+ */
+@Entity
+@Table(name = "email_jobs", indexes = @Index(name = "idx_email_jobs_status_due", columnList = "status, next_attempt_at"))
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailJob extends BaseEntity {
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EmailType type;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String model;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EmailJobStatus status = EmailJobStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Set while a dispatcher holds the job, an expired lease makes it due again
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+}
@@ -0,0 +1,35 @@
+package org.arkadipta.ecb.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * An event waiting to be relayed to Kafka. Rows are written by OutboxWriter in the transaction
+ * of the change they describe and deleted once the broker has acknowledged them.
+ */
+@Entity
+@Table(name = "outbox_events")
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent extends BaseEntity {
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "aggregate_type", nullable = false)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private String aggregateId;
+
+    @Column(name = "event_type", nullable = false)
+    private String eventType;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+}
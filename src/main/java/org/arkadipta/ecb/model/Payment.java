@@ -8,6 +8,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.arkadipta.ecb.model.enums.PaymentStatus;
 
 import java.math.BigDecimal;
@@ -23,6 +24,8 @@ public class Payment extends BaseEntity {
 
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "order_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Order order;
 
     @Column(name = "transaction_id", unique = true, nullable = false)
@@ -6,12 +6,14 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+// updated_at drives incremental catalog exports
+@Table(name = "products", indexes = @Index(name = "idx_products_updated_at", columnList = "updated_at"))
 @Data
 @EqualsAndHashCode(callSuper = true)
 @NoArgsConstructor
@@ -53,8 +55,12 @@ public class Product extends BaseEntity {
     private boolean active = true;
 
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private List<CartItem> cartItems;
 
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private List<OrderItem> orderItems;
 }
\ No newline at end of file
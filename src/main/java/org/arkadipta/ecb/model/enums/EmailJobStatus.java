@@ -0,0 +1,8 @@
+package org.arkadipta.ecb.model.enums;
+
+public enum EmailJobStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
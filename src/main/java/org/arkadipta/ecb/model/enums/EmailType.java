@@ -0,0 +1,7 @@
+package org.arkadipta.ecb.model.enums;
+
+public enum EmailType {
+    ORDER_CONFIRMED,
+    ORDER_SHIPPED,
+    PAYMENT_FAILED
+}
@@ -0,0 +1,196 @@
+package org.arkadipta.ecb.notification;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.notification.EmailQueueStats;
+import org.arkadipta.ecb.model.EmailJob;
+import org.arkadipta.ecb.model.enums.EmailJobStatus;
+import org.arkadipta.ecb.repository.EmailJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends queued {@link EmailJob}s. Jobs are claimed from the table in batches no larger than the
+ * free in-flight capacity, so at most {@code notifications.email.queue-capacity} jobs are ever
+ * held in memory and the rest wait durably in the database. Each job is rendered and sent on its
+ * own virtual thread through the {@link SmtpConnectionPool}; failures are retried with exponential
+ * backoff until {@code notifications.email.max-attempts}. A job claimed by a node that dies is
+ * picked up again once its lease expires.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.email.enabled", havingValue = "true")
+@Slf4j
+public class EmailDispatcher {
+
+    private static final TypeReference<Map<String, Object>> MODEL_TYPE = new TypeReference<>() {
+    };
+
+    private final EmailJobRepository emailJobRepository;
+    private final EmailTemplateRenderer renderer;
+    private final SmtpConnectionPool connectionPool;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final String from;
+    private final int capacity;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore inFlight;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    public EmailDispatcher(EmailJobRepository emailJobRepository,
+                           EmailTemplateRenderer renderer,
+                           SmtpConnectionPool connectionPool,
+                           TransactionTemplate transactionTemplate,
+                           ObjectMapper objectMapper,
+                           @Value("${notifications.email.from:no-reply@ecb.local}") String from,
+                           @Value("${notifications.email.queue-capacity:200}") int capacity,
+                           @Value("${notifications.email.max-attempts:5}") int maxAttempts,
+                           @Value("${notifications.email.initial-backoff:PT10S}") Duration initialBackoff,
+                           @Value("${notifications.email.max-backoff:PT30M}") Duration maxBackoff,
+                           @Value("${notifications.email.lease:PT5M}") Duration lease) {
+        this.emailJobRepository = emailJobRepository;
+        this.renderer = renderer;
+        this.connectionPool = connectionPool;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.from = from;
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.inFlight = new Semaphore(capacity);
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.email.poll-interval-ms:1000}")
+    public void dispatch() {
+        int free = inFlight.availablePermits();
+        if (free == 0) {
+            return;
+        }
+        try {
+            List<EmailJob> claimed = transactionTemplate.execute(status -> claim(free));
+            if (claimed == null) {
+                return;
+            }
+            for (EmailJob job : claimed) {
+                inFlight.acquireUninterruptibly();
+                senders.execute(() -> {
+                    try {
+                        send(job);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            log.error("Email dispatch failed, will retry", e);
+        }
+    }
+
+    public EmailQueueStats getStats() {
+        long sentCount = sent.sum();
+        return new EmailQueueStats(
+                emailJobRepository.countByStatus(EmailJobStatus.PENDING),
+                capacity - inFlight.availablePermits(),
+                capacity,
+                sentCount,
+                retried.sum(),
+                failed.sum(),
+                sentCount > 0 ? sendNanos.sum() / 1_000_000.0 / sentCount : 0,
+                TimeUnit.NANOSECONDS.toMillis(maxSendNanos.get()));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        senders.shutdown();
+        // Unfinished jobs keep their lease and are sent again after it expires
+        senders.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private List<EmailJob> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailJob> jobs = emailJobRepository.findDueForUpdate(now, PageRequest.of(0, limit));
+        for (EmailJob job : jobs) {
+            job.setStatus(EmailJobStatus.SENDING);
+            job.setLockedUntil(now.plus(lease));
+            job.setAttempts(job.getAttempts() + 1);
+        }
+        return jobs;
+    }
+
+    private void send(EmailJob job) {
+        long start = System.nanoTime();
+        try {
+            RenderedEmail email = renderer.render(job.getType(), objectMapper.readValue(job.getModel(), MODEL_TYPE));
+            MimeMessage message = connectionPool.createMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+            helper.setFrom(from);
+            helper.setTo(job.getRecipient());
+            helper.setSubject(email.subject());
+            helper.setText(email.body());
+            connectionPool.send(message);
+
+            long elapsed = System.nanoTime() - start;
+            sendNanos.add(elapsed);
+            maxSendNanos.accumulateAndGet(elapsed, Math::max);
+            sent.increment();
+            transactionTemplate.executeWithoutResult(status -> emailJobRepository.markSent(job.getId(), LocalDateTime.now()));
+        } catch (Exception e) {
+            handleFailure(job, e);
+        }
+    }
+
+    private void handleFailure(EmailJob job, Exception e) {
+        String error = e.getMessage() != null && e.getMessage().length() > 255
+                ? e.getMessage().substring(0, 255)
+                : e.getMessage();
+        if (job.getAttempts() >= maxAttempts) {
+            failed.increment();
+            log.error("Giving up on {} email {} to {} after {} attempts", job.getType(), job.getId(),
+                    job.getRecipient(), job.getAttempts(), e);
+            transactionTemplate.executeWithoutResult(status -> emailJobRepository.markFailedAttempt(
+                    job.getId(), EmailJobStatus.FAILED, LocalDateTime.now(), error));
+            return;
+        }
+        retried.increment();
+        Duration backoff = backoff(job.getAttempts());
+        log.warn("Sending {} email {} failed (attempt {}), retrying in {}: {}", job.getType(), job.getId(),
+                job.getAttempts(), backoff, error);
+        transactionTemplate.executeWithoutResult(status -> emailJobRepository.markFailedAttempt(
+                job.getId(), EmailJobStatus.PENDING, LocalDateTime.now().plus(backoff), error));
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+}
@@ -0,0 +1,85 @@
+package org.arkadipta.ecb.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.model.EmailJob;
+import org.arkadipta.ecb.model.Order;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.model.enums.EmailJobStatus;
+import org.arkadipta.ecb.model.enums.EmailType;
+import org.arkadipta.ecb.repository.EmailJobRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Queues notification emails. Only a row is written here, in the caller's transaction, so an
+ * email goes out exactly when the order change commits and the request never waits on SMTP;
+ * {@link EmailDispatcher} renders and sends it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailNotificationService {
+
+    private final EmailJobRepository emailJobRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional
+    public void orderConfirmed(Order order) {
+        enqueue(EmailType.ORDER_CONFIRMED, order.getUser(), orderModel(order));
+    }
+
+    @Transactional
+    public void orderShipped(Order order) {
+        enqueue(EmailType.ORDER_SHIPPED, order.getUser(), orderModel(order));
+    }
+
+    @Transactional
+    public void paymentFailed(Order order, String reason) {
+        Map<String, Object> model = orderModel(order);
+        model.put("reason", reason);
+        enqueue(EmailType.PAYMENT_FAILED, order.getUser(), model);
+    }
+
+    @Transactional
+    public EmailJob enqueue(EmailType type, String recipient, Map<String, Object> model) {
+        EmailJob job = new EmailJob();
+        job.setType(type);
+        job.setRecipient(recipient);
+        job.setModel(toJson(model));
+        job.setStatus(EmailJobStatus.PENDING);
+        job.setNextAttemptAt(LocalDateTime.now());
+        EmailJob saved = emailJobRepository.save(job);
+        log.debug("Queued {} email {} for {}", type, saved.getId(), recipient);
+        return saved;
+    }
+
+    private void enqueue(EmailType type, User user, Map<String, Object> model) {
+        model.put("customerName", user.getName());
+        enqueue(type, user.getEmail(), model);
+    }
+
+    private Map<String, Object> orderModel(Order order) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("orderId", order.getId());
+        model.put("totalPrice", order.getTotalPrice());
+        model.put("totalItems", order.getTotalItems());
+        model.put("shippingAddress", order.getShippingAddress());
+        model.put("status", order.getStatus());
+        return model;
+    }
+
+    private String toJson(Map<String, Object> model) {
+        try {
+            return objectMapper.writeValueAsString(model);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize email model", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.arkadipta.ecb.notification;
+
+import org.arkadipta.ecb.model.enums.EmailType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.PropertyPlaceholderHelper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders the plain text templates under {@code templates/email}, named after the lower-cased
+ * {@link EmailType}. The first line of a template is {@code Subject: ...}, {@code ${name}}
+ * placeholders are replaced from the job's model. Templates are read once and kept.
+ */
+@Component
+public class EmailTemplateRenderer {
+
+    private static final String SUBJECT_PREFIX = "Subject:";
+
+    private final PropertyPlaceholderHelper placeholders = new PropertyPlaceholderHelper("${", "}", null, null, true);
+    private final Map<EmailType, String> templates = new ConcurrentHashMap<>();
+
+    public RenderedEmail render(EmailType type, Map<String, Object> model) {
+        String rendered = placeholders.replacePlaceholders(templates.computeIfAbsent(type, this::load),
+                name -> {
+                    Object value = model.get(name);
+                    return value != null ? value.toString() : "";
+                });
+        int lineEnd = rendered.indexOf('\n');
+        if (!rendered.startsWith(SUBJECT_PREFIX) || lineEnd < 0) {
+            throw new IllegalStateException("Email template for " + type + " must start with a Subject line");
+        }
+        return new RenderedEmail(rendered.substring(SUBJECT_PREFIX.length(), lineEnd).trim(),
+                rendered.substring(lineEnd + 1));
+    }
+
+    private String load(EmailType type) {
+        ClassPathResource resource = new ClassPathResource("templates/email/" + type.name().toLowerCase(Locale.ROOT) + ".txt");
+        try {
+            return resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Missing email template for " + type, e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.arkadipta.ecb.notification;
+
+public record RenderedEmail(String subject, String body) {
+}
@@ -0,0 +1,113 @@
+package org.arkadipta.ecb.notification;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Keeps up to {@code notifications.smtp.pool-size} SMTP connections open and hands them out per
+ * message, instead of the connect, EHLO, AUTH and QUIT round trips JavaMailSender does on every
+ * send. A connection that fails a send is closed rather than returned.
+ * <p>
+ * Jakarta Mail's {@code SMTPTransport} does its socket IO inside {@code synchronized} methods,
+ * which would pin the calling virtual thread to its carrier for the whole SMTP exchange. The
+ * exchange therefore runs on one platform thread per pooled connection and callers only park
+ * on the result.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.email.enabled", havingValue = "true")
+@Slf4j
+public class SmtpConnectionPool {
+
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingQueue<Transport> idle = new LinkedBlockingQueue<>();
+    private final ExecutorService smtpThreads;
+
+    public SmtpConnectionPool(JavaMailSenderImpl mailSender,
+                              @Value("${notifications.smtp.pool-size:4}") int poolSize) {
+        this.mailSender = mailSender;
+        this.smtpThreads = Executors.newFixedThreadPool(poolSize,
+                Thread.ofPlatform().name("smtp-", 1).daemon().factory());
+    }
+
+    public MimeMessage createMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        // Callers run on virtual threads, waiting here only parks them
+        Future<?> sending = smtpThreads.submit(() -> {
+            sendOnSmtpThread(message);
+            return null;
+        });
+        try {
+            sending.get();
+        } catch (InterruptedException e) {
+            sending.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while sending email", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MessagingException messagingException) {
+                throw messagingException;
+            }
+            throw new MessagingException("Failed to send email", e.getCause() instanceof Exception cause ? cause : e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        smtpThreads.shutdown();
+        Transport transport;
+        while ((transport = idle.poll()) != null) {
+            close(transport);
+        }
+    }
+
+    private void sendOnSmtpThread(MimeMessage message) throws MessagingException {
+        Transport transport = borrow();
+        try {
+            message.saveChanges();
+            transport.sendMessage(message, message.getAllRecipients());
+            idle.offer(transport);
+            transport = null;
+        } finally {
+            if (transport != null) {
+                close(transport);
+            }
+        }
+    }
+
+    private Transport borrow() throws MessagingException {
+        Transport transport;
+        while ((transport = idle.poll()) != null) {
+            if (transport.isConnected()) {
+                return transport;
+            }
+            close(transport);
+        }
+        transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        return transport;
+    }
+
+    private void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection", e);
+        }
+    }
+}
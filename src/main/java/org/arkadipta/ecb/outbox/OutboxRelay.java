@@ -0,0 +1,100 @@
+package org.arkadipta.ecb.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.arkadipta.ecb.model.OutboxEvent;
+import org.arkadipta.ecb.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the outbox to Kafka. Each batch is sent without waiting between records so the
+ * producer can fill its linger window, then deleted only once every record of the batch has
+ * been acknowledged. A failed batch stays in the table and is sent again, consumers can drop
+ * the duplicates by the {@code outbox-id} header.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true")
+@Slf4j
+public class OutboxRelay {
+
+    public static final String ID_HEADER = "outbox-id";
+    public static final String TYPE_HEADER = "event-type";
+
+    private final OutboxRepository outboxRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration sendTimeout;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       KafkaTemplate<String, String> kafkaTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${outbox.relay.send-timeout:PT30S}") Duration sendTimeout) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                Integer sent = transactionTemplate.execute(status -> relayBatch());
+                relayed = sent != null ? sent : 0;
+            } while (relayed == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Outbox relay failed, will retry", e);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxRepository.lockOldest(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            ProducerRecord<String, String> record = new ProducerRecord<>(event.getTopic(), event.getAggregateId(),
+                    event.getPayload());
+            record.headers().add(ID_HEADER, String.valueOf(event.getId()).getBytes(StandardCharsets.UTF_8));
+            record.headers().add(TYPE_HEADER, event.getEventType().getBytes(StandardCharsets.UTF_8));
+            sends.add(kafkaTemplate.send(record));
+        }
+        awaitAcks(sends);
+
+        outboxRepository.deleteAllById(events.stream().map(OutboxEvent::getId).toList());
+        log.debug("Relayed {} outbox events", events.size());
+        return events.size();
+    }
+
+    private void awaitAcks(List<CompletableFuture<?>> sends) {
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Kafka acknowledgements", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Kafka did not acknowledge the outbox batch", e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.arkadipta.ecb.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsUpdatedEvent;
+import org.arkadipta.ecb.model.OutboxEvent;
+import org.arkadipta.ecb.repository.OutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records events in the outbox table as part of the caller's transaction, so an event exists
+ * exactly when the change it describes was committed. Events of one transaction are buffered and
+ * written in a single batch just before it commits; {@link OutboxRelay} ships them to Kafka.
+ */
+@Component
+public class OutboxWriter {
+
+    public static final String PRODUCT = "product";
+    public static final String ORDER = "order";
+    public static final String CART = "cart";
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final String productsTopic;
+    private final String stockTopic;
+    private final String ordersTopic;
+    private final String cartsTopic;
+
+    public OutboxWriter(OutboxRepository outboxRepository,
+                        ObjectMapper objectMapper,
+                        @Value("${outbox.topics.products:ecb.products}") String productsTopic,
+                        @Value("${outbox.topics.stock:ecb.stock}") String stockTopic,
+                        @Value("${outbox.topics.orders:ecb.orders}") String ordersTopic,
+                        @Value("${outbox.topics.carts:ecb.carts}") String cartsTopic) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.productsTopic = productsTopic;
+        this.stockTopic = stockTopic;
+        this.ordersTopic = ordersTopic;
+        this.cartsTopic = cartsTopic;
+    }
+
+    // Runs synchronously inside the ProductService transaction that published the event
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        append(PRODUCT, event.productId(), "PRODUCT_" + event.type().name(), event.after());
+    }
+
+    // One outbox row per product, consumers see the same events as for single updates
+    @EventListener
+    public void onProductsUpdated(ProductsUpdatedEvent event) {
+        event.changes().forEach(this::onProductChanged);
+    }
+
+    public void append(String aggregateType, Object aggregateId, String eventType, Object payload) {
+        OutboxEvent event = new OutboxEvent(topicFor(aggregateType, eventType), aggregateType,
+                String.valueOf(aggregateId), eventType, toJson(payload));
+        event.setCreatedAt(LocalDateTime.now());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outboxRepository.insertAll(List.of(event));
+            return;
+        }
+        pendingEvents().add(event);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OutboxEvent> pendingEvents() {
+        List<OutboxEvent> pending = (List<OutboxEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        List<OutboxEvent> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                outboxRepository.insertAll(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OutboxWriter.this);
+            }
+        });
+        return created;
+    }
+
+    private String topicFor(String aggregateType, String eventType) {
+        return switch (aggregateType) {
+            // Stock moves far more often than the rest of a product, mirrors can subscribe to it alone
+            case PRODUCT -> eventType.equals("PRODUCT_" + ProductChangedEvent.Type.STOCK_UPDATED.name())
+                    ? stockTopic : productsTopic;
+            case ORDER -> ordersTopic;
+            case CART -> cartsTopic;
+            default -> throw new IllegalArgumentException("Unknown outbox aggregate type: " + aggregateType);
+        };
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize outbox payload", e);
+        }
+    }
+}
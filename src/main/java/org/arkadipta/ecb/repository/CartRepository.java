@@ -2,11 +2,28 @@ package org.arkadipta.ecb.repository;
 
 import org.arkadipta.ecb.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    // Loads the cart with its items and their products in a single round trip
+    @Query("SELECT DISTINCT c FROM Cart c " +
+            "LEFT JOIN FETCH c.items i " +
+            "LEFT JOIN FETCH i.product " +
+            "WHERE c.user.id = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT DISTINCT c FROM Cart c " +
+            "LEFT JOIN FETCH c.items i " +
+            "LEFT JOIN FETCH i.product " +
+            "WHERE c.user.id IN :userIds")
+    List<Cart> findAllWithItemsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,10 @@
+package org.arkadipta.ecb.repository;
+
+import java.util.Map;
+
+/**
+ * State of a Redis-resident cart: product id to quantity plus the write version used by the
+ * write-behind flusher to detect changes made while a flush was in flight.
+ */
+public record CartSnapshot(Long cartId, long version, Map<Long, Integer> quantities) {
+}
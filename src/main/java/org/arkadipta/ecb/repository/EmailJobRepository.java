@@ -0,0 +1,41 @@
+package org.arkadipta.ecb.repository;
+
+import jakarta.persistence.LockModeType;
+import org.arkadipta.ecb.model.EmailJob;
+import org.arkadipta.ecb.model.enums.EmailJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailJobRepository extends JpaRepository<EmailJob, Long> {
+
+    /**
+     * Pending jobs whose next attempt is due plus jobs whose dispatcher lease ran out, oldest
+     * first. The rows stay locked until the claiming transaction marks them as sending.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM EmailJob j WHERE (j.status = org.arkadipta.ecb.model.enums.EmailJobStatus.PENDING AND j.nextAttemptAt <= :now) " +
+            "OR (j.status = org.arkadipta.ecb.model.enums.EmailJobStatus.SENDING AND j.lockedUntil < :now) ORDER BY j.id")
+    List<EmailJob> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(EmailJobStatus status);
+
+    @Modifying
+    @Query("UPDATE EmailJob j SET j.status = org.arkadipta.ecb.model.enums.EmailJobStatus.SENT, j.sentAt = :sentAt, j.lockedUntil = null, j.lastError = null " +
+            "WHERE j.id = :id")
+    int markSent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("UPDATE EmailJob j SET j.status = :status, j.nextAttemptAt = :nextAttemptAt, j.lockedUntil = null, " +
+            "j.lastError = :error WHERE j.id = :id")
+    int markFailedAttempt(@Param("id") Long id, @Param("status") EmailJobStatus status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+}
@@ -0,0 +1,27 @@
+package org.arkadipta.ecb.repository;
+
+import org.arkadipta.ecb.model.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    Page<Order> findByUserId(Long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findWithItemsByIdAndUserId(Long id, Long userId);
+
+    @EntityGraph(attributePaths = {"user", "items", "items.product"})
+    Optional<Order> findWithItemsById(Long id);
+
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    List<Order> findWithItemsByIdIn(Collection<Long> ids);
+}
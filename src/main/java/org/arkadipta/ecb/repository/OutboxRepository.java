@@ -0,0 +1,66 @@
+package org.arkadipta.ecb.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.model.OutboxEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC access to the outbox table: appends are batched into the caller's transaction and the
+ * relay claims rows oldest first.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void insertAll(List<OutboxEvent> events) {
+        List<Object[]> batch = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            batch.add(new Object[]{event.getTopic(), event.getAggregateType(), event.getAggregateId(),
+                    event.getEventType(), event.getPayload(), Timestamp.valueOf(event.getCreatedAt())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events (topic, aggregate_type, aggregate_id, event_type, "
+                + "payload, created_at) VALUES (?, ?, ?, ?, ?, ?)", batch);
+    }
+
+    /**
+     * Locks the oldest {@code limit} rows until the surrounding transaction ends. A relay on
+     * another node waits for the lock instead of skipping ahead, which keeps events of one
+     * aggregate in order.
+     */
+    public List<OutboxEvent> lockOldest(int limit) {
+        return jdbcTemplate.query("SELECT id, topic, aggregate_type, aggregate_id, event_type, payload, created_at "
+                        + "FROM outbox_events ORDER BY id LIMIT ? FOR UPDATE",
+                (rs, rowNum) -> {
+                    OutboxEvent event = new OutboxEvent(rs.getString("topic"), rs.getString("aggregate_type"),
+                            rs.getString("aggregate_id"), rs.getString("event_type"), rs.getString("payload"));
+                    event.setId(rs.getLong("id"));
+                    event.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                    return event;
+                },
+                limit);
+    }
+
+    public void deleteAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.update("DELETE FROM outbox_events WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids));
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events", Long.class);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,103 @@
+package org.arkadipta.ecb.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.model.Product;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-row product writes that bypass the persistence context. Hibernate cannot batch inserts
+ * into an identity column because it needs each id back before the next insert, plain JDBC
+ * can send the whole batch and read every generated id back at once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBulkRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO products (name, description, price, stock, category, "
+            + "rating, image_url, active, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_STOCK_AND_PRICE_SQL =
+            "UPDATE products SET stock = ?, price = ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the products in one JDBC batch and sets their generated ids. Audit timestamps are
+     * not applied by Hibernate here, so they must already be set.
+     */
+    public void insertAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(@NonNull PreparedStatement ps, int i) throws SQLException {
+                        Product product = products.get(i);
+                        ps.setString(1, product.getName());
+                        ps.setString(2, product.getDescription());
+                        ps.setBigDecimal(3, product.getPrice());
+                        ps.setInt(4, product.getStock());
+                        ps.setString(5, product.getCategory());
+                        ps.setBigDecimal(6, product.getRating());
+                        ps.setString(7, product.getImageUrl());
+                        ps.setBoolean(8, product.isActive());
+                        ps.setTimestamp(9, Timestamp.valueOf(product.getCreatedAt()));
+                        ps.setTimestamp(10, Timestamp.valueOf(product.getUpdatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return products.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != products.size()) {
+            throw new IllegalStateException("JDBC driver returned " + keys.size() + " generated ids for "
+                    + products.size() + " inserted products");
+        }
+        for (int i = 0; i < products.size(); i++) {
+            products.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+
+    /**
+     * Writes the stock and price of every product in one JDBC batch. The rows must stay locked by
+     * the caller's transaction from the read the values were computed from until it commits,
+     * otherwise a concurrent change would be overwritten.
+     */
+    public void updateStockAndPrice(List<StockAndPrice> rows, LocalDateTime updatedAt) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(updatedAt);
+        List<Object[]> batch = new ArrayList<>(rows.size());
+        rows.forEach(row -> batch.add(new Object[]{row.stock(), row.price(), timestamp, row.id()}));
+
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_STOCK_AND_PRICE_SQL, batch);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new IllegalStateException("Product " + rows.get(i).id() + " disappeared while locked");
+            }
+        }
+    }
+
+    public record StockAndPrice(long id, int stock, BigDecimal price) {
+    }
+}
@@ -0,0 +1,22 @@
+package org.arkadipta.ecb.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One product as exported to partners. Queried as a constructor projection so streamed rows
+ * are never managed entities and the persistence context stays empty however many are read.
+ */
+public record ProductExportRow(
+        Long id,
+        String name,
+        String description,
+        BigDecimal price,
+        Integer stock,
+        String category,
+        BigDecimal rating,
+        String imageUrl,
+        boolean active,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
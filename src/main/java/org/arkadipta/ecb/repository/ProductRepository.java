@@ -1,18 +1,30 @@
 package org.arkadipta.ecb.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.arkadipta.ecb.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     // Find products by category
     Page<Product> findByCategoryAndActiveTrue(String category, Pageable pageable);
@@ -29,6 +41,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Find active products only
     Page<Product> findByActiveTrue(Pageable pageable);
 
+    // Keyset batches for the search index: no COUNT query and no offset to scan past
+    List<Product> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    // Active or not, so the search index also drops products deactivated on another node
+    List<Product> findByUpdatedAtAfterAndIdGreaterThanOrderByIdAsc(LocalDateTime since, Long afterId, Limit limit);
+
     // Complex search query
     @Query("SELECT p FROM Product p WHERE " +
             "(:category IS NULL OR p.category = :category) AND " +
@@ -45,7 +63,62 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             @Param("minRating") BigDecimal minRating,
             Pageable pageable);
 
+    // Slice variants fetch size + 1 rows to detect a next page and skip the COUNT query
+    Slice<Product> findSliceByActiveTrue(Pageable pageable);
+
+    @Query("SELECT p FROM Product p WHERE " +
+            "(:category IS NULL OR p.category = :category) AND " +
+            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+            "(:minRating IS NULL OR p.rating >= :minRating) AND " +
+            "p.active = true")
+    Slice<Product> findSliceWithFilters(
+            @Param("category") String category,
+            @Param("name") String name,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("minRating") BigDecimal minRating,
+            Pageable pageable);
+
+    long countByActiveTrue();
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE " +
+            "(:category IS NULL OR p.category = :category) AND " +
+            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+            "(:minRating IS NULL OR p.rating >= :minRating) AND " +
+            "p.active = true")
+    long countProductsWithFilters(
+            @Param("category") String category,
+            @Param("name") String name,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("minRating") BigDecimal minRating);
+
     // Get distinct categories
     @Query("SELECT DISTINCT p.category FROM Product p WHERE p.active = true")
     List<String> findDistinctCategories();
+
+    /**
+     * Active products among the ids, locked until the calling transaction ends. Rows are locked in
+     * id order, the same order checkout decrements them in.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids AND p.active = true ORDER BY p.id")
+    List<Product> findActiveByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    String EXPORT_ROW = "SELECT new org.arkadipta.ecb.repository.ProductExportRow(p.id, p.name, p.description, "
+            + "p.price, p.stock, p.category, p.rating, p.imageUrl, p.active, p.createdAt, p.updatedAt) FROM Product p ";
+
+    // Forward-only cursor, must be consumed and closed inside a transaction
+    @Query(EXPORT_ROW + "WHERE p.active = true ORDER BY p.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<ProductExportRow> streamActiveForExport();
+
+    // Includes deactivated products so incremental exports can tell partners to drop them
+    @Query(EXPORT_ROW + "WHERE p.updatedAt > :since ORDER BY p.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<ProductExportRow> streamUpdatedSinceForExport(@Param("since") LocalDateTime since);
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package org.arkadipta.ecb.repository;
+
+import org.arkadipta.ecb.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Specification form of ProductRepository.findProductsWithFilters, for the fluent query API
+ * (keyset scrolling) which does not take JPQL.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> active() {
+        return (root, query, cb) -> cb.isTrue(root.get("active"));
+    }
+
+    public static Specification<Product> withFilters(String category, String name, BigDecimal minPrice,
+                                                     BigDecimal maxPrice, BigDecimal minRating) {
+        Specification<Product> spec = active();
+        if (category != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("category"), category));
+        }
+        if (name != null) {
+            String pattern = "%" + name.toLowerCase(Locale.ROOT) + "%";
+            spec = spec.and((root, query, cb) -> cb.like(cb.lower(root.get("name")), pattern));
+        }
+        if (minPrice != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+        }
+        if (maxPrice != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+        }
+        if (minRating != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("rating"), minRating));
+        }
+        return spec;
+    }
+}
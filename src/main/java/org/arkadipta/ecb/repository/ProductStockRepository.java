@@ -0,0 +1,82 @@
+package org.arkadipta.ecb.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Set-based stock writes that bypass the Product entity, so concurrent writers never
+ * read-modify-write a stale stock value.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductStockRepository {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock = stock - ?, updated_at = ? WHERE id = ? AND active = true AND stock >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Decrements every product by its quantity in a single JDBC batch, each row only if it still
+     * has enough stock. Rows are updated in id order so concurrent batches lock them in the same
+     * order. Returns the ids whose decrement did not apply, the caller must roll back if any did.
+     */
+    public List<Long> decrementStock(Map<Long, Integer> quantities) {
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(ordered.size());
+        ordered.forEach((productId, quantity) -> batch.add(new Object[]{quantity, now, productId, quantity}));
+
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, batch);
+
+        List<Long> failed = new ArrayList<>();
+        int i = 0;
+        for (Long productId : ordered.keySet()) {
+            if (updated[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("JDBC driver did not report per-row update counts");
+            }
+            if (updated[i] == 0) {
+                failed.add(productId);
+            }
+            i++;
+        }
+        return failed;
+    }
+
+    public Map<Long, Integer> findStock(Collection<Long> productIds) {
+        return queryStock("SELECT id, stock FROM products WHERE id IN (:ids)", productIds);
+    }
+
+    /**
+     * Like {@link #findStock} but leaves out inactive products, which cannot be sold.
+     */
+    public Map<Long, Integer> findActiveStock(Collection<Long> productIds) {
+        return queryStock("SELECT id, stock FROM products WHERE id IN (:ids) AND active = true", productIds);
+    }
+
+    private Map<Long, Integer> queryStock(String sql, Collection<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return stock;
+        }
+        namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource("ids", productIds),
+                rs -> {
+                    stock.put(rs.getLong("id"), rs.getInt("stock"));
+                });
+        return stock;
+    }
+}
@@ -0,0 +1,199 @@
+package org.arkadipta.ecb.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Live carts kept as one Redis hash per user (product id to quantity). Every write bumps the
+ * cart version and records the user in a dirty sorted set, scored by the time the cart first
+ * became dirty, in the same script so no acknowledged write can miss the flusher.
+ */
+@Component
+@Slf4j
+public class RedisCartStore {
+
+    private static final String CART_KEY_PREFIX = "ecb:cart:";
+    private static final String DIRTY_KEY = "ecb:cart:dirty";
+    private static final String FLUSH_LEASE_KEY = "ecb:cart:flush-lease";
+    private static final String CART_ID_FIELD = "_cart";
+    private static final String VERSION_FIELD = "_v";
+    private static final long NOT_LOADED = -1L;
+
+    private static final RedisScript<Long> WRITE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end
+            local result = 0
+            if ARGV[1] == 'incr' then
+              result = redis.call('HINCRBY', KEYS[1], ARGV[2], ARGV[3])
+            elseif ARGV[1] == 'set' then
+              redis.call('HSET', KEYS[1], ARGV[2], ARGV[3])
+              result = tonumber(ARGV[3])
+            elseif ARGV[1] == 'del' then
+              result = redis.call('HDEL', KEYS[1], ARGV[2])
+            elseif ARGV[1] == 'clear' then
+              local cart = redis.call('HGET', KEYS[1], '_cart')
+              local version = redis.call('HGET', KEYS[1], '_v')
+              redis.call('DEL', KEYS[1])
+              redis.call('HSET', KEYS[1], '_cart', cart)
+              redis.call('HSET', KEYS[1], '_v', version)
+            end
+            redis.call('HINCRBY', KEYS[1], '_v', 1)
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            redis.call('ZADD', KEYS[2], 'NX', ARGV[4], ARGV[6])
+            return result
+            """, Long.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> HYDRATE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+              for i = 1, #ARGV - 1, 2 do
+                redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+              end
+              redis.call('EXPIRE', KEYS[1], ARGV[#ARGV])
+            end
+            return redis.call('HGETALL', KEYS[1])
+            """, List.class);
+
+    private static final RedisScript<Long> MARK_CLEAN_SCRIPT = new DefaultRedisScript<>("""
+            local version = redis.call('HGET', KEYS[1], '_v')
+            if version == false or version == ARGV[1] then
+              return redis.call('ZREM', KEYS[2], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration cartTtl;
+
+    public RedisCartStore(StringRedisTemplate redisTemplate,
+                          @Value("${cart.redis.ttl:P7D}") Duration cartTtl) {
+        this.redisTemplate = redisTemplate;
+        this.cartTtl = cartTtl;
+    }
+
+    public Optional<CartSnapshot> find(Long userId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(cartKey(userId));
+        if (entries.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, String> fields = new TreeMap<>();
+        entries.forEach((field, value) -> fields.put(field.toString(), value.toString()));
+        return Optional.of(toSnapshot(fields));
+    }
+
+    /**
+     * Seeds the cart from the database state unless another request already did.
+     */
+    @SuppressWarnings("unchecked")
+    public CartSnapshot hydrate(Long userId, Long cartId, Map<Long, Integer> quantities) {
+        List<String> args = new ArrayList<>();
+        args.add(CART_ID_FIELD);
+        args.add(cartId.toString());
+        args.add(VERSION_FIELD);
+        args.add("0");
+        quantities.forEach((productId, quantity) -> {
+            args.add(productId.toString());
+            args.add(quantity.toString());
+        });
+        args.add(Long.toString(cartTtl.toSeconds()));
+        List<Object> flat = redisTemplate.execute(HYDRATE_SCRIPT, List.of(cartKey(userId)), args.toArray());
+        Map<String, String> fields = new TreeMap<>();
+        for (int i = 0; flat != null && i + 1 < flat.size(); i += 2) {
+            fields.put(flat.get(i).toString(), flat.get(i + 1).toString());
+        }
+        return toSnapshot(fields);
+    }
+
+    // Each write returns null if the cart is not in Redis yet and must be hydrated first
+
+    public Long increment(Long userId, Long productId, int delta) {
+        return write(userId, "incr", productId, delta);
+    }
+
+    public Long set(Long userId, Long productId, int quantity) {
+        return write(userId, "set", productId, quantity);
+    }
+
+    public Long remove(Long userId, Long productId) {
+        return write(userId, "del", productId, 0);
+    }
+
+    public Long clear(Long userId) {
+        return write(userId, "clear", 0L, 0);
+    }
+
+    public List<Long> findDirtyUsers(int limit) {
+        Set<String> members = redisTemplate.opsForZSet().range(DIRTY_KEY, 0, limit - 1L);
+        if (members == null) {
+            return List.of();
+        }
+        return members.stream().map(Long::valueOf).toList();
+    }
+
+    public boolean markClean(Long userId, long flushedVersion) {
+        Long removed = redisTemplate.execute(MARK_CLEAN_SCRIPT, List.of(cartKey(userId), DIRTY_KEY),
+                Long.toString(flushedVersion), userId.toString());
+        return removed != null && removed > 0;
+    }
+
+    public long countDirty() {
+        Long count = redisTemplate.opsForZSet().zCard(DIRTY_KEY);
+        return count != null ? count : 0;
+    }
+
+    // Age of the oldest write not yet persisted to the database
+    public Duration flushLag() {
+        Set<ZSetOperations.TypedTuple<String>> oldest = redisTemplate.opsForZSet().rangeWithScores(DIRTY_KEY, 0, 0);
+        if (oldest == null || oldest.isEmpty()) {
+            return Duration.ZERO;
+        }
+        Double dirtySince = oldest.iterator().next().getScore();
+        return Duration.ofMillis(Math.max(0, System.currentTimeMillis() - Objects.requireNonNull(dirtySince).longValue()));
+    }
+
+    public boolean tryAcquireFlushLease(String owner, Duration leaseTime) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(FLUSH_LEASE_KEY, owner, leaseTime));
+    }
+
+    public void releaseFlushLease(String owner) {
+        if (owner.equals(redisTemplate.opsForValue().get(FLUSH_LEASE_KEY))) {
+            redisTemplate.delete(FLUSH_LEASE_KEY);
+        }
+    }
+
+    private Long write(Long userId, String operation, Long productId, int value) {
+        Long result = redisTemplate.execute(WRITE_SCRIPT, List.of(cartKey(userId), DIRTY_KEY),
+                operation, productId.toString(), Integer.toString(value),
+                Long.toString(System.currentTimeMillis()), Long.toString(cartTtl.toSeconds()), userId.toString());
+        return result == null || result == NOT_LOADED ? null : result;
+    }
+
+    private CartSnapshot toSnapshot(Map<String, String> fields) {
+        Long cartId = fields.containsKey(CART_ID_FIELD) ? Long.valueOf(fields.get(CART_ID_FIELD)) : null;
+        long version = fields.containsKey(VERSION_FIELD) ? Long.parseLong(fields.get(VERSION_FIELD)) : 0;
+        Map<Long, Integer> quantities = new TreeMap<>();
+        fields.forEach((field, value) -> {
+            if (!field.startsWith("_")) {
+                quantities.put(Long.valueOf(field), Integer.valueOf(value));
+            }
+        });
+        return new CartSnapshot(cartId, version, quantities);
+    }
+
+    private static String cartKey(Long userId) {
+        return CART_KEY_PREFIX + userId;
+    }
+}
@@ -0,0 +1,29 @@
+package org.arkadipta.ecb.search;
+
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.model.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * The fields of an active product the in-memory search needs for filtering and sorting.
+ */
+public record IndexedProduct(
+        Long id,
+        String name,
+        String description,
+        String category,
+        BigDecimal price,
+        BigDecimal rating,
+        Integer stock) {
+
+    public static IndexedProduct from(ProductResponse product) {
+        return new IndexedProduct(product.getId(), product.getName(), product.getDescription(),
+                product.getCategory(), product.getPrice(), product.getRating(), product.getStock());
+    }
+
+    public static IndexedProduct from(Product product) {
+        return new IndexedProduct(product.getId(), product.getName(), product.getDescription(),
+                product.getCategory(), product.getPrice(), product.getRating(), product.getStock());
+    }
+}
@@ -0,0 +1,219 @@
+package org.arkadipta.ecb.search;
+
+import org.arkadipta.ecb.dto.product.FacetBucket;
+import org.arkadipta.ecb.dto.product.ProductFacets;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Compressed bitmaps of active product ids per category, price bucket and rating band. Filters
+ * are answered by OR-ing the buckets a range covers and AND-ing across dimensions; only the
+ * bucket a range boundary falls into is checked product by product. Facet counts are
+ * intersection cardinalities against the match set.
+ * <p>
+ * Like the text index it is node-local; {@link ProductSearchService} applies every local, broadcast
+ * and caught-up change to both, so the copies on each node converge together.
+ */
+public class ProductFacetIndex {
+
+    private static final BigDecimal[] RATING_BOUNDARIES = {
+            BigDecimal.ZERO, BigDecimal.ONE, BigDecimal.valueOf(2), BigDecimal.valueOf(3), BigDecimal.valueOf(4)};
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> categories = new TreeMap<>();
+    private final BigDecimal[] priceBoundaries;
+    private final RoaringBitmap[] priceBuckets;
+    private final RoaringBitmap[] ratingBands;
+    private final Map<Integer, IndexedProduct> products = new HashMap<>();
+
+    /**
+     * @param priceBoundaries ascending lower bounds of the price buckets, the last bucket is open-ended
+     */
+    public ProductFacetIndex(List<BigDecimal> priceBoundaries) {
+        if (priceBoundaries.isEmpty()) {
+            throw new IllegalArgumentException("At least one price bucket boundary is required");
+        }
+        this.priceBoundaries = priceBoundaries.stream().sorted().toArray(BigDecimal[]::new);
+        this.priceBuckets = newBitmaps(this.priceBoundaries.length);
+        this.ratingBands = newBitmaps(RATING_BOUNDARIES.length);
+    }
+
+    public void index(IndexedProduct product) {
+        int id = toBitmapId(product.id());
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            all.add(id);
+            if (product.category() != null) {
+                categories.computeIfAbsent(product.category(), c -> new RoaringBitmap()).add(id);
+            }
+            if (product.price() != null) {
+                priceBuckets[bucketOf(priceBoundaries, product.price())].add(id);
+            }
+            if (product.rating() != null) {
+                ratingBands[bucketOf(RATING_BOUNDARIES, product.rating())].add(id);
+            }
+            products.put(id, product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(toBitmapId(productId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of active products matching every given filter, null filters match everything.
+     */
+    public RoaringBitmap filter(String category, BigDecimal minPrice, BigDecimal maxPrice, BigDecimal minRating) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = all.clone();
+            if (category != null) {
+                RoaringBitmap inCategory = categories.get(category);
+                if (inCategory == null) {
+                    return new RoaringBitmap();
+                }
+                result.and(inCategory);
+            }
+            if (minPrice != null || maxPrice != null) {
+                result.and(range(priceBoundaries, priceBuckets, minPrice, maxPrice, IndexedProduct::price));
+            }
+            if (minRating != null) {
+                result.and(range(RATING_BOUNDARIES, ratingBands, minRating, null, IndexedProduct::rating));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public ProductFacets facets(RoaringBitmap matches) {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> categoryCounts = new LinkedHashMap<>();
+            categories.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), (long) RoaringBitmap.andCardinality(entry.getValue(), matches)))
+                    .filter(entry -> entry.getValue() > 0)
+                    .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> categoryCounts.put(entry.getKey(), entry.getValue()));
+            return new ProductFacets(categoryCounts,
+                    buckets(priceBoundaries, priceBuckets, matches),
+                    buckets(RATING_BOUNDARIES, ratingBands, matches));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return all.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static int toBitmapId(Long productId) {
+        return Math.toIntExact(productId);
+    }
+
+    private RoaringBitmap range(BigDecimal[] boundaries, RoaringBitmap[] buckets, BigDecimal min, BigDecimal max,
+                                Function<IndexedProduct, BigDecimal> value) {
+        RoaringBitmap result = new RoaringBitmap();
+        Predicate<BigDecimal> inRange = v -> v != null
+                && (min == null || v.compareTo(min) >= 0)
+                && (max == null || v.compareTo(max) <= 0);
+        for (int i = 0; i < buckets.length; i++) {
+            BigDecimal from = boundaries[i];
+            BigDecimal to = i + 1 < boundaries.length ? boundaries[i + 1] : null;
+            // The lowest bucket also holds anything below its lower bound
+            boolean fromCovered = min == null || (i > 0 && from.compareTo(min) >= 0);
+            boolean toCovered = max == null || (to != null && to.compareTo(max) <= 0);
+            boolean disjoint = (max != null && i > 0 && from.compareTo(max) > 0)
+                    || (min != null && to != null && to.compareTo(min) <= 0);
+            if (disjoint) {
+                continue;
+            }
+            if (fromCovered && toCovered) {
+                result.or(buckets[i]);
+            } else {
+                buckets[i].forEach((int id) -> {
+                    if (inRange.test(value.apply(products.get(id)))) {
+                        result.add(id);
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    private static List<FacetBucket> buckets(BigDecimal[] boundaries, RoaringBitmap[] buckets, RoaringBitmap matches) {
+        List<FacetBucket> result = new ArrayList<>(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            BigDecimal to = i + 1 < boundaries.length ? boundaries[i + 1] : null;
+            result.add(new FacetBucket(boundaries[i], to, RoaringBitmap.andCardinality(buckets[i], matches)));
+        }
+        return result;
+    }
+
+    private void removeInternal(int id) {
+        IndexedProduct existing = products.remove(id);
+        if (existing == null) {
+            return;
+        }
+        all.remove(id);
+        if (existing.category() != null) {
+            RoaringBitmap inCategory = categories.get(existing.category());
+            inCategory.remove(id);
+            if (inCategory.isEmpty()) {
+                categories.remove(existing.category());
+            }
+        }
+        if (existing.price() != null) {
+            priceBuckets[bucketOf(priceBoundaries, existing.price())].remove(id);
+        }
+        if (existing.rating() != null) {
+            ratingBands[bucketOf(RATING_BOUNDARIES, existing.rating())].remove(id);
+        }
+    }
+
+    private static int bucketOf(BigDecimal[] boundaries, BigDecimal value) {
+        int bucket = 0;
+        for (int i = 1; i < boundaries.length; i++) {
+            if (value.compareTo(boundaries[i]) >= 0) {
+                bucket = i;
+            } else {
+                break;
+            }
+        }
+        return bucket;
+    }
+
+    private static RoaringBitmap[] newBitmaps(int count) {
+        RoaringBitmap[] bitmaps = new RoaringBitmap[count];
+        for (int i = 0; i < count; i++) {
+            bitmaps[i] = new RoaringBitmap();
+        }
+        return bitmaps;
+    }
+}
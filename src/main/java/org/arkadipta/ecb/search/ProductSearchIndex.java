@@ -0,0 +1,259 @@
+package org.arkadipta.ecb.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Tokenized inverted index over product name, category and description, ranked with BM25F:
+ * per-field term frequencies are length-normalized, weighted and then saturated once per term.
+ * Query terms also match indexed terms they are a prefix of, and terms of three or more
+ * characters match inside indexed terms ("phone" finds "smartphone") through a trigram map of
+ * the vocabulary, both at a discount. That covers the partial words the LIKE '%name%' queries
+ * behind /products/search/scroll and /search/slice find; unlike LIKE, a match never spans two
+ * words and one or two characters only match at the start of a word.
+ */
+public class ProductSearchIndex {
+
+    static final int NAME = 0;
+    static final int CATEGORY = 1;
+    static final int DESCRIPTION = 2;
+    private static final int FIELDS = 3;
+    private static final double[] FIELD_WEIGHTS = {3.0, 2.0, 1.0};
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PREFIX_MATCH_WEIGHT = 0.7;
+    private static final double INFIX_MATCH_WEIGHT = 0.5;
+    private static final int GRAM = 3;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Long, int[]>> postings = new TreeMap<>();
+    // Every indexed term by the trigrams it contains, for matches inside a term
+    private final Map<String, Set<String>> termsByTrigram = new HashMap<>();
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+    private final Map<Long, int[]> fieldLengths = new HashMap<>();
+    private final long[] totalFieldLengths = new long[FIELDS];
+
+    public void index(IndexedProduct product) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(product.id());
+            int[] lengths = new int[FIELDS];
+            addField(product.id(), NAME, product.name(), lengths);
+            addField(product.id(), CATEGORY, product.category(), lengths);
+            addField(product.id(), DESCRIPTION, product.description(), lengths);
+            products.put(product.id(), product);
+            fieldLengths.put(product.id(), lengths);
+            for (int field = 0; field < FIELDS; field++) {
+                totalFieldLengths[field] += lengths[field];
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public IndexedProduct get(Long productId) {
+        lock.readLock().lock();
+        try {
+            return products.get(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every product matching all query terms and the filter, best match first.
+     */
+    public List<SearchHit> search(String query, Predicate<IndexedProduct> filter) {
+        List<String> terms = SearchTokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            int documentCount = products.size();
+            double[] averageLengths = new double[FIELDS];
+            for (int field = 0; field < FIELDS; field++) {
+                averageLengths[field] = documentCount == 0 ? 0 : (double) totalFieldLengths[field] / documentCount;
+            }
+
+            Map<Long, Double> scores = null;
+            for (String term : terms) {
+                Map<Long, Double> termScores = scoreTerm(term, documentCount, averageLengths);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Every query term has to match
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<SearchHit> hits = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                IndexedProduct product = products.get(entry.getKey());
+                if (product != null && filter.test(product)) {
+                    hits.add(new SearchHit(product, entry.getValue()));
+                }
+            }
+            hits.sort((a, b) -> {
+                int byScore = Double.compare(b.score(), a.score());
+                return byScore != 0 ? byScore : a.product().id().compareTo(b.product().id());
+            });
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreTerm(String queryTerm, int documentCount, double[] averageLengths) {
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Long, int[]>> match
+                : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+            double matchWeight = match.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_WEIGHT;
+            scoreMatch(match.getValue(), matchWeight, documentCount, averageLengths, scores);
+        }
+        for (String term : infixMatches(queryTerm)) {
+            scoreMatch(postings.get(term), INFIX_MATCH_WEIGHT, documentCount, averageLengths, scores);
+        }
+        return scores;
+    }
+
+    // Indexed terms containing the query term other than at their start, which the prefix range already covers
+    private List<String> infixMatches(String queryTerm) {
+        if (queryTerm.length() < GRAM) {
+            return List.of();
+        }
+        Set<String> candidates = null;
+        for (String trigram : trigrams(queryTerm)) {
+            Set<String> terms = termsByTrigram.get(trigram);
+            if (terms == null) {
+                return List.of();
+            }
+            if (candidates == null || terms.size() < candidates.size()) {
+                candidates = terms;
+            }
+        }
+        List<String> matches = new ArrayList<>();
+        for (String term : candidates) {
+            if (!term.startsWith(queryTerm) && term.contains(queryTerm)) {
+                matches.add(term);
+            }
+        }
+        return matches;
+    }
+
+    private void scoreMatch(Map<Long, int[]> docs, double matchWeight, int documentCount, double[] averageLengths,
+                            Map<Long, Double> scores) {
+        double idf = Math.log(1 + (documentCount - docs.size() + 0.5) / (docs.size() + 0.5));
+        for (Map.Entry<Long, int[]> doc : docs.entrySet()) {
+            int[] frequencies = doc.getValue();
+            int[] lengths = fieldLengths.get(doc.getKey());
+            double weightedFrequency = 0;
+            for (int field = 0; field < FIELDS; field++) {
+                if (frequencies[field] == 0) {
+                    continue;
+                }
+                double norm = averageLengths[field] == 0 ? 1
+                        : 1 - B + B * lengths[field] / averageLengths[field];
+                weightedFrequency += FIELD_WEIGHTS[field] * frequencies[field] / norm;
+            }
+            double score = matchWeight * idf * weightedFrequency * (K1 + 1) / (weightedFrequency + K1);
+            // A query term can match several indexed terms of one product, keep the best
+            scores.merge(doc.getKey(), score, Math::max);
+        }
+    }
+
+    private void addField(Long productId, int field, String text, int[] lengths) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        lengths[field] = tokens.size();
+        for (String token : tokens) {
+            Map<Long, int[]> docs = postings.get(token);
+            if (docs == null) {
+                docs = new HashMap<>();
+                postings.put(token, docs);
+                for (String trigram : trigrams(token)) {
+                    termsByTrigram.computeIfAbsent(trigram, g -> new HashSet<>()).add(token);
+                }
+            }
+            docs.computeIfAbsent(productId, id -> new int[FIELDS])[field]++;
+        }
+    }
+
+    private void removeInternal(Long productId) {
+        IndexedProduct existing = products.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        int[] lengths = fieldLengths.remove(productId);
+        for (int field = 0; field < FIELDS; field++) {
+            totalFieldLengths[field] -= lengths[field];
+        }
+        removeTokens(productId, existing.name());
+        removeTokens(productId, existing.category());
+        removeTokens(productId, existing.description());
+    }
+
+    private void removeTokens(Long productId, String text) {
+        for (String token : SearchTokenizer.tokenize(text)) {
+            Map<Long, int[]> docs = postings.get(token);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(token);
+                    forgetTrigrams(token);
+                }
+            }
+        }
+    }
+
+    private void forgetTrigrams(String term) {
+        for (String trigram : trigrams(term)) {
+            Set<String> terms = termsByTrigram.get(trigram);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    termsByTrigram.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String term) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            trigrams.add(term.substring(i, i + GRAM));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,10 @@
+package org.arkadipta.ecb.search;
+
+import org.arkadipta.ecb.dto.product.ProductFacets;
+import org.springframework.data.domain.Page;
+
+/**
+ * A page of matching product ids in result order, with facet counts when they were requested.
+ */
+public record ProductSearchResult(Page<Long> ids, ProductFacets facets) {
+}
@@ -0,0 +1,403 @@
+package org.arkadipta.ecb.search;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.cache.CacheInvalidation;
+import org.arkadipta.ecb.cache.CacheInvalidationBus;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsUpdatedEvent;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serves product searches from in-process indexes instead of the JPQL filter query: a
+ * {@link ProductSearchIndex} ranks name matches and a {@link ProductFacetIndex} answers the
+ * category, price and rating filters and facet counts. Both are built from the database once the
+ * application is ready and then kept current from committed {@link ProductChangedEvent}s.
+ * <p>
+ * Every node holds its own copy. The ids a node changed are broadcast on the cache invalidation
+ * bus and the other nodes reload those products from the database. Pub/sub is best effort, so a
+ * periodic catch-up also re-reads every product updated since the last one, starting
+ * {@code catch-up-overlap} earlier because {@code updated_at} is stamped before the writing
+ * transaction commits.
+ */
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "index")
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchService {
+
+    public static final String RELEVANCE = "relevance";
+
+    // Channel name on the invalidation bus, no cache has it so cache managers ignore these messages
+    static final String INDEX_UPDATES = "product-search-index";
+
+    private static final Map<String, Comparator<IndexedProduct>> SORTABLE = Map.of(
+            "id", Comparator.comparing(IndexedProduct::id),
+            "name", nullsFirst(IndexedProduct::name),
+            "category", nullsFirst(IndexedProduct::category),
+            "price", nullsFirst(IndexedProduct::price),
+            "rating", nullsFirst(IndexedProduct::rating));
+
+    // Hits come back from the index best match first
+    private static final Comparator<SearchHit> RELEVANCE_ORDER =
+            Comparator.comparingDouble(SearchHit::score).reversed();
+
+    private final ProductRepository productRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${search.index.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Value("${search.index.catch-up-overlap-ms:300000}")
+    private long catchUpOverlapMs;
+
+    @Value("${search.facets.price-buckets:0,25,50,100,250,500,1000}")
+    private List<BigDecimal> priceBuckets;
+
+    // Not a monitor: a virtual thread blocked on a contended monitor pins its carrier on Java 21
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Indexes indexes;
+    private List<IndexUpdate> changesDuringRebuild;
+    // Products updated after this were possibly not read by the last rebuild or catch-up
+    private volatile LocalDateTime caughtUpTo;
+
+    @PostConstruct
+    void subscribe() {
+        invalidationBus.subscribe(this::onRemoteUpdate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            rebuildLock.unlock();
+        }
+        LocalDateTime started = LocalDateTime.now();
+        Indexes fresh = new Indexes(new ProductSearchIndex(), new ProductFacetIndex(priceBuckets));
+        try {
+            long afterId = 0;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(
+                        afterId, Limit.of(rebuildBatchSize));
+                batch.forEach(product -> fresh.index(IndexedProduct.from(product)));
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == rebuildBatchSize);
+        } catch (RuntimeException e) {
+            rebuildLock.lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                rebuildLock.unlock();
+            }
+            log.error("Failed to build the product search index, searches fall back to the database", e);
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            // Changes committed while we were scanning may not be in the batches we read
+            changesDuringRebuild.forEach(fresh::apply);
+            changesDuringRebuild = null;
+            indexes = fresh;
+            caughtUpTo = started;
+        } finally {
+            rebuildLock.unlock();
+        }
+        log.info("Built product search index with {} products", fresh.text().size());
+    }
+
+    /**
+     * Re-reads every product updated since the previous catch-up, repairing changes whose
+     * broadcast this node missed.
+     */
+    @Scheduled(fixedDelayString = "${search.index.catch-up-interval-ms:60000}",
+            initialDelayString = "${search.index.catch-up-interval-ms:60000}")
+    public void catchUp() {
+        LocalDateTime since = caughtUpTo;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime started = LocalDateTime.now();
+        since = since.minus(Duration.ofMillis(catchUpOverlapMs));
+        int updated = 0;
+        try {
+            long afterId = 0;
+            List<Product> batch;
+            do {
+                batch = productRepository.findByUpdatedAtAfterAndIdGreaterThanOrderByIdAsc(
+                        since, afterId, Limit.of(rebuildBatchSize));
+                apply(batch.stream().map(IndexUpdate::of).toList());
+                updated += batch.size();
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == rebuildBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("Product search index catch-up failed, retrying from {} next time: {}", since, e.getMessage());
+            return;
+        }
+        caughtUpTo = started;
+        log.debug("Product search index caught up on {} products updated since {}", updated, since);
+    }
+
+    public boolean isReady() {
+        return indexes != null;
+    }
+
+    // Runs ahead of the cache invalidator so a search that re-fills an evicted page sees the change
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event) {
+        applyAndPublish(List.of(event));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductsUpdated(ProductsUpdatedEvent event) {
+        applyAndPublish(event.changes());
+    }
+
+    private void applyAndPublish(List<ProductChangedEvent> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        apply(changes.stream().map(IndexUpdate::of).toList());
+        String ids = changes.stream()
+                .map(change -> String.valueOf(change.productId()))
+                .distinct()
+                .collect(Collectors.joining(","));
+        invalidationBus.publish(new CacheInvalidation(nodeId, INDEX_UPDATES, ids));
+    }
+
+    // Another node changed these products, reload them as committed rather than trusting the message
+    private void onRemoteUpdate(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.origin()) || !INDEX_UPDATES.equals(invalidation.cacheName())
+                || invalidation.isClear()) {
+            return;
+        }
+        try {
+            List<Long> ids = Arrays.stream(invalidation.key().split(","))
+                    .filter(id -> !id.isEmpty())
+                    .map(Long::valueOf)
+                    .toList();
+            for (int from = 0; from < ids.size(); from += rebuildBatchSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + rebuildBatchSize, ids.size()));
+                Map<Long, Product> loaded = productRepository.findAllById(chunk).stream()
+                        .collect(Collectors.toMap(Product::getId, Function.identity()));
+                apply(chunk.stream()
+                        .map(id -> loaded.containsKey(id) ? IndexUpdate.of(loaded.get(id)) : IndexUpdate.removal(id))
+                        .toList());
+            }
+        } catch (RuntimeException e) {
+            // The next catch-up picks these products up
+            log.warn("Failed to apply product search index update from another node: {}", e.getMessage());
+        }
+    }
+
+    private void apply(List<IndexUpdate> updates) {
+        rebuildLock.lock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.addAll(updates);
+            }
+            if (indexes != null) {
+                updates.forEach(indexes::apply);
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the page of matching product ids, or null when the index cannot answer this
+     * search (not built yet, or sorted by a property it does not hold).
+     */
+    public Page<Long> search(String category, String name, BigDecimal minPrice,
+                             BigDecimal maxPrice, BigDecimal minRating, Pageable pageable) {
+        ProductSearchResult result = search(category, name, minPrice, maxPrice, minRating, pageable, false);
+        return result == null ? null : result.ids();
+    }
+
+    /**
+     * Filters by bitmap intersection, ranks name matches through the text index and optionally
+     * counts facets over the full match set. Returns null when the index cannot answer.
+     */
+    public ProductSearchResult search(String category, String name, BigDecimal minPrice, BigDecimal maxPrice,
+                                      BigDecimal minRating, Pageable pageable, boolean withFacets) {
+        Indexes current = indexes;
+        if (current == null) {
+            return null;
+        }
+        Comparator<SearchHit> order = comparatorFor(pageable.getSort());
+        if (order == null) {
+            return null;
+        }
+
+        RoaringBitmap filtered = current.facets().filter(category, minPrice, maxPrice, minRating);
+        boolean hasQuery = !SearchTokenizer.tokenize(name).isEmpty();
+        RoaringBitmap matches;
+        Page<Long> ids;
+        if (hasQuery) {
+            List<SearchHit> hits = current.text().search(name,
+                    product -> filtered.contains(ProductFacetIndex.toBitmapId(product.id())));
+            matches = new RoaringBitmap();
+            hits.forEach(hit -> matches.add(ProductFacetIndex.toBitmapId(hit.product().id())));
+            ids = page(hits, order, pageable);
+        } else if (order == RELEVANCE_ORDER || isIdAscending(pageable.getSort())) {
+            matches = filtered;
+            ids = page(filtered, pageable);
+        } else {
+            matches = filtered;
+            List<SearchHit> hits = new ArrayList<>(filtered.getCardinality());
+            filtered.forEach((int id) -> {
+                IndexedProduct product = current.text().get((long) id);
+                if (product != null) {
+                    hits.add(new SearchHit(product, 0));
+                }
+            });
+            ids = page(hits, order, pageable);
+        }
+        return new ProductSearchResult(ids, withFacets ? current.facets().facets(matches) : null);
+    }
+
+    private static Page<Long> page(List<SearchHit> hits, Comparator<SearchHit> order, Pageable pageable) {
+        if (order != RELEVANCE_ORDER) {
+            hits = new ArrayList<>(hits);
+            hits.sort(order);
+        }
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        int to = Math.min(from + pageable.getPageSize(), hits.size());
+        List<Long> ids = hits.subList(from, to).stream()
+                .map(hit -> hit.product().id())
+                .toList();
+        return new PageImpl<>(ids, pageable, hits.size());
+    }
+
+    // Bitmaps iterate in id order, so an id-ordered page is read straight off the match set
+    private static Page<Long> page(RoaringBitmap matches, Pageable pageable) {
+        int total = matches.getCardinality();
+        List<Long> ids = new ArrayList<>(pageable.getPageSize());
+        if (pageable.getOffset() < total) {
+            PeekableIntIterator iterator = matches.getIntIterator();
+            iterator.advanceIfNeeded(matches.select((int) pageable.getOffset()));
+            while (iterator.hasNext() && ids.size() < pageable.getPageSize()) {
+                ids.add((long) iterator.next());
+            }
+        }
+        return new PageImpl<>(ids, pageable, total);
+    }
+
+    private static boolean isIdAscending(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        return orders.size() == 1 && orders.get(0).getProperty().equals("id") && orders.get(0).isAscending();
+    }
+
+    private Comparator<SearchHit> comparatorFor(Sort sort) {
+        if (sort.isUnsorted()) {
+            return RELEVANCE_ORDER;
+        }
+        Comparator<SearchHit> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<SearchHit> next;
+            if (RELEVANCE.equals(order.getProperty())) {
+                next = RELEVANCE_ORDER;
+            } else {
+                Comparator<IndexedProduct> byField = SORTABLE.get(order.getProperty());
+                if (byField == null) {
+                    return null;
+                }
+                next = Comparator.comparing(SearchHit::product, byField);
+            }
+            if (order.isDescending() && next != RELEVANCE_ORDER) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<IndexedProduct> nullsFirst(
+            Function<IndexedProduct, T> key) {
+        return Comparator.comparing(key, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    private record Indexes(ProductSearchIndex text, ProductFacetIndex facets) {
+
+        void index(IndexedProduct product) {
+            text.index(product);
+            facets.index(product);
+        }
+
+        void apply(IndexUpdate update) {
+            if (update.product() == null) {
+                text.remove(update.productId());
+                facets.remove(update.productId());
+            } else {
+                index(update.product());
+            }
+        }
+    }
+
+    // A null product removes the id from the indexes
+    private record IndexUpdate(Long productId, @Nullable IndexedProduct product) {
+
+        static IndexUpdate of(ProductChangedEvent event) {
+            ProductResponse after = event.after();
+            return after == null || !after.isActive()
+                    ? removal(event.productId())
+                    : new IndexUpdate(after.getId(), IndexedProduct.from(after));
+        }
+
+        static IndexUpdate of(Product product) {
+            return product.isActive()
+                    ? new IndexUpdate(product.getId(), IndexedProduct.from(product))
+                    : removal(product.getId());
+        }
+
+        static IndexUpdate removal(Long productId) {
+            return new IndexUpdate(productId, null);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.arkadipta.ecb.search;
+
+public record SearchHit(IndexedProduct product, double score) {
+}
@@ -0,0 +1,31 @@
+package org.arkadipta.ecb.security;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.exception.ResourceNotFoundException;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class CurrentUserProvider {
+
+    private final UserRepository userRepository;
+
+    // Only falls back to a lookup when the principal does not carry the user id
+    public Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof JwtPrincipal jwtPrincipal) {
+            return jwtPrincipal.getId();
+        }
+        if (principal instanceof User user) {
+            return user.getId();
+        }
+        return userRepository.findByEmail(authentication.getName())
+                .map(User::getId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+}
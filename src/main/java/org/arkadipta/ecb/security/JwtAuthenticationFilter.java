@@ -1,11 +1,14 @@
 package org.arkadipta.ecb.security;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,14 +19,34 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final Timer validTokenTimer;
+    private final Timer invalidTokenTimer;
+    private final Timer claimsPrincipalTimer;
+    private final Timer loadedPrincipalTimer;
+
+    // When enabled the principal is built from token claims instead of loading the user
+    @Value("${jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
+
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService,
+                                   TokenRevocationStore tokenRevocationStore, MeterRegistry meterRegistry) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.validTokenTimer = verifyTimer(meterRegistry, "valid");
+        this.invalidTokenTimer = verifyTimer(meterRegistry, "invalid");
+        this.claimsPrincipalTimer = principalTimer(meterRegistry, "claims");
+        this.loadedPrincipalTimer = principalTimer(meterRegistry, "user_details");
+    }
 
     @Override
     protected void doFilterInternal(
@@ -41,12 +64,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        userEmail = jwtUtils.extractUsername(jwt);
+        // Signature and expiry are verified exactly once here
+        long verifyStart = System.nanoTime();
+        Claims claims = jwtUtils.parseToken(jwt);
+        (claims != null ? validTokenTimer : invalidTokenTimer).record(System.nanoTime() - verifyStart,
+                TimeUnit.NANOSECONDS);
+        userEmail = claims != null ? claims.getSubject() : null;
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenRevocationStore.isRevoked(claims)) {
+            long principalStart = System.nanoTime();
+            UserDetails userDetails = statelessPrincipal ? jwtUtils.toPrincipal(claims) : null;
+            Timer principalTimer = claimsPrincipalTimer;
+            if (userDetails == null) {
+                userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                principalTimer = loadedPrincipalTimer;
+            }
+            principalTimer.record(System.nanoTime() - principalStart, TimeUnit.NANOSECONDS);
 
-            if (jwtUtils.validateToken(jwt, userDetails)) {
+            if (userDetails.isEnabled() && jwtUtils.isValidFor(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -57,4 +93,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private static Timer verifyTimer(MeterRegistry registry, String result) {
+        return Timer.builder("ecb.jwt.verify")
+                .tag("result", result)
+                .description("Bearer token signature and expiry check, served from the claims cache when possible")
+                .register(registry);
+    }
+
+    private static Timer principalTimer(MeterRegistry registry, String source) {
+        return Timer.builder("ecb.jwt.principal")
+                .tag("source", source)
+                .description("Building the authenticated principal for a verified token")
+                .register(registry);
+    }
+}
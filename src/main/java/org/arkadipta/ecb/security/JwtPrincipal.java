@@ -0,0 +1,49 @@
+package org.arkadipta.ecb.security;
+
+import lombok.Getter;
+import org.arkadipta.ecb.model.enums.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal rebuilt from verified token claims, so authenticated requests need no user lookup.
+ */
+@Getter
+public class JwtPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final Role role;
+    private final List<GrantedAuthority> authorities;
+
+    public JwtPrincipal(Long id, String email, Role role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -1,22 +1,43 @@
 package org.arkadipta.ecb.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.model.enums.Role;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
 @Slf4j
-public class JwtUtils {
+public class JwtUtils implements MeterBinder {
+
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    // iat only has whole seconds, too coarse to tell a token from a revocation in the same second
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
 
     @Value("${jwt.secret}")
     private String jwtSecret;
@@ -27,6 +48,49 @@ public class JwtUtils {
     @Value("${jwt.refresh-expiration}")
     private int jwtRefreshExpirationMs;
 
+    @Value("${jwt.claims-cache-size:10000}")
+    private long claimsCacheSize;
+
+    private SecretKey signKey;
+    private JwtParser jwtParser;
+
+    // Verified claims keyed by the SHA-256 of the token, each entry lives until the token expires
+    private Cache<String, Claims> verifiedClaims;
+
+    @PostConstruct
+    void init() {
+        signKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        jwtParser = Jwts.parser().verifyWith(signKey).build();
+        verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new ClaimsExpiry())
+                .recordStats()
+                .build();
+    }
+
+    // A claims cache miss is a full signature verification
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, verifiedClaims, "jwtClaims");
+    }
+
+    /**
+     * Verifies the signature and expiry of the token once and returns its claims, or
+     * {@code null} if the token is invalid. Repeated calls for the same token are served
+     * from the verified claims cache.
+     */
+    @Nullable
+    public Claims parseToken(String token) {
+        try {
+            return verify(token);
+        } catch (ExpiredJwtException e) {
+            log.debug("JWT token is expired: {}", e.getMessage());
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Invalid JWT token: {}", e.getMessage());
+        }
+        return null;
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -36,56 +100,97 @@ public class JwtUtils {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = verify(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parser()
-                .verifyWith(getSignKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private Claims verify(String token) {
+        String digest = digest(token);
+        Claims cached = verifiedClaims.getIfPresent(digest);
+        if (cached != null && !isExpired(cached)) {
+            return cached;
+        }
+        Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+        verifiedClaims.put(digest, claims);
+        return claims;
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private boolean isExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
     }
 
     public String generateToken(UserDetails userDetails) {
-        Map<String, Object> claims = new HashMap<>();
+        Map<String, Object> claims = identityClaims(userDetails);
         return createToken(claims, userDetails.getUsername(), jwtExpirationMs);
     }
 
     public String generateRefreshToken(UserDetails userDetails) {
-        Map<String, Object> claims = new HashMap<>();
+        Map<String, Object> claims = identityClaims(userDetails);
         return createToken(claims, userDetails.getUsername(), jwtRefreshExpirationMs);
     }
 
+    // User id and role let the filter authenticate without a database lookup
+    private Map<String, Object> identityClaims(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user && user.getId() != null) {
+            claims.put(USER_ID_CLAIM, user.getId());
+            claims.put(ROLE_CLAIM, user.getRole().name());
+        } else if (userDetails instanceof JwtPrincipal principal) {
+            claims.put(USER_ID_CLAIM, principal.getId());
+            claims.put(ROLE_CLAIM, principal.getRole().name());
+        }
+        return claims;
+    }
+
+    @Nullable
+    public Long extractUserId(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        return userId != null ? userId.longValue() : null;
+    }
+
+    /**
+     * Builds the principal straight from verified claims, or returns {@code null} for tokens
+     * issued before the id and role claims were added.
+     */
+    @Nullable
+    public JwtPrincipal toPrincipal(Claims claims) {
+        Long userId = extractUserId(claims);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (userId == null || role == null || claims.getSubject() == null) {
+            return null;
+        }
+        try {
+            return new JwtPrincipal(userId, claims.getSubject(), Role.valueOf(role));
+        } catch (IllegalArgumentException e) {
+            log.debug("Unknown role claim {} in token for {}", role, claims.getSubject());
+            return null;
+        }
+    }
+
     private String createToken(Map<String, Object> claims, String userName, int expiration) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .claims(claims)
                 .subject(userName)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignKey())
+                .claim(ISSUED_AT_MILLIS_CLAIM, now)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration))
+                .signWith(signKey)
                 .compact();
     }
 
-    private SecretKey getSignKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public Boolean validateToken(String token, UserDetails userDetails) {
+        Claims claims = parseToken(token);
+        return isValidFor(claims, userDetails);
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    public boolean isValidFor(@Nullable Claims claims, UserDetails userDetails) {
+        return claims != null && userDetails.getUsername().equals(claims.getSubject()) && !isExpired(claims);
     }
 
     public boolean validateJwtToken(String authToken) {
         try {
-            Jwts.parser().verifyWith(getSignKey()).build().parseSignedClaims(authToken);
+            verify(authToken);
             return true;
         } catch (MalformedJwtException e) {
             log.error("Invalid JWT token: {}", e.getMessage());
@@ -95,7 +200,43 @@ public class JwtUtils {
             log.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            log.error("JWT token verification failed: {}", e.getMessage());
         }
         return false;
     }
-}
\ No newline at end of file
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class ClaimsExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(@NonNull String key, @NonNull Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return TimeUnit.MINUTES.toNanos(5);
+            }
+            long remainingMs = expiration.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(@NonNull String key, @NonNull Claims claims, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(@NonNull String key, @NonNull Claims claims, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
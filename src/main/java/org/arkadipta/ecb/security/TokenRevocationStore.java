@@ -0,0 +1,91 @@
+package org.arkadipta.ecb.security;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * "Tokens issued before" store: a token for a user is rejected if it was issued at or before
+ * the user's cut-off. Cut-offs are epoch milliseconds compared against the token's
+ * {@code iat_ms} claim; tokens issued before that claim existed fall back to {@code iat}, which
+ * is whole seconds, so they stay rejected until the second after a revocation. Cut-offs live in
+ * a Redis hash and are mirrored in memory so the check on every request is a single map lookup.
+ */
+@Component
+@Slf4j
+public class TokenRevocationStore {
+
+    private static final String NOT_BEFORE_KEY = "ecb:auth:tokens-not-before";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final Map<Long, Long> notBeforeByUser = new ConcurrentHashMap<>();
+
+    public TokenRevocationStore(StringRedisTemplate redisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Value("${jwt.revocation-channel:ecb:auth:revocations}") String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+        listenerContainer.addMessageListener(this::onMessage, new ChannelTopic(channel));
+    }
+
+    @PostConstruct
+    void loadMirror() {
+        syncFromRedis();
+    }
+
+    public boolean isRevoked(Claims claims) {
+        Number userId = claims.get(JwtUtils.USER_ID_CLAIM, Number.class);
+        if (userId == null) {
+            return false;
+        }
+        Number issuedAtMillis = claims.get(JwtUtils.ISSUED_AT_MILLIS_CLAIM, Number.class);
+        if (issuedAtMillis != null) {
+            return isRevoked(userId.longValue(), issuedAtMillis.longValue());
+        }
+        return claims.getIssuedAt() != null && isRevoked(userId.longValue(), claims.getIssuedAt().getTime());
+    }
+
+    public boolean isRevoked(Long userId, long issuedAtMillis) {
+        Long notBefore = notBeforeByUser.get(userId);
+        return notBefore != null && issuedAtMillis <= notBefore;
+    }
+
+    public void revokeAllTokens(Long userId) {
+        long notBefore = System.currentTimeMillis();
+        notBeforeByUser.merge(userId, notBefore, Math::max);
+        redisTemplate.opsForHash().put(NOT_BEFORE_KEY, userId.toString(), Long.toString(notBefore));
+        redisTemplate.convertAndSend(channel, userId + ":" + notBefore);
+        log.info("Revoked all tokens issued to user {} up to {}", userId, notBefore);
+    }
+
+    // Pub/sub is best effort, a periodic resync repairs the mirror after a missed message
+    @Scheduled(fixedDelayString = "${jwt.revocation-sync-interval-ms:60000}")
+    public void syncFromRedis() {
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(NOT_BEFORE_KEY);
+            entries.forEach((userId, notBefore) -> notBeforeByUser.merge(
+                    Long.valueOf(userId.toString()), Long.valueOf(notBefore.toString()), Math::max));
+        } catch (RuntimeException e) {
+            log.warn("Could not sync token revocations from Redis: {}", e.getMessage());
+        }
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":", 2);
+        if (parts.length == 2) {
+            notBeforeByUser.merge(Long.valueOf(parts[0]), Long.valueOf(parts[1]), Math::max);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.arkadipta.ecb.service;
 
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.arkadipta.ecb.dto.auth.JwtResponse;
@@ -13,6 +14,7 @@ import org.arkadipta.ecb.model.enums.Role;
 import org.arkadipta.ecb.repository.CartRepository;
 import org.arkadipta.ecb.repository.UserRepository;
 import org.arkadipta.ecb.security.JwtUtils;
+import org.arkadipta.ecb.security.TokenRevocationStore;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -31,6 +33,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
     private final AuthenticationManager authenticationManager;
+    private final TokenRevocationStore tokenRevocationStore;
 
     @Transactional
     public JwtResponse register(SignupRequest signupRequest) {
@@ -81,10 +84,14 @@ public class AuthService {
     public JwtResponse refreshToken(RefreshTokenRequest refreshTokenRequest) {
         String refreshToken = refreshTokenRequest.getRefreshToken();
 
-        if (jwtUtils.validateJwtToken(refreshToken)) {
-            String userEmail = jwtUtils.extractUsername(refreshToken);
+        Claims claims = jwtUtils.parseToken(refreshToken);
+        if (claims != null && !tokenRevocationStore.isRevoked(claims)) {
+            String userEmail = claims.getSubject();
             User user = userRepository.findByEmail(userEmail)
                     .orElseThrow(() -> new RuntimeException("User not found"));
+            if (!user.isEnabled()) {
+                throw new RuntimeException("Invalid refresh token");
+            }
 
             String newAccessToken = jwtUtils.generateToken(user);
             String newRefreshToken = jwtUtils.generateRefreshToken(user);
@@ -6,21 +6,24 @@ import org.arkadipta.ecb.dto.cart.AddToCartRequest;
 import org.arkadipta.ecb.dto.cart.CartItemResponse;
 import org.arkadipta.ecb.dto.cart.CartResponse;
 import org.arkadipta.ecb.exception.ResourceNotFoundException;
+import org.arkadipta.ecb.inventory.InventoryReservationService;
 import org.arkadipta.ecb.model.Cart;
 import org.arkadipta.ecb.model.CartItem;
 import org.arkadipta.ecb.model.Product;
-import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.outbox.OutboxWriter;
 import org.arkadipta.ecb.repository.CartItemRepository;
 import org.arkadipta.ecb.repository.CartRepository;
 import org.arkadipta.ecb.repository.ProductRepository;
 import org.arkadipta.ecb.repository.UserRepository;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.arkadipta.ecb.security.CurrentUserProvider;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,44 +35,61 @@ public class CartService {
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final OutboxWriter outboxWriter;
+    // Present when cart.storage=redis. Cart events are then written by CartWriteBehindFlusher when
+    // it persists the cart, so a cart change costs no database write on the request path
+    private final ObjectProvider<RedisCartService> redisCartService;
+    // Present when inventory.reservations.enabled=true
+    private final ObjectProvider<InventoryReservationService> inventoryReservations;
 
+    @Transactional
     public CartResponse getCart() {
-        User currentUser = getCurrentUser();
-        Cart cart = getOrCreateCart(currentUser);
-
-        // Remove unavailable or out-of-stock items
-        cart.getItems()
-                .removeIf(item -> !item.getProduct().isActive() || item.getProduct().getStock() < item.getQuantity());
-
+        Long userId = currentUserProvider.getCurrentUserId();
+        RedisCartService redisCart = redisCartService.getIfAvailable();
+        if (redisCart != null) {
+            return convertToResponse(redisCart.getCart(userId));
+        }
+        Cart cart = getOrCreateCart(userId);
         return convertToResponse(cart);
     }
 
     @Transactional
     public CartResponse addToCart(AddToCartRequest request) {
-        User currentUser = getCurrentUser();
-        Cart cart = getOrCreateCart(currentUser);
-
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-
-        if (!product.isActive()) {
-            throw new RuntimeException("Product is not available");
-        }
-
-        if (product.getStock() < request.getQuantity()) {
-            throw new RuntimeException("Insufficient stock available");
+        Long userId = currentUserProvider.getCurrentUserId();
+        RedisCartService redisCart = redisCartService.getIfAvailable();
+        if (redisCart != null) {
+            return convertToResponse(redisCart.addToCart(userId, request));
         }
+        Cart cart = getOrCreateCart(userId);
 
         // Check if item already exists in cart
-        CartItem existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), product.getId())
+        CartItem existingItem = cart.getItems().stream()
+                .filter(item -> item.getProduct().getId().equals(request.getProductId()))
+                .findFirst()
                 .orElse(null);
+        int newQuantity = (existingItem != null ? existingItem.getQuantity() : 0) + request.getQuantity();
+
+        Product product;
+        InventoryReservationService reservations = inventoryReservations.getIfAvailable();
+        if (reservations != null) {
+            // The counter checks availability and stock, a new item only needs a reference to the product
+            reservations.reserve(userId, request.getProductId(), newQuantity);
+            product = existingItem != null
+                    ? existingItem.getProduct()
+                    : productRepository.getReferenceById(request.getProductId());
+        } else {
+            // Already in the persistence context when the product is in the cart
+            product = productRepository.findById(request.getProductId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            if (!product.isActive()) {
+                throw new RuntimeException("Product is not available");
+            }
+            checkStock(userId, product, newQuantity);
+        }
 
         if (existingItem != null) {
             // Update quantity
-            int newQuantity = existingItem.getQuantity() + request.getQuantity();
-            if (product.getStock() < newQuantity) {
-                throw new RuntimeException("Insufficient stock available");
-            }
             existingItem.setQuantity(newQuantity);
             cartItemRepository.save(existingItem);
         } else {
@@ -78,97 +98,140 @@ public class CartService {
             cartItem.setCart(cart);
             cartItem.setProduct(product);
             cartItem.setQuantity(request.getQuantity());
-            cartItemRepository.save(cartItem);
+            cart.getItems().add(cartItemRepository.save(cartItem));
         }
 
-        log.info("Added product {} to cart for user {}", product.getId(), currentUser.getId());
-        return getCart();
+        log.info("Added product {} to cart for user {}", product.getId(), userId);
+        return cartUpdated(userId, convertToResponse(cart));
     }
 
     @Transactional
     public CartResponse updateCartItem(Long itemId, Integer quantity) {
-        User currentUser = getCurrentUser();
-        CartItem cartItem = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
-
-        // Verify the item belongs to current user's cart
-        if (!cartItem.getCart().getUser().getId().equals(currentUser.getId())) {
-            throw new RuntimeException("Unauthorized access to cart item");
+        Long userId = currentUserProvider.getCurrentUserId();
+        RedisCartService redisCart = redisCartService.getIfAvailable();
+        if (redisCart != null) {
+            return convertToResponse(redisCart.updateCartItem(userId, itemId, quantity));
         }
+        Cart cart = getOrCreateCart(userId);
+        // Looking the item up in the user's own cart also verifies ownership
+        CartItem cartItem = findItem(cart, itemId);
 
         if (quantity <= 0) {
+            cart.getItems().remove(cartItem);
             cartItemRepository.delete(cartItem);
-            log.info("Removed cart item {} for user {}", itemId, currentUser.getId());
+            releaseStock(userId, cartItem.getProduct().getId());
+            log.info("Removed cart item {} for user {}", itemId, userId);
         } else {
-            if (cartItem.getProduct().getStock() < quantity) {
-                throw new RuntimeException("Insufficient stock available");
-            }
+            checkStock(userId, cartItem.getProduct(), quantity);
             cartItem.setQuantity(quantity);
             cartItemRepository.save(cartItem);
-            log.info("Updated cart item {} quantity to {} for user {}", itemId, quantity, currentUser.getId());
+            log.info("Updated cart item {} quantity to {} for user {}", itemId, quantity, userId);
         }
 
-        return getCart();
+        return cartUpdated(userId, convertToResponse(cart));
     }
 
     @Transactional
     public CartResponse removeFromCart(Long itemId) {
-        User currentUser = getCurrentUser();
-        CartItem cartItem = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
-
-        // Verify the item belongs to current user's cart
-        if (!cartItem.getCart().getUser().getId().equals(currentUser.getId())) {
-            throw new RuntimeException("Unauthorized access to cart item");
+        Long userId = currentUserProvider.getCurrentUserId();
+        RedisCartService redisCart = redisCartService.getIfAvailable();
+        if (redisCart != null) {
+            return convertToResponse(redisCart.removeFromCart(userId, itemId));
         }
+        Cart cart = getOrCreateCart(userId);
+        CartItem cartItem = findItem(cart, itemId);
 
+        cart.getItems().remove(cartItem);
         cartItemRepository.delete(cartItem);
-        log.info("Removed cart item {} for user {}", itemId, currentUser.getId());
+        releaseStock(userId, cartItem.getProduct().getId());
+        log.info("Removed cart item {} for user {}", itemId, userId);
 
-        return getCart();
+        return cartUpdated(userId, convertToResponse(cart));
     }
 
     @Transactional
     public void clearCart() {
-        User currentUser = getCurrentUser();
-        Cart cart = getOrCreateCart(currentUser);
-        cartItemRepository.deleteAll(cart.getItems());
-        log.info("Cleared cart for user {}", currentUser.getId());
+        Long userId = currentUserProvider.getCurrentUserId();
+        RedisCartService redisCart = redisCartService.getIfAvailable();
+        if (redisCart != null) {
+            redisCart.clearCart(userId);
+            return;
+        }
+        Cart cart = getOrCreateCart(userId);
+        // Items are deleted through orphan removal
+        cart.getItems().clear();
+        InventoryReservationService reservations = inventoryReservations.getIfAvailable();
+        if (reservations != null) {
+            reservations.releaseAll(userId);
+        }
+        outboxWriter.append(OutboxWriter.CART, userId, "CART_CLEARED", Map.of("userId", userId));
+        log.info("Cleared cart for user {}", userId);
+    }
+
+    private CartResponse cartUpdated(Long userId, CartResponse response) {
+        outboxWriter.append(OutboxWriter.CART, userId, "CART_UPDATED", response);
+        return response;
+    }
+
+    // With reservations enabled the units are held for the user instead of re-reading the product's stock
+    private void checkStock(Long userId, Product product, int quantity) {
+        InventoryReservationService reservations = inventoryReservations.getIfAvailable();
+        if (reservations != null) {
+            reservations.reserve(userId, product, quantity);
+        } else if (product.getStock() < quantity) {
+            throw new RuntimeException("Insufficient stock available");
+        }
     }
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    private void releaseStock(Long userId, Long productId) {
+        InventoryReservationService reservations = inventoryReservations.getIfAvailable();
+        if (reservations != null) {
+            reservations.release(userId, productId);
+        }
     }
 
-    private Cart getOrCreateCart(User user) {
-        return cartRepository.findByUserId(user.getId())
+    private Cart getOrCreateCart(Long userId) {
+        return cartRepository.findWithItemsByUserId(userId)
                 .orElseGet(() -> {
                     Cart cart = new Cart();
-                    cart.setUser(user);
+                    cart.setUser(userRepository.getReferenceById(userId));
                     cart.setItems(new ArrayList<>());
                     return cartRepository.save(cart);
                 });
     }
 
-    private CartResponse convertToResponse(Cart cart) {
+    private CartItem findItem(Cart cart, Long itemId) {
+        return cart.getItems().stream()
+                .filter(item -> item.getId().equals(itemId))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found"));
+    }
+
+    static CartResponse convertToResponse(Cart cart) {
         CartResponse response = new CartResponse();
         response.setId(cart.getId());
 
-        List<CartItemResponse> itemResponses = cart.getItems().stream()
-                .map(this::convertToItemResponse)
+        // Unavailable or out-of-stock items are hidden from the cart view
+        List<CartItem> availableItems = cart.getItems().stream()
+                .filter(item -> item.getProduct().isActive() && item.getProduct().getStock() >= item.getQuantity())
+                .toList();
+
+        List<CartItemResponse> itemResponses = availableItems.stream()
+                .map(CartService::convertToItemResponse)
                 .collect(Collectors.toList());
 
         response.setItems(itemResponses);
-        response.setTotalPrice(cart.getTotalPrice());
-        response.setTotalItems(cart.getTotalItems());
+        response.setTotalPrice(availableItems.stream()
+                .map(CartItem::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        response.setTotalItems(availableItems.stream()
+                .mapToInt(CartItem::getQuantity)
+                .sum());
 
         return response;
     }
 
-    private CartItemResponse convertToItemResponse(CartItem cartItem) {
+    private static CartItemResponse convertToItemResponse(CartItem cartItem) {
         CartItemResponse response = new CartItemResponse();
         response.setId(cartItem.getId());
         response.setProductId(cartItem.getProduct().getId());
@@ -0,0 +1,195 @@
+package org.arkadipta.ecb.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.cart.CartFlushStats;
+import org.arkadipta.ecb.model.Cart;
+import org.arkadipta.ecb.model.CartItem;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.outbox.OutboxWriter;
+import org.arkadipta.ecb.repository.CartItemRepository;
+import org.arkadipta.ecb.repository.CartRepository;
+import org.arkadipta.ecb.repository.CartSnapshot;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.arkadipta.ecb.repository.RedisCartStore;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically persists dirty Redis carts to the database. A cart only leaves the dirty set
+ * once the version that was flushed is still the current one, so writes racing with a flush
+ * are picked up by the next run and nothing acknowledged is lost across restarts.
+ * <p>
+ * Each persisted cart also gets one CART_UPDATED outbox event in the same transaction, or
+ * CART_CLEARED when it is empty. In this mode consumers therefore see a cart's state as of each
+ * flush rather than one event per change.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.storage", havingValue = "redis")
+@Slf4j
+public class CartWriteBehindFlusher {
+
+    private final RedisCartStore cartStore;
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxWriter outboxWriter;
+    private final int batchSize;
+    private final Duration leaseTime;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile LocalDateTime lastFlushAt;
+    private volatile int lastFlushedCarts;
+
+    public CartWriteBehindFlusher(RedisCartStore cartStore,
+                                  CartRepository cartRepository,
+                                  CartItemRepository cartItemRepository,
+                                  ProductRepository productRepository,
+                                  UserRepository userRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  OutboxWriter outboxWriter,
+                                  @Value("${cart.flush.batch-size:200}") int batchSize,
+                                  @Value("${cart.flush.lease-time:PT30S}") Duration leaseTime) {
+        this.cartStore = cartStore;
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxWriter = outboxWriter;
+        this.batchSize = batchSize;
+        this.leaseTime = leaseTime;
+    }
+
+    @Scheduled(fixedDelayString = "${cart.flush.interval-ms:1000}")
+    public void flush() {
+        // Only one node flushes at a time so carts are never written concurrently
+        if (!cartStore.tryAcquireFlushLease(nodeId, leaseTime)) {
+            return;
+        }
+        try {
+            int flushed;
+            do {
+                flushed = flushBatch();
+            } while (flushed == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Cart write-behind flush failed, will retry", e);
+        } finally {
+            cartStore.releaseFlushLease(nodeId);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    public CartFlushStats getStats() {
+        return new CartFlushStats(cartStore.countDirty(), cartStore.flushLag().toMillis(),
+                lastFlushAt, lastFlushedCarts);
+    }
+
+    private int flushBatch() {
+        List<Long> userIds = cartStore.findDirtyUsers(batchSize);
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        Map<Long, CartSnapshot> snapshots = new HashMap<>();
+        for (Long userId : userIds) {
+            cartStore.find(userId).ifPresent(snapshot -> snapshots.put(userId, snapshot));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> persist(snapshots));
+
+        int cleaned = 0;
+        for (Long userId : userIds) {
+            CartSnapshot snapshot = snapshots.get(userId);
+            if (cartStore.markClean(userId, snapshot != null ? snapshot.version() : -1)) {
+                cleaned++;
+            }
+        }
+        lastFlushAt = LocalDateTime.now();
+        lastFlushedCarts = snapshots.size();
+        log.debug("Flushed {} carts to the database ({} clean)", snapshots.size(), cleaned);
+        return userIds.size();
+    }
+
+    private void persist(Map<Long, CartSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        Map<Long, Cart> carts = cartRepository.findAllWithItemsByUserIdIn(snapshots.keySet()).stream()
+                .collect(Collectors.toMap(cart -> cart.getUser().getId(), Function.identity()));
+
+        List<CartItem> toSave = new ArrayList<>();
+        snapshots.forEach((userId, snapshot) -> {
+            Cart cart = carts.computeIfAbsent(userId, this::createCart);
+            Map<Long, Integer> remaining = new HashMap<>(snapshot.quantities());
+
+            Iterator<CartItem> iterator = cart.getItems().iterator();
+            while (iterator.hasNext()) {
+                CartItem item = iterator.next();
+                Integer quantity = remaining.remove(item.getProduct().getId());
+                if (quantity == null) {
+                    // Deleted through orphan removal at flush time
+                    iterator.remove();
+                } else if (!quantity.equals(item.getQuantity())) {
+                    item.setQuantity(quantity);
+                    toSave.add(item);
+                }
+            }
+            remaining.forEach((productId, quantity) -> {
+                CartItem item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(productRepository.getReferenceById(productId));
+                item.setQuantity(quantity);
+                cart.getItems().add(item);
+                toSave.add(item);
+            });
+        });
+
+        cartItemRepository.saveAll(toSave);
+        appendCartEvents(snapshots);
+    }
+
+    private void appendCartEvents(Map<Long, CartSnapshot> snapshots) {
+        List<Long> productIds = snapshots.values().stream()
+                .flatMap(snapshot -> snapshot.quantities().keySet().stream())
+                .distinct()
+                .toList();
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        snapshots.forEach((userId, snapshot) -> {
+            if (snapshot.quantities().isEmpty()) {
+                outboxWriter.append(OutboxWriter.CART, userId, "CART_CLEARED", Map.of("userId", userId));
+            } else {
+                outboxWriter.append(OutboxWriter.CART, userId, "CART_UPDATED",
+                        CartService.convertToResponse(RedisCartService.toCart(snapshot, products)));
+            }
+        });
+    }
+
+    private Cart createCart(Long userId) {
+        Cart cart = new Cart();
+        cart.setUser(userRepository.getReferenceById(userId));
+        cart.setItems(new ArrayList<>());
+        return cartRepository.save(cart);
+    }
+}
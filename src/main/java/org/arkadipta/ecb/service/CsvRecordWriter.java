@@ -0,0 +1,47 @@
+package org.arkadipta.ecb.service;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes RFC 4180 records that {@link CsvRecordReader} reads back: fields containing a comma,
+ * quote or line break are quoted, quotes inside them doubled, records end with CRLF.
+ */
+class CsvRecordWriter {
+
+    private final Writer writer;
+
+    CsvRecordWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes one record, a {@code null} field is written as an empty one.
+     */
+    void write(Object... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (fields[i] != null) {
+                writeField(fields[i].toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
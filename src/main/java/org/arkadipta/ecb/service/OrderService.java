@@ -0,0 +1,223 @@
+package org.arkadipta.ecb.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.order.CheckoutRequest;
+import org.arkadipta.ecb.dto.order.OrderItemResponse;
+import org.arkadipta.ecb.dto.order.OrderResponse;
+import org.arkadipta.ecb.exception.InsufficientStockException;
+import org.arkadipta.ecb.exception.ResourceNotFoundException;
+import org.arkadipta.ecb.inventory.InventoryReservationService;
+import org.arkadipta.ecb.model.Cart;
+import org.arkadipta.ecb.model.CartItem;
+import org.arkadipta.ecb.model.Order;
+import org.arkadipta.ecb.model.OrderItem;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.model.enums.OrderStatus;
+import org.arkadipta.ecb.notification.EmailNotificationService;
+import org.arkadipta.ecb.outbox.OutboxWriter;
+import org.arkadipta.ecb.repository.CartRepository;
+import org.arkadipta.ecb.repository.OrderRepository;
+import org.arkadipta.ecb.repository.ProductStockRepository;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.arkadipta.ecb.security.CurrentUserProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderService {
+
+    private final OrderRepository orderRepository;
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final ProductStockRepository productStockRepository;
+    private final ProductService productService;
+    private final CurrentUserProvider currentUserProvider;
+    private final OutboxWriter outboxWriter;
+    private final EmailNotificationService emailNotificationService;
+    // Present when cart.storage=redis
+    private final ObjectProvider<RedisCartService> redisCartService;
+    // Present when inventory.reservations.enabled=true
+    private final ObjectProvider<InventoryReservationService> inventoryReservations;
+
+    @Transactional
+    public OrderResponse checkout(CheckoutRequest request) {
+        return placeOrder(currentUserProvider.getCurrentUserId(), request);
+    }
+
+    /**
+     * Turns the user's cart into an order. Stock is taken with one batch of conditional
+     * decrements after the order rows are written, so the product rows stay locked only for the
+     * end of the transaction; if any line is short the whole checkout rolls back.
+     */
+    @Transactional
+    public OrderResponse placeOrder(Long userId, CheckoutRequest request) {
+        RedisCartService redisCart = redisCartService.getIfAvailable();
+        Cart cart = redisCart != null
+                ? redisCart.getCart(userId)
+                : cartRepository.findWithItemsByUserId(userId).orElse(null);
+        if (cart == null || cart.getItems().isEmpty()) {
+            throw new RuntimeException("Cart is empty");
+        }
+
+        Map<Long, Product> products = new LinkedHashMap<>();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItem cartItem : cart.getItems()) {
+            Product product = cartItem.getProduct();
+            if (!product.isActive()) {
+                throw new ResourceNotFoundException("Product not available: " + product.getName());
+            }
+            products.put(product.getId(), product);
+            quantities.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
+        }
+        InventoryReservationService reservations = inventoryReservations.getIfAvailable();
+        if (reservations != null) {
+            // Sold-out products are turned away here before any product row is locked
+            quantities.forEach((productId, quantity) -> reservations.reserve(userId, products.get(productId), quantity));
+        }
+
+        Order order = new Order();
+        order.setUser(userRepository.getReferenceById(userId));
+        order.setStatus(OrderStatus.PENDING);
+        order.setShippingAddress(request.getShippingAddress());
+        order.setDeliveryNotes(request.getDeliveryNotes());
+        List<OrderItem> items = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(products.get(productId));
+            item.setQuantity(quantity);
+            // Price is fixed at checkout time
+            item.setPrice(products.get(productId).getPrice());
+            items.add(item);
+        });
+        order.setItems(items);
+        order.setTotalPrice(items.stream()
+                .map(OrderItem::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        Order savedOrder = orderRepository.saveAndFlush(order);
+
+        LocalDateTime stockUpdatedAt = LocalDateTime.now();
+        List<Long> shortProducts = productStockRepository.decrementStock(quantities);
+        if (!shortProducts.isEmpty()) {
+            String names = shortProducts.stream()
+                    .map(productId -> products.get(productId).getName())
+                    .collect(Collectors.joining(", "));
+            throw new InsufficientStockException("Insufficient stock available for: " + names);
+        }
+        productService.publishStockDecrements(products.values(), quantities,
+                productStockRepository.findStock(quantities.keySet()), stockUpdatedAt);
+        if (reservations != null) {
+            releaseReservations(userId, reservations);
+        }
+
+        clearCart(userId, cart, redisCart);
+        OrderResponse response = convertToResponse(savedOrder);
+        outboxWriter.append(OutboxWriter.ORDER, savedOrder.getId(), "ORDER_PLACED", response);
+        emailNotificationService.orderConfirmed(savedOrder);
+        log.info("Placed order {} for user {} with {} lines", savedOrder.getId(), userId, items.size());
+        return response;
+    }
+
+    @Transactional(readOnly = true)
+    public Page<OrderResponse> getOrders(Pageable pageable) {
+        Page<Order> orders = orderRepository.findByUserId(currentUserProvider.getCurrentUserId(), pageable);
+        // Items for the whole page in one query instead of one per order
+        Map<Long, Order> withItems = orderRepository.findWithItemsByIdIn(
+                        orders.map(Order::getId).getContent()).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        return orders.map(order -> convertToResponse(withItems.get(order.getId())));
+    }
+
+    @Transactional(readOnly = true)
+    public OrderResponse getOrder(Long id) {
+        Order order = orderRepository.findWithItemsByIdAndUserId(id, currentUserProvider.getCurrentUserId())
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        return convertToResponse(order);
+    }
+
+    // Registered after the stock events so the counters take the decrement before the reservation is dropped
+    private void releaseReservations(Long userId, InventoryReservationService reservations) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reservations.releaseAll(userId);
+            }
+        });
+    }
+
+    @Transactional
+    public OrderResponse updateStatus(Long id, OrderStatus status) {
+        Order order = orderRepository.findWithItemsById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        OrderStatus previous = order.getStatus();
+        order.setStatus(status);
+        OrderResponse response = convertToResponse(orderRepository.save(order));
+
+        if (previous != status) {
+            outboxWriter.append(OutboxWriter.ORDER, id, "ORDER_" + status.name(), response);
+            if (status == OrderStatus.SHIPPED) {
+                emailNotificationService.orderShipped(order);
+            }
+            log.info("Order {} moved from {} to {}", id, previous, status);
+        }
+        return response;
+    }
+
+    private void clearCart(Long userId, Cart cart, RedisCartService redisCart) {
+        if (redisCart == null) {
+            // Items are deleted through orphan removal
+            cart.getItems().clear();
+            return;
+        }
+        // Redis is not part of the transaction, only drop the live cart once the order is committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                redisCart.clearCart(userId);
+            }
+        });
+    }
+
+    private OrderResponse convertToResponse(Order order) {
+        OrderResponse response = new OrderResponse();
+        response.setId(order.getId());
+        response.setStatus(order.getStatus());
+        response.setItems(order.getItems().stream()
+                .map(this::convertToItemResponse)
+                .collect(Collectors.toList()));
+        response.setTotalPrice(order.getTotalPrice());
+        response.setTotalItems(order.getTotalItems());
+        response.setShippingAddress(order.getShippingAddress());
+        response.setDeliveryNotes(order.getDeliveryNotes());
+        response.setCreatedAt(order.getCreatedAt());
+        return response;
+    }
+
+    private OrderItemResponse convertToItemResponse(OrderItem item) {
+        OrderItemResponse response = new OrderItemResponse();
+        response.setId(item.getId());
+        response.setProductId(item.getProduct().getId());
+        response.setProductName(item.getProduct().getName());
+        response.setPrice(item.getPrice());
+        response.setQuantity(item.getQuantity());
+        response.setSubtotal(item.getSubtotal());
+        return response;
+    }
+}
@@ -0,0 +1,143 @@
+package org.arkadipta.ecb.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateRequest;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateResponse;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateResponse.ItemResult;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateResponse.Status;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsUpdatedEvent;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductBulkRepository;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies many stock and price changes in one transaction: the products are read and locked
+ * with one query, the new values written with one JDBC batch, and listeners get a single
+ * {@link ProductsUpdatedEvent} instead of one event per product. Items that cannot be applied
+ * are reported and skipped, the others commit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductBulkUpdateService {
+
+    private final ProductRepository productRepository;
+    private final ProductBulkRepository productBulkRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public ProductBulkUpdateResponse bulkUpdate(List<ProductBulkUpdateRequest.Item> items) {
+        ItemResult[] results = new ItemResult[items.size()];
+        // Item positions by product id, in id order so rows are written in the order they were locked
+        Map<Long, Integer> positions = new TreeMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            ProductBulkUpdateRequest.Item item = items.get(i);
+            String problem = check(item);
+            if (problem == null && positions.putIfAbsent(item.getId(), i) != null) {
+                problem = "Product " + item.getId() + " appears more than once";
+            }
+            if (problem != null) {
+                results[i] = new ItemResult(item.getId(), Status.REJECTED, null, null, problem);
+            }
+        }
+
+        Map<Long, Product> products = positions.isEmpty() ? Map.of()
+                : productRepository.findActiveByIdInForUpdate(positions.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        List<ProductBulkRepository.StockAndPrice> writes = new ArrayList<>();
+        List<ProductChangedEvent> changes = new ArrayList<>();
+        positions.forEach((productId, position) -> {
+            Product product = products.get(productId);
+            results[position] = product == null
+                    ? new ItemResult(productId, Status.NOT_FOUND, null, null, "Product not found with id: " + productId)
+                    : apply(items.get(position), product, now, writes, changes);
+        });
+
+        productBulkRepository.updateStockAndPrice(writes, now);
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new ProductsUpdatedEvent(List.copyOf(changes)));
+        }
+
+        Map<Status, Long> counts = Arrays.stream(results)
+                .collect(Collectors.groupingBy(ItemResult::status, Collectors.counting()));
+        int updated = counts.getOrDefault(Status.UPDATED, 0L).intValue();
+        int unchanged = counts.getOrDefault(Status.UNCHANGED, 0L).intValue();
+        log.info("Bulk update of {} products: {} updated, {} unchanged", items.size(), updated, unchanged);
+        return new ProductBulkUpdateResponse(updated, unchanged, items.size() - updated - unchanged,
+                List.of(results));
+    }
+
+    private static String check(ProductBulkUpdateRequest.Item item) {
+        if (item.getStock() == null && item.getPrice() == null) {
+            return "Nothing to update, give a stock or a price";
+        }
+        if (item.getMode() != ProductBulkUpdateRequest.Mode.DELTA) {
+            if (item.getStock() != null && item.getStock() < 0) {
+                return "Stock cannot be negative";
+            }
+            if (item.getPrice() != null && item.getPrice().signum() <= 0) {
+                return "Price must be greater than 0";
+            }
+        }
+        return null;
+    }
+
+    private static ItemResult apply(ProductBulkUpdateRequest.Item item, Product product, LocalDateTime now,
+                                    List<ProductBulkRepository.StockAndPrice> writes,
+                                    List<ProductChangedEvent> changes) {
+        boolean delta = item.getMode() == ProductBulkUpdateRequest.Mode.DELTA;
+        long stock = product.getStock();
+        if (item.getStock() != null) {
+            stock = delta ? stock + item.getStock() : item.getStock();
+        }
+        BigDecimal price = product.getPrice();
+        if (item.getPrice() != null) {
+            price = delta ? price.add(item.getPrice()) : item.getPrice();
+        }
+        // Rounded like the column stores it, so events carry the price that was saved
+        price = price.setScale(2, RoundingMode.HALF_UP);
+        if (stock < 0 || stock > Integer.MAX_VALUE) {
+            return new ItemResult(product.getId(), Status.REJECTED, product.getStock(), product.getPrice(),
+                    "Stock would become " + stock);
+        }
+        if (price.signum() <= 0) {
+            return new ItemResult(product.getId(), Status.REJECTED, product.getStock(), product.getPrice(),
+                    "Price would become " + price.toPlainString());
+        }
+
+        boolean stockChanged = stock != product.getStock();
+        boolean priceChanged = price.compareTo(product.getPrice()) != 0;
+        if (!stockChanged && !priceChanged) {
+            return new ItemResult(product.getId(), Status.UNCHANGED, product.getStock(), product.getPrice(), null);
+        }
+        writes.add(new ProductBulkRepository.StockAndPrice(product.getId(), (int) stock, price));
+
+        // The locked entity is left as read, the JDBC batch is the only write
+        ProductResponse before = ProductService.convertToResponse(product);
+        ProductResponse after = ProductService.convertToResponse(product);
+        after.setStock((int) stock);
+        after.setPrice(price);
+        after.setUpdatedAt(now);
+        changes.add(new ProductChangedEvent(priceChanged ? ProductChangedEvent.Type.UPDATED
+                : ProductChangedEvent.Type.STOCK_UPDATED, before, after));
+        return new ItemResult(product.getId(), Status.UPDATED, (int) stock, price, null);
+    }
+}
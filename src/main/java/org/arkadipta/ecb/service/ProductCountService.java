@@ -0,0 +1,49 @@
+package org.arkadipta.ecb.service;
+
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.dto.product.ProductCount;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Total counts for product listings, cached per filter combination apart from the pages
+ * themselves. Cached counts are only refreshed by TTL or an exact count, so they are estimates.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductCountService {
+
+    private static final String SEARCH_KEY = "'search:' + #category + ':' + #name?.toLowerCase() + ':' "
+            + "+ #minPrice + ':' + #maxPrice + ':' + #minRating";
+
+    private final ProductRepository productRepository;
+
+    @Cacheable(value = "productCounts", key = "'all'", sync = true)
+    public ProductCount estimateActive() {
+        return countActive();
+    }
+
+    @CachePut(value = "productCounts", key = "'all'")
+    public ProductCount countActive() {
+        return new ProductCount(productRepository.countByActiveTrue(), Instant.now());
+    }
+
+    @Cacheable(value = "productCounts", key = SEARCH_KEY, sync = true)
+    public ProductCount estimateMatching(String category, String name, BigDecimal minPrice,
+                                         BigDecimal maxPrice, BigDecimal minRating) {
+        return countMatching(category, name, minPrice, maxPrice, minRating);
+    }
+
+    @CachePut(value = "productCounts", key = SEARCH_KEY)
+    public ProductCount countMatching(String category, String name, BigDecimal minPrice,
+                                      BigDecimal maxPrice, BigDecimal minRating) {
+        return new ProductCount(
+                productRepository.countProductsWithFilters(category, name, minPrice, maxPrice, minRating),
+                Instant.now());
+    }
+}
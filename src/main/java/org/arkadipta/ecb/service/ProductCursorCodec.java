@@ -0,0 +1,110 @@
+package org.arkadipta.ecb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.arkadipta.ecb.exception.InvalidCursorException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Encodes keyset positions as opaque URL-safe tokens. A token carries the sort it was issued for
+ * and the sort key values of the last row returned, so the next window is a seek from there.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductCursorCodec {
+
+    // Non-null product columns a cursor can seek on, with how to read their values back
+    private static final Map<String, Function<String, Object>> KEY_TYPES = Map.of(
+            "id", Long::valueOf,
+            "name", value -> value,
+            "category", value -> value,
+            "price", BigDecimal::new,
+            "rating", BigDecimal::new,
+            "stock", Integer::valueOf,
+            "createdAt", LocalDateTime::parse);
+
+    private final ObjectMapper objectMapper;
+
+    public record Cursor(Sort sort, KeysetScrollPosition position) {
+    }
+
+    /**
+     * Appends id as the final tie-breaker so every position is unique.
+     */
+    public Sort normalize(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!KEY_TYPES.containsKey(order.getProperty())) {
+                throw new InvalidCursorException("Cursor pagination is not supported for sort property: "
+                        + order.getProperty());
+            }
+        }
+        return sort.getOrderFor("id") == null ? sort.and(Sort.by("id")) : sort;
+    }
+
+    public Cursor start(Sort sort) {
+        return new Cursor(normalize(sort), ScrollPosition.keyset());
+    }
+
+    public String encode(Sort sort, Map<String, ?> keys) {
+        List<List<String>> orders = new ArrayList<>();
+        sort.forEach(order -> orders.add(List.of(order.getProperty(), order.getDirection().name())));
+        Map<String, String> values = new LinkedHashMap<>();
+        keys.forEach((property, value) -> values.put(property,
+                value instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(value)));
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(new Token(orders, values));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+    }
+
+    public Cursor decode(String cursor) {
+        Token token;
+        try {
+            token = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), Token.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        if (token.s() == null || token.k() == null) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+
+        List<Sort.Order> orders = new ArrayList<>();
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            for (List<String> order : token.s()) {
+                String property = order.get(0);
+                Function<String, Object> type = KEY_TYPES.get(property);
+                String value = token.k().get(property);
+                if (type == null || value == null) {
+                    throw new InvalidCursorException("Malformed cursor");
+                }
+                orders.add(new Sort.Order(Sort.Direction.valueOf(order.get(1)), property));
+                keys.put(property, type.apply(value));
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        return new Cursor(normalize(Sort.by(orders)), ScrollPosition.forward(keys));
+    }
+
+    private record Token(List<List<String>> s, Map<String, String> k) {
+    }
+}
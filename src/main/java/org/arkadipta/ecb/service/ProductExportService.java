@@ -0,0 +1,115 @@
+package org.arkadipta.ecb.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.product.ProductExportFormat;
+import org.arkadipta.ecb.repository.ProductExportRow;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams the catalog straight from a database cursor to an output stream, one row at a time,
+ * so memory use does not depend on the catalog size. Bypasses the product caches entirely.
+ */
+@Service
+@Slf4j
+public class ProductExportService {
+
+    private final ProductRepository productRepository;
+    private final ObjectWriter rowWriter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${export.watermark-overlap-ms:300000}")
+    private long watermarkOverlapMs;
+
+    public ProductExportService(ProductRepository productRepository, ObjectMapper objectMapper) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writerFor(ProductExportRow.class);
+    }
+
+    /**
+     * The updatedSince for the next incremental export, to be taken before this one starts.
+     * updated_at is stamped when a change is flushed, not when it commits, so a transaction
+     * still open now can commit later with an earlier updated_at; stepping back by the
+     * overlap picks it up next time. Rows changed within the overlap are exported twice, so
+     * consumers must dedupe by id, keeping the row with the latest updatedAt.
+     */
+    public LocalDateTime nextUpdatedSince() {
+        return LocalDateTime.now().minus(Duration.ofMillis(watermarkOverlapMs));
+    }
+
+    /**
+     * Writes every active product, or with {@code updatedSince} every product changed after
+     * it including deactivated ones, ordered by id. The caller owns and closes the stream.
+     * Returns the number of rows written.
+     */
+    @Transactional(readOnly = true)
+    public long export(ProductExportFormat format, @Nullable LocalDateTime updatedSince, OutputStream output)
+            throws IOException {
+        try (Stream<ProductExportRow> rows = updatedSince == null
+                ? productRepository.streamActiveForExport()
+                : productRepository.streamUpdatedSinceForExport(updatedSince)) {
+            long written = switch (format) {
+                case NDJSON -> writeNdjson(rows.iterator(), output);
+                case CSV -> writeCsv(rows.iterator(), output);
+            };
+            log.debug("Exported {} products as {}", written, format);
+            return written;
+        }
+    }
+
+    private long writeNdjson(Iterator<ProductExportRow> rows, OutputStream output) throws IOException {
+        long written = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // One object per line, not the default space between root values
+            generator.setRootValueSeparator(null);
+            while (rows.hasNext()) {
+                rowWriter.writeValue(generator, rows.next());
+                generator.writeRaw('\n');
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private long writeCsv(Iterator<ProductExportRow> rows, OutputStream output) throws IOException {
+        long written = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 16384);
+        CsvRecordWriter csv = new CsvRecordWriter(writer);
+        csv.write("id", "name", "description", "price", "stock", "category", "rating", "imageUrl", "active",
+                "createdAt", "updatedAt");
+        while (rows.hasNext()) {
+            ProductExportRow row = rows.next();
+            csv.write(row.id(), row.name(), row.description(), toPlainString(row.price()), row.stock(),
+                    row.category(), toPlainString(row.rating()), row.imageUrl(), row.active(), row.createdAt(),
+                    row.updatedAt());
+            written++;
+        }
+        writer.flush();
+        return written;
+    }
+
+    @Nullable
+    private static String toPlainString(@Nullable BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+}
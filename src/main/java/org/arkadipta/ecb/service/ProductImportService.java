@@ -0,0 +1,306 @@
+package org.arkadipta.ecb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.product.ProductImportResponse;
+import org.arkadipta.ecb.dto.product.ProductRequest;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsImportedEvent;
+import org.arkadipta.ecb.exception.InvalidImportException;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductBulkRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates products from a CSV or NDJSON stream without holding more than one batch in memory.
+ * Rows are validated like {@code POST /products}, invalid rows are reported and skipped, and
+ * valid ones are inserted with one JDBC batch and one transaction per batch. Product caches are
+ * invalidated once when the import ends instead of once per product.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    // CSV header names, case insensitive, mapped to ProductRequest properties
+    private static final Map<String, String> CSV_COLUMNS = Map.of(
+            "name", "name",
+            "description", "description",
+            "price", "price",
+            "stock", "stock",
+            "category", "category",
+            "imageurl", "imageUrl",
+            "image_url", "imageUrl");
+    private static final Set<String> REQUIRED_CSV_COLUMNS = Set.of("name", "price", "stock", "category");
+
+    private final ProductBulkRepository productBulkRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public ProductImportService(ProductBulkRepository productBulkRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${products.import.batch-size:1000}") int batchSize,
+                                @Value("${products.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.productBulkRepository = productBulkRepository;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Imports a CSV stream whose first record is a header naming the columns: name, price,
+     * stock and category are required, description and imageUrl optional, in any order.
+     */
+    public ProductImportResponse importCsv(InputStream input) {
+        CsvRecordReader reader = new CsvRecordReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> columns;
+        try {
+            columns = csvColumns(reader.next());
+        } catch (CsvRecordReader.MalformedRecordException e) {
+            throw new InvalidImportException("Malformed CSV header: " + e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Import run = new Import();
+        try {
+            while (true) {
+                List<String> record;
+                try {
+                    record = reader.next();
+                } catch (CsvRecordReader.MalformedRecordException e) {
+                    run.reject(e.line(), e.getMessage());
+                    continue;
+                }
+                if (record == null) {
+                    break;
+                }
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                long line = reader.recordLine();
+                if (record.size() != columns.size()) {
+                    run.reject(line, "Expected " + columns.size() + " fields but found " + record.size());
+                    continue;
+                }
+                try {
+                    run.accept(line, csvRow(columns, record));
+                } catch (NumberFormatException e) {
+                    run.reject(line, e.getMessage());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            run.stop("Reading the CSV failed after line " + reader.recordLine() + ": " + e.getMessage());
+        } finally {
+            run.finish();
+        }
+        return run.response();
+    }
+
+    /**
+     * Imports newline-delimited JSON, one product object per line in the {@code POST /products}
+     * request format.
+     */
+    public ProductImportResponse importNdjson(InputStream input) {
+        Import run = new Import();
+        long line = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String json;
+            while ((json = reader.readLine()) != null) {
+                line++;
+                if (json.isBlank()) {
+                    continue;
+                }
+                try {
+                    run.accept(line, objectMapper.readValue(json, ProductRequest.class));
+                } catch (JsonProcessingException e) {
+                    run.reject(line, "Malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            run.stop("Reading the NDJSON failed after line " + line + ": " + e.getMessage());
+        } finally {
+            run.finish();
+        }
+        return run.response();
+    }
+
+    private List<String> csvColumns(List<String> header) {
+        if (header == null) {
+            throw new InvalidImportException("CSV import is empty, expected a header record");
+        }
+        List<String> columns = new ArrayList<>(header.size());
+        for (String name : header) {
+            // Spreadsheet exports often start with a byte order mark
+            String property = CSV_COLUMNS.get(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+            if (property == null) {
+                throw new InvalidImportException("Unknown CSV column '" + name + "', expected some of "
+                        + "name, description, price, stock, category, imageUrl");
+            }
+            if (columns.contains(property)) {
+                throw new InvalidImportException("CSV column '" + name + "' appears more than once");
+            }
+            columns.add(property);
+        }
+        for (String required : REQUIRED_CSV_COLUMNS) {
+            if (!columns.contains(required)) {
+                throw new InvalidImportException("CSV header is missing the required column '" + required + "'");
+            }
+        }
+        return columns;
+    }
+
+    private static ProductRequest csvRow(List<String> columns, List<String> values) {
+        ProductRequest request = new ProductRequest();
+        for (int i = 0; i < columns.size(); i++) {
+            String value = values.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (columns.get(i)) {
+                case "name" -> request.setName(value);
+                case "description" -> request.setDescription(value);
+                case "price" -> request.setPrice(number("price", value, BigDecimal::new));
+                case "stock" -> request.setStock(number("stock", value, Integer::valueOf));
+                case "category" -> request.setCategory(value);
+                case "imageUrl" -> request.setImageUrl(value);
+                default -> throw new IllegalStateException("Unmapped column " + columns.get(i));
+            }
+        }
+        return request;
+    }
+
+    private static <T> T number(String column, String value, Function<String, T> parser) {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException(column + ": '" + value + "' is not a valid number");
+        }
+    }
+
+    /**
+     * State of one import: the batch being filled, counters and the errors reported so far.
+     */
+    private class Import {
+
+        private final List<Product> batch = new ArrayList<>(batchSize);
+        private final Set<String> categories = new HashSet<>();
+        private final List<ProductImportResponse.RowError> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+        @Nullable
+        private String stopped;
+
+        void accept(long line, ProductRequest request) {
+            Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(line, violations.stream()
+                        .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            batch.add(toProduct(request));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportResponse.RowError(line, message));
+            }
+        }
+
+        // The rows read before the input broke off are still imported, the response tells the
+        // client how far the import got
+        void stop(String reason) {
+            log.warn("Product import stopped after {} imported rows: {}", imported + batch.size(), reason);
+            stopped = reason;
+        }
+
+        // Batches that committed before a failure stay imported, so caches are invalidated regardless
+        void finish() {
+            try {
+                flush();
+            } finally {
+                if (imported > 0) {
+                    log.info("Imported {} products, rejected {} rows", imported, failed);
+                }
+                eventPublisher.publishEvent(new ProductsImportedEvent(imported, Set.copyOf(categories)));
+            }
+        }
+
+        ProductImportResponse response() {
+            return new ProductImportResponse(imported, failed, List.copyOf(errors), stopped);
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<Product> products = List.copyOf(batch);
+            batch.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                productBulkRepository.insertAll(products);
+                // Outbox rows, search index and inventory counters follow each product as usual
+                for (Product product : products) {
+                    eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.IMPORTED, null,
+                            ProductService.convertToResponse(product)));
+                }
+            });
+            imported += products.size();
+            products.forEach(product -> categories.add(product.getCategory()));
+        }
+
+        private Product toProduct(ProductRequest request) {
+            LocalDateTime now = LocalDateTime.now();
+            Product product = new Product();
+            product.setName(request.getName());
+            product.setDescription(request.getDescription());
+            product.setPrice(request.getPrice());
+            product.setStock(request.getStock());
+            product.setCategory(request.getCategory());
+            product.setImageUrl(request.getImageUrl());
+            product.setRating(BigDecimal.ZERO);
+            product.setActive(true);
+            product.setCreatedAt(now);
+            product.setUpdatedAt(now);
+            return product;
+        }
+    }
+}
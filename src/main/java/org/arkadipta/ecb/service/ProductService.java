@@ -2,20 +2,41 @@ package org.arkadipta.ecb.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.product.FacetedSearchResponse;
 import org.arkadipta.ecb.dto.product.ProductRequest;
 import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductScrollResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
 import org.arkadipta.ecb.exception.ResourceNotFoundException;
 import org.arkadipta.ecb.model.Product;
 import org.arkadipta.ecb.repository.ProductRepository;
-import org.springframework.cache.annotation.CacheEvict;
+import org.arkadipta.ecb.repository.ProductSpecifications;
+import org.arkadipta.ecb.search.ProductSearchService;
+import org.arkadipta.ecb.search.ProductSearchResult;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,14 +44,46 @@ import java.util.List;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<ProductSearchService> productSearchService;
+    private final ProductCursorCodec cursorCodec;
 
-    @Cacheable(value = "products", key = "#pageable.pageNumber + '_' + #pageable.pageSize")
+    @Cacheable(value = "products", key = "#pageable.pageNumber + '_' + #pageable.pageSize + '_' + #pageable.sort",
+            sync = true)
     public Page<ProductResponse> getAllProducts(Pageable pageable) {
         return productRepository.findByActiveTrue(pageable)
-                .map(this::convertToResponse);
+                .map(ProductService::convertToResponse);
     }
 
-    @Cacheable(value = "product", key = "#id")
+    // Keyset pagination: a seek from the cursor position, no OFFSET scan and no COUNT query
+    public ProductScrollResponse scrollProducts(Sort sort, int size, String cursor) {
+        return scroll(ProductSpecifications.active(), sort, size, cursor);
+    }
+
+    public ProductScrollResponse scrollSearchProducts(
+            String category, String name, BigDecimal minPrice,
+            BigDecimal maxPrice, BigDecimal minRating, Sort sort, int size, String cursor) {
+        return scroll(ProductSpecifications.withFilters(category, name, minPrice, maxPrice, minRating),
+                sort, size, cursor);
+    }
+
+    // Count-free listing, the total comes from ProductCountService only when asked for
+    @Cacheable(value = "products", key = "'slice_' + #pageable.pageNumber + '_' + #pageable.pageSize + '_' + #pageable.sort",
+            sync = true)
+    public ProductSliceResponse getProductSlice(Pageable pageable) {
+        return toSliceResponse(productRepository.findSliceByActiveTrue(pageable));
+    }
+
+    @Cacheable(value = "productSearch", keyGenerator = "productSearchKeyGenerator", sync = true)
+    public ProductSliceResponse searchProductSlice(
+            String category, String name, BigDecimal minPrice,
+            BigDecimal maxPrice, BigDecimal minRating, Pageable pageable) {
+
+        return toSliceResponse(productRepository.findSliceWithFilters(
+                category, name, minPrice, maxPrice, minRating, withoutRelevance(pageable)));
+    }
+
+    @Cacheable(value = "product", key = "#id", sync = true)
     public ProductResponse getProductById(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
@@ -42,23 +95,57 @@ public class ProductService {
         return convertToResponse(product);
     }
 
-    @Cacheable(value = "productSearch")
+    @Cacheable(value = "productSearch", keyGenerator = "productSearchKeyGenerator", sync = true)
     public Page<ProductResponse> searchProducts(
             String category, String name, BigDecimal minPrice,
             BigDecimal maxPrice, BigDecimal minRating, Pageable pageable) {
 
+        ProductSearchService searchIndex = productSearchService.getIfAvailable();
+        if (searchIndex != null) {
+            Page<Long> ids = searchIndex.search(category, name, minPrice, maxPrice, minRating, pageable);
+            if (ids != null) {
+                return loadInOrder(ids);
+            }
+        }
+
         return productRepository.findProductsWithFilters(
-                category, name, minPrice, maxPrice, minRating, pageable)
-                .map(this::convertToResponse);
+                category, name, minPrice, maxPrice, minRating, withoutRelevance(pageable))
+                .map(ProductService::convertToResponse);
+    }
+
+    // Facets are counted in memory over the whole match set, no GROUP BY queries
+    public FacetedSearchResponse searchProductsWithFacets(
+            String category, String name, BigDecimal minPrice,
+            BigDecimal maxPrice, BigDecimal minRating, Pageable pageable) {
+
+        ProductSearchService searchIndex = productSearchService.getIfAvailable();
+        if (searchIndex != null) {
+            ProductSearchResult result = searchIndex.search(
+                    category, name, minPrice, maxPrice, minRating, pageable, true);
+            if (result != null) {
+                return new FacetedSearchResponse(loadInOrder(result.ids()), result.facets());
+            }
+        }
+
+        return new FacetedSearchResponse(
+                searchProducts(category, name, minPrice, maxPrice, minRating, pageable), null);
     }
 
-    @Cacheable(value = "categories")
+    // Reads the products a normalized listing cache is missing, see NormalizedProductListCache
+    public List<ProductResponse> findActiveByIds(Collection<Long> ids) {
+        return productRepository.findAllById(ids).stream()
+                .filter(Product::isActive)
+                .map(ProductService::convertToResponse)
+                .toList();
+    }
+
+    @Cacheable(value = "categories", sync = true)
     public List<String> getAllCategories() {
         return productRepository.findDistinctCategories();
     }
 
+    // Cache invalidation for writes is driven by ProductChangedEvent, see ProductCacheInvalidator
     @Transactional
-    @CacheEvict(value = { "products", "productSearch", "categories" }, allEntries = true)
     public ProductResponse createProduct(ProductRequest request) {
         Product product = new Product();
         product.setName(request.getName());
@@ -73,14 +160,16 @@ public class ProductService {
         Product savedProduct = productRepository.save(product);
         log.info("Created new product with id: {}", savedProduct.getId());
 
-        return convertToResponse(savedProduct);
+        ProductResponse response = convertToResponse(savedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.CREATED, null, response));
+        return response;
     }
 
     @Transactional
-    @CacheEvict(value = { "products", "productSearch", "categories", "product" }, allEntries = true)
     public ProductResponse updateProduct(Long id, ProductRequest request) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        ProductResponse before = convertToResponse(product);
 
         product.setName(request.getName());
         product.setDescription(request.getDescription());
@@ -89,37 +178,109 @@ public class ProductService {
         product.setCategory(request.getCategory());
         product.setImageUrl(request.getImageUrl());
 
-        Product updatedProduct = productRepository.save(product);
+        Product updatedProduct = productRepository.saveAndFlush(product);
         log.info("Updated product with id: {}", updatedProduct.getId());
 
-        return convertToResponse(updatedProduct);
+        ProductResponse response = convertToResponse(updatedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, before, response));
+        return response;
     }
 
     @Transactional
-    @CacheEvict(value = { "products", "productSearch", "categories", "product" }, allEntries = true)
     public void deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        ProductResponse before = convertToResponse(product);
 
         product.setActive(false);
-        productRepository.save(product);
+        Product deletedProduct = productRepository.save(product);
         log.info("Soft deleted product with id: {}", id);
+
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.DELETED, before,
+                convertToResponse(deletedProduct)));
     }
 
     @Transactional
-    @CacheEvict(value = { "products", "productSearch", "product" }, allEntries = true)
     public ProductResponse updateStock(Long id, Integer stock) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        ProductResponse before = convertToResponse(product);
 
         product.setStock(stock);
-        Product updatedProduct = productRepository.save(product);
+        Product updatedProduct = productRepository.saveAndFlush(product);
         log.info("Updated stock for product id: {} to {}", id, stock);
 
-        return convertToResponse(updatedProduct);
+        ProductResponse response = convertToResponse(updatedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.STOCK_UPDATED, before, response));
+        return response;
+    }
+
+    private ProductSliceResponse toSliceResponse(Slice<Product> slice) {
+        List<String> sortedBy = slice.getSort().stream().map(Sort.Order::getProperty).toList();
+        return new ProductSliceResponse(slice.map(ProductService::convertToResponse).getContent(),
+                slice.getNumber(), slice.getSize(), slice.hasNext(), sortedBy, null, null);
+    }
+
+    /**
+     * Publishes STOCK_UPDATED events for decrements written with set-based updates, which the
+     * given entities do not reflect. Must run in the transaction holding the updated rows, so the
+     * stock read back is exact and the stock before is that plus the decrement.
+     */
+    public void publishStockDecrements(Collection<Product> products, Map<Long, Integer> decrements,
+                                       Map<Long, Integer> stockAfter, LocalDateTime updatedAt) {
+        for (Product product : products) {
+            Integer stock = stockAfter.get(product.getId());
+            if (stock == null) {
+                continue;
+            }
+            ProductResponse before = convertToResponse(product);
+            before.setStock(stock + decrements.getOrDefault(product.getId(), 0));
+            ProductResponse after = convertToResponse(product);
+            after.setStock(stock);
+            after.setUpdatedAt(updatedAt);
+            eventPublisher.publishEvent(new ProductChangedEvent(ProductChangedEvent.Type.STOCK_UPDATED, before, after));
+        }
+    }
+
+    // A cursor carries its own sort, the requested one only applies to the first window
+    private ProductScrollResponse scroll(Specification<Product> spec, Sort sort, int size, String cursor) {
+        ProductCursorCodec.Cursor position = cursor == null || cursor.isBlank()
+                ? cursorCodec.start(sort)
+                : cursorCodec.decode(cursor);
+
+        Window<Product> window = productRepository.findBy(spec, query -> query
+                .sortBy(position.sort())
+                .limit(size)
+                .scroll(position.position()));
+
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            nextCursor = cursorCodec.encode(position.sort(), last.getKeys());
+        }
+        List<ProductResponse> content = window.stream().map(ProductService::convertToResponse).toList();
+        return new ProductScrollResponse(content, nextCursor, nextCursor != null, content.size());
+    }
+
+    private Page<ProductResponse> loadInOrder(Page<Long> ids) {
+        Map<Long, ProductResponse> products = findActiveByIds(ids.getContent()).stream()
+                .collect(Collectors.toMap(ProductResponse::getId, Function.identity()));
+        List<ProductResponse> content = ids.getContent().stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+    }
+
+    // Relevance ordering only exists in the search index
+    private Pageable withoutRelevance(Pageable pageable) {
+        Sort sort = Sort.by(pageable.getSort().stream()
+                .filter(order -> !ProductSearchService.RELEVANCE.equals(order.getProperty()))
+                .toList());
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
     }
 
-    private ProductResponse convertToResponse(Product product) {
+    static ProductResponse convertToResponse(Product product) {
         ProductResponse response = new ProductResponse();
         response.setId(product.getId());
         response.setName(product.getName());
@@ -0,0 +1,176 @@
+package org.arkadipta.ecb.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.dto.cart.AddToCartRequest;
+import org.arkadipta.ecb.exception.ResourceNotFoundException;
+import org.arkadipta.ecb.inventory.InventoryReservationService;
+import org.arkadipta.ecb.model.Cart;
+import org.arkadipta.ecb.model.CartItem;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.CartRepository;
+import org.arkadipta.ecb.repository.CartSnapshot;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.arkadipta.ecb.repository.RedisCartStore;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cart storage mode where the live cart is served from Redis and persisted to the carts and
+ * cart_items tables by {@link CartWriteBehindFlusher}. Cart item ids are product ids here.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.storage", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisCartService {
+
+    private final RedisCartStore cartStore;
+    private final CartRepository cartRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    // Present when inventory.reservations.enabled=true
+    private final ObjectProvider<InventoryReservationService> inventoryReservations;
+
+    @Transactional
+    public Cart getCart(Long userId) {
+        return toCart(snapshot(userId));
+    }
+
+    @Transactional
+    public Cart addToCart(Long userId, AddToCartRequest request) {
+        Long productId = request.getProductId();
+        CartSnapshot current = snapshot(userId);
+        int newQuantity = current.quantities().getOrDefault(productId, 0) + request.getQuantity();
+        checkStock(userId, productId, newQuantity);
+
+        write(userId, () -> cartStore.increment(userId, productId, request.getQuantity()));
+        log.info("Added product {} to cart for user {}", productId, userId);
+        return getCart(userId);
+    }
+
+    @Transactional
+    public Cart updateCartItem(Long userId, Long productId, Integer quantity) {
+        CartSnapshot current = snapshot(userId);
+        if (!current.quantities().containsKey(productId)) {
+            throw new ResourceNotFoundException("Cart item not found");
+        }
+
+        if (quantity <= 0) {
+            write(userId, () -> cartStore.remove(userId, productId));
+            releaseStock(userId, productId);
+            log.info("Removed product {} from cart for user {}", productId, userId);
+        } else {
+            checkStock(userId, productId, quantity);
+            write(userId, () -> cartStore.set(userId, productId, quantity));
+            log.info("Updated product {} quantity to {} for user {}", productId, quantity, userId);
+        }
+        return getCart(userId);
+    }
+
+    @Transactional
+    public Cart removeFromCart(Long userId, Long productId) {
+        CartSnapshot current = snapshot(userId);
+        if (!current.quantities().containsKey(productId)) {
+            throw new ResourceNotFoundException("Cart item not found");
+        }
+        write(userId, () -> cartStore.remove(userId, productId));
+        releaseStock(userId, productId);
+        log.info("Removed product {} from cart for user {}", productId, userId);
+        return getCart(userId);
+    }
+
+    @Transactional
+    public void clearCart(Long userId) {
+        write(userId, () -> cartStore.clear(userId));
+        InventoryReservationService reservations = inventoryReservations.getIfAvailable();
+        if (reservations != null) {
+            reservations.releaseAll(userId);
+        }
+        log.info("Cleared cart for user {}", userId);
+    }
+
+    // With reservations enabled the counters answer, the product is only read when it has none yet
+    private void checkStock(Long userId, Long productId, int quantity) {
+        InventoryReservationService reservations = inventoryReservations.getIfAvailable();
+        if (reservations != null) {
+            reservations.reserve(userId, productId, quantity);
+            return;
+        }
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        if (!product.isActive()) {
+            throw new RuntimeException("Product is not available");
+        }
+        if (product.getStock() < quantity) {
+            throw new RuntimeException("Insufficient stock available");
+        }
+    }
+
+    private void releaseStock(Long userId, Long productId) {
+        InventoryReservationService reservations = inventoryReservations.getIfAvailable();
+        if (reservations != null) {
+            reservations.release(userId, productId);
+        }
+    }
+
+    private CartSnapshot snapshot(Long userId) {
+        return cartStore.find(userId).orElseGet(() -> hydrateFromDatabase(userId));
+    }
+
+    private void write(Long userId, Supplier<Long> operation) {
+        if (operation.get() == null) {
+            hydrateFromDatabase(userId);
+            operation.get();
+        }
+    }
+
+    private CartSnapshot hydrateFromDatabase(Long userId) {
+        Cart cart = cartRepository.findWithItemsByUserId(userId)
+                .orElseGet(() -> {
+                    Cart newCart = new Cart();
+                    newCart.setUser(userRepository.getReferenceById(userId));
+                    newCart.setItems(new ArrayList<>());
+                    return cartRepository.save(newCart);
+                });
+        Map<Long, Integer> quantities = cart.getItems().stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getId(), CartItem::getQuantity, Integer::sum));
+        return cartStore.hydrate(userId, cart.getId(), quantities);
+    }
+
+    // Builds a detached cart for the response, products are read in a single query
+    private Cart toCart(CartSnapshot snapshot) {
+        Map<Long, Product> products = productRepository.findAllById(snapshot.quantities().keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return toCart(snapshot, products);
+    }
+
+    static Cart toCart(CartSnapshot snapshot, Map<Long, Product> products) {
+        List<CartItem> items = new ArrayList<>();
+        snapshot.quantities().forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            if (product != null) {
+                CartItem item = new CartItem();
+                item.setId(productId);
+                item.setProduct(product);
+                item.setQuantity(quantity);
+                items.add(item);
+            }
+        });
+
+        Cart cart = new Cart();
+        cart.setId(snapshot.cartId());
+        cart.setItems(items);
+        return cart;
+    }
+}
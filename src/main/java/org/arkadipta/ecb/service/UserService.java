@@ -0,0 +1,57 @@
+package org.arkadipta.ecb.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.arkadipta.ecb.exception.ResourceNotFoundException;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.model.enums.Role;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.arkadipta.ecb.security.TokenRevocationStore;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserService {
+
+    private final UserRepository userRepository;
+    private final TokenRevocationStore tokenRevocationStore;
+
+    // Tokens carry the role and are trusted without a lookup, so both changes revoke them
+    @Transactional
+    public void setEnabled(Long userId, boolean enabled) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        user.setEnabled(enabled);
+        userRepository.save(user);
+        revokeTokensAfterCommit(userId);
+        log.info("Set enabled={} for user {}", enabled, userId);
+    }
+
+    @Transactional
+    public void updateRole(Long userId, Role role) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        user.setRole(role);
+        userRepository.save(user);
+        revokeTokensAfterCommit(userId);
+        log.info("Changed role of user {} to {}", userId, role);
+    }
+
+    // A token issued before the commit still carries the old role, so the cut-off is taken after it
+    private void revokeTokensAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tokenRevocationStore.revokeAllTokens(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tokenRevocationStore.revokeAllTokens(userId);
+            }
+        });
+    }
+}
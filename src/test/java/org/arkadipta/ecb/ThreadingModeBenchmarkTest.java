@@ -0,0 +1,211 @@
+package org.arkadipta.ecb;
+
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.arkadipta.ecb.dto.product.ProductRequest;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.load.InMemoryStack;
+import org.arkadipta.ecb.load.LoadDriver;
+import org.arkadipta.ecb.load.LoadReport;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.arkadipta.ecb.security.JwtUtils;
+import org.arkadipta.ecb.service.ProductService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and p99 of {@code GET /products}, {@code GET /cart} and {@code POST /cart/add} with
+ * request handling on platform threads versus virtual threads. The application runs against H2
+ * and an in-process Redis, and every JDBC connection checkout waits an extra 100 ms to stand in
+ * for a slow database, so a request spends most of its time blocked rather than on CPU. Tomcat is
+ * capped at {@value #TOMCAT_THREADS} threads while the connection pool allows {@value #DB_POOL_SIZE}. In virtual thread mode, pinned virtual threads are reported through JFR.
+ * Run with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class ThreadingModeBenchmarkTest {
+
+    private static final int TOMCAT_THREADS = 50;
+    private static final int DB_POOL_SIZE = 200;
+    private static final Duration DB_LATENCY = Duration.ofMillis(100);
+    private static final int CLIENTS = 400;
+    private static final int PRODUCTS = 100;
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    @Test
+    void compareThreadingModes() throws Exception {
+        Map<String, LoadReport.EndpointStats> platform = run(false);
+        Map<String, LoadReport.EndpointStats> virtual = run(true);
+
+        System.out.printf("%-16s %-9s %10s %9s %9s %7s%n", "endpoint", "mode", "req/s", "p50 ms", "p99 ms", "errors");
+        platform.forEach((endpoint, stats) -> {
+            print(endpoint, "platform", stats);
+            print(endpoint, "virtual", virtual.get(endpoint));
+        });
+
+        for (Map<String, LoadReport.EndpointStats> results : List.of(platform, virtual)) {
+            assertThat(results.values()).allSatisfy(stats -> {
+                assertThat(stats.requests()).isPositive();
+                assertThat(stats.errors()).isZero();
+            });
+        }
+    }
+
+    private Map<String, LoadReport.EndpointStats> run(boolean virtualThreads) throws Exception {
+        try (InMemoryStack stack = InMemoryStack.start(List.of(
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "spring.datasource.hikari.maximum-pool-size=" + DB_POOL_SIZE,
+                        "jwt.stateless-principal=true"),
+                List.of(context -> context.getBeanFactory().addBeanPostProcessor(new SlowDatabase())))) {
+            String baseUrl = stack.baseUrl();
+            List<Long> productIds = seedProducts(stack.getBean(ProductService.class));
+            List<String> tokens = seedUsers(stack.getBean(UserRepository.class), stack.getBean(JwtUtils.class));
+
+            Map<String, IntFunction<HttpRequest>> endpoints = new LinkedHashMap<>();
+            endpoints.put("GET /products", client -> HttpRequest.newBuilder(
+                    URI.create(baseUrl + "/products?page=" + client % 5 + "&size=20")).GET().build());
+            endpoints.put("GET /cart", client -> HttpRequest.newBuilder(URI.create(baseUrl + "/cart"))
+                    .header("Authorization", "Bearer " + tokens.get(client)).GET().build());
+            endpoints.put("POST /cart/add", client -> HttpRequest.newBuilder(URI.create(baseUrl + "/cart/add"))
+                    .header("Authorization", "Bearer " + tokens.get(client))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"productId\":"
+                            + productIds.get(client % productIds.size()) + ",\"quantity\":1}"))
+                    .build());
+
+            LoadDriver driver = new LoadDriver();
+            try (PinnedThreadMonitor pinned = virtualThreads ? new PinnedThreadMonitor() : null) {
+                Map<String, LoadReport.EndpointStats> results = new LinkedHashMap<>();
+                for (Map.Entry<String, IntFunction<HttpRequest>> endpoint : endpoints.entrySet()) {
+                    List<LoadDriver.Scenario> clients = IntStream.range(0, CLIENTS)
+                            .mapToObj(client -> (LoadDriver.Scenario) session ->
+                                    session.send(endpoint.getKey(), endpoint.getValue().apply(client)))
+                            .toList();
+                    driver.run(clients, WARMUP);
+                    results.put(endpoint.getKey(), driver.run(clients, MEASUREMENT).get(endpoint.getKey()));
+                }
+                if (pinned != null) {
+                    pinned.report();
+                }
+                return results;
+            }
+        }
+    }
+
+    private List<Long> seedProducts(ProductService productService) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            ProductRequest request = new ProductRequest();
+            request.setName("Benchmark product " + i);
+            request.setDescription("Benchmark product " + i + " description");
+            request.setCategory("Category " + i % 10);
+            request.setPrice(new BigDecimal("19.99"));
+            request.setStock(1_000_000);
+            ProductResponse created = productService.createProduct(request);
+            ids.add(created.getId());
+        }
+        return ids;
+    }
+
+    private List<String> seedUsers(UserRepository userRepository, JwtUtils jwtUtils) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            User user = new User();
+            user.setName("Benchmark user " + i);
+            user.setEmail("bench" + i + "@example.com");
+            user.setPassword("benchmark");
+            users.add(user);
+        }
+        return userRepository.saveAll(users).stream().map(jwtUtils::generateToken).toList();
+    }
+
+    private static void print(String endpoint, String mode, LoadReport.EndpointStats stats) {
+        System.out.printf("%-16s %-9s %10.0f %9.1f %9.1f %7d%n", endpoint, mode, stats.throughput(),
+                stats.p50Millis(), stats.p99Millis(), stats.errors());
+    }
+
+    // Holds every connection for a database round trip before handing it out
+    private static class SlowDatabase implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        Connection connection = super.getConnection();
+                        try {
+                            Thread.sleep(DB_LATENCY);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return connection;
+                    }
+                };
+            }
+            return bean;
+        }
+    }
+
+    // Virtual threads that block while pinned to their carrier, grouped by the first application or library frame
+    private static class PinnedThreadMonitor implements AutoCloseable {
+
+        private final RecordingStream stream = new RecordingStream();
+        private final Map<String, LongAdder> pinnedAt = new ConcurrentHashMap<>();
+
+        PinnedThreadMonitor() {
+            stream.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1)).withStackTrace();
+            stream.onEvent("jdk.VirtualThreadPinned", event -> pinnedAt
+                    .computeIfAbsent(firstNonJdkFrame(event.getStackTrace() != null
+                            ? event.getStackTrace().getFrames() : List.of()), frame -> new LongAdder())
+                    .increment());
+            stream.startAsync();
+        }
+
+        void report() {
+            long total = pinnedAt.values().stream().mapToLong(LongAdder::sum).sum();
+            System.out.printf("Virtual threads pinned for over 1 ms: %d%n", total);
+            pinnedAt.entrySet().stream()
+                    .sorted(Map.Entry.<String, LongAdder>comparingByValue(
+                            (a, b) -> Long.compare(b.sum(), a.sum())))
+                    .limit(10)
+                    .forEach(entry -> System.out.printf("  %6d  %s%n", entry.getValue().sum(), entry.getKey()));
+        }
+
+        @Override
+        public void close() {
+            stream.close();
+        }
+
+        private static String firstNonJdkFrame(List<RecordedFrame> frames) {
+            return frames.stream()
+                    .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                    .filter(method -> !method.startsWith("java.") && !method.startsWith("jdk.")
+                            && !method.startsWith("sun."))
+                    .findFirst()
+                    .orElse("JDK internal");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.arkadipta.ecb.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CacheCircuitBreaker breaker = new CacheCircuitBreaker(3, Duration.ofSeconds(5), now::get);
+
+    @Test
+    void opensAfterConsecutiveFailuresOnly() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertThat(breaker.isClosed()).isTrue();
+
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.OPEN);
+        assertThat(breaker.allowsCall()).isFalse();
+    }
+
+    @Test
+    void letsOneProbeThroughOnceTheOpenPeriodIsOver() {
+        AtomicInteger recoveries = new AtomicInteger();
+        breaker.onRecovery(recoveries::incrementAndGet);
+        open();
+
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        assertThat(breaker.allowsCall()).isTrue();
+        assertThat(breaker.allowsCall()).isFalse();
+
+        breaker.recordFailure();
+
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.OPEN);
+        assertThat(breaker.allowsCall()).isFalse();
+
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertThat(breaker.allowsCall()).isTrue();
+        breaker.recordSuccess();
+
+        assertThat(breaker.isClosed()).isTrue();
+        assertThat(breaker.allowsCall()).isTrue();
+        assertThat(recoveries.get()).isEqualTo(1);
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+    }
+}
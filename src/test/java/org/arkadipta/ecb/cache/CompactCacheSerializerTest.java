@@ -0,0 +1,167 @@
+package org.arkadipta.ecb.cache;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.arkadipta.ecb.dto.product.ProductCount;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactCacheSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = jsonSerializer();
+    private final CompactCacheSerializer compact = new CompactCacheSerializer(json, CacheValueFormat.COMPACT, 1024);
+
+    @Test
+    void roundTripsEveryCachedValueType() {
+        Sort sort = Sort.by(Sort.Order.desc("price").ignoreCase(), Sort.Order.asc("id").nullsLast());
+        List<Object> values = List.of(
+                product(1L),
+                new PageImpl<>(new ArrayList<>(List.of(product(1L), product(2L))), PageRequest.of(3, 2, sort), 120),
+                new ProductSliceResponse(List.of(product(3L)), 0, 20, true, List.of("name"), 41L, false),
+                new ProductSliceResponse(List.of(), 5, 20, false, List.of(), null, null),
+                new ProductCount(1234, Instant.parse("2025-06-01T12:00:00.123456Z")),
+                List.of("Books", "Électronique"),
+                new ProductIdPage(List.of(5L, 3L, 900_000L), PageRequest.of(1, 3, sort), 40),
+                new ProductIdSlice(List.of(1L, 2L), 0, 2, true, List.of("id")));
+
+        for (Object value : values) {
+            byte[] bytes = compact.serialize(value);
+
+            assertThat(bytes[0]).isEqualTo(CompactCacheSerializer.MAGIC);
+            assertThat(compact.deserialize(bytes)).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void keepsNullsAndUnusualNumbers() {
+        ProductResponse sparse = new ProductResponse();
+        sparse.setStock(-3);
+        sparse.setPrice(new BigDecimal("123456789012345678901234567890.125"));
+        sparse.setRating(new BigDecimal("1E+3"));
+
+        assertThat(compact.deserialize(compact.serialize(sparse))).isEqualTo(sparse);
+    }
+
+    @Test
+    void deflatesValuesAboveTheThreshold() {
+        List<ProductResponse> products = new ArrayList<>();
+        for (long id = 0; id < 100; id++) {
+            products.add(product(id));
+        }
+        PageImpl<ProductResponse> page = new PageImpl<>(products, PageRequest.of(0, 100), 10_000);
+        CompactCacheSerializer uncompressed = new CompactCacheSerializer(json, CacheValueFormat.COMPACT, Integer.MAX_VALUE);
+
+        byte[] deflated = compact.serialize(page);
+
+        assertThat(deflated[2]).isEqualTo((byte) 1);
+        assertThat(deflated.length).isLessThan(uncompressed.serialize(page).length / 2);
+        assertThat(compact.deserialize(deflated)).isEqualTo(page);
+    }
+
+    @Test
+    void readsValuesWrittenInEitherFormat() {
+        ProductSliceResponse slice = new ProductSliceResponse(List.of(product(1L)), 0, 10, false, List.of(), null, null);
+        CompactCacheSerializer writesJson = new CompactCacheSerializer(json, CacheValueFormat.JSON, 1024);
+
+        byte[] legacy = writesJson.serialize(slice);
+
+        assertThat(legacy[0]).isEqualTo((byte) '{');
+        assertThat(compact.deserialize(legacy)).isEqualTo(slice);
+        assertThat(writesJson.deserialize(compact.serialize(slice))).isEqualTo(slice);
+    }
+
+    @Test
+    void treatsANewerFormatVersionAsAMiss() {
+        byte[] bytes = compact.serialize(product(1L));
+        bytes[1] = CompactCacheSerializer.VERSION + 1;
+
+        assertThat(compact.deserialize(bytes)).isNull();
+    }
+
+    @Test
+    void treatsUnreadableValuesAsAMiss() {
+        byte[] unknownType = {CompactCacheSerializer.MAGIC, CompactCacheSerializer.VERSION, 0, 99};
+        byte[] jsonPage = json.serialize(new PageImpl<>(new ArrayList<>(List.of(product(1L))), PageRequest.of(0, 10), 1));
+
+        assertThat(compact.deserialize(unknownType)).isNull();
+        assertThat(compact.deserialize(jsonPage)).isNull();
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    void warnsAboutUnreadableJsonOnceAMinuteAtMost(CapturedOutput output) {
+        CompactCacheSerializer writesJson = new CompactCacheSerializer(json, CacheValueFormat.JSON, 1024);
+        byte[] jsonPage = writesJson.serialize(
+                new PageImpl<>(new ArrayList<>(List.of(product(1L))), PageRequest.of(0, 10), 1));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(writesJson.deserialize(jsonPage)).isNull();
+        }
+
+        assertThat(output.getAll().lines().filter(line -> line.contains("WARN")
+                && line.contains("unreadable JSON cache value"))).hasSize(1);
+    }
+
+    @Test
+    void writesUnknownTypesAsJson() {
+        Map<String, Integer> value = new HashMap<>(Map.of("a", 1));
+
+        byte[] bytes = compact.serialize(value);
+
+        assertThat(bytes[0]).isEqualTo((byte) '{');
+        assertThat(compact.deserialize(bytes)).isEqualTo(value);
+    }
+
+    // A field added to ProductResponse is silently dropped by the compact layout until it is
+    // written there, under a new format version
+    @Test
+    void productLayoutCoversEveryResponseField() {
+        assertThat(Arrays.stream(ProductResponse.class.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .map(Field::getName))
+                .containsExactly("id", "name", "description", "price", "stock", "category", "rating", "imageUrl",
+                        "active", "createdAt", "updatedAt");
+    }
+
+    private static GenericJackson2JsonRedisSerializer jsonSerializer() {
+        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+        serializer.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        return serializer;
+    }
+
+    private static ProductResponse product(Long id) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setDescription("Description of product " + id);
+        product.setCategory("Books");
+        product.setPrice(new BigDecimal("19.99"));
+        product.setStock(100);
+        product.setRating(new BigDecimal("4.5"));
+        product.setImageUrl("https://cdn.example.com/products/" + id + ".jpg");
+        product.setActive(true);
+        product.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        product.setUpdatedAt(LocalDateTime.of(2025, 6, 1, 12, 0, 0, 123_456_789));
+        return product;
+    }
+}
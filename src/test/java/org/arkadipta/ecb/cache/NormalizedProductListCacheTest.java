@@ -0,0 +1,159 @@
+package org.arkadipta.ecb.cache;
+
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NormalizedProductListCacheTest {
+
+    private final Map<Long, ProductResponse> database = new ConcurrentHashMap<>();
+    private final List<List<Long>> loads = new ArrayList<>();
+    private TwoTierCacheManager cacheManager;
+    private ProductCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        CacheInvalidationBus noopBus = new CacheInvalidationBus() {
+            @Override
+            public void publish(CacheInvalidation invalidation) {
+            }
+
+            @Override
+            public void subscribe(Consumer<CacheInvalidation> listener) {
+            }
+        };
+        InMemoryTagStore tagStore = new InMemoryTagStore();
+        cacheManager = new TwoTierCacheManager(new ConcurrentMapCacheManager(), new CacheTierProperties(),
+                noopBus, new ProductCacheTags(), tagStore);
+        ProductResponseLoader loader = this::loadActive;
+        cacheManager.decorate(ProductCacheTags.PRODUCTS, cache -> new NormalizedProductListCache(cache,
+                () -> cacheManager.getTierCache(ProductCacheTags.PRODUCT), loader));
+        invalidator = new ProductCacheInvalidator(cacheManager, tagStore);
+        for (long id = 1; id <= 3; id++) {
+            database.put(id, product(id, "Product " + id, 5));
+        }
+    }
+
+    @Test
+    void storesIdsOnlyAndRebuildsThePageFromTheProductCache() {
+        Cache products = cacheManager.getCache(ProductCacheTags.PRODUCTS);
+        Page<ProductResponse> page = page(database.get(3L), database.get(1L), database.get(2L));
+
+        products.put("0_10_id: ASC", page);
+
+        assertThat(cacheManager.getTierCache(ProductCacheTags.PRODUCTS).get("0_10_id: ASC").get())
+                .isEqualTo(new ProductIdPage(List.of(3L, 1L, 2L), page.getPageable(), 3));
+        assertThat(cacheManager.getCache(ProductCacheTags.PRODUCT).get(1L).get()).isEqualTo(database.get(1L));
+        assertThat(products.get("0_10_id: ASC").get()).isEqualTo(page);
+        assertThat(loads).isEmpty();
+    }
+
+    @Test
+    void loadsTheProductsMissingFromTheProductCacheInOneBatch() {
+        Cache products = cacheManager.getCache(ProductCacheTags.PRODUCTS);
+        ProductSliceResponse slice = new ProductSliceResponse(
+                List.of(database.get(1L), database.get(2L), database.get(3L)), 0, 10, false, List.of("id"), null, null);
+        products.put("slice_0_10_id: ASC", slice);
+        Cache product = cacheManager.getCache(ProductCacheTags.PRODUCT);
+        product.evict(1L);
+        product.evict(3L);
+
+        Object first = products.get("slice_0_10_id: ASC").get();
+        Object second = products.get("slice_0_10_id: ASC").get();
+
+        assertThat(loads).containsExactly(List.of(1L, 3L));
+        assertThat(first).isEqualTo(second).isEqualTo(slice);
+
+        product.evict(2L);
+        database.get(2L).setActive(false);
+
+        assertThat(products.get("slice_0_10_id: ASC", ProductSliceResponse.class).content())
+                .extracting(ProductResponse::getId).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void productWritesShowOnCachedPagesWithoutEvictingThem() {
+        Cache products = cacheManager.getCache(ProductCacheTags.PRODUCTS);
+        products.put("0_10_id: ASC", page(database.get(1L), database.get(2L)));
+
+        ProductResponse restocked = product(1L, "Product 1", 4);
+        database.put(1L, restocked);
+        invalidator.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.STOCK_UPDATED,
+                product(1L, "Product 1", 5), restocked));
+        ProductResponse described = product(2L, "Product 2", 5);
+        described.setDescription("new description");
+        database.put(2L, described);
+        invalidator.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED,
+                product(2L, "Product 2", 5), described));
+
+        Page<ProductResponse> cached = products.get("0_10_id: ASC", Page.class);
+        assertThat(cached.getContent()).containsExactly(restocked, described);
+        assertThat(loads).containsExactly(List.of(2L));
+    }
+
+    private List<ProductResponse> loadActive(Collection<Long> ids) {
+        loads.add(List.copyOf(ids));
+        return ids.stream()
+                .map(database::get)
+                .filter(product -> product != null && product.isActive())
+                .toList();
+    }
+
+    private static PageImpl<ProductResponse> page(ProductResponse... products) {
+        return new PageImpl<>(List.of(products), PageRequest.of(0, 10, Sort.by("id")), products.length);
+    }
+
+    private static ProductResponse product(Long id, String name, int stock) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory("Books");
+        product.setPrice(BigDecimal.TEN);
+        product.setStock(stock);
+        product.setActive(true);
+        return product;
+    }
+
+    private static class InMemoryTagStore implements CacheTagStore {
+        private final Map<String, Set<CacheEntryRef>> tags = new ConcurrentHashMap<>();
+
+        @Override
+        public void addTags(String cacheName, String key, Set<String> tagNames) {
+            tagNames.forEach(tag -> tags.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet())
+                    .add(new CacheEntryRef(cacheName, key)));
+        }
+
+        @Override
+        public Set<CacheEntryRef> getEntries(String tag) {
+            return new HashSet<>(tags.getOrDefault(tag, Set.of()));
+        }
+
+        @Override
+        public void removeEntries(String tag, Set<CacheEntryRef> entries) {
+            tags.computeIfPresent(tag, (t, tagged) -> {
+                tagged.removeAll(entries);
+                return tagged.isEmpty() ? null : tagged;
+            });
+        }
+    }
+}
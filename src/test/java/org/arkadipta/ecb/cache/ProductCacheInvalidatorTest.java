@@ -0,0 +1,169 @@
+package org.arkadipta.ecb.cache;
+
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsUpdatedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductCacheInvalidatorTest {
+
+    private TwoTierCacheManager cacheManager;
+    private ProductCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        CacheInvalidationBus noopBus = new CacheInvalidationBus() {
+            @Override
+            public void publish(CacheInvalidation invalidation) {
+            }
+
+            @Override
+            public void subscribe(Consumer<CacheInvalidation> listener) {
+            }
+        };
+        InMemoryTagStore tagStore = new InMemoryTagStore();
+        cacheManager = new TwoTierCacheManager(new ConcurrentMapCacheManager(), new CacheTierProperties(),
+                noopBus, new ProductCacheTags(), tagStore);
+        invalidator = new ProductCacheInvalidator(cacheManager, tagStore);
+    }
+
+    @Test
+    void updateEvictsOnlyEntriesContainingTheProduct() {
+        Cache search = cacheManager.getCache(ProductCacheTags.PRODUCT_SEARCH);
+        ProductSearchKey booksKey = searchKey("Books");
+        ProductSearchKey toysKey = searchKey("Toys");
+        search.put(booksKey, page(product(1L, "Books", 5), product(2L, "Books", 5)));
+        search.put(toysKey, page(product(3L, "Toys", 5)));
+
+        ProductResponse before = product(1L, "Books", 5);
+        ProductResponse after = product(1L, "Books", 5);
+        after.setDescription("new description");
+        invalidator.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, before, after));
+
+        assertThat(search.get(booksKey)).isNull();
+        assertThat(search.get(toysKey)).isNotNull();
+    }
+
+    @Test
+    void stockChangeWithoutAvailabilityFlipPatchesInPlace() {
+        Cache search = cacheManager.getCache(ProductCacheTags.PRODUCT_SEARCH);
+        ProductSearchKey booksKey = searchKey("Books");
+        search.put(booksKey, page(product(1L, "Books", 5), product(2L, "Books", 5)));
+
+        invalidator.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.STOCK_UPDATED,
+                product(1L, "Books", 5), product(1L, "Books", 3)));
+
+        PageImpl<?> cached = (PageImpl<?>) search.get(booksKey).get();
+        assertThat(((ProductResponse) cached.getContent().get(0)).getStock()).isEqualTo(3);
+        assertThat(cacheManager.getCache(ProductCacheTags.PRODUCT).get(1L).get())
+                .extracting("stock").isEqualTo(3);
+    }
+
+    @Test
+    void stockChangeThatSellsOutEvictsContainingEntries() {
+        Cache search = cacheManager.getCache(ProductCacheTags.PRODUCT_SEARCH);
+        ProductSearchKey booksKey = searchKey("Books");
+        search.put(booksKey, page(product(1L, "Books", 5)));
+
+        invalidator.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.STOCK_UPDATED,
+                product(1L, "Books", 5), product(1L, "Books", 0)));
+
+        assertThat(search.get(booksKey)).isNull();
+    }
+
+    @Test
+    void bulkUpdatePatchesStockAndEvictsPagesWithRepricedProducts() {
+        Cache search = cacheManager.getCache(ProductCacheTags.PRODUCT_SEARCH);
+        ProductSearchKey booksKey = searchKey("Books");
+        ProductSearchKey toysKey = searchKey("Toys");
+        search.put(booksKey, page(product(1L, "Books", 5), product(2L, "Books", 5)));
+        search.put(toysKey, page(product(3L, "Toys", 5)));
+
+        ProductResponse repriced = product(3L, "Toys", 5);
+        repriced.setPrice(BigDecimal.ONE);
+        invalidator.onProductsUpdated(new ProductsUpdatedEvent(List.of(
+                new ProductChangedEvent(ProductChangedEvent.Type.STOCK_UPDATED,
+                        product(1L, "Books", 5), product(1L, "Books", 4)),
+                new ProductChangedEvent(ProductChangedEvent.Type.STOCK_UPDATED,
+                        product(2L, "Books", 5), product(2L, "Books", 2)),
+                new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, product(3L, "Toys", 5), repriced))));
+
+        PageImpl<?> cached = (PageImpl<?>) search.get(booksKey).get();
+        assertThat(cached.getContent()).extracting("stock").containsExactly(4, 2);
+        assertThat(search.get(toysKey)).isNull();
+    }
+
+    @Test
+    void creationEvictsListingsAndSearchesInItsCategoryOnly() {
+        Cache products = cacheManager.getCache(ProductCacheTags.PRODUCTS);
+        Cache search = cacheManager.getCache(ProductCacheTags.PRODUCT_SEARCH);
+        products.put("0_10_id: ASC", page(product(1L, "Books", 5)));
+        search.put(searchKey("Books"), page(product(1L, "Books", 5)));
+        search.put(searchKey("Toys"), page(product(3L, "Toys", 5)));
+
+        invalidator.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.CREATED,
+                null, product(4L, "Books", 1)));
+
+        assertThat(products.get("0_10_id: ASC")).isNull();
+        assertThat(search.get(searchKey("Books"))).isNull();
+        assertThat(search.get(searchKey("Toys"))).isNotNull();
+    }
+
+    private static ProductSearchKey searchKey(String category) {
+        return new ProductSearchKey(category, null, null, null, null, 0, 10, Sort.by("id"), false);
+    }
+
+    private static PageImpl<ProductResponse> page(ProductResponse... products) {
+        return new PageImpl<>(List.of(products), PageRequest.of(0, 10, Sort.by("id")), products.length);
+    }
+
+    private static ProductResponse product(Long id, String category, int stock) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setCategory(category);
+        product.setPrice(BigDecimal.TEN);
+        product.setStock(stock);
+        product.setActive(true);
+        return product;
+    }
+
+    private static class InMemoryTagStore implements CacheTagStore {
+        private final Map<String, Set<CacheEntryRef>> tags = new ConcurrentHashMap<>();
+
+        @Override
+        public void addTags(String cacheName, String key, Set<String> tagNames) {
+            tagNames.forEach(tag -> tags.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet())
+                    .add(new CacheEntryRef(cacheName, key)));
+        }
+
+        @Override
+        public Set<CacheEntryRef> getEntries(String tag) {
+            return new HashSet<>(tags.getOrDefault(tag, Set.of()));
+        }
+
+        @Override
+        public void removeEntries(String tag, Set<CacheEntryRef> entries) {
+            tags.computeIfPresent(tag, (t, tagged) -> {
+                tagged.removeAll(entries);
+                return tagged.isEmpty() ? null : tagged;
+            });
+        }
+    }
+}
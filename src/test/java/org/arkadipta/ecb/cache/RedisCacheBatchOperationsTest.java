@@ -0,0 +1,87 @@
+package org.arkadipta.ecb.cache;
+
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.fppt.jedismock.RedisServer;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisCacheBatchOperationsTest {
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisCache cache;
+    private RedisCacheBatchOperations batch;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        json.configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(Duration.ofMinutes(10))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                        new CompactCacheSerializer(json, CacheValueFormat.COMPACT, 1024)));
+        RedisCacheManager cacheManager = RedisCacheManager.builder(connectionFactory).cacheDefaults(config).build();
+        cache = (RedisCache) cacheManager.getCache(ProductCacheTags.PRODUCT);
+        batch = new RedisCacheBatchOperations(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void readsAndWritesTheSameEntriesAsTheCache() {
+        cache.put("1", product(1L));
+        cache.put("4", null);
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("2", product(2L));
+        values.put("3", product(3L));
+
+        batch.putAll(cache, values);
+        List<Cache.ValueWrapper> read = batch.getAll(cache, List.of("3", "1", "9", "4", "2"));
+
+        assertThat(cache.get("2").get()).isEqualTo(product(2L));
+        assertThat(read.get(0).get()).isEqualTo(product(3L));
+        assertThat(read.get(1).get()).isEqualTo(product(1L));
+        assertThat(read.get(2)).isNull();
+        assertThat(read.get(3).get()).isNull();
+        assertThat(read.get(4).get()).isEqualTo(product(2L));
+        assertThat(new StringRedisTemplate(connectionFactory).getExpire("product::3")).isPositive();
+    }
+
+    private static ProductResponse product(Long id) {
+        ProductResponse product = new ProductResponse();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setPrice(new BigDecimal("19.99"));
+        product.setStock(5);
+        product.setActive(true);
+        return product;
+    }
+}
@@ -0,0 +1,72 @@
+package org.arkadipta.ecb.cache;
+
+import com.github.fppt.jedismock.RedisServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisCacheLoadCoordinatorTest {
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisCacheLoadCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        coordinator = new RedisCacheLoadCoordinator(redisTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void grantsOneLeasePerKeyUntilItsHolderReleasesIt() {
+        String token = coordinator.tryAcquire("products", "0_20", Duration.ofSeconds(5));
+
+        assertThat(token).isNotNull();
+        assertThat(coordinator.isHeld("products", "0_20")).isTrue();
+        assertThat(coordinator.tryAcquire("products", "0_20", Duration.ofSeconds(5))).isNull();
+        assertThat(coordinator.tryAcquire("products", "1_20", Duration.ofSeconds(5))).isNotNull();
+
+        coordinator.release("products", "0_20", "someone else");
+        assertThat(coordinator.tryAcquire("products", "0_20", Duration.ofSeconds(5))).isNull();
+
+        coordinator.release("products", "0_20", token);
+        assertThat(coordinator.isHeld("products", "0_20")).isFalse();
+        assertThat(coordinator.tryAcquire("products", "0_20", Duration.ofSeconds(5))).isNotNull();
+    }
+
+    @Test
+    void readsTheRemainingTimeToLiveOfAnEntry() {
+        RedisCacheManager cacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig().entryTtl(Duration.ofMinutes(10)))
+                .build();
+        Cache cache = cacheManager.getCache("categories");
+        cache.put("all", "Books");
+
+        assertThat(coordinator.timeToLive(cache, "all"))
+                .isPositive()
+                .isLessThanOrEqualTo(Duration.ofMinutes(10));
+        assertThat(coordinator.timeToLive(cache, "missing")).isNull();
+    }
+}
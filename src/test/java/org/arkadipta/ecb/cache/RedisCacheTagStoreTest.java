@@ -0,0 +1,62 @@
+package org.arkadipta.ecb.cache;
+
+import com.github.fppt.jedismock.RedisServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisCacheTagStoreTest {
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisCacheTagStore tagStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        tagStore = new RedisCacheTagStore(redisTemplate, Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void removingEntriesKeepsThoseTaggedAfterTheyWereRead() {
+        tagStore.addTags("products", "0_10", Set.of("listing"));
+        Set<CacheEntryRef> evicted = tagStore.getEntries("listing");
+
+        // Cached by another request between the read and the removal
+        tagStore.addTags("products", "1_10", Set.of("listing"));
+        tagStore.removeEntries("listing", evicted);
+
+        assertThat(tagStore.getEntries("listing")).containsExactly(new CacheEntryRef("products", "1_10"));
+    }
+
+    @Test
+    void removingTheLastEntriesDropsTheTag() {
+        tagStore.addTags("product", "1", Set.of("product:1", "listing"));
+
+        tagStore.removeEntries("product:1", tagStore.getEntries("product:1"));
+        tagStore.removeEntries("listing", Set.of());
+
+        assertThat(tagStore.getEntries("product:1")).isEmpty();
+        assertThat(tagStore.getEntries("listing")).containsExactly(new CacheEntryRef("product", "1"));
+    }
+}
@@ -0,0 +1,77 @@
+package org.arkadipta.ecb.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TwoTierCacheMetricsTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private TwoTierCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new TwoTierCacheManager(new ConcurrentMapCacheManager(), new CacheTierProperties(),
+                new NoOpBus());
+        cacheManager.onCacheCreated(cache -> new TwoTierCacheMetrics(cache, Tags.empty()).bindTo(registry));
+    }
+
+    @Test
+    void bindsCachesCreatedOnFirstUse() {
+        cacheManager.getCache("products");
+        cacheManager.getCache("categories");
+
+        assertThat(registry.find("cache.gets").tag("cache", "products").meters()).isNotEmpty();
+        assertThat(registry.find("cache.gets").tag("cache", "categories").meters()).isNotEmpty();
+    }
+
+    @Test
+    void countsHitsInEitherTierAndMissesInBoth() {
+        Cache cache = cacheManager.getCache("product");
+        cache.get(1L);
+        cache.put(1L, "phone");
+        cache.get(1L);
+        cache.get(1L, () -> "unused");
+        cache.get(2L, () -> "tablet");
+
+        assertThat(registry.get("cache.gets").tags("cache", "product", "result", "hit").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("cache.gets").tags("cache", "product", "result", "miss").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("cache.puts").tag("cache", "product").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("cache.tier.gets").tags("cache", "product", "tier", "l1", "result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("cache.size").tag("cache", "product").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void timesLookupsByOutcomeAndLoadsSeparately() {
+        Cache cache = cacheManager.getCache("product");
+        cache.get(1L, () -> "phone");
+        cache.get(1L, () -> "unused");
+
+        assertThat(registry.get("cache.lookup").tags("cache", "product", "result", "miss").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.lookup").tags("cache", "product", "result", "l1_hit").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.load").tag("cache", "product").timer().count()).isEqualTo(1);
+    }
+
+    private static class NoOpBus implements CacheInvalidationBus {
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.arkadipta.ecb.cache;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.github.fppt.jedismock.operations.server.MockExecutor;
+import com.github.fppt.jedismock.server.ServiceOptions;
+import io.lettuce.core.ClientOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the caches against an in-process Redis that is killed or turns slow mid test.
+ */
+class TwoTierCacheRedisOutageTest {
+
+    private static final Duration COMMAND_TIMEOUT = Duration.ofMillis(250);
+    private static final Duration OPEN_DURATION = Duration.ofMillis(200);
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private TwoTierCacheManager cacheManager;
+    private CacheCircuitBreaker breaker;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        if (redisServer.isRunning()) {
+            redisServer.stop();
+        }
+    }
+
+    @Test
+    void servesFromL1AndTheDatabaseWhileRedisIsDownAndRecovers() throws Exception {
+        start(RedisServer.newRedisServer());
+        Cache cache = cacheManager.getCache("categories");
+        assertThat(cache.get("all", () -> "from database")).isEqualTo("from database");
+
+        int port = redisServer.getBindPort();
+        redisServer.stop();
+
+        AtomicInteger loads = new AtomicInteger();
+        long start = System.nanoTime();
+        assertThat(cache.get("all", () -> "reloaded")).isEqualTo("from database");
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get("count:" + i, () -> loads.incrementAndGet())).isEqualTo(i + 1);
+        }
+        cache.put("other", "written while down");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(breaker.getState()).isEqualTo(CacheCircuitBreaker.State.OPEN);
+        assertThat(cache.get("other").get()).isEqualTo("written while down");
+
+        redisServer = RedisServer.newRedisServer(port).start();
+        awaitRecovery(cache);
+
+        cache.put("after", "written after recovery");
+        assertThat(redisCache("categories").get("after").get()).isEqualTo("written after recovery");
+    }
+
+    @Test
+    void clearsCachesThatLostWritesOnceRedisIsFastAgain() throws Exception {
+        AtomicBoolean slow = new AtomicBoolean();
+        start(RedisServer.newRedisServer().setOptions(ServiceOptions.withInterceptor((state, command, params) -> {
+            if (slow.get()) {
+                sleep(COMMAND_TIMEOUT.multipliedBy(2));
+            }
+            return MockExecutor.proceed(state, command, params);
+        })));
+        Cache products = cacheManager.getCache("product");
+        Cache categories = cacheManager.getCache("categories");
+        products.put(1L, "price 10");
+        categories.put("all", "Books");
+
+        slow.set(true);
+        for (long id = 2; breaker.isClosed(); id++) {
+            products.get(id, () -> "loaded");
+        }
+        products.evict(1L);
+        slow.set(false);
+        awaitRecovery(categories);
+
+        assertThat(redisCache("product").get("1")).isNull();
+        assertThat(redisCache("categories").get("all").get()).isEqualTo("Books");
+    }
+
+    private void start(RedisServer server) throws Exception {
+        redisServer = server.start();
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(COMMAND_TIMEOUT)
+                .clientOptions(ClientOptions.builder()
+                        .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                        .build())
+                .build();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()),
+                clientConfiguration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        CacheInvalidationBus noopBus = new CacheInvalidationBus() {
+            @Override
+            public void publish(CacheInvalidation invalidation) {
+            }
+
+            @Override
+            public void subscribe(Consumer<CacheInvalidation> listener) {
+            }
+        };
+        cacheManager = new TwoTierCacheManager(RedisCacheManager.create(connectionFactory), new CacheTierProperties(),
+                noopBus);
+        breaker = new CacheCircuitBreaker(3, OPEN_DURATION);
+        cacheManager.setCircuitBreaker(breaker);
+    }
+
+    // Probes through the cache the way requests would until a probe gets through
+    private void awaitRecovery(Cache cache) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (!breaker.isClosed() && System.nanoTime() < deadline) {
+            Thread.sleep(OPEN_DURATION.toMillis());
+            cache.get("probe");
+        }
+        assertThat(breaker.isClosed()).isTrue();
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Cache redisCache(String name) {
+        return RedisCacheManager.create(connectionFactory).getCache(name);
+    }
+}
@@ -0,0 +1,305 @@
+package org.arkadipta.ecb.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TwoTierCacheTest {
+
+    private ConcurrentMapCacheManager sharedL2;
+    private TwoTierCacheManager nodeA;
+    private TwoTierCacheManager nodeB;
+
+    @BeforeEach
+    void setUp() {
+        sharedL2 = new ConcurrentMapCacheManager();
+        InMemoryBus bus = new InMemoryBus();
+        CacheTierProperties properties = new CacheTierProperties();
+        nodeA = new TwoTierCacheManager(sharedL2, properties, bus);
+        nodeB = new TwoTierCacheManager(sharedL2, properties, bus);
+    }
+
+    @Test
+    void servesRepeatedReadsFromL1() {
+        Cache cache = nodeA.getCache("product");
+        cache.put(1L, "phone");
+
+        assertThat(cache.get(1L).get()).isEqualTo("phone");
+        assertThat(cache.get(1L).get()).isEqualTo("phone");
+
+        CacheTierStats stats = nodeA.getStats().get("product");
+        assertThat(stats.l1Hits()).isEqualTo(2);
+        assertThat(stats.l2Hits()).isZero();
+    }
+
+    @Test
+    void populatesL1FromL2OnMiss() {
+        nodeA.getCache("product").put(1L, "phone");
+        Cache cacheB = nodeB.getCache("product");
+
+        assertThat(cacheB.get(1L).get()).isEqualTo("phone");
+        assertThat(cacheB.get(1L).get()).isEqualTo("phone");
+
+        CacheTierStats stats = nodeB.getStats().get("product");
+        assertThat(stats.l1Misses()).isEqualTo(1);
+        assertThat(stats.l2Hits()).isEqualTo(1);
+        assertThat(stats.l1Hits()).isEqualTo(1);
+    }
+
+    @Test
+    void writeOnOneNodeClearsL1OnPeers() {
+        Cache cacheA = nodeA.getCache("product");
+        Cache cacheB = nodeB.getCache("product");
+        cacheA.put(1L, "phone");
+        cacheB.get(1L);
+
+        cacheA.put(1L, "tablet");
+
+        assertThat(cacheB.get(1L).get()).isEqualTo("tablet");
+    }
+
+    @Test
+    void evictionOnOneNodeClearsL1OnPeers() {
+        Cache cacheA = nodeA.getCache("product");
+        Cache cacheB = nodeB.getCache("product");
+        cacheA.put(1L, "phone");
+        cacheB.get(1L);
+
+        cacheA.evict(1L);
+
+        assertThat(cacheB.get(1L)).isNull();
+    }
+
+    @Test
+    void clearOnOneNodeClearsL1OnPeers() {
+        nodeA.getCache("products").put("0_10", List.of("a", "b"));
+        Cache cacheB = nodeB.getCache("products");
+        cacheB.get("0_10");
+
+        nodeA.getCache("products").clear();
+
+        assertThat(cacheB.get("0_10")).isNull();
+    }
+
+    @Test
+    void replaysAnEvictionL2MissedWhileTheBreakerStayedClosed() {
+        AtomicInteger failingEvicts = new AtomicInteger();
+        ConcurrentMapCacheManager flakyL2 = new ConcurrentMapCacheManager() {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                return new ConcurrentMapCache(name) {
+                    @Override
+                    public void evict(Object key) {
+                        if (failingEvicts.getAndDecrement() > 0) {
+                            throw new IllegalStateException("Redis command timed out");
+                        }
+                        super.evict(key);
+                    }
+                };
+            }
+        };
+        InMemoryBus bus = new InMemoryBus();
+        TwoTierCacheManager writer = new TwoTierCacheManager(flakyL2, new CacheTierProperties(), bus);
+        TwoTierCacheManager reader = new TwoTierCacheManager(flakyL2, new CacheTierProperties(), bus);
+        CacheCircuitBreaker breaker = new CacheCircuitBreaker(3, Duration.ofSeconds(30));
+        writer.setCircuitBreaker(breaker);
+        Cache cache = writer.getCache("product");
+        cache.put(1L, "phone");
+
+        failingEvicts.set(1);
+        cache.evict(1L);
+        assertThat(breaker.isClosed()).isTrue();
+        assertThat(flakyL2.getCache("product").get("1")).isNotNull();
+
+        // The next call that reaches L2 evicts the key first
+        assertThat(cache.get(2L)).isNull();
+
+        assertThat(flakyL2.getCache("product").get("1")).isNull();
+        assertThat(reader.getCache("product").get(1L)).isNull();
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void loadsThroughValueLoaderOnce() {
+        Cache cache = nodeA.getCache("categories");
+        int[] calls = new int[1];
+
+        cache.get("all", () -> {
+            calls[0]++;
+            return List.of("Books");
+        });
+        List<String> categories = cache.get("all", () -> {
+            calls[0]++;
+            return List.<String>of();
+        });
+
+        assertThat(calls[0]).isEqualTo(1);
+        assertThat(categories).containsExactly("Books");
+    }
+
+    @Test
+    void concurrentMissesOnOneNodeLoadOnce() throws Exception {
+        Cache cache = nodeA.getCache("categories");
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<List<String>>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("all", () -> {
+                    calls.incrementAndGet();
+                    release.await();
+                    return List.of("Books");
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<List<String>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly("Books");
+            }
+        }
+
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void peerWaitsForTheNodeHoldingTheLoadLease() throws Exception {
+        InMemoryLoadCoordinator coordinator = new InMemoryLoadCoordinator(null);
+        nodeA.setLoadCoordinator(coordinator);
+        nodeB.setLoadCoordinator(coordinator);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<String> fromA = executor.submit(() -> nodeA.getCache("categories").get("all", () -> {
+                loading.countDown();
+                release.await();
+                return "loaded by A";
+            }));
+            loading.await();
+            executor.submit(() -> {
+                Thread.sleep(50);
+                release.countDown();
+                return null;
+            });
+
+            String fromB = nodeB.getCache("categories").get("all", () -> "loaded by B");
+
+            assertThat(fromB).isEqualTo("loaded by A");
+            assertThat(fromA.get(5, TimeUnit.SECONDS)).isEqualTo("loaded by A");
+        }
+    }
+
+    @Test
+    void peerStopsWaitingOnceTheHolderFailsToLoad() throws Exception {
+        InMemoryLoadCoordinator coordinator = new InMemoryLoadCoordinator(null);
+        nodeA.setLoadCoordinator(coordinator);
+        nodeB.setLoadCoordinator(coordinator);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<String> fromA = executor.submit(() -> nodeA.getCache("categories").get("all", () -> {
+                loading.countDown();
+                release.await();
+                throw new IllegalStateException("database down");
+            }));
+            loading.await();
+            executor.submit(() -> {
+                Thread.sleep(50);
+                release.countDown();
+                return null;
+            });
+
+            long start = System.nanoTime();
+            String fromB = nodeB.getCache("categories").get("all", () -> "loaded by B");
+
+            assertThat(fromB).isEqualTo("loaded by B");
+            // Well before the 5 s load lease the waiter would otherwise sit out
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+            assertThatThrownBy(() -> fromA.get(5, TimeUnit.SECONDS))
+                    .hasRootCauseInstanceOf(IllegalStateException.class);
+            assertThat(coordinator.isHeld("categories", "all")).isFalse();
+        }
+    }
+
+    @Test
+    void refreshesEntriesEarlyAsTheyNearExpiry() {
+        nodeA.getCache("categories").put("all", "old");
+        nodeB.setLoadCoordinator(new InMemoryLoadCoordinator(Duration.ofHours(1)));
+        Cache cacheB = nodeB.getCache("categories");
+
+        assertThat(cacheB.get("all", () -> "new")).isEqualTo("old");
+
+        nodeB.setLoadCoordinator(new InMemoryLoadCoordinator(Duration.ZERO));
+        cacheB.evict("all");
+        nodeA.getCache("categories").put("all", "old");
+
+        assertThat(cacheB.get("all", () -> "new")).isEqualTo("new");
+        assertThat(nodeA.getCache("categories").get("all").get()).isEqualTo("new");
+    }
+
+    private static class InMemoryLoadCoordinator implements CacheLoadCoordinator {
+        private final Map<String, String> leases = new ConcurrentHashMap<>();
+        private final Duration timeToLive;
+
+        InMemoryLoadCoordinator(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        @Override
+        public String tryAcquire(String cacheName, String key, Duration lease) {
+            String token = UUID.randomUUID().toString();
+            return leases.putIfAbsent(cacheName + ":" + key, token) == null ? token : null;
+        }
+
+        @Override
+        public void release(String cacheName, String key, String token) {
+            leases.remove(cacheName + ":" + key, token);
+        }
+
+        @Override
+        public boolean isHeld(String cacheName, String key) {
+            return leases.containsKey(cacheName + ":" + key);
+        }
+
+        @Override
+        public Duration timeToLive(Cache l2, String key) {
+            return timeToLive;
+        }
+    }
+
+    private static class InMemoryBus implements CacheInvalidationBus {
+        private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+            listeners.forEach(listener -> listener.accept(invalidation));
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+            listeners.add(listener);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.arkadipta.ecb.config;
+
+import org.arkadipta.ecb.cache.CacheTierProperties;
+import org.arkadipta.ecb.cache.CacheValueFormat;
+import org.arkadipta.ecb.dto.product.ProductCount;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisConfigTest {
+
+    private final GenericJackson2JsonRedisSerializer serializer = RedisConfig.jsonValueSerializer();
+
+    @Test
+    void roundTripsCachedProductValues() {
+        ProductResponse product = new ProductResponse();
+        product.setId(7L);
+        product.setPrice(new BigDecimal("19.99"));
+        product.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 30));
+        ProductSliceResponse slice = new ProductSliceResponse(List.of(product), 0, 10, true, List.of("price"), null, null);
+
+        Object read = serializer.deserialize(serializer.serialize(slice));
+
+        assertThat(read).isEqualTo(slice);
+    }
+
+    @Test
+    void keepsCountsAsLongs() {
+        ProductCount count = new ProductCount(42, Instant.parse("2024-05-01T12:30:00Z"));
+
+        assertThat(serializer.deserialize(serializer.serialize(count))).isEqualTo(count);
+    }
+
+    @Test
+    void picksTheValueFormatPerCacheAndInheritsTheDefault() {
+        CacheTierProperties properties = new CacheTierProperties();
+        properties.getDefaults().setFormat(CacheValueFormat.JSON);
+        CacheTierProperties.Spec product = new CacheTierProperties.Spec();
+        product.setL1Ttl(Duration.ofMinutes(5));
+        properties.getSpecs().put("product", product);
+        CacheTierProperties.Spec categories = new CacheTierProperties.Spec();
+        categories.setFormat(CacheValueFormat.COMPACT);
+        properties.getSpecs().put("categories", categories);
+        List<String> value = new ArrayList<>(List.of("Books"));
+
+        byte[] asJson = RedisConfig.cacheValueSerializer(properties.resolve("product")).serialize(value);
+        byte[] asCompact = RedisConfig.cacheValueSerializer(properties.resolve("categories")).serialize(value);
+
+        assertThat(asJson[0]).isEqualTo((byte) '[');
+        assertThat(asCompact[0]).isNotEqualTo((byte) '[');
+        assertThat(RedisConfig.cacheValueSerializer(properties.resolve("product")).deserialize(asCompact))
+                .isEqualTo(value);
+    }
+}
@@ -0,0 +1,246 @@
+package org.arkadipta.ecb.inventory;
+
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.exception.InsufficientStockException;
+import org.arkadipta.ecb.exception.ResourceNotFoundException;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductStockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InventoryReservationServiceTest {
+
+    private static final Duration TTL = Duration.ofMinutes(15);
+
+    private final MutableClock clock = new MutableClock();
+    private final Map<Long, Integer> databaseStock = new HashMap<>();
+    private final AtomicInteger stockQueries = new AtomicInteger();
+    private InventoryReservationService reservations;
+
+    @BeforeEach
+    void setUp() {
+        ProductStockRepository stockRepository = new ProductStockRepository(null, null) {
+            @Override
+            public Map<Long, Integer> findActiveStock(Collection<Long> productIds) {
+                stockQueries.incrementAndGet();
+                Map<Long, Integer> stock = new HashMap<>(databaseStock);
+                stock.keySet().retainAll(productIds);
+                return stock;
+            }
+        };
+        reservations = new InventoryReservationService(stockRepository, TTL, 1000, clock);
+    }
+
+    @Test
+    void concurrentReservationsNeverExceedStock() throws Exception {
+        Product product = product(1L, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (long userId = 1; userId <= 500; userId++) {
+            long user = userId;
+            futures.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                try {
+                    reservations.reserve(user, product, 1);
+                    granted.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    // Sold out
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(granted.get()).isEqualTo(100);
+        assertThat(reservations.getAvailable(1L)).isZero();
+        assertThat(reservations.getReserved(1L)).isEqualTo(100);
+    }
+
+    @Test
+    void changingTheQuantityOnlyTakesOrReturnsTheDifference() {
+        Product product = product(1L, 10);
+
+        reservations.reserve(7L, product, 4);
+        reservations.reserve(7L, product, 6);
+        assertThat(reservations.getAvailable(1L)).isEqualTo(4);
+
+        reservations.reserve(7L, product, 2);
+        assertThat(reservations.getAvailable(1L)).isEqualTo(8);
+        assertThatThrownBy(() -> reservations.reserve(8L, product, 9))
+                .isInstanceOf(InsufficientStockException.class);
+        // A failed reservation leaves the counters untouched
+        assertThat(reservations.getAvailable(1L)).isEqualTo(8);
+
+        reservations.release(7L, 1L);
+        assertThat(reservations.getAvailable(1L)).isEqualTo(10);
+    }
+
+    @Test
+    void unclaimedReservationsExpireButTouchedOnesAreKept() {
+        Product product = product(1L, 10);
+        reservations.reserve(1L, product, 3);
+        reservations.reserve(2L, product, 3);
+
+        clock.advance(TTL.minusMinutes(5));
+        reservations.reserve(2L, product, 3);
+        clock.advance(Duration.ofMinutes(6));
+        reservations.expireReservations();
+
+        assertThat(reservations.getReserved(1L)).isEqualTo(3);
+        assertThat(reservations.getAvailable(1L)).isEqualTo(7);
+
+        clock.advance(TTL);
+        reservations.expireReservations();
+        assertThat(reservations.getReserved(1L)).isZero();
+    }
+
+    @Test
+    void followsStockEventsAndReconcilesWithTheDatabase() {
+        Product product = product(1L, 10);
+        reservations.reserve(1L, product, 4);
+
+        reservations.onProductChanged(stockChanged(1L, 10, 8));
+        reservations.onProductChanged(stockChanged(1L, 8, 5));
+        assertThat(reservations.getAvailable(1L)).isEqualTo(1);
+
+        databaseStock.put(1L, 20);
+        reservations.reconcile();
+        assertThat(reservations.getAvailable(1L)).isEqualTo(16);
+
+        // Deactivated products drop out of the active stock query
+        databaseStock.remove(1L);
+        reservations.reconcile();
+        assertThat(reservations.getAvailable(1L)).isZero();
+    }
+
+    @Test
+    void reservingByIdReadsTheDatabaseOnlyToSeedTheCounter() {
+        databaseStock.put(1L, 5);
+
+        reservations.reserve(1L, 1L, 2);
+        reservations.reserve(2L, 1L, 3);
+        assertThatThrownBy(() -> reservations.reserve(3L, 1L, 1))
+                .isInstanceOf(InsufficientStockException.class);
+
+        assertThat(stockQueries).hasValue(1);
+        assertThat(reservations.getAvailable(1L)).isZero();
+    }
+
+    @Test
+    void reservingByIdRejectsMissingAndDeactivatedProducts() {
+        databaseStock.put(1L, 5);
+        reservations.reserve(1L, 1L, 1);
+
+        assertThatThrownBy(() -> reservations.reserve(1L, 2L, 1))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        ProductResponse deactivated = response(1L, 5);
+        deactivated.setActive(false);
+        reservations.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.DELETED,
+                response(1L, 5), deactivated));
+        assertThatThrownBy(() -> reservations.reserve(2L, 1L, 1))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(stockQueries).hasValue(2);
+    }
+
+    @Test
+    void aRolledBackReservationIsPutBackAsItWas() {
+        Product product = product(1L, 10);
+        reservations.reserve(7L, product, 2);
+
+        runInTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> {
+            reservations.reserve(7L, product, 6);
+            reservations.reserve(8L, product, 3);
+        });
+        assertThat(reservations.getReserved(1L)).isEqualTo(2);
+
+        runInTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> reservations.reserve(8L, product, 3));
+        assertThat(reservations.getReserved(1L)).isEqualTo(5);
+    }
+
+    // Completes the synchronizations the way the transaction manager would
+    private static void runInTransaction(int outcome, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(outcome));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static Product product(Long id, int stock) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setStock(stock);
+        product.setActive(true);
+        return product;
+    }
+
+    private static ProductChangedEvent stockChanged(Long id, int before, int after) {
+        return new ProductChangedEvent(ProductChangedEvent.Type.STOCK_UPDATED, response(id, before), response(id, after));
+    }
+
+    private static ProductResponse response(Long id, int stock) {
+        ProductResponse response = new ProductResponse();
+        response.setId(id);
+        response.setStock(stock);
+        response.setActive(true);
+        return response;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.arkadipta.ecb.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mixed browse, search, cart and auth traffic against the whole application running on H2 and
+ * an in-process Redis. Fails when an endpoint's error rate or p99 latency, or the total
+ * throughput, crosses the limits in {@code load-test.properties}. Run with {@code mvn -Pload test}.
+ */
+@Tag("load")
+class EcbLoadTest {
+
+    private static final String PASSWORD = "load-test-password";
+    private static final String[] ADJECTIVES = {"Classic", "Wireless", "Compact", "Premium", "Smart", "Portable",
+            "Ergonomic", "Vintage", "Rugged", "Slim", "Organic", "Deluxe"};
+    private static final String[] NOUNS = {"Keyboard", "Headphones", "Backpack", "Lamp", "Watch", "Speaker",
+            "Bottle", "Chair", "Jacket", "Camera", "Blender", "Notebook", "Monitor", "Sneakers", "Tent"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void mixedTrafficStaysWithinThresholds() throws Exception {
+        Properties settings = settings();
+        int users = Integer.parseInt(settings.getProperty("load.users"));
+
+        try (InMemoryStack stack = InMemoryStack.start()) {
+            List<Long> productIds = seedCatalog(stack.getBean(ProductRepository.class),
+                    Integer.parseInt(settings.getProperty("load.catalog-size")),
+                    Integer.parseInt(settings.getProperty("load.categories")));
+            List<String> emails = seedCustomers(stack.getBean(UserRepository.class),
+                    stack.getBean(PasswordEncoder.class), users);
+
+            List<Shopper> shoppers = emails.stream()
+                    .map(email -> new Shopper(stack.baseUrl(), email, productIds,
+                            Integer.parseInt(settings.getProperty("load.categories"))))
+                    .toList();
+
+            LoadDriver driver = new LoadDriver();
+            driver.run(shoppers, Duration.parse(settings.getProperty("load.warmup")));
+            LoadReport report = driver.run(shoppers, Duration.parse(settings.getProperty("load.duration")));
+            report.print("Mixed traffic, " + users + " users");
+
+            // Report every breached threshold, not just the first
+            SoftAssertions thresholds = new SoftAssertions();
+            double maxErrorRate = Double.parseDouble(settings.getProperty("load.max-error-rate"));
+            for (Map.Entry<String, LoadReport.EndpointStats> entry : report.endpoints().entrySet()) {
+                String key = entry.getKey().toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("-$", "");
+                double maxP99 = Double.parseDouble(settings.getProperty("load.p99-ms." + key,
+                        settings.getProperty("load.p99-ms")));
+                thresholds.assertThat(entry.getValue().errorRate()).as("%s error rate", entry.getKey())
+                        .isLessThanOrEqualTo(maxErrorRate);
+                thresholds.assertThat(entry.getValue().p99Millis()).as("%s p99 ms", entry.getKey())
+                        .isLessThanOrEqualTo(maxP99);
+            }
+            thresholds.assertThat(report.throughput()).as("total req/s")
+                    .isGreaterThanOrEqualTo(Double.parseDouble(settings.getProperty("load.min-throughput")));
+            thresholds.assertAll();
+        }
+    }
+
+    private Properties settings() throws IOException {
+        Properties settings = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("/load-test.properties")) {
+            settings.load(in);
+        }
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("load."))
+                .forEach(name -> settings.setProperty(name, System.getProperty(name)));
+        return settings;
+    }
+
+    private List<Long> seedCatalog(ProductRepository productRepository, int size, int categories) {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)]
+                    + " " + (i + 1);
+            Product product = new Product();
+            product.setName(name);
+            product.setDescription(name + " for everyday use, ships in 2-3 business days.");
+            product.setCategory("Category " + (i % categories));
+            product.setPrice(BigDecimal.valueOf(5 + random.nextDouble() * 495).setScale(2, RoundingMode.HALF_UP));
+            product.setStock(1_000_000);
+            product.setRating(BigDecimal.valueOf(1 + random.nextDouble() * 4).setScale(1, RoundingMode.HALF_UP));
+            product.setImageUrl("https://cdn.example.com/products/" + (i + 1) + ".jpg");
+            // Roughly one in twenty products is delisted
+            product.setActive(random.nextInt(20) != 0);
+            products.add(product);
+        }
+        return productRepository.saveAll(products).stream()
+                .filter(Product::isActive)
+                .map(Product::getId)
+                .toList();
+    }
+
+    private List<String> seedCustomers(UserRepository userRepository, PasswordEncoder passwordEncoder, int count) {
+        // One hash for everyone, encoding is deliberately slow
+        String hash = passwordEncoder.encode(PASSWORD);
+        List<User> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setName("Customer " + i);
+            user.setEmail("customer" + i + "@example.com");
+            user.setPassword(hash);
+            customers.add(user);
+        }
+        return userRepository.saveAll(customers).stream().map(User::getEmail).toList();
+    }
+
+    // A customer who mostly browses and searches, sometimes shops, and keeps their session alive
+    private class Shopper implements LoadDriver.Scenario {
+
+        private final String baseUrl;
+        private final String email;
+        private final List<Long> productIds;
+        private final int categories;
+        private String accessToken;
+        private String refreshToken;
+        private int cartLines;
+
+        Shopper(String baseUrl, String email, List<Long> productIds, int categories) {
+            this.baseUrl = baseUrl;
+            this.email = email;
+            this.productIds = productIds;
+            this.categories = categories;
+        }
+
+        @Override
+        public void iterate(LoadDriver.Session session) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (accessToken == null) {
+                login(session);
+                return;
+            }
+            int roll = random.nextInt(100);
+            if (roll < 40) {
+                session.send("GET /products", get("/products?page=" + random.nextInt(10) + "&size=20"));
+                session.send("GET /products/{id}", get("/products/" + randomProduct()));
+            } else if (roll < 45) {
+                session.send("GET /products/categories", get("/products/categories"));
+            } else if (roll < 65) {
+                String name = NOUNS[random.nextInt(NOUNS.length)];
+                String query = random.nextBoolean()
+                        ? "name=" + name
+                        : "category=" + URLEncoder.encode("Category " + random.nextInt(categories),
+                        StandardCharsets.UTF_8) + "&sortBy=price&sortDir=desc";
+                session.send("GET /products/search", get("/products/search?" + query + "&size=20"));
+            } else if (roll < 90) {
+                addToCart(session);
+            } else if (roll < 97) {
+                refresh(session);
+            } else {
+                login(session);
+            }
+        }
+
+        private void addToCart(LoadDriver.Session session) {
+            session.send("POST /cart/add", authorized("/cart/add")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"productId\":" + randomProduct() + ",\"quantity\":1}"))
+                    .build());
+            session.send("GET /cart", authorized("/cart").GET().build());
+            // Abandon the cart now and then so it stays a realistic size
+            if (++cartLines >= 10) {
+                session.send("DELETE /cart/clear", authorized("/cart/clear").DELETE().build());
+                cartLines = 0;
+            }
+        }
+
+        private void login(LoadDriver.Session session) {
+            tokens(session.send("POST /auth/login", post("/auth/login",
+                    "{\"email\":\"" + email + "\",\"password\":\"" + PASSWORD + "\"}")));
+        }
+
+        private void refresh(LoadDriver.Session session) {
+            tokens(session.send("POST /auth/refresh", post("/auth/refresh",
+                    "{\"refreshToken\":\"" + refreshToken + "\"}")));
+        }
+
+        private void tokens(HttpResponse<String> response) {
+            if (response == null || response.statusCode() != 200) {
+                return;
+            }
+            try {
+                JsonNode body = objectMapper.readTree(response.body());
+                accessToken = body.get("token").asText();
+                refreshToken = body.get("refreshToken").asText();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unreadable token response", e);
+            }
+        }
+
+        private long randomProduct() {
+            return productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()));
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        }
+
+        private HttpRequest post(String path, String json) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .build();
+        }
+
+        private HttpRequest.Builder authorized(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Authorization", "Bearer " + accessToken);
+        }
+    }
+}
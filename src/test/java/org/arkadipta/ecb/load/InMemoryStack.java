@@ -0,0 +1,80 @@
+package org.arkadipta.ecb.load;
+
+import com.github.fppt.jedismock.RedisServer;
+import org.arkadipta.ecb.EcbApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The whole application on a random port with the {@code test} profile, a private H2 database
+ * and an in-process Redis, for load tests that must run without any external service.
+ * Properties are passed as {@code key=value} and override the profile.
+ */
+public final class InMemoryStack implements AutoCloseable {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final RedisServer redisServer;
+    private final ConfigurableApplicationContext context;
+
+    private InMemoryStack(RedisServer redisServer, ConfigurableApplicationContext context) {
+        this.redisServer = redisServer;
+        this.context = context;
+    }
+
+    public static InMemoryStack start(String... properties) throws IOException {
+        return start(List.of(properties), List.of());
+    }
+
+    public static InMemoryStack start(List<String> properties,
+                                      List<ApplicationContextInitializer<ConfigurableApplicationContext>> initializers)
+            throws IOException {
+        RedisServer redisServer = RedisServer.newRedisServer().start();
+        List<String> args = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:stack-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1",
+                "spring.data.redis.host=" + redisServer.getHost(),
+                "spring.data.redis.port=" + redisServer.getBindPort(),
+                // commons-pool2 only reaches the classpath through jedis-mock, production runs unpooled
+                "spring.data.redis.lettuce.pool.enabled=false",
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN",
+                "logging.level.org.springframework.web=WARN",
+                "logging.level.org.arkadipta.ecb=WARN"));
+        args.addAll(properties);
+        try {
+            SpringApplicationBuilder builder = new SpringApplicationBuilder(EcbApplication.class).profiles("test");
+            initializers.forEach(builder::initializers);
+            ConfigurableApplicationContext context = builder.run(args.stream().map(arg -> "--" + arg)
+                    .toArray(String[]::new));
+            return new InMemoryStack(redisServer, context);
+        } catch (RuntimeException e) {
+            redisServer.stop();
+            throw e;
+        }
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            context.close();
+        } finally {
+            redisServer.stop();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.arkadipta.ecb.load;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs one virtual user per {@link Scenario} on its own virtual thread, each repeating its
+ * scenario until the run ends. Every request goes through the user's {@link Session}, which
+ * records its latency under the given endpoint name without any cross-thread contention.
+ */
+public class LoadDriver {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    public LoadReport run(List<? extends Scenario> users, Duration duration) {
+        List<Session> sessions = users.stream().map(user -> new Session()).toList();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users.size(); i++) {
+                Scenario user = users.get(i);
+                Session session = sessions.get(i);
+                executor.execute(() -> {
+                    while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                        try {
+                            user.iterate(session);
+                        } catch (RuntimeException e) {
+                            session.failed("scenario");
+                        }
+                    }
+                });
+            }
+        }
+        return LoadReport.of(sessions.stream().map(session -> session.samples).toList(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * One iteration of a virtual user's behaviour, typically a short sequence of requests.
+     */
+    @FunctionalInterface
+    public interface Scenario {
+        void iterate(Session session);
+    }
+
+    public final class Session {
+
+        private final Map<String, Samples> samples = new HashMap<>();
+
+        private Session() {
+        }
+
+        /**
+         * Sends the request and records it under {@code endpoint}. Returns {@code null} if
+         * the request failed at the transport level.
+         */
+        public HttpResponse<String> send(String endpoint, HttpRequest request) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = null;
+            try {
+                response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (IOException e) {
+                // Recorded as an error below
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            samples.computeIfAbsent(endpoint, name -> new Samples())
+                    .record(System.nanoTime() - start, response != null && response.statusCode() < 400);
+            return response;
+        }
+
+        void failed(String endpoint) {
+            samples.computeIfAbsent(endpoint, name -> new Samples()).errors++;
+        }
+    }
+
+    static final class Samples {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        void record(long nanos, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        long[] latencies() {
+            return Arrays.copyOf(latencies, count);
+        }
+
+        long errors() {
+            return errors;
+        }
+
+        static Samples merge(List<Samples> parts) {
+            Samples merged = new Samples();
+            List<long[]> all = new ArrayList<>(parts.size());
+            for (Samples part : parts) {
+                all.add(part.latencies());
+                merged.errors += part.errors;
+            }
+            merged.latencies = all.stream().flatMapToLong(Arrays::stream).toArray();
+            merged.count = merged.latencies.length;
+            return merged;
+        }
+    }
+}
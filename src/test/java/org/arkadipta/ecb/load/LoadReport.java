@@ -0,0 +1,71 @@
+package org.arkadipta.ecb.load;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput and latency percentiles per endpoint for one {@link LoadDriver} run.
+ */
+public record LoadReport(Map<String, EndpointStats> endpoints, Duration elapsed) {
+
+    public record EndpointStats(long requests, long errors, double throughput,
+                                double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+
+        public double errorRate() {
+            return requests > 0 ? (double) errors / requests : errors > 0 ? 1 : 0;
+        }
+    }
+
+    static LoadReport of(List<Map<String, LoadDriver.Samples>> sessions, Duration elapsed) {
+        Map<String, List<LoadDriver.Samples>> byEndpoint = sessions.stream()
+                .flatMap(samples -> samples.entrySet().stream())
+                .collect(Collectors.groupingBy(Map.Entry::getKey, TreeMap::new,
+                        Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+
+        Map<String, EndpointStats> endpoints = new TreeMap<>();
+        byEndpoint.forEach((endpoint, parts) -> {
+            LoadDriver.Samples merged = LoadDriver.Samples.merge(parts);
+            long[] latencies = merged.latencies();
+            Arrays.sort(latencies);
+            endpoints.put(endpoint, new EndpointStats(latencies.length, merged.errors(),
+                    latencies.length / (elapsed.toNanos() / 1e9),
+                    percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                    latencies.length > 0 ? latencies[latencies.length - 1] / 1e6 : 0));
+        });
+        return new LoadReport(endpoints, elapsed);
+    }
+
+    public EndpointStats get(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    public long totalRequests() {
+        return endpoints.values().stream().mapToLong(EndpointStats::requests).sum();
+    }
+
+    public double throughput() {
+        return totalRequests() / (elapsed.toNanos() / 1e9);
+    }
+
+    public void print(String title) {
+        System.out.printf("%n%s (%d requests in %.1f s, %.0f req/s)%n", title, totalRequests(),
+                elapsed.toMillis() / 1000.0, throughput());
+        System.out.printf("%-26s %9s %9s %8s %8s %8s %8s %7s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors");
+        endpoints.forEach((endpoint, stats) -> System.out.printf(
+                "%-26s %9d %9.1f %8.1f %8.1f %8.1f %8.1f %7d%n", endpoint, stats.requests(), stats.throughput(),
+                stats.p50Millis(), stats.p95Millis(), stats.p99Millis(), stats.maxMillis(), stats.errors()));
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,135 @@
+package org.arkadipta.ecb.notification;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.notification.EmailQueueStats;
+import org.arkadipta.ecb.model.EmailJob;
+import org.arkadipta.ecb.model.enums.EmailJobStatus;
+import org.arkadipta.ecb.model.enums.EmailType;
+import org.arkadipta.ecb.repository.EmailJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.mail.MailSenderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "notifications.email.enabled=true",
+        "notifications.email.queue-capacity=8",
+        "notifications.email.initial-backoff=PT0S",
+        "notifications.smtp.pool-size=2"
+})
+@Import({JpaConfig.class, EmailNotificationService.class, EmailDispatcher.class, EmailTemplateRenderer.class,
+        SmtpConnectionPool.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, MailSenderAutoConfiguration.class})
+class EmailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailNotificationService notificationService;
+
+    @Autowired
+    private EmailDispatcher dispatcher;
+
+    @Autowired
+    private EmailJobRepository emailJobRepository;
+
+    @BeforeEach
+    void setUp() {
+        emailJobRepository.deleteAll();
+    }
+
+    @Test
+    void sendsQueuedJobsInBoundedBatchesOverPooledConnections() throws Exception {
+        long sentBefore = dispatcher.getStats().sent();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            ids.add(notificationService.enqueue(EmailType.ORDER_CONFIRMED, "customer" + i + "@example.com",
+                    Map.of("orderId", i, "customerName", "Customer " + i, "totalItems", 2,
+                            "totalPrice", "59.98", "shippingAddress", "1 Test Street")).getId());
+        }
+
+        // Each run claims at most the free capacity, the rest stays queued in the table
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (emailJobRepository.countByStatus(EmailJobStatus.SENT) < ids.size()
+                && System.currentTimeMillis() < deadline) {
+            dispatcher.dispatch();
+            assertThat(dispatcher.getStats().inFlight()).isLessThanOrEqualTo(8);
+            Thread.sleep(20);
+        }
+
+        assertThat(greenMail.waitForIncomingEmail(5_000, 20)).isTrue();
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(Arrays.stream(received).map(this::subject))
+                .contains("Your order #1 is confirmed", "Your order #20 is confirmed");
+        assertThat(received[0].getContent().toString()).contains("1 Test Street");
+
+        EmailQueueStats stats = dispatcher.getStats();
+        assertThat(stats.sent() - sentBefore).isEqualTo(20);
+        assertThat(stats.pendingJobs()).isZero();
+        assertThat(stats.averageSendMs()).isPositive();
+    }
+
+    @Test
+    void retriesFailedSendsWithBackoff() throws Exception {
+        EmailJob job = notificationService.enqueue(EmailType.PAYMENT_FAILED, "customer@example.com",
+                Map.of("orderId", 7, "customerName", "Customer", "totalPrice", "10.00", "reason", "Card declined"));
+        long retriedBefore = dispatcher.getStats().retried();
+        greenMail.stop();
+
+        dispatcher.dispatch();
+        EmailJob failed = awaitStatus(job.getId(), EmailJobStatus.PENDING, 1);
+        assertThat(failed.getLastError()).isNotBlank();
+
+        greenMail.start();
+        dispatcher.dispatch();
+        EmailJob sent = awaitStatus(job.getId(), EmailJobStatus.SENT, 2);
+
+        assertThat(sent.getSentAt()).isNotNull();
+        assertThat(greenMail.waitForIncomingEmail(5_000, 1)).isTrue();
+        assertThat(subject(greenMail.getReceivedMessages()[0])).isEqualTo("Payment for order #7 failed");
+        assertThat(dispatcher.getStats().retried() - retriedBefore).isEqualTo(1);
+    }
+
+    private EmailJob awaitStatus(Long id, EmailJobStatus status, int attempts) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            EmailJob job = emailJobRepository.findById(id).orElseThrow();
+            if (job.getStatus() == status && job.getAttempts() == attempts) {
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Email job " + id + " did not reach " + status + " after " + attempts + " attempts");
+    }
+
+    private String subject(MimeMessage message) {
+        try {
+            return message.getSubject();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
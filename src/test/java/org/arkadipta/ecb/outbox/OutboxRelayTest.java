@@ -0,0 +1,145 @@
+package org.arkadipta.ecb.outbox;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.product.ProductRequest;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.repository.OutboxRepository;
+import org.arkadipta.ecb.service.ProductCursorCodec;
+import org.arkadipta.ecb.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EmbeddedKafka(partitions = 1, topics = {"ecb.products", "ecb.stock"})
+@TestPropertySource(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.acks=all",
+        "spring.kafka.producer.compression-type=lz4",
+        "spring.kafka.producer.properties.enable.idempotence=true",
+        "spring.kafka.producer.properties.linger.ms=20",
+        "outbox.relay.enabled=true",
+        "outbox.relay.batch-size=2"
+})
+@Import({JpaConfig.class, ProductService.class, ProductCursorCodec.class, OutboxWriter.class, OutboxRelay.class,
+        OutboxRepository.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, JdbcTemplateAutoConfiguration.class,
+        KafkaAutoConfiguration.class})
+class OutboxRelayTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    private Consumer<String, String> consumer;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-test", "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumer = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer())
+                .createConsumer();
+        broker.consumeFromEmbeddedTopics(consumer, "ecb.products", "ecb.stock");
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    void relaysCommittedProductChangesInOrderAndEmptiesTheOutbox() {
+        ProductResponse created = productService.createProduct(request("Keyboard", 10));
+        productService.updateStock(created.getId(), 7);
+        productService.updateProduct(created.getId(), request("Mechanical Keyboard", 7));
+        assertThat(outboxRepository.count()).isEqualTo(3);
+
+        outboxRelay.relay();
+
+        assertThat(outboxRepository.count()).isZero();
+        List<ConsumerRecord<String, String>> records = poll(3);
+        assertThat(records).extracting(ConsumerRecord::key).containsOnly(String.valueOf(created.getId()));
+        assertThat(records).extracting(ConsumerRecord::topic)
+                .containsExactlyInAnyOrder("ecb.products", "ecb.stock", "ecb.products");
+        assertThat(records.stream().filter(record -> record.topic().equals("ecb.products")).map(this::eventType))
+                .containsExactly("PRODUCT_CREATED", "PRODUCT_UPDATED");
+        assertThat(records.stream().filter(record -> record.topic().equals("ecb.stock")).findFirst().orElseThrow()
+                .value()).contains("\"stock\":7");
+    }
+
+    @Test
+    void rolledBackChangesLeaveNoEvents() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            productService.createProduct(request("Mouse", 3));
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(outboxRepository.count()).isZero();
+    }
+
+    private List<ConsumerRecord<String, String>> poll(int expected) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (records.size() < expected && System.currentTimeMillis() < deadline) {
+            ConsumerRecords<String, String> polled = consumer.poll(Duration.ofMillis(500));
+            polled.forEach(records::add);
+        }
+        return records;
+    }
+
+    private String eventType(ConsumerRecord<String, String> record) {
+        return new String(record.headers().lastHeader(OutboxRelay.TYPE_HEADER).value(), StandardCharsets.UTF_8);
+    }
+
+    private static ProductRequest request(String name, int stock) {
+        ProductRequest request = new ProductRequest();
+        request.setName(name);
+        request.setDescription(name + " description");
+        request.setCategory("Peripherals");
+        request.setPrice(new BigDecimal("29.99"));
+        request.setStock(stock);
+        return request;
+    }
+}
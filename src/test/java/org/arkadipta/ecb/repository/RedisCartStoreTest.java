@@ -0,0 +1,91 @@
+package org.arkadipta.ecb.repository;
+
+import com.github.fppt.jedismock.RedisServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisCartStoreTest {
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisCartStore cartStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        cartStore = new RedisCartStore(redisTemplate, Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void writesRequireAHydratedCart() {
+        assertThat(cartStore.increment(1L, 10L, 1)).isNull();
+
+        cartStore.hydrate(1L, 100L, Map.of(10L, 2));
+
+        assertThat(cartStore.increment(1L, 10L, 3)).isEqualTo(5L);
+        assertThat(cartStore.find(1L)).get()
+                .satisfies(snapshot -> {
+                    assertThat(snapshot.cartId()).isEqualTo(100L);
+                    assertThat(snapshot.quantities()).containsEntry(10L, 5);
+                    assertThat(snapshot.version()).isEqualTo(1L);
+                });
+    }
+
+    @Test
+    void hydrateDoesNotOverwriteLiveCart() {
+        cartStore.hydrate(1L, 100L, Map.of(10L, 2));
+        cartStore.set(1L, 11L, 4);
+
+        CartSnapshot snapshot = cartStore.hydrate(1L, 100L, Map.of(10L, 2));
+
+        assertThat(snapshot.quantities()).containsEntry(10L, 2).containsEntry(11L, 4);
+    }
+
+    @Test
+    void cartStaysDirtyWhenWrittenDuringFlush() {
+        cartStore.hydrate(1L, 100L, Map.of());
+        cartStore.set(1L, 10L, 1);
+        CartSnapshot flushed = cartStore.find(1L).orElseThrow();
+
+        cartStore.set(1L, 10L, 2);
+
+        assertThat(cartStore.markClean(1L, flushed.version())).isFalse();
+        assertThat(cartStore.findDirtyUsers(10)).containsExactly(1L);
+
+        CartSnapshot latest = cartStore.find(1L).orElseThrow();
+        assertThat(cartStore.markClean(1L, latest.version())).isTrue();
+        assertThat(cartStore.findDirtyUsers(10)).isEmpty();
+    }
+
+    @Test
+    void clearKeepsCartIdentity() {
+        cartStore.hydrate(1L, 100L, Map.of(10L, 2, 11L, 1));
+
+        cartStore.clear(1L);
+
+        CartSnapshot snapshot = cartStore.find(1L).orElseThrow();
+        assertThat(snapshot.cartId()).isEqualTo(100L);
+        assertThat(snapshot.quantities()).isEmpty();
+        assertThat(cartStore.countDirty()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,72 @@
+package org.arkadipta.ecb.search;
+
+import org.arkadipta.ecb.dto.product.FacetBucket;
+import org.arkadipta.ecb.dto.product.ProductFacets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductFacetIndex(List.of(BigDecimal.ZERO, new BigDecimal("50"), new BigDecimal("100")));
+        index.index(product(1L, "Electronics", "20.00", "4.5"));
+        index.index(product(2L, "Electronics", "75.00", "3.2"));
+        index.index(product(3L, "Electronics", "150.00", "4.0"));
+        index.index(product(4L, "Books", "12.00", "2.0"));
+        index.index(product(5L, "Books", "50.00", "5.0"));
+    }
+
+    @Test
+    void intersectsCategoryAndRanges() {
+        assertThat(ids(index.filter("Electronics", null, null, null))).containsExactly(1, 2, 3);
+        assertThat(ids(index.filter("Electronics", null, new BigDecimal("100"), null))).containsExactly(1, 2);
+        assertThat(ids(index.filter(null, new BigDecimal("50"), new BigDecimal("75"), null))).containsExactly(2, 5);
+        assertThat(ids(index.filter(null, null, null, new BigDecimal("4")))).containsExactly(1, 3, 5);
+        assertThat(ids(index.filter(null, null, null, new BigDecimal("4.2")))).containsExactly(1, 5);
+        assertThat(ids(index.filter("Toys", null, null, null))).isEmpty();
+    }
+
+    @Test
+    void matchesRangeBoundsInsideABucket() {
+        assertThat(ids(index.filter(null, new BigDecimal("15"), new BigDecimal("60"), null))).containsExactly(1, 5);
+    }
+
+    @Test
+    void countsFacetsOverTheMatchSet() {
+        ProductFacets facets = index.facets(index.filter(null, null, new BigDecimal("100"), null));
+
+        assertThat(facets.categories()).containsExactly(
+                Map.entry("Books", 2L), Map.entry("Electronics", 2L));
+        assertThat(facets.priceRanges()).extracting(FacetBucket::count).containsExactly(2L, 2L, 0L);
+        assertThat(facets.ratings()).extracting(FacetBucket::count).containsExactly(0L, 0L, 1L, 1L, 2L);
+    }
+
+    @Test
+    void reindexMovesProductBetweenBuckets() {
+        index.index(product(4L, "Electronics", "120.00", "2.0"));
+        assertThat(ids(index.filter("Books", null, null, null))).containsExactly(5);
+        assertThat(ids(index.filter(null, new BigDecimal("100"), null, null))).containsExactly(3, 4);
+
+        index.remove(3L);
+        assertThat(ids(index.filter(null, new BigDecimal("100"), null, null))).containsExactly(4);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    private static List<Integer> ids(RoaringBitmap bitmap) {
+        return bitmap.stream().boxed().toList();
+    }
+
+    private static IndexedProduct product(Long id, String category, String price, String rating) {
+        return new IndexedProduct(id, "Product " + id, null, category, new BigDecimal(price), new BigDecimal(rating), 1);
+    }
+}
@@ -0,0 +1,77 @@
+package org.arkadipta.ecb.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.index(product(1L, "Wireless Mouse", "Ergonomic mouse with USB receiver", "Electronics", "25.00"));
+        index.index(product(2L, "Gaming Keyboard", "Mechanical keyboard, works with any mouse", "Electronics", "80.00"));
+        index.index(product(3L, "Mouse Pad", "Large desk mat", "Accessories", "10.00"));
+        index.index(product(4L, "Desk Lamp", "LED lamp", "Home", "30.00"));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        List<Long> ids = ids(index.search("mouse", p -> true));
+
+        assertThat(ids).hasSize(3);
+        assertThat(ids.get(2)).isEqualTo(2L);
+    }
+
+    @Test
+    void requiresEveryQueryTermAndMatchesPrefixes() {
+        assertThat(ids(index.search("wire mou", p -> true))).containsExactly(1L);
+        assertThat(ids(index.search("mouse lamp", p -> true))).isEmpty();
+    }
+
+    @Test
+    void matchesInsideWordsBelowPrefixMatches() {
+        index.index(product(5L, "Smartphone Case", "Fits most phones", "Accessories", "15.00"));
+        index.index(product(6L, "Phone Stand", "Aluminium stand", "Accessories", "12.00"));
+
+        assertThat(ids(index.search("phone", p -> true))).containsExactly(6L, 5L);
+        assertThat(ids(index.search("artph", p -> true))).containsExactly(5L);
+        assertThat(ids(index.search("board", p -> true))).containsExactly(2L);
+        assertThat(ids(index.search("xyzphone", p -> true))).isEmpty();
+
+        index.remove(5L);
+        assertThat(ids(index.search("artph", p -> true))).isEmpty();
+    }
+
+    @Test
+    void appliesFilters() {
+        List<Long> ids = ids(index.search("mouse", p -> p.price().compareTo(new BigDecimal("20")) <= 0));
+
+        assertThat(ids).containsExactly(3L);
+    }
+
+    @Test
+    void reindexingAndRemovalReplacePostings() {
+        index.index(product(4L, "Mouse Lamp", "LED lamp", "Home", "30.00"));
+        assertThat(ids(index.search("mouse", p -> true))).contains(4L);
+        assertThat(ids(index.search("desk", p -> true))).containsExactly(3L);
+
+        index.remove(1L);
+        assertThat(ids(index.search("wireless", p -> true))).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(hit -> hit.product().id()).toList();
+    }
+
+    private static IndexedProduct product(Long id, String name, String description, String category, String price) {
+        return new IndexedProduct(id, name, description, category, new BigDecimal(price), BigDecimal.ZERO, 10);
+    }
+}
@@ -0,0 +1,199 @@
+package org.arkadipta.ecb.search;
+
+import org.arkadipta.ecb.cache.CacheInvalidation;
+import org.arkadipta.ecb.cache.CacheInvalidationBus;
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(JpaConfig.class)
+class ProductSearchServiceTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private InMemoryBus bus;
+    private ProductSearchService nodeA;
+    private ProductSearchService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        bus = new InMemoryBus();
+        nodeA = node(bus);
+        nodeB = node(bus);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void rebuildsFromEveryActiveProductInKeysetBatches() {
+        for (String name : List.of("Desk Lamp", "Floor Lamp", "Reading Lamp", "Lamp Shade", "Lamp Bulb")) {
+            productRepository.save(product(name, "Home", true));
+        }
+        productRepository.save(product("Broken Lamp", "Home", false));
+
+        nodeA.rebuild();
+
+        assertThat(search(nodeA, "lamp")).hasSize(5);
+    }
+
+    @Test
+    void peersReloadTheProductsAnotherNodeChanged() {
+        nodeA.rebuild();
+        nodeB.rebuild();
+
+        Product lamp = productRepository.save(product("Desk Lamp", "Home", true));
+        nodeA.onProductChanged(changed(ProductChangedEvent.Type.CREATED, lamp));
+        assertThat(search(nodeB, "lamp")).containsExactly(lamp.getId());
+
+        lamp.setName("Desk Light");
+        lamp = productRepository.save(lamp);
+        nodeA.onProductChanged(changed(ProductChangedEvent.Type.UPDATED, lamp));
+        assertThat(search(nodeB, "lamp")).isEmpty();
+        assertThat(search(nodeB, "light")).containsExactly(lamp.getId());
+
+        lamp.setActive(false);
+        lamp = productRepository.save(lamp);
+        nodeA.onProductChanged(changed(ProductChangedEvent.Type.DELETED, lamp));
+        assertThat(search(nodeB, "light")).isEmpty();
+    }
+
+    @Test
+    void catchUpRepairsChangesWhoseBroadcastWasMissed() {
+        ProductSearchService isolated = node(new InMemoryBus());
+        Product lamp = productRepository.save(product("Desk Lamp", "Home", true));
+        isolated.rebuild();
+
+        Product chair = productRepository.save(product("Office Chair", "Home", true));
+        lamp.setActive(false);
+        productRepository.save(lamp);
+        nodeA.onProductChanged(changed(ProductChangedEvent.Type.CREATED, chair));
+        assertThat(search(isolated, "chair")).isEmpty();
+
+        isolated.catchUp();
+
+        assertThat(search(isolated, "chair")).containsExactly(chair.getId());
+        assertThat(search(isolated, "lamp")).isEmpty();
+    }
+
+    @Test
+    void peerFacetsFollowProductsMovedOrDeactivatedOnAnotherNode() {
+        Product lamp = productRepository.save(product("Desk Lamp", "Home", true));
+        productRepository.save(product("Notebook", "Office", true));
+        nodeA.rebuild();
+        nodeB.rebuild();
+
+        lamp.setCategory("Office");
+        lamp = productRepository.save(lamp);
+        nodeA.onProductChanged(changed(ProductChangedEvent.Type.UPDATED, lamp));
+        assertThat(categoryFacets(nodeB)).containsExactly(Map.entry("Office", 2L));
+        assertThat(filterByCategory(nodeB, "Home")).isEmpty();
+
+        lamp.setActive(false);
+        lamp = productRepository.save(lamp);
+        nodeA.onProductChanged(changed(ProductChangedEvent.Type.DELETED, lamp));
+        assertThat(categoryFacets(nodeB)).containsExactly(Map.entry("Office", 1L));
+        assertThat(filterByCategory(nodeB, "Office")).doesNotContain(lamp.getId());
+    }
+
+    @Test
+    void catchUpRepairsFacetsWhoseBroadcastWasMissed() {
+        ProductSearchService isolated = node(new InMemoryBus());
+        Product lamp = productRepository.save(product("Desk Lamp", "Home", true));
+        isolated.rebuild();
+
+        lamp.setCategory("Office");
+        productRepository.save(lamp);
+        Product chair = productRepository.save(product("Office Chair", "Office", true));
+        assertThat(categoryFacets(isolated)).containsExactly(Map.entry("Home", 1L));
+
+        isolated.catchUp();
+
+        assertThat(categoryFacets(isolated)).containsExactly(Map.entry("Office", 2L));
+        assertThat(filterByCategory(isolated, "Office")).containsExactlyInAnyOrder(lamp.getId(), chair.getId());
+    }
+
+    private ProductSearchService node(CacheInvalidationBus bus) {
+        ProductSearchService node = new ProductSearchService(productRepository, bus);
+        ReflectionTestUtils.setField(node, "rebuildBatchSize", 2);
+        ReflectionTestUtils.setField(node, "catchUpOverlapMs", 300_000L);
+        ReflectionTestUtils.setField(node, "priceBuckets", List.of(BigDecimal.ZERO, new BigDecimal("50")));
+        node.subscribe();
+        return node;
+    }
+
+    private static List<Long> search(ProductSearchService node, String query) {
+        return node.search(null, query, null, null, null, PageRequest.of(0, 20)).getContent();
+    }
+
+    private static Map<String, Long> categoryFacets(ProductSearchService node) {
+        return node.search(null, null, null, null, null, PageRequest.of(0, 20), true).facets().categories();
+    }
+
+    private static List<Long> filterByCategory(ProductSearchService node, String category) {
+        return node.search(category, null, null, null, null, PageRequest.of(0, 20)).getContent();
+    }
+
+    private static ProductChangedEvent changed(ProductChangedEvent.Type type, Product product) {
+        ProductResponse response = new ProductResponse();
+        response.setId(product.getId());
+        response.setName(product.getName());
+        response.setDescription(product.getDescription());
+        response.setCategory(product.getCategory());
+        response.setPrice(product.getPrice());
+        response.setRating(product.getRating());
+        response.setStock(product.getStock());
+        response.setActive(product.isActive());
+        return new ProductChangedEvent(type, null, response);
+    }
+
+    static Product product(String name, String category, boolean active) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setPrice(new BigDecimal("30.00"));
+        product.setStock(10);
+        product.setRating(new BigDecimal("4.0"));
+        product.setActive(active);
+        return product;
+    }
+
+    private static class InMemoryBus implements CacheInvalidationBus {
+        private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+            listeners.forEach(listener -> listener.accept(invalidation));
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+            listeners.add(listener);
+        }
+    }
+}
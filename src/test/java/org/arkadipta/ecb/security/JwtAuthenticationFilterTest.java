@@ -0,0 +1,131 @@
+package org.arkadipta.ecb.security;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.model.enums.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthenticationFilterTest {
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisMessageListenerContainer listenerContainer;
+    private TokenRevocationStore revocationStore;
+    private JwtUtils jwtUtils;
+    private final Map<String, User> users = new HashMap<>();
+    private final AtomicInteger userLookups = new AtomicInteger();
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        revocationStore = new TokenRevocationStore(redisTemplate, listenerContainer, "ecb:auth:revocations");
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        jwtUtils = JwtUtilsTest.jwtUtils(3_600_000);
+        filter = new JwtAuthenticationFilter(jwtUtils, username -> {
+            userLookups.incrementAndGet();
+            User user = users.get(username);
+            if (user == null) {
+                throw new UsernameNotFoundException(username);
+            }
+            return user;
+        }, revocationStore, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        SecurityContextHolder.clearContext();
+        listenerContainer.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void authenticatesFromTheTokenClaimsWithoutLoadingTheUser() throws Exception {
+        String token = jwtUtils.generateToken(JwtUtilsTest.user(7L, "ada@example.com", Role.ADMIN));
+
+        Authentication authentication = authenticate(token);
+
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getPrincipal()).isInstanceOf(JwtPrincipal.class);
+        assertThat(((JwtPrincipal) authentication.getPrincipal()).getId()).isEqualTo(7L);
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+        assertThat(userLookups).hasValue(0);
+    }
+
+    @Test
+    void loadsTheUserForTokensWithoutIdentityClaims() throws Exception {
+        User user = JwtUtilsTest.user(null, "old@example.com", Role.CUSTOMER);
+        String token = jwtUtils.generateToken(user);
+        user.setId(9L);
+        users.put("old@example.com", user);
+
+        Authentication authentication = authenticate(token);
+
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getPrincipal()).isSameAs(user);
+        assertThat(userLookups).hasValue(1);
+    }
+
+    @Test
+    void rejectsRevokedTokensWithoutLoadingTheUser() throws Exception {
+        String token = jwtUtils.generateToken(JwtUtilsTest.user(7L, "ada@example.com", Role.ADMIN));
+
+        revocationStore.revokeAllTokens(7L);
+
+        assertThat(authenticate(token)).isNull();
+        assertThat(userLookups).hasValue(0);
+    }
+
+    @Test
+    void ignoresInvalidTokens() throws Exception {
+        String token = jwtUtils.generateToken(JwtUtilsTest.user(7L, "ada@example.com", Role.ADMIN));
+
+        assertThat(authenticate(JwtUtilsTest.tamperSignature(token))).isNull();
+        assertThat(authenticate("not-a-jwt")).isNull();
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,88 @@
+package org.arkadipta.ecb.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.arkadipta.ecb.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Per-request authentication cost of the JWT filter before and after single-parse
+ * verification. Run with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class JwtUtilsBenchmarkTest {
+
+    private static final String SECRET = "dGVzdFNlY3JldEtleTEyMzQ1Njc4OTAxMjM0NTY3ODkwMTIzNDU2Nzg5MDEyMzQ1Njc4OTA=";
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private volatile boolean blackhole;
+
+    private JwtUtils jwtUtils;
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpirationMs", 7_200_000);
+        ReflectionTestUtils.setField(jwtUtils, "claimsCacheSize", 10_000L);
+        jwtUtils.init();
+
+        user = new User();
+        user.setEmail("bench@example.com");
+        token = jwtUtils.generateToken(user);
+    }
+
+    @Test
+    void compareAuthenticationCost() {
+        double legacy = nanosPerOp(this::legacyFilterPath);
+        double singleParse = nanosPerOp(() -> {
+            Claims claims = jwtUtils.parseToken(token);
+            return jwtUtils.isValidFor(claims, user);
+        });
+
+        System.out.printf("JWT auth per request: legacy=%.0f ns, single-parse+cache=%.0f ns (%.1fx)%n",
+                legacy, singleParse, legacy / singleParse);
+        assertThat(singleParse).isLessThan(legacy);
+    }
+
+    // The pre-refactoring filter: extractUsername, then validateToken re-parsing twice, rebuilding the key each time
+    private boolean legacyFilterPath() {
+        String username = legacyParse().getSubject();
+        boolean matches = legacyParse().getSubject().equals(username);
+        return matches && !legacyParse().getExpiration().before(new Date());
+    }
+
+    private Claims legacyParse() {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+
+    private double nanosPerOp(Supplier<Boolean> operation) {
+        boolean sink = false;
+        for (int i = 0; i < WARMUP; i++) {
+            sink ^= operation.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink ^= operation.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        blackhole = sink;
+        return (double) elapsed / ITERATIONS;
+    }
+}
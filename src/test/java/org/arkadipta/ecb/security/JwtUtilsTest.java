@@ -0,0 +1,173 @@
+package org.arkadipta.ecb.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.model.enums.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilsTest {
+
+    static final String SECRET = "dGVzdFNlY3JldEtleTEyMzQ1Njc4OTAxMjM0NTY3ODkwMTIzNDU2Nzg5MDEyMzQ1Njc4OTA=";
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = jwtUtils(3_600_000);
+    }
+
+    static JwtUtils jwtUtils(int expirationMs) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", expirationMs);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpirationMs", expirationMs * 2);
+        ReflectionTestUtils.setField(jwtUtils, "claimsCacheSize", 100L);
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    static User user(Long id, String email, Role role) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setRole(role);
+        return user;
+    }
+
+    // Flips one character in the middle of the signature, which still decodes as Base64URL
+    static String tamperSignature(String token) {
+        int at = token.lastIndexOf('.') + 10;
+        char replacement = token.charAt(at) == 'A' ? 'B' : 'A';
+        return token.substring(0, at) + replacement + token.substring(at + 1);
+    }
+
+    @Test
+    void servesRepeatedParsesOfATokenFromTheClaimsCache() {
+        String token = jwtUtils.generateToken(user(7L, "ada@example.com", Role.CUSTOMER));
+
+        Claims first = jwtUtils.parseToken(token);
+        Claims second = jwtUtils.parseToken(token);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void stopsServingCachedClaimsOnceTheTokenExpires() throws Exception {
+        JwtUtils shortLived = jwtUtils(1_000);
+        String token = shortLived.generateToken(user(7L, "ada@example.com", Role.CUSTOMER));
+        Claims claims = shortLived.parseToken(token);
+        assertThat(claims).isNotNull();
+
+        // exp is whole seconds, so the token lapses within a second of being issued
+        while (!new Date().after(claims.getExpiration())) {
+            Thread.sleep(20);
+        }
+
+        assertThat(shortLived.parseToken(token)).isNull();
+        assertThat(shortLived.validateJwtToken(token)).isFalse();
+    }
+
+    @Test
+    void tokensWithABadSignatureMissTheCache() {
+        String token = jwtUtils.generateToken(user(7L, "ada@example.com", Role.CUSTOMER));
+        assertThat(jwtUtils.parseToken(token)).isNotNull();
+        Cache<?, ?> verifiedClaims = (Cache<?, ?>) ReflectionTestUtils.getField(jwtUtils, "verifiedClaims");
+        long misses = verifiedClaims.stats().missCount();
+
+        // Same header and payload as the cached token, or same header with an edited payload
+        int payloadAt = token.indexOf('.') + 10;
+        String editedPayload = token.substring(0, payloadAt)
+                + (token.charAt(payloadAt) == 'A' ? 'B' : 'A') + token.substring(payloadAt + 1);
+        assertThat(jwtUtils.parseToken(tamperSignature(token))).isNull();
+        assertThat(jwtUtils.parseToken(editedPayload)).isNull();
+        assertThat(jwtUtils.parseToken(token.substring(0, token.lastIndexOf('.') + 1))).isNull();
+
+        assertThat(verifiedClaims.stats().missCount()).isEqualTo(misses + 3);
+        assertThat(jwtUtils.parseToken(token)).isNotNull();
+        assertThat(verifiedClaims.stats().missCount()).isEqualTo(misses + 3);
+    }
+
+    @Test
+    void tokensSignedWithAnotherKeyAreRejected() {
+        SecretKey otherKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(
+                "b3RoZXJTZWNyZXRLZXkxMjM0NTY3ODkwMTIzNDU2Nzg5MDEyMzQ1Njc4OTAxMjM0NTY3ODk="));
+        String forged = Jwts.builder()
+                .subject("ada@example.com")
+                .claim(JwtUtils.USER_ID_CLAIM, 7L)
+                .claim(JwtUtils.ROLE_CLAIM, "ADMIN")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(otherKey)
+                .compact();
+
+        assertThat(jwtUtils.parseToken(forged)).isNull();
+    }
+
+    @Test
+    void returnsNullForExpiredOrMalformedTokens() {
+        String expired = Jwts.builder()
+                .subject("ada@example.com")
+                .issuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .expiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+
+        assertThat(jwtUtils.parseToken(expired)).isNull();
+        assertThat(jwtUtils.parseToken("not-a-jwt")).isNull();
+        assertThat(jwtUtils.parseToken("a.b.c")).isNull();
+        assertThat(jwtUtils.parseToken("")).isNull();
+    }
+
+    @Test
+    void buildsThePrincipalFromTheIdentityClaims() {
+        String token = jwtUtils.generateToken(user(7L, "ada@example.com", Role.ADMIN));
+
+        JwtPrincipal principal = jwtUtils.toPrincipal(jwtUtils.parseToken(token));
+
+        assertThat(principal).isNotNull();
+        assertThat(principal.getId()).isEqualTo(7L);
+        assertThat(principal.getUsername()).isEqualTo("ada@example.com");
+        assertThat(principal.getRole()).isEqualTo(Role.ADMIN);
+        assertThat(principal.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void returnsNoPrincipalWithoutAUserId() {
+        Claims claims = Jwts.claims().subject("ada@example.com").add(JwtUtils.ROLE_CLAIM, "ADMIN").build();
+
+        assertThat(jwtUtils.toPrincipal(claims)).isNull();
+    }
+
+    @Test
+    void returnsNoPrincipalWithoutAKnownRole() {
+        Claims missing = Jwts.claims().subject("ada@example.com").add(JwtUtils.USER_ID_CLAIM, 7L).build();
+        Claims unknown = Jwts.claims().subject("ada@example.com")
+                .add(JwtUtils.USER_ID_CLAIM, 7L)
+                .add(JwtUtils.ROLE_CLAIM, "SUPERUSER")
+                .build();
+
+        assertThat(jwtUtils.toPrincipal(missing)).isNull();
+        assertThat(jwtUtils.toPrincipal(unknown)).isNull();
+    }
+
+    @Test
+    void tokensForUsersNotYetSavedCarryNoIdentityClaims() {
+        String token = jwtUtils.generateToken(user(null, "new@example.com", Role.CUSTOMER));
+
+        Claims claims = jwtUtils.parseToken(token);
+
+        assertThat(claims.getSubject()).isEqualTo("new@example.com");
+        assertThat(jwtUtils.toPrincipal(claims)).isNull();
+    }
+}
@@ -0,0 +1,150 @@
+package org.arkadipta.ecb.security;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationStoreTest {
+
+    private static final String CHANNEL = "ecb:auth:revocations";
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void rejectsTokensIssuedUpToTheCutOff() {
+        TokenRevocationStore store = newStore();
+
+        long before = System.currentTimeMillis();
+        store.revokeAllTokens(7L);
+        long after = System.currentTimeMillis();
+
+        assertThat(store.isRevoked(7L, before)).isTrue();
+        assertThat(store.isRevoked(7L, after + 1)).isFalse();
+        assertThat(store.isRevoked(8L, before)).isFalse();
+    }
+
+    @Test
+    void acceptsATokenIssuedLaterInTheSameSecondAsTheRevocation() {
+        TokenRevocationStore store = newStore();
+        store.revokeAllTokens(7L);
+        long issuedAt = System.currentTimeMillis() + 1;
+
+        // iat alone is truncated to the second and would fall at or before the cut-off
+        Claims claims = Jwts.claims()
+                .add(JwtUtils.USER_ID_CLAIM, 7L)
+                .add(JwtUtils.ISSUED_AT_MILLIS_CLAIM, issuedAt)
+                .issuedAt(new Date(issuedAt))
+                .build();
+
+        assertThat(store.isRevoked(claims)).isFalse();
+    }
+
+    @Test
+    void tokensWithoutMillisecondIssuedAtStayRejectedForTheRestOfTheSecond() {
+        TokenRevocationStore store = newStore();
+        long before = System.currentTimeMillis();
+        store.revokeAllTokens(7L);
+
+        // Issued after the revocation, but iat only says which second
+        Claims legacy = Jwts.claims()
+                .add(JwtUtils.USER_ID_CLAIM, 7L)
+                .issuedAt(new Date(before / 1000 * 1000))
+                .build();
+        Claims nextSecond = Jwts.claims()
+                .add(JwtUtils.USER_ID_CLAIM, 7L)
+                .issuedAt(new Date((before / 1000 + 2) * 1000))
+                .build();
+
+        assertThat(store.isRevoked(legacy)).isTrue();
+        assertThat(store.isRevoked(nextSecond)).isFalse();
+    }
+
+    @Test
+    void otherNodesLearnRevocationsFromThePublishedMessage() throws Exception {
+        TokenRevocationStore nodeA = newStore();
+        TokenRevocationStore nodeB = newStore();
+        long before = System.currentTimeMillis();
+
+        nodeA.revokeAllTokens(7L);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!nodeB.isRevoked(7L, before) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(nodeB.isRevoked(7L, before)).isTrue();
+    }
+
+    @Test
+    void resyncPicksUpRevocationsWhoseMessageWasMissed() {
+        TokenRevocationStore store = newStore();
+        long before = System.currentTimeMillis();
+
+        redisTemplate.opsForHash().put("ecb:auth:tokens-not-before", "7", Long.toString(before));
+        assertThat(store.isRevoked(7L, before)).isFalse();
+
+        store.syncFromRedis();
+
+        assertThat(store.isRevoked(7L, before)).isTrue();
+        assertThat(store.isRevoked(7L, before + 1)).isFalse();
+    }
+
+    @Test
+    void loadsExistingCutOffsOnStartupAndNeverMovesOneBack() {
+        long before = System.currentTimeMillis();
+        redisTemplate.opsForHash().put("ecb:auth:tokens-not-before", "7", Long.toString(before));
+
+        TokenRevocationStore store = newStore();
+        store.loadMirror();
+        redisTemplate.opsForHash().put("ecb:auth:tokens-not-before", "7", Long.toString(before - 60_000));
+        store.syncFromRedis();
+
+        assertThat(store.isRevoked(7L, before)).isTrue();
+    }
+
+    private TokenRevocationStore newStore() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        TokenRevocationStore store = new TokenRevocationStore(redisTemplate, container, CHANNEL);
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+        return store;
+    }
+}
@@ -0,0 +1,161 @@
+package org.arkadipta.ecb.service;
+
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.cart.AddToCartRequest;
+import org.arkadipta.ecb.dto.cart.CartItemResponse;
+import org.arkadipta.ecb.dto.cart.CartResponse;
+import org.arkadipta.ecb.metrics.SqlStatementCounter;
+import org.arkadipta.ecb.model.Cart;
+import org.arkadipta.ecb.model.CartItem;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.model.enums.Role;
+import org.arkadipta.ecb.outbox.OutboxWriter;
+import org.arkadipta.ecb.repository.CartRepository;
+import org.arkadipta.ecb.repository.OutboxRepository;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.arkadipta.ecb.security.CurrentUserProvider;
+import org.arkadipta.ecb.security.JwtPrincipal;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({JpaConfig.class, OutboxWriter.class, OutboxRepository.class, CurrentUserProvider.class, CartService.class,
+        CartServiceTest.StatementCounting.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
+class CartServiceTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SqlStatementCounter statementCounter;
+
+    private User user;
+    private List<CartItem> items;
+
+    @TestConfiguration
+    static class StatementCounting {
+
+        @Bean
+        SqlStatementCounter sqlStatementCounter() {
+            return new SqlStatementCounter();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter sqlStatementCounter) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("Shopper");
+        user.setEmail("shopper@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.setItems(new ArrayList<>());
+        for (String name : List.of("Book", "Pen", "Lamp")) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(entityManager.persist(product(name)));
+            item.setQuantity(1);
+            cart.getItems().add(item);
+        }
+        items = cartRepository.save(cart).getItems();
+        // Every call below has to go to the database for the cart
+        entityManager.flush();
+        entityManager.clear();
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new JwtPrincipal(user.getId(), user.getEmail(), Role.CUSTOMER), null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void loadsTheCartItsItemsAndTheirProductsInOneStatement() {
+        CartResponse cart = countStatements(1, cartService::getCart);
+
+        assertThat(cart.getItems()).extracting(CartItemResponse::getProductName)
+                .containsExactlyInAnyOrder("Book", "Pen", "Lamp");
+        assertThat(cart.getTotalItems()).isEqualTo(3);
+    }
+
+    @Test
+    void mutationsBuildTheResponseFromTheCartTheyLoaded() {
+        Long bookId = items.get(0).getProduct().getId();
+        AddToCartRequest request = new AddToCartRequest();
+        request.setProductId(bookId);
+        request.setQuantity(2);
+
+        // One select for the cart, one statement for the change itself
+        CartResponse added = countStatements(2, () -> cartService.addToCart(request));
+        CartResponse updated = countStatements(2, () -> cartService.updateCartItem(items.get(1).getId(), 4));
+        CartResponse removed = countStatements(2, () -> cartService.removeFromCart(items.get(2).getId()));
+
+        assertThat(added.getTotalItems()).isEqualTo(5);
+        assertThat(updated.getTotalItems()).isEqualTo(8);
+        assertThat(removed.getItems()).extracting(CartItemResponse::getProductName)
+                .containsExactlyInAnyOrder("Book", "Pen");
+        assertThat(removed.getTotalItems()).isEqualTo(7);
+    }
+
+    // Flushes inside the count so the writes a call causes are part of it
+    private <T> T countStatements(int expected, Supplier<T> call) {
+        statementCounter.start();
+        T result = call.get();
+        entityManager.flush();
+        assertThat(statementCounter.stop()).isEqualTo(expected);
+        entityManager.clear();
+        return result;
+    }
+
+    private static Product product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Stationery");
+        product.setPrice(new BigDecimal("4.50"));
+        product.setStock(50);
+        product.setRating(BigDecimal.ZERO);
+        product.setActive(true);
+        return product;
+    }
+}
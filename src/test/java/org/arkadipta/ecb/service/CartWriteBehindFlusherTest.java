@@ -0,0 +1,150 @@
+package org.arkadipta.ecb.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.model.Cart;
+import org.arkadipta.ecb.model.OutboxEvent;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.outbox.OutboxWriter;
+import org.arkadipta.ecb.repository.CartItemRepository;
+import org.arkadipta.ecb.repository.CartRepository;
+import org.arkadipta.ecb.repository.OutboxRepository;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.arkadipta.ecb.repository.RedisCartStore;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({JpaConfig.class, OutboxWriter.class, OutboxRepository.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
+class CartWriteBehindFlusherTest {
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OutboxWriter outboxWriter;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisCartStore cartStore;
+    private CartWriteBehindFlusher flusher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        cartStore = new RedisCartStore(new StringRedisTemplate(connectionFactory), Duration.ofDays(7));
+        flusher = new CartWriteBehindFlusher(cartStore, cartRepository, cartItemRepository, productRepository,
+                userRepository, transactionTemplate, outboxWriter, 200, Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void writesOneCartEventPerFlushWithThePersistedCart() throws Exception {
+        User user = user();
+        Product book = productRepository.save(product("Book"));
+        Product pen = productRepository.save(product("Pen"));
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.setItems(new ArrayList<>());
+        cart = cartRepository.save(cart);
+        cartStore.hydrate(user.getId(), cart.getId(), Map.of());
+        cartStore.increment(user.getId(), book.getId(), 1);
+        cartStore.increment(user.getId(), book.getId(), 2);
+        cartStore.increment(user.getId(), pen.getId(), 1);
+
+        flusher.flush();
+
+        List<OutboxEvent> events = outboxEvents();
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.getEventType()).isEqualTo("CART_UPDATED");
+            assertThat(event.getAggregateId()).isEqualTo(String.valueOf(user.getId()));
+        });
+        JsonNode payload = objectMapper.readTree(events.get(0).getPayload());
+        assertThat(payload.get("totalItems").asInt()).isEqualTo(4);
+        assertThat(cartItemRepository.count()).isEqualTo(2);
+
+        cartStore.clear(user.getId());
+        flusher.flush();
+        flusher.flush();
+
+        assertThat(outboxEvents()).extracting(OutboxEvent::getEventType)
+                .containsExactly("CART_UPDATED", "CART_CLEARED");
+    }
+
+    private List<OutboxEvent> outboxEvents() {
+        return transactionTemplate.execute(status -> outboxRepository.lockOldest(100));
+    }
+
+    private User user() {
+        User user = new User();
+        user.setName("Shopper");
+        user.setEmail("shopper-" + System.nanoTime() + "@example.com");
+        user.setPassword("secret");
+        return userRepository.save(user);
+    }
+
+    private static Product product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Stationery");
+        product.setPrice(new BigDecimal("4.50"));
+        product.setStock(50);
+        product.setRating(BigDecimal.ZERO);
+        product.setActive(true);
+        return product;
+    }
+}
@@ -0,0 +1,189 @@
+package org.arkadipta.ecb.service;
+
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.order.CheckoutRequest;
+import org.arkadipta.ecb.exception.InsufficientStockException;
+import org.arkadipta.ecb.model.Cart;
+import org.arkadipta.ecb.model.CartItem;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.notification.EmailNotificationService;
+import org.arkadipta.ecb.outbox.OutboxWriter;
+import org.arkadipta.ecb.repository.CartRepository;
+import org.arkadipta.ecb.repository.OrderRepository;
+import org.arkadipta.ecb.repository.OutboxRepository;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.arkadipta.ecb.repository.ProductStockRepository;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.arkadipta.ecb.security.CurrentUserProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hundreds of concurrent checkouts racing for the same SKUs against a shared H2 database.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkout;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "spring.jpa.show-sql=false"
+})
+@Import({JpaConfig.class, OrderService.class, ProductService.class, ProductCursorCodec.class,
+        ProductStockRepository.class, CurrentUserProvider.class, OutboxWriter.class, OutboxRepository.class,
+        EmailNotificationService.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
+class CheckoutConcurrencyTest {
+
+    private static final int SHOPPERS = 300;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final AtomicInteger userSequence = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        orderRepository.deleteAll();
+        cartRepository.deleteAll();
+    }
+
+    @Test
+    void neverOversellsASingleSku() throws Exception {
+        Product hot = productRepository.save(product("Flash sale console", 100));
+        List<Long> shoppers = shoppersWith(SHOPPERS, List.of(hot), 1);
+
+        Outcome outcome = checkoutConcurrently(shoppers);
+
+        assertThat(outcome.placed()).isEqualTo(100);
+        assertThat(outcome.rejected()).isEqualTo(SHOPPERS - 100);
+        assertThat(outcome.unexpected()).isEmpty();
+        assertThat(productRepository.findById(hot.getId()).orElseThrow().getStock()).isZero();
+        assertThat(orderRepository.count()).isEqualTo(100);
+    }
+
+    @Test
+    void rollsBackEveryLineWhenOneIsShortAndDoesNotDeadlock() throws Exception {
+        Product first = productRepository.save(product("Controller", 1000));
+        Product second = productRepository.save(product("Headset", 60));
+        // Half the carts list the products in the opposite order
+        List<Long> shoppers = new ArrayList<>(shoppersWith(SHOPPERS / 2, List.of(first, second), 2));
+        shoppers.addAll(shoppersWith(SHOPPERS / 2, List.of(second, first), 2));
+
+        Outcome outcome = checkoutConcurrently(shoppers);
+
+        assertThat(outcome.unexpected()).isEmpty();
+        assertThat(outcome.placed()).isEqualTo(30);
+        assertThat(productRepository.findById(second.getId()).orElseThrow().getStock()).isZero();
+        // Rejected checkouts must not keep the decrement of the line that did fit
+        assertThat(productRepository.findById(first.getId()).orElseThrow().getStock()).isEqualTo(1000 - 30 * 2);
+    }
+
+    private Outcome checkoutConcurrently(List<Long> shoppers) throws Exception {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setShippingAddress("1 Test Street");
+
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        for (Long userId : shoppers) {
+            futures.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                try {
+                    orderService.placeOrder(userId, request);
+                    placed.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    rejected.incrementAndGet();
+                } catch (Throwable e) {
+                    unexpected.add(e);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        return new Outcome(placed.get(), rejected.get(), unexpected);
+    }
+
+    private List<Long> shoppersWith(int count, List<Product> products, int quantity) {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int n = userSequence.incrementAndGet();
+            User user = new User();
+            user.setName("Shopper " + n);
+            user.setEmail("shopper" + n + "-" + System.nanoTime() + "@example.com");
+            user.setPassword("secret");
+            user = userRepository.save(user);
+
+            Cart cart = new Cart();
+            cart.setUser(user);
+            cart.setItems(new ArrayList<>());
+            for (Product product : products) {
+                CartItem item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(product);
+                item.setQuantity(quantity);
+                cart.getItems().add(item);
+            }
+            cartRepository.save(cart);
+            userIds.add(user.getId());
+        }
+        return userIds;
+    }
+
+    private static Product product(String name, int stock) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Electronics");
+        product.setPrice(new BigDecimal("49.99"));
+        product.setStock(stock);
+        product.setRating(BigDecimal.ZERO);
+        product.setActive(true);
+        return product;
+    }
+
+    private record Outcome(int placed, int rejected, List<Throwable> unexpected) {
+    }
+}
@@ -0,0 +1,139 @@
+package org.arkadipta.ecb.service;
+
+import jakarta.persistence.EntityManager;
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateRequest;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateResponse;
+import org.arkadipta.ecb.dto.product.ProductBulkUpdateResponse.Status;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsUpdatedEvent;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductBulkRepository;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({JpaConfig.class, ProductBulkUpdateService.class, ProductBulkRepository.class})
+@RecordApplicationEvents
+class ProductBulkUpdateServiceTest {
+
+    @Autowired
+    private ProductBulkUpdateService bulkUpdateService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    private Product keyboard;
+    private Product mouse;
+    private Product monitor;
+    private Product retired;
+
+    @BeforeEach
+    void setUp() {
+        keyboard = productRepository.save(product("Keyboard", "49.99", 10, true));
+        mouse = productRepository.save(product("Mouse", "19.99", 3, true));
+        monitor = productRepository.save(product("Monitor", "199.00", 5, true));
+        retired = productRepository.save(product("Old Radio", "9.99", 1, false));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void appliesAbsoluteAndDeltaChangesAndReportsEachItem() {
+        ProductBulkUpdateResponse response = bulkUpdateService.bulkUpdate(List.of(
+                item(keyboard.getId(), 7, null, ProductBulkUpdateRequest.Mode.ABSOLUTE),
+                item(mouse.getId(), -1, new BigDecimal("1.00"), ProductBulkUpdateRequest.Mode.DELTA),
+                item(monitor.getId(), 5, null, ProductBulkUpdateRequest.Mode.ABSOLUTE),
+                item(retired.getId(), 4, null, ProductBulkUpdateRequest.Mode.ABSOLUTE),
+                item(999_999L, 4, null, ProductBulkUpdateRequest.Mode.ABSOLUTE)));
+
+        assertThat(response.updated()).isEqualTo(2);
+        assertThat(response.unchanged()).isEqualTo(1);
+        assertThat(response.failed()).isEqualTo(2);
+        assertThat(response.results()).extracting(ProductBulkUpdateResponse.ItemResult::status)
+                .containsExactly(Status.UPDATED, Status.UPDATED, Status.UNCHANGED, Status.NOT_FOUND, Status.NOT_FOUND);
+        assertThat(response.results().get(1).stock()).isEqualTo(2);
+        assertThat(response.results().get(1).price()).isEqualByComparingTo("20.99");
+
+        entityManager.clear();
+        assertThat(productRepository.findById(keyboard.getId()).orElseThrow().getStock()).isEqualTo(7);
+        Product updatedMouse = productRepository.findById(mouse.getId()).orElseThrow();
+        assertThat(updatedMouse.getStock()).isEqualTo(2);
+        assertThat(updatedMouse.getPrice()).isEqualByComparingTo("20.99");
+        assertThat(productRepository.findById(retired.getId()).orElseThrow().getStock()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsInvalidItemsWithoutTouchingTheirProducts() {
+        ProductBulkUpdateResponse response = bulkUpdateService.bulkUpdate(List.of(
+                item(keyboard.getId(), -11, null, ProductBulkUpdateRequest.Mode.DELTA),
+                item(mouse.getId(), -1, null, ProductBulkUpdateRequest.Mode.ABSOLUTE),
+                item(monitor.getId(), 8, null, ProductBulkUpdateRequest.Mode.ABSOLUTE),
+                item(monitor.getId(), 9, null, ProductBulkUpdateRequest.Mode.ABSOLUTE),
+                item(keyboard.getId(), null, null, ProductBulkUpdateRequest.Mode.ABSOLUTE)));
+
+        assertThat(response.results()).extracting(ProductBulkUpdateResponse.ItemResult::status)
+                .containsExactly(Status.REJECTED, Status.REJECTED, Status.UPDATED, Status.REJECTED, Status.REJECTED);
+        assertThat(response.results().get(0).message()).isEqualTo("Stock would become -1");
+        assertThat(response.results().get(3).message()).contains("more than once");
+
+        entityManager.clear();
+        assertThat(productRepository.findById(keyboard.getId()).orElseThrow().getStock()).isEqualTo(10);
+        assertThat(productRepository.findById(mouse.getId()).orElseThrow().getStock()).isEqualTo(3);
+        assertThat(productRepository.findById(monitor.getId()).orElseThrow().getStock()).isEqualTo(8);
+    }
+
+    @Test
+    void publishesOneEventForTheWholeUpdate() {
+        bulkUpdateService.bulkUpdate(List.of(
+                item(keyboard.getId(), 0, null, ProductBulkUpdateRequest.Mode.ABSOLUTE),
+                item(mouse.getId(), null, new BigDecimal("17.50"), ProductBulkUpdateRequest.Mode.ABSOLUTE)));
+
+        assertThat(events.stream(ProductChangedEvent.class)).isEmpty();
+        assertThat(events.stream(ProductsUpdatedEvent.class)).hasSize(1);
+        List<ProductChangedEvent> changes = events.stream(ProductsUpdatedEvent.class).findFirst().orElseThrow().changes();
+        assertThat(changes).extracting(ProductChangedEvent::type)
+                .containsExactly(ProductChangedEvent.Type.STOCK_UPDATED, ProductChangedEvent.Type.UPDATED);
+        assertThat(changes.get(0).before().getStock()).isEqualTo(10);
+        assertThat(changes.get(0).after().getStock()).isZero();
+        assertThat(changes.get(1).after().getPrice()).isEqualByComparingTo("17.50");
+    }
+
+    private static ProductBulkUpdateRequest.Item item(Long id, Integer stock, BigDecimal price,
+                                                      ProductBulkUpdateRequest.Mode mode) {
+        ProductBulkUpdateRequest.Item item = new ProductBulkUpdateRequest.Item();
+        item.setId(id);
+        item.setStock(stock);
+        item.setPrice(price);
+        item.setMode(mode);
+        return item;
+    }
+
+    private static Product product(String name, String price, int stock, boolean active) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory("Electronics");
+        product.setPrice(new BigDecimal(price));
+        product.setStock(stock);
+        product.setRating(BigDecimal.ZERO);
+        product.setActive(active);
+        return product;
+    }
+}
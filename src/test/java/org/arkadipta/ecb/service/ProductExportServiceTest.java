@@ -0,0 +1,145 @@
+package org.arkadipta.ecb.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.product.ProductExportFormat;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({JpaConfig.class, ProductExportService.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ProductExportServiceTest {
+
+    @Autowired
+    private ProductExportService exportService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Product lamp;
+    private Product chair;
+    private Product retired;
+
+    @BeforeEach
+    void setUp() {
+        lamp = productRepository.save(product("Desk Lamp", "Warm, dimmable \"LED\" lamp", true));
+        chair = productRepository.save(product("Chair", null, true));
+        retired = productRepository.save(product("Old Radio", "Line one\nline two", false));
+    }
+
+    @Test
+    void writesOneJsonObjectPerLineForActiveProducts() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = exportService.export(ProductExportFormat.NDJSON, null, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(written).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(lamp.getId());
+        assertThat(first.get("description").asText()).isEqualTo("Warm, dimmable \"LED\" lamp");
+        assertThat(first.get("price").decimalValue()).isEqualByComparingTo("19.99");
+        assertThat(objectMapper.readTree(lines[1]).get("id").asLong()).isEqualTo(chair.getId());
+    }
+
+    @Test
+    void writesCsvTheImportReaderParsesBack() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exportService.export(ProductExportFormat.CSV, null, output);
+
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(output.toString(StandardCharsets.UTF_8)));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+        }
+        assertThat(records).hasSize(3);
+        assertThat(records.get(0)).startsWith("id", "name", "description", "price");
+        assertThat(records.get(1)).startsWith(String.valueOf(lamp.getId()), "Desk Lamp",
+                "Warm, dimmable \"LED\" lamp", "19.99");
+        assertThat(records.get(2).get(2)).isEmpty();
+    }
+
+    @Test
+    void incrementalExportIncludesDeactivatedProducts() throws Exception {
+        LocalDateTime since = LocalDateTime.now().minusHours(1);
+        jdbcTemplate.update("UPDATE products SET updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(since.minusDays(1)), chair.getId());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = exportService.export(ProductExportFormat.NDJSON, since, output);
+
+        List<Long> ids = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            ids.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        assertThat(written).isEqualTo(2);
+        assertThat(ids).containsExactly(lamp.getId(), retired.getId());
+    }
+
+    @Test
+    void nextWatermarkCatchesAChangeStampedBeforeTheExportButCommittedAfterIt() throws Exception {
+        LocalDateTime exportStart = LocalDateTime.now();
+        LocalDateTime next = exportService.nextUpdatedSince();
+        long written = exportService.export(ProductExportFormat.NDJSON, exportStart.minusHours(1),
+                new ByteArrayOutputStream());
+        assertThat(written).isEqualTo(3);
+
+        // A concurrent transaction flushed its update a second before the export began and commits now
+        Product desk = productRepository.save(product("Standing Desk", null, true));
+        jdbcTemplate.update("UPDATE products SET updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(exportStart.minusSeconds(1)), desk.getId());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        exportService.export(ProductExportFormat.NDJSON, next, output);
+
+        List<Long> ids = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            ids.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        assertThat(next).isBefore(exportStart.minusSeconds(1));
+        // Rows from the previous export come again, which is why consumers dedupe
+        assertThat(ids).contains(desk.getId(), lamp.getId());
+    }
+
+    private static Product product(String name, String description, boolean active) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setCategory("Home");
+        product.setPrice(new BigDecimal("19.99"));
+        product.setStock(4);
+        product.setRating(BigDecimal.ZERO);
+        product.setActive(active);
+        return product;
+    }
+}
@@ -0,0 +1,161 @@
+package org.arkadipta.ecb.service;
+
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.product.ProductImportResponse;
+import org.arkadipta.ecb.event.ProductChangedEvent;
+import org.arkadipta.ecb.event.ProductsImportedEvent;
+import org.arkadipta.ecb.exception.InvalidImportException;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductBulkRepository;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({JpaConfig.class, ProductImportService.class, ProductBulkRepository.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@TestPropertySource(properties = "products.import.batch-size=2")
+@RecordApplicationEvents
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService importService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Test
+    void importsValidCsvRowsAndReportsTheRest() {
+        String csv = """
+                category,name,price,stock,description
+                Books,"Dune, Deluxe Edition",24.50,10,"A ""classic"",
+                spanning two lines"
+                Books,Neuromancer,abc,5,
+                Games,Chess Set,15.00,-1,
+                Games,Go Board,30
+                Games,Playing Cards,3.99,100,
+
+                Music,Vinyl Cleaner,12.00,7,Keeps records clean
+                """;
+
+        ProductImportResponse response = importService.importCsv(stream(csv));
+
+        assertThat(response.imported()).isEqualTo(3);
+        assertThat(response.failed()).isEqualTo(3);
+        assertThat(response.errors()).extracting(ProductImportResponse.RowError::line).containsExactly(4L, 5L, 6L);
+        assertThat(response.errors().get(0).message()).contains("price");
+        assertThat(response.errors().get(1).message()).startsWith("stock: ");
+        assertThat(response.errors().get(2).message()).contains("Expected 5 fields but found 3");
+
+        List<Product> products = productRepository.findAll(Sort.by("id"));
+        assertThat(products).extracting(Product::getName)
+                .containsExactly("Dune, Deluxe Edition", "Playing Cards", "Vinyl Cleaner");
+        assertThat(products.get(0).getDescription()).isEqualTo("A \"classic\",\nspanning two lines");
+        assertThat(products.get(0).getPrice()).isEqualByComparingTo(new BigDecimal("24.50"));
+        assertThat(products.get(0).isActive()).isTrue();
+        assertThat(products.get(0).getCreatedAt()).isNotNull();
+    }
+
+    @Test
+    void announcesEveryProductAndInvalidatesOnce() {
+        String ndjson = """
+                {"name":"Keyboard","price":49.99,"stock":3,"category":"Electronics"}
+                {"name":"Mouse","price":19.99,"stock":8,"category":"Electronics"}
+                {"name":"Broken",
+                {"name":"Desk Lamp","price":29.00,"stock":2,"category":"Home"}
+                """;
+
+        ProductImportResponse response = importService.importNdjson(stream(ndjson));
+
+        assertThat(response.imported()).isEqualTo(3);
+        assertThat(response.errors()).singleElement()
+                .satisfies(error -> assertThat(error.line()).isEqualTo(3));
+
+        List<ProductChangedEvent> changes = events.stream(ProductChangedEvent.class).toList();
+        assertThat(changes).hasSize(3)
+                .allSatisfy(event -> assertThat(event.type()).isEqualTo(ProductChangedEvent.Type.IMPORTED));
+        assertThat(changes).extracting(ProductChangedEvent::productId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(events.stream(ProductsImportedEvent.class).toList())
+                .containsExactly(new ProductsImportedEvent(3, Set.of("Electronics", "Home")));
+    }
+
+    @Test
+    void reportsAMalformedRecordAfterCommittedBatchesAsARowError() {
+        String csv = """
+                name,price,stock,category
+                Atlas,10.00,1,Books
+                Globe,20.00,2,Books
+                Compass,5.00,3,Outdoors
+                Map,"3.00,4,Outdoors
+                """;
+
+        ProductImportResponse response = importService.importCsv(stream(csv));
+
+        assertThat(response.imported()).isEqualTo(3);
+        assertThat(response.failed()).isEqualTo(1);
+        assertThat(response.stopped()).isNull();
+        assertThat(response.errors()).singleElement()
+                .isEqualTo(new ProductImportResponse.RowError(5, "Unterminated quoted field"));
+        assertThat(productRepository.findAll()).extracting(Product::getName)
+                .containsExactlyInAnyOrder("Atlas", "Globe", "Compass");
+    }
+
+    @Test
+    void reportsHowFarAnImportGotWhenTheInputBreaksOff() {
+        byte[] rows = """
+                name,price,stock,category
+                Atlas,10.00,1,Books
+                Globe,20.00,2,Books
+                Compass,5.00,3,Outdoors
+                """.getBytes(StandardCharsets.UTF_8);
+        InputStream disconnecting = new SequenceInputStream(new ByteArrayInputStream(rows), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        ProductImportResponse response = importService.importCsv(disconnecting);
+
+        assertThat(response.imported()).isEqualTo(3);
+        assertThat(response.stopped()).contains("after line 4").contains("Connection reset");
+        assertThat(productRepository.count()).isEqualTo(3);
+        assertThat(events.stream(ProductsImportedEvent.class).toList())
+                .containsExactly(new ProductsImportedEvent(3, Set.of("Books", "Outdoors")));
+    }
+
+    @Test
+    void rejectsAnUnknownCsvColumn() {
+        assertThatThrownBy(() -> importService.importCsv(stream("name,price,stock,category,colour\n")))
+                .isInstanceOf(InvalidImportException.class)
+                .hasMessageContaining("colour");
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,118 @@
+package org.arkadipta.ecb.service;
+
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.product.ProductResponse;
+import org.arkadipta.ecb.dto.product.ProductScrollResponse;
+import org.arkadipta.ecb.exception.InvalidCursorException;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({JpaConfig.class, ProductService.class, ProductCursorCodec.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ProductScrollTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 25; i++) {
+            // Prices repeat so the id tie-breaker matters
+            productRepository.save(product("Product " + i, i % 2 == 0 ? "Books" : "Games", new BigDecimal(10 + i % 5)));
+        }
+    }
+
+    @Test
+    void walksEveryProductOnceInSortOrder() {
+        Sort sort = Sort.by("price").descending();
+        List<ProductResponse> seen = scrollAll(null, sort, 7);
+
+        assertThat(seen).hasSize(25);
+        assertThat(seen).extracting(ProductResponse::getId).doesNotHaveDuplicates();
+        for (int i = 1; i < seen.size(); i++) {
+            ProductResponse previous = seen.get(i - 1);
+            ProductResponse current = seen.get(i);
+            int byPrice = current.getPrice().compareTo(previous.getPrice());
+            assertThat(byPrice < 0 || (byPrice == 0 && current.getId() > previous.getId())).isTrue();
+        }
+    }
+
+    @Test
+    void insertsBehindTheCursorDoNotShiftLaterWindows() {
+        Sort sort = Sort.by("id");
+        ProductScrollResponse first = productService.scrollProducts(sort, 10, null);
+        List<Long> ids = new ArrayList<>(first.content().stream().map(ProductResponse::getId).toList());
+
+        // With OFFSET paging these would push already-seen rows onto the next page
+        productRepository.save(product("Late arrival", "Books", BigDecimal.ONE));
+        productRepository.save(product("Later arrival", "Books", BigDecimal.ONE));
+
+        String cursor = first.nextCursor();
+        while (cursor != null) {
+            ProductScrollResponse window = productService.scrollProducts(sort, 10, cursor);
+            window.content().forEach(product -> ids.add(product.getId()));
+            cursor = window.nextCursor();
+        }
+
+        assertThat(ids).hasSize(27).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    void scrollsFilteredSearchResults() {
+        ProductScrollResponse window = productService.scrollSearchProducts(
+                "Books", "product", null, null, null, Sort.by("name"), 5, null);
+
+        assertThat(window.content()).hasSize(5).allMatch(product -> product.getCategory().equals("Books"));
+        assertThat(window.hasNext()).isTrue();
+    }
+
+    @Test
+    void rejectsMalformedCursorsAndUnsupportedSorts() {
+        assertThatThrownBy(() -> productService.scrollProducts(Sort.by("id"), 5, "not-a-cursor"))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> productService.scrollProducts(Sort.by("updatedAt"), 5, null))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private List<ProductResponse> scrollAll(String category, Sort sort, int size) {
+        List<ProductResponse> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            ProductScrollResponse window = productService.scrollSearchProducts(
+                    category, null, null, null, null, sort, size, cursor);
+            seen.addAll(window.content());
+            cursor = window.nextCursor();
+        } while (cursor != null);
+        return seen;
+    }
+
+    private static Product product(String name, String category, BigDecimal price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setPrice(price);
+        product.setStock(5);
+        product.setRating(BigDecimal.ZERO);
+        product.setActive(true);
+        return product;
+    }
+}
@@ -0,0 +1,76 @@
+package org.arkadipta.ecb.service;
+
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.dto.product.ProductSliceResponse;
+import org.arkadipta.ecb.model.Product;
+import org.arkadipta.ecb.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({JpaConfig.class, ProductService.class, ProductCountService.class, ProductCursorCodec.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class ProductSliceTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCountService productCountService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 12; i++) {
+            productRepository.save(product("Product " + i, i <= 4 ? "Books" : "Games"));
+        }
+    }
+
+    @Test
+    void reportsHasNextWithoutATotal() {
+        ProductSliceResponse first = productService.getProductSlice(PageRequest.of(0, 5, Sort.by("id")));
+        ProductSliceResponse last = productService.getProductSlice(PageRequest.of(2, 5, Sort.by("id")));
+
+        assertThat(first.content()).hasSize(5);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.sortedBy()).containsExactly("id");
+        assertThat(first.totalElements()).isNull();
+        assertThat(last.content()).hasSize(2);
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void countsPerFilterCombination() {
+        ProductSliceResponse books = productService.searchProductSlice(
+                "Books", null, null, null, null, PageRequest.of(0, 3, Sort.by("id")));
+
+        assertThat(books.hasNext()).isTrue();
+        assertThat(productCountService.countMatching("Books", null, null, null, null).total()).isEqualTo(4);
+        assertThat(productCountService.countActive().total()).isEqualTo(12);
+        assertThat(books.withTotal(4, true).totalExact()).isTrue();
+    }
+
+    private static Product product(String name, String category) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setPrice(BigDecimal.TEN);
+        product.setStock(5);
+        product.setRating(BigDecimal.ZERO);
+        product.setActive(true);
+        return product;
+    }
+}
@@ -0,0 +1,185 @@
+package org.arkadipta.ecb.service;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.arkadipta.ecb.config.JpaConfig;
+import org.arkadipta.ecb.model.User;
+import org.arkadipta.ecb.model.enums.Role;
+import org.arkadipta.ecb.repository.UserRepository;
+import org.arkadipta.ecb.security.JwtAuthenticationFilter;
+import org.arkadipta.ecb.security.JwtPrincipal;
+import org.arkadipta.ecb.security.JwtUtils;
+import org.arkadipta.ecb.security.TokenRevocationStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(JpaConfig.class)
+class UserServiceTest {
+
+    private static final String SECRET = "dGVzdFNlY3JldEtleTEyMzQ1Njc4OTAxMjM0NTY3ODkwMTIzNDU2Nzg5MDEyMzQ1Njc4OTA=";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private RedisMessageListenerContainer listenerContainer;
+    private JwtUtils jwtUtils;
+    private UserService userService;
+    private JwtAuthenticationFilter filter;
+    private User user;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        redisServer = RedisServer.newRedisServer().start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        TokenRevocationStore revocationStore =
+                new TokenRevocationStore(redisTemplate, listenerContainer, "ecb:auth:revocations");
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpirationMs", 7_200_000);
+        ReflectionTestUtils.setField(jwtUtils, "claimsCacheSize", 100L);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        userService = new UserService(userRepository, revocationStore);
+        filter = new JwtAuthenticationFilter(jwtUtils, username -> userRepository.findByEmail(username)
+                .orElseThrow(() -> new UsernameNotFoundException(username)), revocationStore, new SimpleMeterRegistry());
+
+        user = new User();
+        user.setName("Ada");
+        user.setEmail("ada@example.com");
+        user.setPassword("secret-password");
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        SecurityContextHolder.clearContext();
+        userRepository.deleteAll();
+        listenerContainer.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @Test
+    void disablingAUserRejectsTheirTokensEvenWhenAuthenticatingFromClaims() throws Exception {
+        String token = jwtUtils.generateToken(user);
+        assertThat(authenticate(token, true)).isNotNull();
+
+        userService.setEnabled(user.getId(), false);
+
+        assertThat(authenticate(token, true)).isNull();
+        assertThat(authenticate(token, false)).isNull();
+    }
+
+    @Test
+    void changingTheRoleRejectsTokensIssuedBeforeTheChangeOnly() throws Exception {
+        String before = jwtUtils.generateToken(user);
+
+        userService.updateRole(user.getId(), Role.ADMIN);
+        // Tokens issued in the same millisecond as the cut-off count as issued before it
+        Thread.sleep(2);
+        String after = jwtUtils.generateToken(userRepository.findById(user.getId()).orElseThrow());
+
+        assertThat(authenticate(before, true)).isNull();
+        Authentication authentication = authenticate(after, true);
+        assertThat(authentication).isNotNull();
+        assertThat(authentication.getPrincipal()).isInstanceOf(JwtPrincipal.class);
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void reEnablingAUserAcceptsOnlyTokensIssuedAfterwards() throws Exception {
+        String beforeDisable = jwtUtils.generateToken(user);
+        userService.setEnabled(user.getId(), false);
+
+        userService.setEnabled(user.getId(), true);
+        Thread.sleep(2);
+        String afterEnable = jwtUtils.generateToken(user);
+
+        assertThat(authenticate(beforeDisable, false)).isNull();
+        assertThat(authenticate(afterEnable, false)).isNotNull();
+        assertThat(authenticate(afterEnable, true)).isNotNull();
+    }
+
+    @Test
+    void revokesOnlyOnceTheChangeCommitsIncludingTokensIssuedBeforeIt() throws Exception {
+        String before = jwtUtils.generateToken(user);
+        String[] inFlight = new String[1];
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.updateRole(user.getId(), Role.ADMIN);
+            // A login racing the change still reads the old role
+            inFlight[0] = jwtUtils.generateToken(user);
+            try {
+                assertThat(authenticate(before, true)).isNotNull();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(authenticate(before, true)).isNull();
+        assertThat(authenticate(inFlight[0], true)).isNull();
+    }
+
+    @Test
+    void aRolledBackChangeRevokesNothing() throws Exception {
+        String token = jwtUtils.generateToken(user);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.setEnabled(user.getId(), false);
+            status.setRollbackOnly();
+        });
+
+        assertThat(userRepository.findById(user.getId()).orElseThrow().isEnabled()).isTrue();
+        assertThat(authenticate(token, true)).isNotNull();
+    }
+
+    private Authentication authenticate(String token, boolean statelessPrincipal) throws Exception {
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", statelessPrincipal);
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}